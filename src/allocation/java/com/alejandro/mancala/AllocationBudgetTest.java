@@ -0,0 +1,188 @@
+package com.alejandro.mancala;
+
+import com.alejandro.mancala.game.Board;
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.game.State;
+import com.alejandro.mancala.message.MessageService;
+import com.alejandro.mancala.message.SendPipeline;
+import com.alejandro.mancala.message.SlowConsumerPolicy;
+import com.alejandro.mancala.player.PlayerService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Allocation budgets of the per-move hot path, from handleTextMessage through moveStones to the frames sent by
+ * MessageService, and of a whole game: both players connecting, playing random legal moves to the end and leaving.
+ *
+ * Bytes are counted by the allocation counter of the test thread, which runs everything as frames are sent on the
+ * calling thread over stub sessions. Games are played first to let the JIT settle, then the lowest average of a few
+ * rounds is checked, so a GC or a compilation in the middle of one round doesn't fail the build. The budgets come
+ * from the system properties mancala.allocation.move-budget and mancala.allocation.game-budget, in bytes. Logging
+ * is turned down to WARN, so they don't depend on the logging configuration.
+ *
+ * @author afernandez
+ */
+public class AllocationBudgetTest {
+    private static final long MOVE_BUDGET = Long.getLong("mancala.allocation.move-budget", 1536);
+    private static final long GAME_BUDGET = Long.getLong("mancala.allocation.game-budget", 102400);
+
+    private static final int WARMUP_GAMES = 2000;
+    private static final int GAMES_PER_ROUND = 500;
+    private static final int ROUNDS = 5;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private final TextMessage[] firstPlayerMoves = new TextMessage[Board.PITS];
+    private final TextMessage[] secondPlayerMoves = new TextMessage[Board.PITS];
+
+    private GameService gameService;
+    private PlayerService playerService;
+    private GameHandler gameHandler;
+    private int sessions;
+
+    private long moves;
+    private long moveBytes;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        gameService = new GameService();
+        playerService = new PlayerService(
+                new SendPipeline(new CallerRunsExecutor(), 1 << 16, 5000, SlowConsumerPolicy.DROP));
+        gameHandler = new GameHandler(playerService, gameService, new MessageService());
+
+        for (int pit = 0; pit < Board.PITS; pit++) {
+            firstPlayerMoves[pit] = move(MessageService.FIRST_PLAYER, pit);
+            secondPlayerMoves[pit] = move(MessageService.SECOND_PLAYER, pit);
+        }
+        for (int i = 0; i < WARMUP_GAMES; i++) {
+            playGame();
+        }
+    }
+
+    @Test
+    public void testMoveWithinBudget() throws Exception {
+        long bytesPerMove = Long.MAX_VALUE;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            moves = 0;
+            moveBytes = 0;
+
+            for (int i = 0; i < GAMES_PER_ROUND; i++) {
+                playGame();
+            }
+            bytesPerMove = Math.min(bytesPerMove, moveBytes / moves);
+        }
+        assertTrue("A move allocates " + bytesPerMove + " bytes, over the budget of " + MOVE_BUDGET,
+                bytesPerMove <= MOVE_BUDGET);
+    }
+
+    @Test
+    public void testGameWithinBudget() throws Exception {
+        long bytesPerGame = Long.MAX_VALUE;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final long start = allocatedBytes();
+
+            for (int i = 0; i < GAMES_PER_ROUND; i++) {
+                playGame();
+            }
+            bytesPerGame = Math.min(bytesPerGame, (allocatedBytes() - start) / GAMES_PER_ROUND);
+        }
+        assertTrue("A game allocates " + bytesPerGame + " bytes, over the budget of " + GAME_BUDGET,
+                bytesPerGame <= GAME_BUDGET);
+    }
+
+    // Connects two players, plays random legal moves until the game is over and disconnects them
+    private void playGame() throws Exception {
+        final StubWebSocketSession firstPlayerSession = new StubWebSocketSession(String.valueOf(++sessions));
+        final StubWebSocketSession secondPlayerSession = new StubWebSocketSession(String.valueOf(++sessions));
+
+        gameHandler.afterConnectionEstablished(firstPlayerSession);
+        gameHandler.afterConnectionEstablished(secondPlayerSession);
+
+        final Game game = gameService.getGame(playerService.getPlayer(firstPlayerSession.getId()).getGameId());
+
+        while (game.getState() == State.STARTED) {
+            final boolean firstPlayer = game.isFirstPlayerTurn();
+            final Board board = game.getBoard();
+            final long side = firstPlayer ? board.getFirstPlayerSide() : board.getSecondPlayerSide();
+
+            int pit = random.nextInt(Board.PITS);
+            while (Board.stones(side, pit) == 0) {
+                pit = (pit + 1) % Board.PITS;
+            }
+            final long start = allocatedBytes();
+
+            if (firstPlayer) {
+                gameHandler.handleTextMessage(firstPlayerSession, firstPlayerMoves[pit]);
+            } else {
+                gameHandler.handleTextMessage(secondPlayerSession, secondPlayerMoves[pit]);
+            }
+            moveBytes += allocatedBytes() - start;
+            moves++;
+        }
+        gameHandler.afterConnectionClosed(firstPlayerSession, CloseStatus.NORMAL);
+        gameHandler.afterConnectionClosed(secondPlayerSession, CloseStatus.NORMAL);
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static TextMessage move(String player, int pit) {
+        return new TextMessage("{\"pitSelected\":" + pit + ",\"player\":\"" + player + "\"}");
+    }
+
+    /**
+     * Runs every task right away on the calling thread.
+     */
+    private static class CallerRunsExecutor extends AbstractExecutorService {
+
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.alejandro.mancala;
+
+import com.alejandro.mancala.game.Board;
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.game.State;
+import com.alejandro.mancala.message.InputMessage;
+import com.alejandro.mancala.message.MessageService;
+import com.alejandro.mancala.message.SendPipeline;
+import com.alejandro.mancala.message.SlowConsumerPolicy;
+import com.alejandro.mancala.player.PlayerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end benchmark of a move: parsing, engine and sending the updates to both players, with random legal moves
+ * over stub sessions. Frames are sent on the calling thread so that the send is part of the time measured. When a
+ * game finishes both players leave and a new pair connects, so the game lifecycle is amortized over its moves.
+ *
+ * @author afernandez
+ */
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameHandlerBenchmark {
+    private static final int SOWING_CYCLE = 2 * Board.PITS + 1;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Random random = new Random(42);
+
+    private final TextMessage[] firstPlayerMoves = new TextMessage[Board.PITS];
+    private final TextMessage[] secondPlayerMoves = new TextMessage[Board.PITS];
+
+    private GameService gameService;
+    private PlayerService playerService;
+    private GameHandler gameHandler;
+
+    private StubWebSocketSession firstPlayerSession;
+    private StubWebSocketSession secondPlayerSession;
+    private Game game;
+    private boolean firstPlayerTurn;
+    private int sessions;
+
+    @Setup
+    public void setUp() throws Exception {
+        gameService = new GameService();
+        playerService = new PlayerService(
+                new SendPipeline(new CallerRunsExecutor(), 1 << 16, 5000, SlowConsumerPolicy.DROP));
+        gameHandler = new GameHandler(playerService, gameService, new MessageService());
+
+        for (int pit = 0; pit < Board.PITS; pit++) {
+            firstPlayerMoves[pit] = move(MessageService.FIRST_PLAYER, pit);
+            secondPlayerMoves[pit] = move(MessageService.SECOND_PLAYER, pit);
+        }
+        startGame();
+    }
+
+    @Benchmark
+    public void handleTextMessage() throws Exception {
+        final Board board = game.getBoard();
+        final long side = firstPlayerTurn ? board.getFirstPlayerSide() : board.getSecondPlayerSide();
+
+        int pit = random.nextInt(Board.PITS);
+        while (Board.stones(side, pit) == 0) {
+            pit = (pit + 1) % Board.PITS;
+        }
+        final boolean repeatTurn = (pit + Board.stones(side, pit)) % SOWING_CYCLE == Board.BIG_PIT;
+
+        if (firstPlayerTurn) {
+            gameHandler.handleTextMessage(firstPlayerSession, firstPlayerMoves[pit]);
+        } else {
+            gameHandler.handleTextMessage(secondPlayerSession, secondPlayerMoves[pit]);
+        }
+
+        if (game.getState() != State.STARTED) {
+            gameHandler.afterConnectionClosed(firstPlayerSession, CloseStatus.NORMAL);
+            gameHandler.afterConnectionClosed(secondPlayerSession, CloseStatus.NORMAL);
+            startGame();
+        } else if (!repeatTurn) {
+            firstPlayerTurn = !firstPlayerTurn;
+        }
+    }
+
+    private void startGame() throws Exception {
+        firstPlayerSession = new StubWebSocketSession(String.valueOf(++sessions));
+        secondPlayerSession = new StubWebSocketSession(String.valueOf(++sessions));
+
+        gameHandler.afterConnectionEstablished(firstPlayerSession);
+        gameHandler.afterConnectionEstablished(secondPlayerSession);
+
+        game = gameService.getGame(playerService.getPlayer(firstPlayerSession.getId()).getGameId());
+        firstPlayerTurn = true;
+    }
+
+    private TextMessage move(String player, int pit) throws Exception {
+        InputMessage message = new InputMessage();
+        message.setPlayer(player);
+        message.setPitSelected(pit);
+
+        return new TextMessage(mapper.writeValueAsString(message));
+    }
+
+    /**
+     * Runs every task right away on the calling thread.
+     */
+    private static class CallerRunsExecutor extends AbstractExecutorService {
+
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
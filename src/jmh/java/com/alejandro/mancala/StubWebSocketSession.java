@@ -0,0 +1,50 @@
+package com.alejandro.mancala;
+
+import com.alejandro.mancala.player.ConnectionlessSession;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.net.URI;
+
+/**
+ * Session that only counts the frames sent to it, so that benchmarks measure the server side of a send.
+ *
+ * @author afernandez
+ */
+public class StubWebSocketSession extends ConnectionlessSession {
+    private boolean open = true;
+    private long framesSent;
+    private long bytesSent;
+
+    public StubWebSocketSession(String id) {
+        this(id, null);
+    }
+
+    public StubWebSocketSession(String id, String acceptedProtocol) {
+        super(id, URI.create("ws://localhost:9000/mancala"), acceptedProtocol);
+    }
+
+    public long getFramesSent() {
+        return framesSent;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        framesSent++;
+        bytesSent += message.getPayloadLength();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        open = false;
+    }
+}
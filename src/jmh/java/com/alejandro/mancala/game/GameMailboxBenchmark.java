@@ -0,0 +1,79 @@
+package com.alejandro.mancala.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks for GameMailbox under contention: every thread submitting to the same mailbox, as both players of a
+ * game do, against every thread having its own mailbox, as different games do. They run with a thread per
+ * processor, and main runs them with 1, 2, 4 and as many threads as processors to see how they scale with the cores.
+ *
+ * @author afernandez
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class GameMailboxBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Benchmark)
+    public static class SharedMailbox {
+        final GameMailbox mailbox = new GameMailbox();
+        long events;
+    }
+
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    public static class OwnMailbox {
+        final GameMailbox mailbox = new GameMailbox();
+        long events;
+    }
+
+    @Benchmark
+    public void sharedMailbox(SharedMailbox state) {
+        state.mailbox.execute(() -> state.events++);
+    }
+
+    @Benchmark
+    public void ownMailbox(OwnMailbox state) {
+        state.mailbox.execute(() -> state.events++);
+    }
+
+    /**
+     * Runs the benchmarks with each thread count.
+     *
+     * @param args The directory to write the results of each thread count to as JSON, none to only print them
+     */
+    public static void main(String[] args) throws RunnerException {
+        final int processors = Runtime.getRuntime().availableProcessors();
+
+        for (int threads : IntStream.of(1, 2, 4, processors).distinct().sorted().toArray()) {
+            final ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(GameMailboxBenchmark.class.getName())
+                    .threads(threads);
+
+            if (args.length > 0) {
+                options.resultFormat(ResultFormatType.JSON)
+                        .result(new File(args[0], "mailbox-" + threads + "-threads.json").getPath());
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
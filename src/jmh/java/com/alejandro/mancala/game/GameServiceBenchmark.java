@@ -0,0 +1,156 @@
+package com.alejandro.mancala.game;
+
+import com.alejandro.mancala.message.InputMessage;
+import com.alejandro.mancala.message.MessageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the game engine in GameService. Every invocation replays one of a set of positions reached by
+ * random play, so the moves measured have the mix of stones and captures of real games.
+ *
+ * moveStonesLoop is the per-stone loop over an array of pits that the sowing tables replaced, kept as a baseline.
+ *
+ * @author afernandez
+ */
+// Fully qualified, State in this package is the game's state
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameServiceBenchmark {
+    private static final int POSITIONS = 1024;
+
+    private final GameService gameService = new GameService();
+    private final Game game = new Game(1);
+
+    private final long[] firstPlayerSides = new long[POSITIONS];
+    private final long[] secondPlayerSides = new long[POSITIONS];
+    private final InputMessage[] moves = new InputMessage[POSITIONS];
+    private final int[][] pits = new int[POSITIONS][];
+
+    private final int[] loopPits = new int[Board.ALL_PITS];
+    private int position;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        Game randomGame = new Game(1);
+        boolean firstPlayer = true;
+
+        for (int i = 0; i < POSITIONS; i++) {
+            if (gameService.isGameFinished(randomGame)) {
+                randomGame = new Game(1);
+                firstPlayer = true;
+            }
+            final Board board = randomGame.getBoard();
+            final long side = firstPlayer ? board.getFirstPlayerSide() : board.getSecondPlayerSide();
+
+            int pit;
+            do {
+                pit = random.nextInt(Board.PITS);
+            } while (Board.stones(side, pit) == 0);
+
+            moves[i] = new InputMessage();
+            moves[i].setPlayer(firstPlayer ? MessageService.FIRST_PLAYER : MessageService.SECOND_PLAYER);
+            moves[i].setPitSelected(pit);
+            firstPlayerSides[i] = board.getFirstPlayerSide();
+            secondPlayerSides[i] = board.getSecondPlayerSide();
+            pits[i] = moverPits(board, firstPlayer);
+
+            if (!gameService.moveStones(randomGame, moves[i])) {
+                firstPlayer = !firstPlayer;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean moveStones() {
+        final int i = nextPosition();
+        game.getBoard().setFirstPlayerSide(firstPlayerSides[i]);
+        game.getBoard().setSecondPlayerSide(secondPlayerSides[i]);
+
+        return gameService.moveStones(game, moves[i]);
+    }
+
+    @Benchmark
+    public boolean moveStonesLoop() {
+        final int i = nextPosition();
+        System.arraycopy(pits[i], 0, loopPits, 0, Board.ALL_PITS);
+
+        return sowWithLoop(loopPits, moves[i].getPitSelected());
+    }
+
+    @Benchmark
+    public boolean isGameFinished() {
+        final int i = nextPosition();
+        game.getBoard().setFirstPlayerSide(firstPlayerSides[i]);
+        game.getBoard().setSecondPlayerSide(secondPlayerSides[i]);
+
+        return gameService.isGameFinished(game);
+    }
+
+    @Benchmark
+    public State calculateWinner() {
+        final int i = nextPosition();
+        game.getBoard().setFirstPlayerSide(firstPlayerSides[i]);
+        game.getBoard().setSecondPlayerSide(secondPlayerSides[i]);
+        gameService.calculateWinner(game);
+
+        return game.getState();
+    }
+
+    private int nextPosition() {
+        position = (position + 1) & (POSITIONS - 1);
+        return position;
+    }
+
+    /**
+     * Sows stone by stone over the 14 pits seen from the player moving: own pits, own big pit, opponent's pits and
+     * opponent's big pit, which is skipped.
+     */
+    private static boolean sowWithLoop(int[] pits, int pit) {
+        int stones = pits[pit];
+        int position = pit;
+        pits[pit] = 0;
+
+        while (stones > 0) {
+            position = (position + 1) % Board.ALL_PITS;
+
+            if (position != Board.ALL_PITS - 1) {
+                pits[position]++;
+                stones--;
+            }
+        }
+
+        final int opposite = 2 * Board.PITS - position;
+        if (position < Board.PITS && pits[position] == 1 && pits[opposite] > 0) {
+            pits[Board.BIG_PIT] += pits[opposite] + 1;
+            pits[position] = 0;
+            pits[opposite] = 0;
+        }
+        return position == Board.BIG_PIT;
+    }
+
+    private static int[] moverPits(Board board, boolean firstPlayer) {
+        final int[] pits = new int[Board.ALL_PITS];
+
+        for (int index = 0; index < Board.ALL_PITS; index++) {
+            int moverIndex = firstPlayer ? index : (index + Board.SIDE_PITS) % Board.ALL_PITS;
+            pits[moverIndex] = board.getStones(index);
+        }
+        return pits;
+    }
+}
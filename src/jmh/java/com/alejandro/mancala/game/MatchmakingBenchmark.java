@@ -0,0 +1,57 @@
+package com.alejandro.mancala.game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for matchmaking with the registry already holding a number of started games. Every invocation matches
+ * a pair of players, the first one creating a pending game and the second one joining it, and then removes the game
+ * so that the registry keeps its size.
+ *
+ * @author afernandez
+ */
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchmakingBenchmark {
+
+    @Param({"0", "10000", "100000", "1000000"})
+    private int registrySize;
+
+    private GameService gameService;
+
+    @Setup
+    public void setUp() {
+        gameService = new GameService();
+
+        for (int i = 0; i < registrySize; i++) {
+            Game game = gameService.matchGame();
+            game.start();
+            gameService.addGame(game);
+        }
+    }
+
+    @Benchmark
+    public Game matchPair() {
+        final Game pending = gameService.matchGame();
+        gameService.addGame(pending);
+
+        final Game started = gameService.matchGame();
+        gameService.removeGame(started.getId());
+
+        return started;
+    }
+}
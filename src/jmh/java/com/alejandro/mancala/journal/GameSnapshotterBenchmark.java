@@ -0,0 +1,74 @@
+package com.alejandro.mancala.journal;
+
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameJournal;
+import com.alejandro.mancala.game.GameService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for taking a snapshot of a registry full of started games and restoring it, as done at startup. The
+ * restore of 500k games is expected to stay well under a couple of seconds.
+ *
+ * @author afernandez
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GameSnapshotterBenchmark {
+
+    @Param({"500000"})
+    private int games;
+
+    private Path directory;
+    private GameService gameService;
+    private GameSnapshotter snapshotter;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot");
+        gameService = new GameService();
+        snapshotter = new GameSnapshotter(directory.resolve("games.snapshot"), GameJournal.DISABLED);
+
+        for (int i = 0; i < games; i++) {
+            Game game = gameService.matchGame();
+            game.start();
+            gameService.addGame(game);
+        }
+        snapshotter.snapshot(gameService);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("games.snapshot"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public int snapshot() {
+        return snapshotter.snapshot(gameService);
+    }
+
+    @Benchmark
+    public Collection<Game> restore() {
+        return snapshotter.restore();
+    }
+}
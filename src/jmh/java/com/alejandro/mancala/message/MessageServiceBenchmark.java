@@ -0,0 +1,104 @@
+package com.alejandro.mancala.message;
+
+import com.alejandro.mancala.StubWebSocketSession;
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.player.Player;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the serialization of the board updates sent after a move, one frame per player. The ObjectMapper
+ * benchmark serializes the whole message once per player, as MessageService used to, and is kept as a baseline for
+ * the streaming encoder sharing the board fields between both frames.
+ *
+ * @author afernandez
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageServiceBenchmark {
+    private static final String WAIT_TURN = "Wait for your turn!";
+    private static final String YOUR_TURN = "Your turn!";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final BoardFrameEncoder encoder = new BoardFrameEncoder(mapper.getFactory());
+    private final BinaryFrames binaryFrames = new BinaryFrames(Arrays.asList(WAIT_TURN, YOUR_TURN));
+    private final MessageService messageService = new MessageService();
+
+    private Game game;
+    private Game binaryGame;
+
+    @Setup
+    public void setUp() {
+        game = createGame(null);
+        binaryGame = createGame(BinaryFrames.PROTOCOL);
+    }
+
+    @Benchmark
+    public void objectMapperPerPlayer(Blackhole blackhole) throws Exception {
+        blackhole.consume(mapper.writeValueAsBytes(new OutputMessage(game.getBoard(), YOUR_TURN)));
+        blackhole.consume(mapper.writeValueAsBytes(new OutputMessage(game.getBoard(), WAIT_TURN)));
+    }
+
+    @Benchmark
+    public void sharedSnapshot(Blackhole blackhole) {
+        final byte[] boardFields = encoder.encodeBoard(game.getBoard());
+
+        blackhole.consume(encoder.frame(boardFields, YOUR_TURN));
+        blackhole.consume(encoder.frame(boardFields, WAIT_TURN));
+    }
+
+    @Benchmark
+    public void sharedDelta(Blackhole blackhole) {
+        final byte[] changes = encoder.encodeChanges(game.getBoard());
+
+        blackhole.consume(encoder.frame(changes, YOUR_TURN));
+        blackhole.consume(encoder.frame(changes, WAIT_TURN));
+    }
+
+    @Benchmark
+    public void binaryDelta(Blackhole blackhole) {
+        blackhole.consume(binaryFrames.delta(game.getBoard(), YOUR_TURN));
+        blackhole.consume(binaryFrames.delta(game.getBoard(), WAIT_TURN));
+    }
+
+    @Benchmark
+    public void updatePlayersNextTurn() {
+        messageService.updatePlayersNextTurn(game, game.getFirstPlayer().getSession(), false);
+    }
+
+    @Benchmark
+    public void updatePlayersNextTurnBinary() {
+        messageService.updatePlayersNextTurn(binaryGame, binaryGame.getFirstPlayer().getSession(), false);
+    }
+
+    private static Game createGame(String protocol) {
+        Game game = new Game(1);
+        game.setFirstPlayer(new Player(new StubWebSocketSession("1", protocol), 1));
+        game.setSecondPlayer(new Player(new StubWebSocketSession("2", protocol), 1));
+
+        InputMessage move = new InputMessage();
+        move.setPlayer(MessageService.FIRST_PLAYER);
+        move.setPitSelected(2);
+        new GameService().moveStones(game, move);
+
+        return game;
+    }
+}
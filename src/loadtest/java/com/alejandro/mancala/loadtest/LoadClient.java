@@ -0,0 +1,171 @@
+package com.alejandro.mancala.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.websocket.CloseReason;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated player speaking the JSON protocol. It keeps its own copy of the board, patched with every update, and
+ * whenever it is its turn it waits the think time and sows a random non-empty pit. The round trip of a move is the
+ * time until the board update answering it arrives.
+ *
+ * @author afernandez
+ */
+class LoadClient extends Endpoint implements MessageHandler.Whole<String> {
+    private static final String FIRST_PLAYER  = "First Player";
+    private static final String YOUR_TURN     = "Your turn!";
+    private static final String ADD_TURN      = "You have got an additional turn!";
+    private static final String YOU_WON       = "You have won the game! Congratulations!";
+    private static final String YOU_LOST      = "You have lost the game. Try it next time again!";
+    private static final String GAME_DRAW     = "The game ended in draw. Try it again next time!";
+    private static final String OPPONENT_LEFT = "Your opponent left the game. Please refresh the browser to start again!";
+
+    private static final int SIDE_PITS = 7;
+    private static final int PITS = 6;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final LoadStats stats;
+    private final ScheduledExecutorService scheduler;
+    private final long thinkTimeMillis;
+    private final CountDownLatch done;
+    private final long connectStart = System.nanoTime();
+
+    private final int[] stones = new int[2 * SIDE_PITS];
+    private Session session;
+    private String player;
+    private int version;
+    private long moveSentAt;
+    private boolean finished;
+
+    LoadClient(LoadStats stats, ScheduledExecutorService scheduler, long thinkTimeMillis, CountDownLatch done) {
+        this.stats = stats;
+        this.scheduler = scheduler;
+        this.thinkTimeMillis = thinkTimeMillis;
+        this.done = done;
+
+        Arrays.fill(stones, 6);
+        stones[PITS] = 0;
+        stones[SIDE_PITS + PITS] = 0;
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        this.session = session;
+        session.addMessageHandler(this);
+    }
+
+    @Override
+    public synchronized void onMessage(String text) {
+        final long now = System.nanoTime();
+
+        if (moveSentAt != 0) {
+            stats.moveLatency.record(now - moveSentAt);
+            moveSentAt = 0;
+        }
+
+        try {
+            handle(mapper.readTree(text), now);
+        } catch (IOException | RuntimeException ex) {
+            stats.errors.increment();
+        }
+    }
+
+    @Override
+    public void onError(Session session, Throwable error) {
+        stats.errors.increment();
+    }
+
+    @Override
+    public synchronized void onClose(Session session, CloseReason reason) {
+        if (!finished) {
+            stats.unexpectedCloses.increment();
+            finished = true;
+        }
+        done.countDown();
+    }
+
+    private void handle(JsonNode message, long now) throws IOException {
+        if (message.hasNonNull("player")) {
+            player = message.get("player").asText();
+            stats.startLatency.record(now - connectStart);
+        } else if (message.has("changes")) {
+            if (message.get("version").asInt() != version + 1) {
+                stats.resyncs.increment();
+                session.getBasicRemote().sendText("{\"resync\":true}");
+            } else {
+                final JsonNode changes = message.get("changes");
+
+                for (int i = 0; i < changes.size(); i += 2) {
+                    stones[changes.get(i).asInt()] = changes.get(i + 1).asInt();
+                }
+                version++;
+            }
+        } else if (message.has("pitsFirstPlayer")) {
+            applySnapshot(message);
+        }
+
+        final String status = message.path("turnMessage").asText(null);
+
+        if (YOUR_TURN.equals(status) || ADD_TURN.equals(status)) {
+            scheduler.schedule(this::move, thinkTimeMillis, TimeUnit.MILLISECONDS);
+        } else if (YOU_WON.equals(status) || YOU_LOST.equals(status) || GAME_DRAW.equals(status)) {
+            stats.gamesFinished.increment();
+            finish();
+        } else if (OPPONENT_LEFT.equals(status)) {
+            stats.opponentsLeft.increment();
+            finish();
+        }
+    }
+
+    private synchronized void move() {
+        if (finished) {
+            return;
+        }
+        final int offset = FIRST_PLAYER.equals(player) ? 0 : SIDE_PITS;
+        int pit = ThreadLocalRandom.current().nextInt(PITS);
+
+        for (int tries = 1; stones[offset + pit] == 0 && tries < PITS; tries++) {
+            pit = (pit + 1) % PITS;
+        }
+        if (stones[offset + pit] == 0) {
+            // Only possible with the board out of sync, the snapshot requested will tell the real stones
+            stats.errors.increment();
+            return;
+        }
+
+        try {
+            moveSentAt = System.nanoTime();
+            session.getBasicRemote().sendText("{\"player\":\"" + player + "\",\"pitSelected\":" + pit
+                    + ",\"stones\":" + stones[offset + pit] + "}");
+        } catch (IOException ex) {
+            stats.errors.increment();
+        }
+    }
+
+    private void applySnapshot(JsonNode message) {
+        for (int pit = 0; pit < PITS; pit++) {
+            stones[pit] = message.get("pitsFirstPlayer").get(pit).asInt();
+            stones[SIDE_PITS + pit] = message.get("pitsSecondPlayer").get(pit).asInt();
+        }
+        stones[PITS] = message.get("firstPlayerBigPit").asInt();
+        stones[SIDE_PITS + PITS] = message.get("secondPlayerBigPit").asInt();
+        version = message.get("version").asInt();
+    }
+
+    private void finish() throws IOException {
+        finished = true;
+        session.close();
+    }
+}
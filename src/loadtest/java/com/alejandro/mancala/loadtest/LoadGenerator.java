@@ -0,0 +1,130 @@
+package com.alejandro.mancala.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.ContainerProvider;
+import javax.websocket.WebSocketContainer;
+import java.net.URI;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless load generator playing full games against a running server. Pairs of clients connect at a fixed arrival
+ * rate, the server matches them into games, and every client plays random legal moves until its game is over.
+ *
+ * Options, all optional, as --name=value:
+ *
+ * url          WebSocket endpoint, ws://localhost:9000/mancala by default
+ * pairs        Pairs of clients to connect, 1000 by default
+ * rate         Pairs connected per second, 100 by default
+ * think-ms     Time a client waits before every move, 100 by default
+ * timeout-s    Maximum duration of the run, 600 by default
+ *
+ * @author afernandez
+ */
+public class LoadGenerator {
+    private final URI uri;
+    private final int pairs;
+    private final double rate;
+    private final long thinkTimeMillis;
+    private final long timeoutSeconds;
+
+    private final LoadStats stats = new LoadStats();
+
+    LoadGenerator(Map<String, String> options) {
+        this.uri = URI.create(options.getOrDefault("url", "ws://localhost:9000/mancala"));
+        this.pairs = Integer.parseInt(options.getOrDefault("pairs", "1000"));
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+        this.thinkTimeMillis = Long.parseLong(options.getOrDefault("think-ms", "100"));
+        this.timeoutSeconds = Long.parseLong(options.getOrDefault("timeout-s", "600"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options are expected as --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadGenerator(options).run();
+    }
+
+    void run() throws Exception {
+        final WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
+        final ExecutorService connector = Executors.newFixedThreadPool(16);
+        final CountDownLatch done = new CountDownLatch(2 * pairs);
+        final AtomicInteger launched = new AtomicInteger();
+        final long start = System.nanoTime();
+
+        System.out.printf("Connecting %d pairs to %s at %.1f pairs/s, think time %d ms%n", pairs, uri, rate, thinkTimeMillis);
+
+        scheduler.scheduleAtFixedRate(() -> {
+            if (launched.getAndIncrement() < pairs) {
+                connector.execute(() -> connect(container, scheduler, done));
+                connector.execute(() -> connect(container, scheduler, done));
+            }
+        }, 0, (long) (TimeUnit.SECONDS.toNanos(1) / rate), TimeUnit.NANOSECONDS);
+
+        final boolean completed = done.await(timeoutSeconds, TimeUnit.SECONDS);
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        scheduler.shutdownNow();
+        connector.shutdownNow();
+
+        report(completed, seconds);
+    }
+
+    private void connect(WebSocketContainer container, ScheduledExecutorService scheduler, CountDownLatch done) {
+        try {
+            container.connectToServer(new LoadClient(stats, scheduler, thinkTimeMillis, done),
+                    ClientEndpointConfig.Builder.create().build(), uri);
+        } catch (Exception ex) {
+            stats.connectErrors.increment();
+            done.countDown();
+        }
+    }
+
+    private void report(boolean completed, double seconds) {
+        System.out.printf("%nRun %s after %.1f s%n", completed ? "completed" : "timed out", seconds);
+        System.out.printf("Games finished:      %d%n", stats.gamesFinished.sum() / 2);
+        System.out.printf("Moves:               %d (%.0f/s)%n", stats.moveLatency.count(), stats.moveLatency.count() / seconds);
+        System.out.printf("Connect to start:    p50 %s  p99 %s  p999 %s%n", millis(stats.startLatency, 50),
+                millis(stats.startLatency, 99), millis(stats.startLatency, 99.9));
+        System.out.printf("Move round trip:     p50 %s  p99 %s  p999 %s%n", millis(stats.moveLatency, 50),
+                millis(stats.moveLatency, 99), millis(stats.moveLatency, 99.9));
+        System.out.printf("Connect errors:      %d%n", stats.connectErrors.sum());
+        System.out.printf("Errors:              %d%n", stats.errors.sum());
+        System.out.printf("Unexpected closes:   %d%n", stats.unexpectedCloses.sum());
+        System.out.printf("Opponents left:      %d%n", stats.opponentsLeft.sum());
+        System.out.printf("Resyncs:             %d%n", stats.resyncs.sum());
+        System.out.printf("Server heap used:    %s%n", serverHeap());
+    }
+
+    private String serverHeap() {
+        try {
+            final URL url = new URL("http", uri.getHost(), uri.getPort(), "/metrics/jvm");
+            final JsonNode metrics = new ObjectMapper().readTree(url);
+
+            return String.format("%d MB of %d MB committed", metrics.get("heapUsed").asLong() >> 20,
+                    metrics.get("heapCommitted").asLong() >> 20);
+        } catch (Exception ex) {
+            return "unavailable (" + ex.getMessage() + ")";
+        }
+    }
+
+    private static String millis(LatencyHistogram histogram, double percentile) {
+        return String.format("%.2f ms", histogram.percentile(percentile) / 1e6);
+    }
+}
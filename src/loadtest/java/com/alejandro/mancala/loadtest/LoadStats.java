@@ -0,0 +1,20 @@
+package com.alejandro.mancala.loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Figures collected by every client of a load test.
+ *
+ * @author afernandez
+ */
+class LoadStats {
+    final LatencyHistogram startLatency = new LatencyHistogram();
+    final LatencyHistogram moveLatency = new LatencyHistogram();
+
+    final LongAdder connectErrors = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LongAdder unexpectedCloses = new LongAdder();
+    final LongAdder gamesFinished = new LongAdder();
+    final LongAdder opponentsLeft = new LongAdder();
+    final LongAdder resyncs = new LongAdder();
+}
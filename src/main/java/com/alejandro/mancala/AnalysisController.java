@@ -0,0 +1,78 @@
+package com.alejandro.mancala;
+
+import com.alejandro.mancala.analysis.AnalysisService;
+import com.alejandro.mancala.bot.Evaluation;
+import com.alejandro.mancala.game.Board;
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.game.State;
+import com.alejandro.mancala.message.MessageService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Exposes the analysis of the current position of the games in progress: the best pit for the player whose turn it
+ * is, how many stones ahead the player is expected to finish, and the line of moves expected to follow.
+ *
+ * @author afernandez
+ */
+@RestController
+public class AnalysisController {
+    private GameService gameService;
+    private AnalysisService analysisService;
+
+    public AnalysisController(GameService gameService, AnalysisService analysisService) {
+        this.gameService = gameService;
+        this.analysisService = analysisService;
+    }
+
+    @GetMapping("/analysis/{gameId}")
+    public ResponseEntity<Map<String, Object>> getAnalysis(@PathVariable int gameId) {
+        final Game game = gameService.getGame(gameId);
+
+        if (game == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // The board is read from the game's mailbox, between two moves
+        final CompletableFuture<long[]> position = new CompletableFuture<>();
+        game.getMailbox().execute(() -> position.complete(readPosition(game)));
+
+        final long[] sides = position.join();
+
+        if (sides == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        final boolean firstPlayerTurn = sides[2] != 0;
+        final Evaluation evaluation = analysisService.analyze(sides[0], sides[1]);
+
+        final Map<String, Object> analysis = new LinkedHashMap<>();
+        analysis.put("gameId", gameId);
+        analysis.put("player", firstPlayerTurn ? MessageService.FIRST_PLAYER : MessageService.SECOND_PLAYER);
+        analysis.put("pitSelected", evaluation.getPit());
+        analysis.put("stones", evaluation.getStones());
+        analysis.put("depth", evaluation.getDepth());
+        analysis.put("line", evaluation.getLine());
+
+        return ResponseEntity.ok(analysis);
+    }
+
+    // The side to move, the opponent's and the turn, NULL if the game isn't in progress
+    private static long[] readPosition(Game game) {
+        final Board board = game.getBoard();
+
+        if (game.getState() != State.STARTED
+                || Board.isEmpty(board.getFirstPlayerSide()) || Board.isEmpty(board.getSecondPlayerSide())) {
+            return null;
+        }
+        return game.isFirstPlayerTurn()
+                ? new long[] {board.getFirstPlayerSide(), board.getSecondPlayerSide(), 1}
+                : new long[] {board.getSecondPlayerSide(), board.getFirstPlayerSide(), 0};
+    }
+}
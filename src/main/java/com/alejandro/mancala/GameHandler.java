@@ -1,89 +1,491 @@
 package com.alejandro.mancala;
 
+import com.alejandro.mancala.bot.BotService;
+import com.alejandro.mancala.game.Board;
 import com.alejandro.mancala.game.Game;
 import com.alejandro.mancala.game.GameService;
-import com.alejandro.mancala.message.InputMessage;
+import com.alejandro.mancala.game.State;
+import com.alejandro.mancala.message.BinaryFrames;
 import com.alejandro.mancala.message.MessageService;
-import com.alejandro.mancala.message.TurnMessage;
+import com.alejandro.mancala.message.MoveParser;
+import com.alejandro.mancala.metrics.GameMetrics;
 import com.alejandro.mancala.player.Player;
 import com.alejandro.mancala.player.PlayerService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.alejandro.mancala.recording.TrafficRecorder;
+import com.alejandro.mancala.spectator.SpectatorService;
+import com.alejandro.mancala.timer.GameTimeouts;
+import com.alejandro.mancala.timer.Timeout;
+import com.alejandro.mancala.timer.TurnTimeoutAction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.PongMessage;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
- * Handles requests from clients via WebSocket.
+ * Handles requests from clients via WebSocket. Every event of a game is processed through the game's mailbox, so
+ * events of the same game are handled one at a time and in order.
+ *
+ * Clients speak JSON text frames unless they negotiate the binary subprotocol during the handshake. The time spent
+ * parsing, in the game engine and sending the updates of every move is recorded in the game metrics.
+ *
+ * A player whose connection drops in the middle of a game keeps its place for the grace period. A new connection
+ * presenting the player's resume token in the RESUME_PARAMETER of its URL takes that place back, instead of being
+ * matched with a new opponent.
+ *
+ * Games waiting too long for an opponent are removed, a player running out of time for a move gets the turn timeout
+ * action, and sessions that stop answering pings are closed as dead, all according to the game timeouts.
+ *
+ * A session carrying the GAME_ID_ATTRIBUTE creates its game, if it has to, with that ID instead of one from the
+ * registry, which is how the cluster hands over the sessions of the games owned by this node.
+ *
+ * Every change of a game is also streamed to the spectators watching it.
+ *
+ * A game nobody joins within the bot wait is started with a bot as the second player, if one is available. The bot's
+ * moves are searched in the background and played through the game's mailbox like any other.
  *
  * @author afernandez
  */
-public class GameHandler extends TextWebSocketHandler {
+public class GameHandler extends AbstractWebSocketHandler implements SubProtocolCapable {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private static final String OPPONENT_LEFT = "Your opponent left the game. Please refresh the browser to start again!";
+    public static final String RESUME_PARAMETER = "resume";
+    public static final String GAME_ID_ATTRIBUTE = "mancala.gameId";
 
-    private ObjectMapper mapper = new ObjectMapper();
+    private static final Pattern RESUME_TOKEN = Pattern.compile("(?:^|&)" + RESUME_PARAMETER + "=([0-9a-f]{32})(?:&|$)");
 
     private PlayerService playerService;
     private GameService gameService;
     private MessageService messageService;
+    private GameMetrics metrics;
+    private GameTimeouts timeouts;
+    private SpectatorService spectatorService;
+    private BotService botService;
+    private TrafficRecorder recorder;
 
+    /**
+     * Creates a handler without timeouts, bots nor recording, with metrics and spectators of its own, as tests and
+     * benchmarks need it.
+     */
     public GameHandler(PlayerService playerService, GameService gameService, MessageService messageService) {
+        this(playerService, gameService, messageService, new GameMetrics(), GameTimeouts.DISABLED,
+                new SpectatorService(), BotService.DISABLED, TrafficRecorder.DISABLED);
+    }
+
+    /**
+     * @param playerService The players connected
+     * @param gameService The games played
+     * @param messageService The messages sent to the players
+     * @param metrics The metrics the time of every move is recorded in
+     * @param timeouts The timeouts of the games and the players
+     * @param spectatorService The spectators the games are streamed to
+     * @param botService The bots playing the games nobody joins
+     * @param recorder The recorder of the traffic received
+     */
+    public GameHandler(PlayerService playerService, GameService gameService, MessageService messageService,
+                       GameMetrics metrics, GameTimeouts timeouts, SpectatorService spectatorService,
+                       BotService botService, TrafficRecorder recorder) {
         this.playerService = playerService;
         this.gameService = gameService;
         this.messageService = messageService;
+        this.metrics = metrics;
+        this.timeouts = timeouts;
+        this.spectatorService = spectatorService;
+        this.botService = botService;
+        this.recorder = recorder;
+    }
+
+    /**
+     * Puts back a game recovered after a restart. Its players are held as if their connections had just dropped, so
+     * the game is left unless they resume it within the grace period. A game recovered without its players can't be
+     * resumed, so it is discarded.
+     *
+     * @param game The game recovered
+     */
+    public void restoreGame(Game game) {
+        final Player firstPlayer = game.getFirstPlayer();
+        final Player secondPlayer = game.getSecondPlayer();
+
+        if (firstPlayer == null || secondPlayer == null) {
+            logger.info("Game {} recovered without its players, discarding it", game.getId());
+            return;
+        }
+        gameService.restoreGame(game);
+
+        game.getMailbox().execute(() -> {
+            disconnect(game, firstPlayer);
+            disconnect(game, secondPlayer);
+        });
+    }
+
+    /**
+     * @param gameId The ID of a game
+     * @return True if a game with that ID is registered, the ones recovered after a restart included
+     */
+    public boolean hasGame(int gameId) {
+        return gameService.getGame(gameId) != null;
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         logger.info("Connection established with Session ID: {}", session.getId());
+        recorder.connectionOpened(session);
+
+        final String resumeToken = resumeToken(session.getUri());
+        final Player resumed = resumeToken == null ? null : playerService.resumePlayer(session, resumeToken);
+
+        if (resumed != null) {
+            final Game game = gameService.getGame(resumed.getGameId());
+            scheduleNextPing(resumed);
 
-        final Game game = gameService.matchGame();
+            if (game == null) {
+                messageService.sendOpponentLeft(resumed.getSession());
+            } else {
+                game.getMailbox().execute(() -> resumeGame(game, resumed));
+            }
+            return;
+        }
+        final Game game = matchGame(session);
         final Player player = playerService.createPlayer(session, game.getId());
+        recorder.tokenIssued(session, player.getResumeToken());
+        scheduleNextPing(player);
+
+        game.getMailbox().execute(() -> joinGame(game, player));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        logger.info("Connection closed with Session ID: {}", session.getId());
+        recorder.connectionClosed(session, status);
+
+        final Player player = playerService.getPlayer(session.getId());
+        final Game game = gameService.getGame(player.getGameId());
+        GameTimeouts.cancel(player.getNextPing());
+
+        if (game != null) {
+            game.getMailbox().execute(() -> disconnect(game, player));
+        }
+        playerService.removePlayer(session.getId());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        logger.info("Processing message for Session ID: {}", session.getId());
+        recorder.textReceived(session, message);
+
+        final Player player = playerService.getPlayer(session.getId());
+
+        final long start = System.nanoTime();
+        final long move = player.getMoveParser().parse(message.getPayload());
+        metrics.recordParseTime(System.nanoTime() - start);
+
+        handleMove(player, move);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        logger.info("Processing binary message for Session ID: {}", session.getId());
+        recorder.binaryReceived(session, message);
+
+        final Player player = playerService.getPlayer(session.getId());
+
+        final long start = System.nanoTime();
+        final long move = BinaryFrames.decodeMove(message.getPayload());
+        metrics.recordParseTime(System.nanoTime() - start);
+
+        handleMove(player, move);
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) throws Exception {
+        final Player player = playerService.getPlayer(session.getId());
+
+        if (player != null) {
+            player.setAwaitingPong(false);
+        }
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return Collections.singletonList(BinaryFrames.PROTOCOL);
+    }
+
+    private void handleMove(Player player, long move) {
+        final Game game = gameService.getGame(player.getGameId());
+
+        // Any frame received proves the connection alive as much as a pong does
+        player.setAwaitingPong(false);
+
+        if (game == null) {
+            logger.debug("Game {} is already over, ignoring message", player.getGameId());
+            return;
+        }
+
+        if (MoveParser.isResync(move)) {
+            game.getMailbox().execute(() -> messageService.sendBoard(player.getSession(), game));
+        } else {
+            final int pit = MoveParser.pit(move);
+
+            game.getMailbox().execute(() -> playerMove(game, player, pit));
+        }
+    }
+
+    // The side moved is the one of the player's seat, whatever the client claims
+    private void playerMove(Game game, Player player, int pit) {
+        final boolean firstPlayer = player.equals(game.getFirstPlayer());
+
+        if (!firstPlayer && !player.equals(game.getSecondPlayer())) {
+            throw new IllegalArgumentException("Session ID " + player.getSession().getId()
+                    + " has no seat in game " + game.getId());
+        }
+        if (game.getState() != State.STARTED || firstPlayer != game.isFirstPlayerTurn()) {
+            throw new IllegalArgumentException("Move out of turn from Session ID " + player.getSession().getId()
+                    + " in game " + game.getId() + ", " + game.getState());
+        }
+        playTurn(game, player.getSession(), firstPlayer, pit);
+    }
+
+    private Game matchGame(WebSocketSession session) {
+        final Integer gameId = (Integer) session.getAttributes().get(GAME_ID_ATTRIBUTE);
+
+        return gameId == null ? gameService.matchGame() : gameService.matchGame(gameId);
+    }
+
+    private void joinGame(Game game, Player player) {
+        if (game.getState() == State.STARTED && game.getFirstPlayer() == null) {
+            // The first player left after the game was matched but before the opponent got to join it
+            final Game next = matchGame(player.getSession());
+            player.setGameId(next.getId());
 
+            next.getMailbox().execute(() -> joinGame(next, player));
+            return;
+        }
         if (gameService.isFirstPlayerWaiting(game)) {
             game.setSecondPlayer(player);
+            gameService.playersJoined(game);
             messageService.updatePlayersGameStarted(game);
+            spectatorService.gameUpdated(game);
+            startTurnClock(game);
         } else {
             game.setFirstPlayer(player);
+            final Timeout botDeadline = timeouts.botDeadline(() -> game.getMailbox().execute(() -> botJoin(game)));
+            game.setDeadline(botDeadline != null ? botDeadline : pendingDeadline(game));
         }
         gameService.addGame(game);
     }
 
-    @Override
-    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        logger.info("Connection closed with Session ID: {}", session.getId());
+    private Timeout pendingDeadline(Game game) {
+        return timeouts.pendingDeadline(() -> game.getMailbox().execute(() -> pendingExpired(game)));
+    }
 
-        final Player player = playerService.getPlayer(session.getId());
+    private void botJoin(Game game) {
+        if (game.getState() != State.PENDING) {
+            return;
+        }
+        final Player bot = botService.createBot(game.getId());
+
+        if (bot == null) {
+            // Every bot is busy, the game keeps waiting for a person
+            game.setDeadline(pendingDeadline(game));
+            return;
+        }
+        if (!gameService.matchBot(game)) {
+            botService.gameEnded(game.getId());
+            return;
+        }
+        logger.info("Bot joined game {}", game.getId());
+
+        game.setSecondPlayer(bot);
+        messageService.updatePlayersGameStarted(game);
+        spectatorService.gameUpdated(game);
+        startTurnClock(game);
+    }
+
+    // Only a game in progress is worth waiting for. The grace period expires on the timer of the player service,
+    // which hands the game over to the expiry executor like any other deadline
+    private void disconnect(Game game, Player player) {
+        final Runnable expired = () -> timeouts.expire(() -> game.getMailbox().execute(() -> leaveGame(player)));
+
+        if (game.getState() != State.STARTED || !playerService.holdPlayer(player, expired)) {
+            leaveGame(player);
+        }
+    }
+
+    private void resumeGame(Game game, Player player) {
+        final boolean firstPlayer = sameToken(game.getFirstPlayer(), player);
+
+        if (!firstPlayer && !sameToken(game.getSecondPlayer(), player)) {
+            messageService.sendOpponentLeft(player.getSession());
+            return;
+        }
+        if (firstPlayer) {
+            game.setFirstPlayer(player);
+        } else {
+            game.setSecondPlayer(player);
+        }
+        messageService.sendGameResumed(player.getSession(), game, firstPlayer);
+    }
+
+    private void leaveGame(Player player) {
+        final Game game = gameService.getGame(player.getGameId());
+
+        if (game != null) {
+            GameTimeouts.cancel(game.getDeadline());
+            spectatorService.gameAbandoned(game);
+            botService.gameEnded(game.getId());
+        }
         final Player opponent = gameService.getOpponent(player);
 
         if (opponent != null) {
-            messageService.sendMessage(opponent.getSession(), new TurnMessage(OPPONENT_LEFT));
+            messageService.sendOpponentLeft(opponent.getSession());
         }
-
         gameService.removeGame(player.getGameId());
-        playerService.removePlayer(session.getId());
     }
 
-    @Override
-    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        logger.info("Processing message for Session ID: {}", session.getId());
+    private static boolean sameToken(Player slot, Player player) {
+        return slot != null && player.getResumeToken().equals(slot.getResumeToken());
+    }
 
-        Player player = playerService.getPlayer(session.getId());
-        Game game = gameService.getGame(player.getGameId());
+    /**
+     * Returns the resume token presented in the URL of a new connection.
+     *
+     * @param uri The URL the connection was opened with
+     * @return The resume token, NULL if there is none
+     */
+    public static String resumeToken(URI uri) {
+        if (uri == null || uri.getRawQuery() == null) {
+            return null;
+        }
+        final Matcher matcher = RESUME_TOKEN.matcher(uri.getRawQuery());
 
-        InputMessage inputMessage = mapper.readValue(message.getPayload(), InputMessage.class);
+        return matcher.find() ? matcher.group(1) : null;
+    }
 
-        boolean repeatTurn = gameService.moveStones(game, inputMessage);
+    private void playTurn(Game game, WebSocketSession session, boolean firstPlayer, int pit) {
+        final long start = System.nanoTime();
+        final boolean repeatTurn = gameService.moveStones(game, firstPlayer, pit);
+        final boolean finished = gameService.isGameFinished(game);
 
-        if (gameService.isGameFinished(game)) {
+        if (finished) {
             gameService.calculateWinner(game);
+        }
+        final long engineEnd = System.nanoTime();
+        metrics.recordEngineTime(engineEnd - start);
+
+        if (finished) {
             messageService.updatePlayersGameFinished(game);
+            GameTimeouts.cancel(game.getDeadline());
+            botService.gameEnded(game.getId());
         } else {
             messageService.updatePlayersNextTurn(game, session, repeatTurn);
+            startTurnClock(game);
+        }
+        spectatorService.gameUpdated(game);
+        metrics.recordSendTime(System.nanoTime() - engineEnd);
+    }
+
+    // Replaces the previous deadline, the time of every move starts when the previous move is made
+    private void startTurnClock(Game game) {
+        final int version = game.getBoard().getVersion();
+
+        GameTimeouts.cancel(game.getDeadline());
+        game.setDeadline(timeouts.turnDeadline(() -> game.getMailbox().execute(() -> turnExpired(game, version))));
+
+        if (botService.isBot(game.isFirstPlayerTurn() ? game.getFirstPlayer() : game.getSecondPlayer())) {
+            botService.requestMove(game, pit -> game.getMailbox().execute(() -> playBotMove(game, version, pit)));
+        }
+    }
+
+    private void playBotMove(Game game, int version, int pit) {
+        // The turn may have timed out while the bot was searching
+        if (game.getState() != State.STARTED || game.getBoard().getVersion() != version) {
+            return;
+        }
+        final boolean firstPlayer = game.isFirstPlayerTurn();
+        final Player bot = firstPlayer ? game.getFirstPlayer() : game.getSecondPlayer();
+
+        playTurn(game, bot.getSession(), firstPlayer, pit);
+    }
+
+    private void turnExpired(Game game, int version) {
+        // A move made right before the deadline already started a new clock
+        if (game.getState() != State.STARTED || game.getBoard().getVersion() != version) {
+            return;
+        }
+        final boolean firstPlayer = game.isFirstPlayerTurn();
+        final Player player = firstPlayer ? game.getFirstPlayer() : game.getSecondPlayer();
+
+        logger.info("Turn time is up in game {}, action: {}", game.getId(), timeouts.getTurnTimeoutAction());
+
+        if (timeouts.getTurnTimeoutAction() == TurnTimeoutAction.AUTO_MOVE) {
+            final Board board = game.getBoard();
+            final long side = firstPlayer ? board.getFirstPlayerSide() : board.getSecondPlayerSide();
+            int pit = 0;
+
+            // The game isn't finished, so the side has stones in some pit
+            while (Board.stones(side, pit) == 0) {
+                pit++;
+            }
+            playTurn(game, player.getSession(), firstPlayer, pit);
+        } else {
+            gameService.forfeit(game, firstPlayer);
+            messageService.updatePlayersGameFinished(game);
+            spectatorService.gameUpdated(game);
+            botService.gameEnded(game.getId());
+        }
+    }
+
+    private void pendingExpired(Game game) {
+        if (gameService.expirePendingGame(game)) {
+            logger.info("No opponent found for game {}", game.getId());
+            spectatorService.gameAbandoned(game);
+
+            closeSession(game.getFirstPlayer().getSession(), CloseStatus.NORMAL.withReason("No opponent found"));
+        }
+    }
+
+    private void scheduleNextPing(Player player) {
+        player.setNextPing(timeouts.nextPing(() -> ping(player)));
+    }
+
+    // Runs on the timer thread, only queueing the ping on the session
+    private void ping(Player player) {
+        final WebSocketSession session = player.getSession();
+
+        if (!session.isOpen()) {
+            return;
+        }
+        if (player.isAwaitingPong()) {
+            logger.info("Closing unresponsive Session ID: {}", session.getId());
+            closeSession(session, CloseStatus.SESSION_NOT_RELIABLE);
+            return;
+        }
+        player.setAwaitingPong(true);
+        try {
+            session.sendMessage(new PingMessage());
+        } catch (IOException ex) {
+            logger.debug("Error sending ping to Session ID: {}", session.getId(), ex);
+        }
+        scheduleNextPing(player);
+    }
+
+    private void closeSession(WebSocketSession session, CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException ex) {
+            logger.debug("Error closing Session ID: {}", session.getId(), ex);
         }
     }
 }
\ No newline at end of file
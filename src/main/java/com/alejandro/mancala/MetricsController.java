@@ -0,0 +1,58 @@
+package com.alejandro.mancala;
+
+import com.alejandro.mancala.message.SendPipeline;
+import com.alejandro.mancala.metrics.MetricsRegistry;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the metrics of the server, every one of them in the Prometheus text format to be scraped, and the state of
+ * the outbound send pipeline and of the JVM as JSON.
+ *
+ * @author afernandez
+ */
+@RestController
+public class MetricsController {
+    private SendPipeline sendPipeline;
+    private MetricsRegistry metricsRegistry;
+
+    public MetricsController(SendPipeline sendPipeline, MetricsRegistry metricsRegistry) {
+        this.sendPipeline = sendPipeline;
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @GetMapping(value = "/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String getMetrics() {
+        return metricsRegistry.scrape();
+    }
+
+    @GetMapping("/metrics/outbound")
+    public Map<String, Long> getOutboundMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("queuedFrames", sendPipeline.getQueuedFrames());
+        metrics.put("peakQueueDepth", (long) sendPipeline.getPeakQueueDepth());
+        metrics.put("droppedFrames", sendPipeline.getDroppedFrames());
+        metrics.put("coalescedFrames", sendPipeline.getCoalescedFrames());
+        metrics.put("disconnectedSessions", sendPipeline.getDisconnectedSessions());
+
+        return metrics;
+    }
+
+    @GetMapping("/metrics/jvm")
+    public Map<String, Long> getJvmMetrics() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("heapUsed", heap.getUsed());
+        metrics.put("heapCommitted", heap.getCommitted());
+        metrics.put("heapMax", heap.getMax());
+        metrics.put("threads", (long) ManagementFactory.getThreadMXBean().getThreadCount());
+
+        return metrics;
+    }
+}
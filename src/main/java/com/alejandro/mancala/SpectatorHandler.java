@@ -0,0 +1,66 @@
+package com.alejandro.mancala;
+
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.spectator.SpectatorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.net.URI;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Handles the connections of the spectators via WebSocket. A spectator connects with the ID of the game to watch in
+ * the GAME_PARAMETER of its URL and is only sent frames, whatever it sends is ignored. Connections asking for a game
+ * that doesn't exist are closed right away.
+ *
+ * @author afernandez
+ */
+public class SpectatorHandler extends AbstractWebSocketHandler {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    public static final String GAME_PARAMETER = "game";
+
+    private static final Pattern GAME_ID = Pattern.compile("(?:^|&)" + GAME_PARAMETER + "=(\\d{1,9})(?:&|$)");
+
+    private GameService gameService;
+    private SpectatorService spectatorService;
+
+    public SpectatorHandler(GameService gameService, SpectatorService spectatorService) {
+        this.gameService = gameService;
+        this.spectatorService = spectatorService;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        final int gameId = gameId(session.getUri());
+        final Game game = gameId == 0 ? null : gameService.getGame(gameId);
+
+        if (game == null) {
+            logger.info("Spectator with Session ID: {} asked for an unknown game", session.getId());
+            session.close(CloseStatus.NOT_ACCEPTABLE.withReason("Game not found"));
+            return;
+        }
+        logger.info("Spectator with Session ID: {} watching game {}", session.getId(), gameId);
+
+        game.getMailbox().execute(() -> spectatorService.watch(game, session));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        spectatorService.unwatch(session.getId());
+    }
+
+    private static int gameId(URI uri) {
+        if (uri == null || uri.getRawQuery() == null) {
+            return 0;
+        }
+        final Matcher matcher = GAME_ID.matcher(uri.getRawQuery());
+
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+}
@@ -0,0 +1,125 @@
+package com.alejandro.mancala.analysis;
+
+import com.alejandro.mancala.bot.Evaluation;
+import com.alejandro.mancala.bot.MoveSearch;
+import com.alejandro.mancala.game.Board;
+import com.alejandro.mancala.metrics.Histogram;
+import com.alejandro.mancala.metrics.MetricsRegistry;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates positions for the move hints and the coaching, searching them the same way bots do. Evaluations are
+ * cached by position, seen from the player to move, so the same position reached by either player is searched only
+ * once while it stays in the cache: the openings, the most common positions, are answered without searching.
+ *
+ * @author afernandez
+ */
+public class AnalysisService {
+    // Key, cache entry, map node and evaluation with its line of moves, but the moves themselves
+    private static final int ENTRY_BYTES = 160;
+
+    private final MoveSearch search;
+    private final long timeBudget;
+    private final LruCache<Position, Evaluation> cache;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final Histogram hitTime;
+    private final Histogram missTime;
+
+    /**
+     * @param search The search evaluating the positions
+     * @param timeBudget The time in milliseconds the search of every position may take
+     * @param cacheSize The size in bytes of the cache of evaluations
+     * @param registry The registry of the metrics
+     */
+    public AnalysisService(MoveSearch search, long timeBudget, long cacheSize, MetricsRegistry registry) {
+        this.search = search;
+        this.timeBudget = timeBudget;
+        this.cache = new LruCache<>(cacheSize, evaluation -> ENTRY_BYTES + 4 * evaluation.getLineLength());
+
+        final String help = "Positions analysed, by result of the cache lookup";
+        hits = registry.counter("mancala_analysis_total", help, "cache", "hit");
+        misses = registry.counter("mancala_analysis_total", help, "cache", "miss");
+
+        final String timeHelp = "Time to analyse a position, by result of the cache lookup";
+        hitTime = registry.histogram("mancala_analysis_seconds", timeHelp, "cache", "hit");
+        missTime = registry.histogram("mancala_analysis_seconds", timeHelp, "cache", "miss");
+    }
+
+    /**
+     * Evaluates a position of a game in progress.
+     *
+     * @param side The packed side of the player to move
+     * @param opponentSide The packed side of the opponent
+     * @return The evaluation of the position for the player to move
+     */
+    public Evaluation analyze(long side, long opponentSide) {
+        if (Board.isEmpty(side) || Board.isEmpty(opponentSide)) {
+            throw new IllegalArgumentException("The game is over, there is nothing to analyse");
+        }
+        final long start = System.nanoTime();
+        final Position position = new Position(side, opponentSide);
+        final Evaluation cached = cache.get(position);
+
+        if (cached != null) {
+            hits.increment();
+            hitTime.record(System.nanoTime() - start);
+            return cached;
+        }
+        final Evaluation evaluation = search.evaluate(side, opponentSide, timeBudget);
+        cache.put(position, evaluation);
+
+        misses.increment();
+        missTime.record(System.nanoTime() - start);
+        return evaluation;
+    }
+
+    /**
+     * @return The evaluations cached
+     */
+    public int getCachedEvaluations() {
+        return cache.size();
+    }
+
+    /**
+     * @return The size in bytes of the evaluations cached
+     */
+    public long getCacheBytes() {
+        return cache.getBytes();
+    }
+
+    public long getCacheEvictions() {
+        return cache.getEvictions();
+    }
+
+    public void shutdown() {
+        search.shutdown();
+    }
+
+    private static final class Position {
+        private final long side;
+        private final long opponentSide;
+
+        Position(long side, long opponentSide) {
+            this.side = side;
+            this.opponentSide = opponentSide;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Position)) {
+                return false;
+            }
+            final Position position = (Position) other;
+
+            return side == position.side && opponentSide == position.opponentSide;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(side * 31 + opponentSide);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.alejandro.mancala.analysis;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cache bounded by the size of its entries in bytes, evicting the least recently used entries first. Every entry is
+ * weighed once, when it's put, and all the access is synchronized.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ * @author afernandez
+ */
+public class LruCache<K, V> {
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ToIntFunction<V> weigher;
+    private final long maxBytes;
+
+    private long bytes;
+    private long evictions;
+
+    /**
+     * @param maxBytes The size all the entries can take together
+     * @param weigher The size in bytes of an entry, key and map overhead included
+     */
+    public LruCache(long maxBytes, ToIntFunction<V> weigher) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    /**
+     * @param key The key
+     * @return The value cached for the key, NULL if there is none
+     */
+    public synchronized V get(K key) {
+        final Entry<V> entry = entries.get(key);
+
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Caches a value, evicting the least recently used entries until everything fits. A value bigger than the
+     * whole cache isn't cached.
+     *
+     * @param key The key
+     * @param value The value
+     */
+    public synchronized void put(K key, V value) {
+        final int weight = weigher.applyAsInt(value);
+
+        if (weight > maxBytes) {
+            return;
+        }
+        final Entry<V> previous = entries.put(key, new Entry<>(value, weight));
+
+        if (previous != null) {
+            bytes -= previous.weight;
+        }
+        bytes += weight;
+
+        final Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The size in bytes of all the entries
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final int weight;
+
+        Entry(V value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
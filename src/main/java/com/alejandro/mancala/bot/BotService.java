@@ -0,0 +1,109 @@
+package com.alejandro.mancala.bot;
+
+import com.alejandro.mancala.game.Board;
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.player.Player;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Provides the bots taking the place of the second player in the games nobody joins in time. At most a fixed amount
+ * of games are played by bots at the same time, and every move of a bot is searched within the move time.
+ *
+ * @author afernandez
+ */
+public class BotService {
+    public static final BotService DISABLED = new BotService(null, 0, 0);
+
+    private final MoveSearch search;
+    private final long moveTime;
+    private final int maxGames;
+
+    private final Set<Integer> games = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activeGames = new AtomicInteger();
+
+    /**
+     * @param search The search finding the moves of the bots
+     * @param moveTime The time in milliseconds a bot has to find every move
+     * @param maxGames The games bots can play at the same time, 0 for none
+     */
+    public BotService(MoveSearch search, long moveTime, int maxGames) {
+        if (moveTime < 0 || maxGames < 0) {
+            throw new IllegalArgumentException("Invalid bot move time or games: " + moveTime + ", " + maxGames);
+        }
+        this.search = search;
+        this.moveTime = moveTime;
+        this.maxGames = maxGames;
+    }
+
+    /**
+     * Creates a bot to play a game, unless bots are already playing as many games as they can.
+     *
+     * @param gameId The ID of the game
+     * @return The bot, NULL if none is available
+     */
+    public Player createBot(int gameId) {
+        int active;
+
+        do {
+            active = activeGames.get();
+
+            if (active >= maxGames) {
+                return null;
+            }
+        } while (!activeGames.compareAndSet(active, active + 1));
+
+        games.add(gameId);
+        return new Player(new BotSession(gameId), gameId);
+    }
+
+    /**
+     * @param player The player, may be NULL
+     * @return True if the player is a bot, false otherwise
+     */
+    public boolean isBot(Player player) {
+        return player != null && player.getSession() instanceof BotSession;
+    }
+
+    /**
+     * Searches the move of the bot whose turn it is in a game. Must be called from the game's mailbox, which is
+     * where the board is read, and the search goes on in the background.
+     *
+     * @param game The game
+     * @param move What to do with the pit found, called from a thread of the search
+     */
+    public void requestMove(Game game, IntConsumer move) {
+        final Board board = game.getBoard();
+        final boolean firstPlayer = game.isFirstPlayerTurn();
+
+        search.bestMove(firstPlayer ? board.getFirstPlayerSide() : board.getSecondPlayerSide(),
+                firstPlayer ? board.getSecondPlayerSide() : board.getFirstPlayerSide(), moveTime, move);
+    }
+
+    /**
+     * Frees the bot of a game that is over, if it has any. Can be called more than once for the same game.
+     *
+     * @param gameId The ID of the game
+     */
+    public void gameEnded(int gameId) {
+        if (games.remove(gameId)) {
+            activeGames.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return The games being played by bots
+     */
+    public int getBotGames() {
+        return activeGames.get();
+    }
+
+    public void shutdown() {
+        if (search != null) {
+            search.shutdown();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.alejandro.mancala.bot;
+
+import com.alejandro.mancala.player.ConnectionlessSession;
+
+/**
+ * Session of a bot playing a game. The bot reads the board straight from the game, so the frames sent to it are
+ * discarded, and it is never closed.
+ *
+ * @author afernandez
+ */
+public class BotSession extends ConnectionlessSession {
+
+    /**
+     * @param gameId The ID of the game the bot plays
+     */
+    public BotSession(int gameId) {
+        super("bot-" + gameId);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+package com.alejandro.mancala.bot;
+
+/**
+ * Result of searching a position: the best pit for the player to move, its score and the line of moves expected to
+ * follow from it, the best pit first.
+ *
+ * @author afernandez
+ */
+public final class Evaluation {
+    private final int pit;
+    private final int score;
+    private final int depth;
+    private final int[] line;
+
+    Evaluation(int pit, int score, int depth, int[] line) {
+        this.pit = pit;
+        this.score = score;
+        this.depth = depth;
+        this.line = line;
+    }
+
+    public int getPit() {
+        return pit;
+    }
+
+    /**
+     * @return The score in the search's points, four per stone of advantage of the player to move
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return The advantage of the player to move in stones
+     */
+    public double getStones() {
+        return (double) score / MoveSearch.POINTS_PER_STONE;
+    }
+
+    /**
+     * @return The plies searched
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public int[] getLine() {
+        return line.clone();
+    }
+
+    /**
+     * @return The moves in the line
+     */
+    public int getLineLength() {
+        return line.length;
+    }
+}
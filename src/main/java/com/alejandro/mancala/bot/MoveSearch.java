@@ -0,0 +1,312 @@
+package com.alejandro.mancala.bot;
+
+import com.alejandro.mancala.game.Board;
+import com.alejandro.mancala.game.SowingTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Finds the move of a bot with an iterative deepening alpha-beta search over the packed sides of the board.
+ *
+ * Every iteration searches one ply deeper, trying first the best move of the previous one. At the root the first
+ * move is searched alone and the rest in parallel in the fork-join pool against its score. The search runs only in
+ * its own pool, so bots never take the threads of the games played by people, and it stops at the deadline of the
+ * move, which is checked every few nodes: the move played is the best one of the last iteration completed.
+ *
+ * Positions are scored from the player to move: four points per stone of difference in the big pits plus one per
+ * stone of difference in the pits, or four points per stone of difference in the final count of a game over. Besides
+ * the best pit, an evaluation holds its score and the line of moves expected to follow, read back from the
+ * transposition table.
+ *
+ * @author afernandez
+ */
+public class MoveSearch {
+    static final int INFINITY = 10000;
+    static final int POINTS_PER_STONE = 4;
+
+    private static final int MAX_DEPTH = 64;
+    private static final int CHECK_INTERVAL = 1024;
+    private static final TimeUp TIME_UP = new TimeUp();
+
+    private final ForkJoinPool pool;
+    private final TranspositionTable table;
+
+    /**
+     * @param pool The pool running the searches
+     * @param table The transposition table shared by the searches
+     */
+    public MoveSearch(ForkJoinPool pool, TranspositionTable table) {
+        this.pool = pool;
+        this.table = table;
+    }
+
+    /**
+     * Searches the best move of a position in the background.
+     *
+     * @param side The packed side of the player to move, with stones in some pit
+     * @param opponentSide The packed side of the opponent
+     * @param timeBudget The time in milliseconds the search may take
+     * @param done What to do with the pit found, called from a thread of the pool
+     */
+    public void bestMove(long side, long opponentSide, long timeBudget, IntConsumer done) {
+        pool.execute(new Deepening(side, opponentSide, deadline(timeBudget), found -> done.accept(found.getPit())));
+    }
+
+    /**
+     * Searches the best move of a position, waiting for the search to end.
+     *
+     * @param side The packed side of the player to move, with stones in some pit
+     * @param opponentSide The packed side of the opponent
+     * @param timeBudget The time in milliseconds the search may take
+     * @return The pit found
+     */
+    public int bestMove(long side, long opponentSide, long timeBudget) {
+        return evaluate(side, opponentSide, timeBudget).getPit();
+    }
+
+    /**
+     * Evaluates a position, waiting for the search to end.
+     *
+     * @param side The packed side of the player to move, with stones in some pit
+     * @param opponentSide The packed side of the opponent
+     * @param timeBudget The time in milliseconds the search may take
+     * @return The evaluation of the position
+     */
+    public Evaluation evaluate(long side, long opponentSide, long timeBudget) {
+        final Evaluation[] evaluation = new Evaluation[1];
+
+        pool.invoke(new Deepening(side, opponentSide, deadline(timeBudget), found -> evaluation[0] = found));
+        return evaluation[0];
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static long deadline(long timeBudget) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudget);
+    }
+
+    // Follows the best pits of the table from a position, for as long as they are legal
+    private int[] line(long side, long opponentSide, int firstPit, int depth) {
+        final int[] line = new int[depth];
+        final long[] sides = new long[2];
+        int length = 0;
+        int pit = firstPit;
+
+        while (length < depth && pit >= 0 && Board.stones(side, pit) > 0) {
+            line[length++] = pit;
+
+            final boolean repeatTurn = SowingTable.sow(side, opponentSide, pit, sides);
+            side = repeatTurn ? sides[0] : sides[1];
+            opponentSide = repeatTurn ? sides[1] : sides[0];
+
+            if (Board.isEmpty(side) || Board.isEmpty(opponentSide)) {
+                break;
+            }
+            final long entry = table.get(TranspositionTable.hash(side, opponentSide));
+            pit = entry == TranspositionTable.MISS ? -1 : TranspositionTable.pit(entry);
+        }
+        return Arrays.copyOf(line, length);
+    }
+
+    private class Deepening extends RecursiveAction {
+        private final long side;
+        private final long opponentSide;
+        private final long deadline;
+        private final Consumer<Evaluation> done;
+
+        Deepening(long side, long opponentSide, long deadline, Consumer<Evaluation> done) {
+            this.side = side;
+            this.opponentSide = opponentSide;
+            this.deadline = deadline;
+            this.done = done;
+        }
+
+        @Override
+        protected void compute() {
+            final List<Integer> pits = new ArrayList<>();
+
+            for (int pit = Board.PITS - 1; pit >= 0; pit--) {
+                if (Board.stones(side, pit) > 0) {
+                    pits.add(pit);
+                }
+            }
+            RootMove best = null;
+            int depth = 1;
+
+            for (; depth <= MAX_DEPTH && pits.size() > 1; depth++) {
+                final RootMove found = searchRoot(pits, depth);
+
+                if (found == null) {
+                    break;
+                }
+                best = found;
+                pits.remove((Integer) found.pit);
+                pits.add(0, found.pit);
+            }
+
+            if (best == null) {
+                // A single legal move, or not even the first iteration in time: the score is just the heuristic
+                best = new RootMove(side, opponentSide, pits.get(0), 1, -INFINITY, deadline);
+                best.compute();
+                depth = 1;
+            } else {
+                depth--;
+            }
+            done.accept(new Evaluation(best.pit, best.score, depth, line(side, opponentSide, best.pit, depth)));
+        }
+
+        // NULL if the deadline came first
+        private RootMove searchRoot(List<Integer> pits, int depth) {
+            final RootMove first = new RootMove(side, opponentSide, pits.get(0), depth, -INFINITY, deadline);
+            first.compute();
+
+            if (first.timedOut) {
+                return null;
+            }
+            final List<RootMove> rest = new ArrayList<>();
+
+            for (int i = 1; i < pits.size(); i++) {
+                rest.add(new RootMove(side, opponentSide, pits.get(i), depth, first.score, deadline));
+            }
+            invokeAll(rest);
+
+            RootMove best = first;
+
+            for (RootMove move : rest) {
+                if (move.timedOut) {
+                    return null;
+                }
+                if (move.score > best.score) {
+                    best = move;
+                }
+            }
+            return best;
+        }
+    }
+
+    // Searches one move of the root with the window (alpha, infinity), a score not above alpha is only a bound
+    private class RootMove extends RecursiveAction {
+        private final long side;
+        private final long opponentSide;
+        private final int pit;
+        private final int depth;
+        private final int alpha;
+        private final long deadline;
+
+        private final long[] sides = new long[2];
+
+        private int score;
+        private boolean timedOut;
+        private int nodes;
+
+        RootMove(long side, long opponentSide, int pit, int depth, int alpha, long deadline) {
+            this.side = side;
+            this.opponentSide = opponentSide;
+            this.pit = pit;
+            this.depth = depth;
+            this.alpha = alpha;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                score = play(side, opponentSide, pit, depth - 1, alpha, INFINITY);
+            } catch (TimeUp ex) {
+                timedOut = true;
+            }
+        }
+
+        private int play(long side, long opponentSide, int pit, int depth, int alpha, int beta) {
+            // The sides are read right away, before the array is reused deeper in the search
+            final boolean repeatTurn = SowingTable.sow(side, opponentSide, pit, sides);
+            side = sides[0];
+            opponentSide = sides[1];
+
+            if (repeatTurn) {
+                return search(side, opponentSide, depth, alpha, beta);
+            }
+            return -search(opponentSide, side, depth, -beta, -alpha);
+        }
+
+        private int search(long side, long opponentSide, int depth, int alpha, int beta) {
+            if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+                throw TIME_UP;
+            }
+            if (Board.isEmpty(side) || Board.isEmpty(opponentSide)) {
+                return POINTS_PER_STONE * (Board.stonesInPits(side) + Board.stones(side, Board.BIG_PIT)
+                        - Board.stonesInPits(opponentSide) - Board.stones(opponentSide, Board.BIG_PIT));
+            }
+            if (depth == 0) {
+                final int bigPits = Board.stones(side, Board.BIG_PIT) - Board.stones(opponentSide, Board.BIG_PIT);
+
+                return POINTS_PER_STONE * bigPits + Board.stonesInPits(side) - Board.stonesInPits(opponentSide);
+            }
+            final long hash = TranspositionTable.hash(side, opponentSide);
+            final long entry = table.get(hash);
+            int tablePit = -1;
+
+            if (entry != TranspositionTable.MISS) {
+                tablePit = TranspositionTable.pit(entry);
+
+                if (TranspositionTable.depth(entry) >= depth) {
+                    final int score = TranspositionTable.score(entry);
+                    final int bound = TranspositionTable.bound(entry);
+
+                    if (bound == TranspositionTable.EXACT
+                            || bound == TranspositionTable.LOWER_BOUND && score >= beta
+                            || bound == TranspositionTable.UPPER_BOUND && score <= alpha) {
+                        return score;
+                    }
+                }
+            }
+            final int originalAlpha = alpha;
+            int bestScore = -INFINITY;
+            int bestPit = -1;
+
+            // The pit of the table first, then the ones closer to the big pit
+            for (int i = -1; i < Board.PITS; i++) {
+                final int pit = i < 0 ? tablePit : Board.PITS - 1 - i;
+
+                if (pit < 0 || i >= 0 && pit == tablePit || Board.stones(side, pit) == 0) {
+                    continue;
+                }
+                final int score = play(side, opponentSide, pit, depth - 1, alpha, beta);
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestPit = pit;
+
+                    if (score > alpha) {
+                        alpha = score;
+
+                        if (alpha >= beta) {
+                            break;
+                        }
+                    }
+                }
+            }
+            final int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                    : bestScore >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+            table.put(hash, depth, bestScore, bound, bestPit);
+
+            return bestScore;
+        }
+    }
+
+    // Thrown all the way up to the root move when the deadline comes, without a stack trace to fill
+    private static class TimeUp extends RuntimeException {
+        TimeUp() {
+            super("Search deadline reached", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.alejandro.mancala.bot;
+
+/**
+ * Transposition table of the bot search, shared by all the searches running at the same time without any locking.
+ *
+ * Positions are keyed by a 64 bit hash of the two packed sides. Every slot takes two longs, the entry itself and
+ * the hash XOR the entry, so an entry torn by two searches writing the same slot at once doesn't match its key and
+ * is simply a miss. The entry packs the score, the depth searched, whether the score is exact or a bound, and the
+ * best pit found. Slots are always replaced by the latest entry.
+ *
+ * @author afernandez
+ */
+public class TranspositionTable {
+    static final long MISS = 0;
+
+    static final int EXACT = 1;
+    static final int LOWER_BOUND = 2;
+    static final int UPPER_BOUND = 3;
+
+    private static final int SCORE_OFFSET = 1 << 15;
+
+    private final long[] slots;
+    private final int mask;
+
+    /**
+     * @param size The amount of entries, a power of two
+     */
+    public TranspositionTable(int size) {
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Invalid transposition table size: " + size);
+        }
+        this.slots = new long[2 * size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the hash of a position, seen from the player to move.
+     *
+     * @param side The packed side of the player to move
+     * @param opponentSide The packed side of the opponent
+     * @return The hash
+     */
+    static long hash(long side, long opponentSide) {
+        long hash = side * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(opponentSide * 0xC2B2AE3D27D4EB4FL, 31);
+
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+
+    /**
+     * @param hash The hash of the position
+     * @return The entry of the position, MISS if there is none
+     */
+    long get(long hash) {
+        final int slot = 2 * ((int) hash & mask);
+        final long entry = slots[slot];
+
+        return (slots[slot + 1] ^ entry) == hash ? entry : MISS;
+    }
+
+    /**
+     * Stores the result of searching a position.
+     *
+     * @param hash The hash of the position
+     * @param depth The depth searched, at least 1
+     * @param score The score found
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param pit The best pit found
+     */
+    void put(long hash, int depth, int score, int bound, int pit) {
+        final int slot = 2 * ((int) hash & mask);
+        final long entry = (score + SCORE_OFFSET) | (long) depth << 16 | (long) bound << 24 | (long) pit << 26;
+
+        slots[slot] = entry;
+        slots[slot + 1] = hash ^ entry;
+    }
+
+    static int score(long entry) {
+        return (int) (entry & 0xFFFF) - SCORE_OFFSET;
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> 24) & 0x3;
+    }
+
+    static int pit(long entry) {
+        return (int) (entry >>> 26) & 0x7;
+    }
+}
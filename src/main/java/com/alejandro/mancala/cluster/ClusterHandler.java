@@ -0,0 +1,221 @@
+package com.alejandro.mancala.cluster;
+
+import com.alejandro.mancala.GameHandler;
+import com.alejandro.mancala.message.SendPipeline;
+import com.alejandro.mancala.player.PlayerService;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handles the connections of a node of the cluster. Every game is owned by the node the consistent hash ring assigns
+ * its ID to, and the node a player connects to, the gateway, picks the ID of the game the player would create, or
+ * takes it from the resume token presented, to find the owner. Sessions of the games owned by this node go straight
+ * to the game handler, the others are relayed to their owners through the transport, which plays them with the
+ * remote sessions standing for the players and sends their frames back.
+ *
+ * Players are matched with the players waiting on the same owner, and the ring is fixed for the life of the cluster:
+ * nodes joining or leaving don't move the games already in progress.
+ *
+ * @author afernandez
+ */
+public class ClusterHandler extends AbstractWebSocketHandler implements SubProtocolCapable {
+    private static final String OWNER_ATTRIBUTE = "mancala.owner";
+
+    private final GameHandler gameHandler;
+    private final ClusterTransport transport;
+    private final ConsistentHashRing ring;
+    private final SendPipeline sendPipeline;
+    private final String localNode;
+    private final int nodeIndex;
+    private final int nodeCount;
+    private final int maxSequence;
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    // Players connected here playing in other nodes, by session ID
+    private final Map<String, WebSocketSession> relayedSessions = new ConcurrentHashMap<>();
+    // Players connected to other nodes playing here, by remote session ID
+    private final Map<String, RemoteSession> remoteSessions = new ConcurrentHashMap<>();
+
+    /**
+     * @param gameHandler The handler playing the games owned by this node
+     * @param transport The transport to the other nodes
+     * @param ring The ring of the nodes of the cluster, this one included
+     * @param sendPipeline The pipeline the frames for the players relayed go through
+     */
+    public ClusterHandler(GameHandler gameHandler, ClusterTransport transport, ConsistentHashRing ring,
+                          SendPipeline sendPipeline) {
+        final List<String> nodes = new ArrayList<>(ring.getNodes());
+        Collections.sort(nodes);
+
+        this.localNode = transport.getLocalNode();
+        this.nodeIndex = nodes.indexOf(localNode);
+
+        if (nodeIndex < 0) {
+            throw new IllegalArgumentException("Node " + localNode + " is not in the ring " + nodes);
+        }
+        this.gameHandler = gameHandler;
+        this.transport = transport;
+        this.ring = ring;
+        this.sendPipeline = sendPipeline;
+        this.nodeCount = nodes.size();
+        this.maxSequence = (Integer.MAX_VALUE - nodeIndex - 1) / nodeCount;
+
+        transport.subscribe(this::receive);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        final String resumeToken = GameHandler.resumeToken(session.getUri());
+        final int gameId = nextGameId(resumeToken == null ? null : ring.ownerOf(PlayerService.gameIdOf(resumeToken)));
+        final String owner = ring.ownerOf(gameId);
+
+        if (owner.equals(localNode)) {
+            session.getAttributes().put(GameHandler.GAME_ID_ATTRIBUTE, gameId);
+            gameHandler.afterConnectionEstablished(session);
+            return;
+        }
+        session.getAttributes().put(OWNER_ATTRIBUTE, owner);
+        relayedSessions.put(session.getId(), sendPipeline.open(session));
+
+        transport.send(owner, ClusterMessage.connected(localNode, session.getId(), gameId, session.getUri(),
+                session.getAcceptedProtocol()));
+    }
+
+    @Override
+    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+        final String owner = (String) session.getAttributes().get(OWNER_ATTRIBUTE);
+
+        if (owner == null) {
+            gameHandler.handleMessage(session, message);
+        } else {
+            transport.send(owner, ClusterMessage.received(localNode, session.getId(), message));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        final String owner = (String) session.getAttributes().get(OWNER_ATTRIBUTE);
+
+        if (owner == null) {
+            gameHandler.afterConnectionClosed(session, status);
+            return;
+        }
+        sendPipeline.release(relayedSessions.remove(session.getId()));
+        transport.send(owner, ClusterMessage.closed(localNode, session.getId(), status));
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return gameHandler.getSubProtocols();
+    }
+
+    /**
+     * @return The players connected to this node playing in other nodes
+     */
+    public int getRelayedSessions() {
+        return relayedSessions.size();
+    }
+
+    /**
+     * @return The players connected to other nodes playing in this one
+     */
+    public int getRemoteSessions() {
+        return remoteSessions.size();
+    }
+
+    void receive(ClusterMessage message) {
+        try {
+            switch (message.getType()) {
+                case CONNECTED:
+                    connected(message);
+                    break;
+                case RECEIVED:
+                    received(message);
+                    break;
+                case CLOSED:
+                    closed(message);
+                    break;
+                case SEND:
+                    send(message);
+                    break;
+                case CLOSE:
+                    close(message);
+                    break;
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException("Error processing " + message.getType() + " message for session "
+                    + remoteId(message), ex);
+        }
+    }
+
+    private void connected(ClusterMessage message) throws Exception {
+        final RemoteSession session = new RemoteSession(transport, message.getNode(), message.getSessionId(),
+                message.getUri(), message.getProtocol());
+        // The gateway doesn't know the games recovered here, an ID one of them took is replaced by one of this node
+        final int gameId = gameHandler.hasGame(message.getGameId()) ? nextGameId(localNode) : message.getGameId();
+        session.getAttributes().put(GameHandler.GAME_ID_ATTRIBUTE, gameId);
+
+        remoteSessions.put(session.getId(), session);
+        gameHandler.afterConnectionEstablished(session);
+    }
+
+    private void received(ClusterMessage message) throws Exception {
+        final RemoteSession session = remoteSessions.get(remoteId(message));
+
+        if (session != null) {
+            gameHandler.handleMessage(session, message.getFrame());
+        }
+    }
+
+    private void closed(ClusterMessage message) throws Exception {
+        final RemoteSession session = remoteSessions.remove(remoteId(message));
+
+        if (session != null) {
+            session.closed();
+            gameHandler.afterConnectionClosed(session, message.getStatus());
+        }
+    }
+
+    private void send(ClusterMessage message) throws IOException {
+        final WebSocketSession session = relayedSessions.get(message.getSessionId());
+
+        if (session != null) {
+            session.sendMessage(message.getFrame());
+        }
+    }
+
+    private void close(ClusterMessage message) throws IOException {
+        final WebSocketSession session = relayedSessions.get(message.getSessionId());
+
+        if (session != null) {
+            session.close(message.getStatus());
+        }
+    }
+
+    // IDs of this node are nodeIndex + 1, nodeIndex + 1 + nodeCount, ... so no two nodes hand out the same one. The
+    // sequence starts over on a restart, so the IDs of the games still registered here, recovered ones, are skipped
+    private int nextGameId(String owner) {
+        int id;
+        do {
+            id = sequence.getAndUpdate(s -> s >= maxSequence ? 0 : s + 1) * nodeCount + nodeIndex + 1;
+        } while (owner != null && !owner.equals(ring.ownerOf(id))
+                || gameHandler.hasGame(id) && localNode.equals(ring.ownerOf(id)));
+
+        return id;
+    }
+
+    private static String remoteId(ClusterMessage message) {
+        return RemoteSession.id(message.getNode(), message.getSessionId());
+    }
+}
@@ -0,0 +1,117 @@
+package com.alejandro.mancala.cluster;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.net.URI;
+
+/**
+ * Message exchanged by the nodes of the cluster about a session relayed from the node the player is connected to,
+ * its gateway, to the node owning the player's game. Transports crossing process boundaries encode the frame and the
+ * close status as they go.
+ *
+ * @author afernandez
+ */
+public final class ClusterMessage {
+
+    /**
+     * The kinds of message, the first three going from the gateway to the owner and the last two back.
+     */
+    public enum Type {
+        CONNECTED, RECEIVED, CLOSED, SEND, CLOSE
+    }
+
+    private final Type type;
+    private final String node;
+    private final String sessionId;
+    private final int gameId;
+    private final URI uri;
+    private final String protocol;
+    private final WebSocketMessage<?> frame;
+    private final CloseStatus status;
+
+    private ClusterMessage(Type type, String node, String sessionId, int gameId, URI uri, String protocol,
+                           WebSocketMessage<?> frame, CloseStatus status) {
+        this.type = type;
+        this.node = node;
+        this.sessionId = sessionId;
+        this.gameId = gameId;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.frame = frame;
+        this.status = status;
+    }
+
+    /**
+     * A player connected to the gateway, to join a new game with the given ID or resume one.
+     */
+    public static ClusterMessage connected(String node, String sessionId, int gameId, URI uri, String protocol) {
+        return new ClusterMessage(Type.CONNECTED, node, sessionId, gameId, uri, protocol, null, null);
+    }
+
+    /**
+     * A frame received by the gateway from the player.
+     */
+    public static ClusterMessage received(String node, String sessionId, WebSocketMessage<?> frame) {
+        return new ClusterMessage(Type.RECEIVED, node, sessionId, 0, null, null, frame, null);
+    }
+
+    /**
+     * The player's connection to the gateway was closed.
+     */
+    public static ClusterMessage closed(String node, String sessionId, CloseStatus status) {
+        return new ClusterMessage(Type.CLOSED, node, sessionId, 0, null, null, null, status);
+    }
+
+    /**
+     * A frame for the gateway to send to the player.
+     */
+    public static ClusterMessage send(String node, String sessionId, WebSocketMessage<?> frame) {
+        return new ClusterMessage(Type.SEND, node, sessionId, 0, null, null, frame, null);
+    }
+
+    /**
+     * The gateway has to close the player's connection.
+     */
+    public static ClusterMessage close(String node, String sessionId, CloseStatus status) {
+        return new ClusterMessage(Type.CLOSE, node, sessionId, 0, null, null, null, status);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The ID of the node sending the message
+     */
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * @return The ID of the session in the gateway
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public int getGameId() {
+        return gameId;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public WebSocketMessage<?> getFrame() {
+        return frame;
+    }
+
+    public CloseStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,38 @@
+package com.alejandro.mancala.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries the cluster messages between the nodes. Messages sent from one node to another are delivered in the order
+ * they were sent.
+ *
+ * @author afernandez
+ */
+public interface ClusterTransport {
+
+    /**
+     * @return The ID of the node this transport belongs to
+     */
+    String getLocalNode();
+
+    /**
+     * Sends a message to a node.
+     *
+     * @param node The ID of the node
+     * @param message The message
+     * @throws IllegalStateException If the node can't be reached
+     */
+    void send(String node, ClusterMessage message);
+
+    /**
+     * Sets what to do with the messages other nodes send to this one.
+     *
+     * @param receiver The receiver of the messages
+     */
+    void subscribe(Consumer<ClusterMessage> receiver);
+
+    /**
+     * Stops delivering messages, called by Spring when the context is closed.
+     */
+    void shutdown();
+}
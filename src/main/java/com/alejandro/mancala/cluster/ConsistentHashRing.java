@@ -0,0 +1,93 @@
+package com.alejandro.mancala.cluster;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring assigning every game to the node of the cluster that owns it. Every node is placed on the
+ * ring at several points, its virtual nodes, and a game belongs to the first point found clockwise from the hash of
+ * its ID. Adding or removing a node only moves the games falling next to its points, and nodes built from the same
+ * members, in any order, agree on the owner of every game.
+ *
+ * @author afernandez
+ */
+public class ConsistentHashRing {
+    private final Set<String> nodes;
+    private final int[] points;
+    private final String[] owners;
+
+    /**
+     * @param nodes The IDs of the nodes of the cluster
+     * @param virtualNodes The points every node is placed at, more points spread the games more evenly
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("A ring needs at least one node and one virtual node per node");
+        }
+        final TreeMap<Integer, String> ring = new TreeMap<>();
+
+        for (String node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // Two points colliding go to the same node whatever the order the nodes are listed in
+                ring.merge(hash(node + "#" + i), node, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+        this.nodes = Collections.unmodifiableSet(new LinkedHashSet<>(nodes));
+        this.points = new int[ring.size()];
+        this.owners = new String[ring.size()];
+
+        int i = 0;
+        for (Map.Entry<Integer, String> point : ring.entrySet()) {
+            points[i] = point.getKey();
+            owners[i++] = point.getValue();
+        }
+    }
+
+    /**
+     * Returns the node owning a game.
+     *
+     * @param gameId The ID of the game
+     * @return The ID of the node
+     */
+    public String ownerOf(int gameId) {
+        int i = Arrays.binarySearch(points, mix(gameId));
+
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return owners[i == points.length ? 0 : i];
+    }
+
+    /**
+     * @return The IDs of the nodes of the cluster
+     */
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    // FNV-1a, mixed so that similar node IDs don't end up next to each other
+    private static int hash(String key) {
+        int hash = 0x811C9DC5;
+
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x01000193;
+        }
+        return mix(hash);
+    }
+
+    // Murmur3 finalizer, consecutive game IDs land far apart on the ring
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+
+        return hash;
+    }
+}
@@ -0,0 +1,79 @@
+package com.alejandro.mancala.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Transport between the nodes running in the same JVM, such as several application contexts started side by side on
+ * different ports, to try the cluster out on a single machine. Every node gets the messages sent to it on its own
+ * thread, one at a time, as if they came through a single connection.
+ *
+ * @author afernandez
+ */
+public class LoopbackTransport implements ClusterTransport {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final Map<String, LoopbackTransport> NODES = new ConcurrentHashMap<>();
+
+    private final String node;
+    private final ExecutorService inbox;
+    private volatile Consumer<ClusterMessage> receiver = message -> { };
+
+    /**
+     * @param node The ID of the node, unique in the JVM
+     */
+    public LoopbackTransport(String node) {
+        if (NODES.putIfAbsent(node, this) != null) {
+            throw new IllegalStateException("Node " + node + " is already running");
+        }
+        this.node = node;
+        this.inbox = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "cluster-" + node);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String getLocalNode() {
+        return node;
+    }
+
+    @Override
+    public void send(String node, ClusterMessage message) {
+        final LoopbackTransport target = NODES.get(node);
+
+        if (target == null) {
+            throw new IllegalStateException("Node " + node + " is not running");
+        }
+        target.deliver(message);
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterMessage> receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void shutdown() {
+        NODES.remove(node, this);
+        inbox.shutdownNow();
+    }
+
+    private void deliver(ClusterMessage message) {
+        inbox.execute(() -> {
+            try {
+                receiver.accept(message);
+            } catch (RuntimeException ex) {
+                logger.warn("Error processing {} message for session {} from node {}",
+                        message.getType(), message.getSessionId(), message.getNode(), ex);
+            }
+        });
+    }
+}
@@ -0,0 +1,72 @@
+package com.alejandro.mancala.cluster;
+
+import com.alejandro.mancala.player.ConnectionlessSession;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.net.URI;
+
+/**
+ * Session of a player connected to another node of the cluster, its gateway, as seen by the node owning the player's
+ * game. Frames sent and closing the session are forwarded to the gateway. The ID is made unique across the cluster by
+ * prefixing the gateway's one with the gateway's node ID.
+ *
+ * @author afernandez
+ */
+public class RemoteSession extends ConnectionlessSession {
+    private final ClusterTransport transport;
+    private final String node;
+    private final String sessionId;
+
+    private volatile boolean open = true;
+
+    /**
+     * @param transport The transport to the gateway
+     * @param node The ID of the gateway node
+     * @param sessionId The ID of the session in the gateway
+     * @param uri The URL the player connected to the gateway with
+     * @param acceptedProtocol The subprotocol negotiated with the gateway
+     */
+    public RemoteSession(ClusterTransport transport, String node, String sessionId, URI uri, String acceptedProtocol) {
+        super(id(node, sessionId), uri, acceptedProtocol);
+        this.transport = transport;
+        this.node = node;
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * Marks the session closed after the gateway reported the player's connection closed.
+     */
+    public void closed() {
+        open = false;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        transport.send(node, ClusterMessage.send(transport.getLocalNode(), sessionId, message));
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        if (open) {
+            open = false;
+            transport.send(node, ClusterMessage.close(transport.getLocalNode(), sessionId, status));
+        }
+    }
+
+    /**
+     * Returns the ID of the session of a player connected to a gateway, as seen by the owner.
+     *
+     * @param node The ID of the gateway node
+     * @param sessionId The ID of the session in the gateway
+     * @return The ID unique across the cluster
+     */
+    public static String id(String node, String sessionId) {
+        return node + "/" + sessionId;
+    }
+}
@@ -0,0 +1,96 @@
+package com.alejandro.mancala.config;
+
+import com.alejandro.mancala.analysis.AnalysisService;
+import com.alejandro.mancala.bot.BotService;
+import com.alejandro.mancala.cluster.ClusterHandler;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.message.SendPipeline;
+import com.alejandro.mancala.metrics.MetricsRegistry;
+import com.alejandro.mancala.player.PlayerService;
+import com.alejandro.mancala.recording.TrafficRecorder;
+import com.alejandro.mancala.spectator.SpectatorService;
+import com.alejandro.mancala.timer.HashedWheelTimer;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.WebSocketHandler;
+
+import javax.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Metrics configuration. The gauges reading the state of the server are registered once the beans they read are
+ * wired, so building a bean never touches the metrics registry.
+ *
+ * @author afernandez
+ */
+@Configuration
+public class MetricsConfig {
+    private final MetricsRegistry registry;
+    private final GameService gameService;
+    private final PlayerService playerService;
+    private final SendPipeline sendPipeline;
+    private final SpectatorService spectatorService;
+    private final BotService botService;
+    private final AnalysisService analysisService;
+    private final TrafficRecorder trafficRecorder;
+    private final HashedWheelTimer gameTimer;
+    private final WebSocketHandler gameWebSocketHandler;
+
+    public MetricsConfig(MetricsRegistry registry, GameService gameService, PlayerService playerService,
+                         SendPipeline sendPipeline, SpectatorService spectatorService, BotService botService,
+                         AnalysisService analysisService, TrafficRecorder trafficRecorder, HashedWheelTimer gameTimer,
+                         WebSocketHandler gameWebSocketHandler) {
+        this.registry = registry;
+        this.gameService = gameService;
+        this.playerService = playerService;
+        this.sendPipeline = sendPipeline;
+        this.spectatorService = spectatorService;
+        this.botService = botService;
+        this.analysisService = analysisService;
+        this.trafficRecorder = trafficRecorder;
+        this.gameTimer = gameTimer;
+        this.gameWebSocketHandler = gameWebSocketHandler;
+    }
+
+    @PostConstruct
+    public void registerGauges() {
+        registry.gauge("mancala_games_live", "Games in the registry", gameService::getLiveGames);
+        registry.gauge("mancala_games_pending", "Games waiting for an opponent", gameService::getPendingGames);
+        registry.gauge("mancala_players_connected", "Players connected", playerService::getConnectedPlayers);
+        registry.gauge("mancala_players_held", "Players disconnected and waiting to resume their games",
+                playerService::getHeldPlayers);
+        registry.gauge("mancala_outbound_queued_frames", "Frames waiting to be sent", sendPipeline::getQueuedFrames);
+        registry.gauge("mancala_outbound_peak_queue_depth", "Deepest outbound queue of a session",
+                sendPipeline::getPeakQueueDepth);
+        registry.counter("mancala_outbound_dropped_frames_total", "Frames dropped for slow players and spectators",
+                sendPipeline::getDroppedFrames);
+        registry.counter("mancala_outbound_coalesced_frames_total", "Frames coalesced for slow players and spectators",
+                sendPipeline::getCoalescedFrames);
+        registry.counter("mancala_outbound_disconnected_sessions_total", "Slow players and spectators disconnected",
+                sendPipeline::getDisconnectedSessions);
+        registry.gauge("mancala_spectators", "Spectators watching games", spectatorService::getSpectators);
+        registry.counter("mancala_spectator_skipped_frames_total", "Updates skipped by spectators lagging behind",
+                spectatorService::getSkippedFrames);
+        registry.gauge("mancala_bot_games", "Games played by bots", botService::getBotGames);
+        registry.gauge("mancala_analysis_cached_positions", "Evaluations of positions cached",
+                analysisService::getCachedEvaluations);
+        registry.gauge("mancala_analysis_cache_bytes", "Size of the evaluations cached",
+                analysisService::getCacheBytes);
+        registry.counter("mancala_analysis_cache_evictions_total", "Evaluations evicted from the cache",
+                analysisService::getCacheEvictions);
+        registry.counter("mancala_recording_dropped_events_total", "Events left out of the traffic recording",
+                trafficRecorder::getDroppedEvents);
+        registry.gauge("mancala_timer_pending_timeouts", "Timeouts scheduled and not expired nor cancelled yet",
+                gameTimer::getPendingTimeouts);
+        registry.gauge("mancala_jvm_heap_used_bytes", "Heap used by the server",
+                () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+
+        if (gameWebSocketHandler instanceof ClusterHandler) {
+            final ClusterHandler clusterHandler = (ClusterHandler) gameWebSocketHandler;
+
+            registry.gauge("mancala_cluster_relayed_sessions", "Players connected here playing in other nodes",
+                    clusterHandler::getRelayedSessions);
+            registry.gauge("mancala_cluster_remote_sessions", "Players connected to other nodes playing here",
+                    clusterHandler::getRemoteSessions);
+        }
+    }
+}
@@ -1,15 +1,52 @@
 package com.alejandro.mancala.config;
 
 import com.alejandro.mancala.GameHandler;
+import com.alejandro.mancala.SpectatorHandler;
+import com.alejandro.mancala.analysis.AnalysisService;
+import com.alejandro.mancala.bot.BotService;
+import com.alejandro.mancala.bot.MoveSearch;
+import com.alejandro.mancala.bot.TranspositionTable;
+import com.alejandro.mancala.cluster.ClusterHandler;
+import com.alejandro.mancala.cluster.ClusterTransport;
+import com.alejandro.mancala.cluster.ConsistentHashRing;
+import com.alejandro.mancala.cluster.LoopbackTransport;
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameJournal;
 import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.journal.GameSnapshotter;
+import com.alejandro.mancala.journal.MappedMoveJournal;
+import com.alejandro.mancala.message.BinaryFrames;
 import com.alejandro.mancala.message.MessageService;
+import com.alejandro.mancala.message.MoveParser;
+import com.alejandro.mancala.message.SendPipeline;
+import com.alejandro.mancala.message.SlowConsumerPolicy;
+import com.alejandro.mancala.metrics.GameMetrics;
+import com.alejandro.mancala.metrics.MetricsRegistry;
 import com.alejandro.mancala.player.PlayerService;
+import com.alejandro.mancala.recording.FileTrafficRecorder;
+import com.alejandro.mancala.recording.TrafficRecorder;
+import com.alejandro.mancala.spectator.SpectatorService;
+import com.alejandro.mancala.timer.GameTimeouts;
+import com.alejandro.mancala.timer.HashedWheelTimer;
+import com.alejandro.mancala.timer.TurnTimeoutAction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Web socket configuration.
@@ -20,13 +57,230 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
 
+    @Value("${mancala.outbound.threads}")
+    private int outboundThreads;
+    @Value("${mancala.outbound.buffer-size-limit}")
+    private int bufferSizeLimit;
+    @Value("${mancala.outbound.send-time-limit}")
+    private int sendTimeLimit;
+    @Value("${mancala.outbound.slow-consumer-policy}")
+    private SlowConsumerPolicy slowConsumerPolicy;
+    @Value("${mancala.journal.enabled}")
+    private boolean journalEnabled;
+    @Value("${mancala.journal.directory}")
+    private String journalDirectory;
+    @Value("${mancala.journal.segment-size}")
+    private int journalSegmentSize;
+    @Value("${mancala.journal.flush-interval}")
+    private long journalFlushInterval;
+    @Value("${mancala.spectator.threads}")
+    private int spectatorThreads;
+    @Value("${mancala.resume.grace-period}")
+    private long resumeGracePeriod;
+    @Value("${mancala.timer.tick-duration}")
+    private long timerTickDuration;
+    @Value("${mancala.timer.ticks-per-wheel}")
+    private int timerTicksPerWheel;
+    @Value("${mancala.timer.threads}")
+    private int timerThreads;
+    @Value("${mancala.timeout.turn}")
+    private long turnTimeout;
+    @Value("${mancala.timeout.turn-action}")
+    private TurnTimeoutAction turnTimeoutAction;
+    @Value("${mancala.timeout.pending}")
+    private long pendingTimeout;
+    @Value("${mancala.timeout.ping-interval}")
+    private long pingInterval;
+    @Value("${mancala.snapshot.enabled}")
+    private boolean snapshotEnabled;
+    @Value("${mancala.snapshot.file}")
+    private String snapshotFile;
+    @Value("${mancala.snapshot.interval}")
+    private long snapshotInterval;
+    @Value("${mancala.bot.wait}")
+    private long botWait;
+    @Value("${mancala.bot.move-time}")
+    private long botMoveTime;
+    @Value("${mancala.bot.threads}")
+    private int botThreads;
+    @Value("${mancala.bot.max-games}")
+    private int botMaxGames;
+    @Value("${mancala.bot.table-size}")
+    private int botTableSize;
+    @Value("${mancala.analysis.time}")
+    private long analysisTime;
+    @Value("${mancala.analysis.threads}")
+    private int analysisThreads;
+    @Value("${mancala.analysis.cache-size}")
+    private long analysisCacheSize;
+    @Value("${mancala.analysis.table-size}")
+    private int analysisTableSize;
+    @Value("${mancala.recording.enabled}")
+    private boolean recordingEnabled;
+    @Value("${mancala.recording.directory}")
+    private String recordingDirectory;
+    @Value("${mancala.recording.queue-size}")
+    private int recordingQueueSize;
+    @Value("${mancala.recording.max-size}")
+    private int recordingMaxSize;
+    @Value("${mancala.cluster.enabled}")
+    private boolean clusterEnabled;
+    @Value("${mancala.cluster.node-id}")
+    private String clusterNodeId;
+    @Value("${mancala.cluster.nodes}")
+    private String[] clusterNodes;
+    @Value("${mancala.cluster.virtual-nodes}")
+    private int clusterVirtualNodes;
+
+    // The container rejects a frame longer than any move before buffering it, closing the session with 1009. Text
+    // frames may be staged in the binary buffer before being decoded, so it is never shorter than the text one, and
+    // the binary moves that fit but are too long are rejected when decoded
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(MoveParser.MAX_LENGTH);
+        container.setMaxBinaryMessageBufferSize(Math.max(MoveParser.MAX_LENGTH, BinaryFrames.MAX_INPUT_LENGTH));
+
+        return container;
+    }
+
+    @Bean
+    public SendPipeline sendPipeline() {
+        return new SendPipeline(Executors.newFixedThreadPool(outboundThreads),
+                bufferSizeLimit, sendTimeLimit, slowConsumerPolicy);
+    }
+
+    @Bean
+    public MetricsRegistry metricsRegistry() {
+        return new MetricsRegistry();
+    }
+
+    @Bean
+    public GameMetrics gameMetrics() {
+        return new GameMetrics(metricsRegistry());
+    }
+
+    // Only a snapshot lets the segments before it go, without snapshots the journal would grow forever
+    @Bean
+    public GameJournal gameJournal() {
+        if (!journalEnabled) {
+            return GameJournal.DISABLED;
+        }
+        if (!snapshotEnabled) {
+            throw new IllegalStateException("mancala.journal.enabled requires mancala.snapshot.enabled");
+        }
+        return new MappedMoveJournal(Paths.get(journalDirectory), journalSegmentSize, journalFlushInterval);
+    }
+
+    @Bean
+    public GameSnapshotter gameSnapshotter() {
+        return new GameSnapshotter(Paths.get(snapshotFile), gameJournal());
+    }
+
+    @Bean
+    public GameService gameService() {
+        return new GameService(gameMetrics(), gameJournal());
+    }
+
+    @Bean
+    public HashedWheelTimer gameTimer() {
+        return new HashedWheelTimer(timerTickDuration, timerTicksPerWheel);
+    }
+
+    @Bean
+    public GameTimeouts gameTimeouts() {
+        return new GameTimeouts(gameTimer(), Executors.newFixedThreadPool(timerThreads), turnTimeout, turnTimeoutAction,
+                pendingTimeout, pingInterval, botWait);
+    }
+
+    @Bean
+    public BotService botService() {
+        if (botWait == 0) {
+            return BotService.DISABLED;
+        }
+        return new BotService(new MoveSearch(new ForkJoinPool(botThreads), new TranspositionTable(botTableSize)),
+                botMoveTime, botMaxGames);
+    }
+
+    @Bean
+    public PlayerService playerService() {
+        return new PlayerService(sendPipeline(), Executors.newSingleThreadScheduledExecutor(), resumeGracePeriod);
+    }
+
+    @Bean
+    public SpectatorService spectatorService() {
+        return new SpectatorService(Executors.newFixedThreadPool(spectatorThreads), sendPipeline());
+    }
+
+    @Bean
+    public AnalysisService analysisService() {
+        return new AnalysisService(new MoveSearch(new ForkJoinPool(analysisThreads),
+                new TranspositionTable(analysisTableSize)), analysisTime, analysisCacheSize, metricsRegistry());
+    }
+
+    @Bean
+    public TrafficRecorder trafficRecorder() {
+        if (!recordingEnabled) {
+            return TrafficRecorder.DISABLED;
+        }
+        return new FileTrafficRecorder(Paths.get(recordingDirectory, "traffic-" + System.currentTimeMillis() + ".rec"),
+                recordingQueueSize, recordingMaxSize, recordedSettings());
+    }
+
+    @Bean
+    @ConditionalOnProperty("mancala.cluster.enabled")
+    public ClusterTransport clusterTransport() {
+        return new LoopbackTransport(clusterNodeId);
+    }
+
     @Bean
     public WebSocketHandler gameWebSocketHandler() {
-        return new GameHandler(new PlayerService(), new GameService(), new MessageService());
+        final GameHandler gameHandler = new GameHandler(playerService(), gameService(), new MessageService(),
+                gameMetrics(), gameTimeouts(), spectatorService(), botService(), trafficRecorder());
+        restoreGames(gameHandler);
+
+        if (!clusterEnabled) {
+            return gameHandler;
+        }
+        return new ClusterHandler(gameHandler, clusterTransport(),
+                new ConsistentHashRing(Arrays.asList(clusterNodes), clusterVirtualNodes), sendPipeline());
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(gameWebSocketHandler(), "/mancala");
+        registry.addHandler(new SpectatorHandler(gameService(), spectatorService()), "/mancala/watch");
+    }
+
+    // The settings changing how the game handler answers, for TrafficReplayer to replay the traffic with
+    private Map<String, String> recordedSettings() {
+        final Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("mancala.outbound.buffer-size-limit", String.valueOf(bufferSizeLimit));
+        settings.put("mancala.outbound.send-time-limit", String.valueOf(sendTimeLimit));
+        settings.put("mancala.outbound.slow-consumer-policy", slowConsumerPolicy.name());
+        settings.put("mancala.resume.grace-period", String.valueOf(resumeGracePeriod));
+        settings.put("mancala.timer.tick-duration", String.valueOf(timerTickDuration));
+        settings.put("mancala.timer.ticks-per-wheel", String.valueOf(timerTicksPerWheel));
+        settings.put("mancala.timeout.turn", String.valueOf(turnTimeout));
+        settings.put("mancala.timeout.turn-action", turnTimeoutAction.name());
+        settings.put("mancala.timeout.pending", String.valueOf(pendingTimeout));
+        settings.put("mancala.bot.wait", String.valueOf(botWait));
+        settings.put("mancala.bot.move-time", String.valueOf(botMoveTime));
+        settings.put("mancala.bot.threads", String.valueOf(botThreads));
+        settings.put("mancala.bot.max-games", String.valueOf(botMaxGames));
+        settings.put("mancala.bot.table-size", String.valueOf(botTableSize));
+
+        return settings;
+    }
+
+    // The games in progress before a restart are put back before the handler takes any connection
+    private void restoreGames(GameHandler gameHandler) {
+        final Collection<Game> snapshot = snapshotEnabled
+                ? gameSnapshotter().restore() : Collections.<Game>emptyList();
+        gameJournal().recover(snapshot).forEach(gameHandler::restoreGame);
+
+        if (snapshotEnabled) {
+            gameSnapshotter().start(gameService(), snapshotInterval);
+        }
     }
-}
\ No newline at end of file
+}
@@ -3,50 +3,235 @@ package com.alejandro.mancala.game;
 /**
  * Represents the game's board.
  *
+ * Each player's side (six pits plus the big pit) is packed into a single long, seven bits per pit, which is enough
+ * for all the 72 stones of the game. Pit i takes bits 7 * i to 7 * i + 6 and the big pit is stored as pit 6. The
+ * array based getters and setters are a view over the packed form, while the game engine works on the packed sides
+ * directly.
+ *
+ * Every move closes a new version of the board, recording which pits changed since the previous one so that
+ * players can be sent just the changes. Pits are indexed 0 to 5 for the first player's pits, 6 for the first
+ * player's big pit, and 7 to 13 the same for the second player.
+ *
  * @author afernandez
  */
 public class Board {
-    private int[] pitsFirstPlayer;
-    private int[] pitsSecondPlayer;
-    private int firstPlayerBigPit;
-    private int secondPlayerBigPit;
+    public static final int PITS = 6;
+    public static final int BIG_PIT = 6;
+    public static final int INITIAL_STONES = 6;
+    public static final int SIDE_PITS = PITS + 1;
+    public static final int ALL_PITS = 2 * SIDE_PITS;
+
+    private static final int PIT_BITS = 7;
+    private static final int MAX_STONES = (1 << PIT_BITS) - 1;
+    private static final long PITS_MASK = (1L << (PIT_BITS * PITS)) - 1;
+    private static final long INITIAL_SIDE = initialSide();
+
+    private long firstPlayerSide;
+    private long secondPlayerSide;
+
+    private int version;
+    private int changedPits;
+    private long versionFirstPlayerSide;
+    private long versionSecondPlayerSide;
 
     public Board() {
-        pitsFirstPlayer = new int[] {6, 6, 6, 6, 6, 6};
-        pitsSecondPlayer = new int[] {6, 6, 6, 6, 6, 6};
-        firstPlayerBigPit = 0;
-        secondPlayerBigPit = 0;
+        firstPlayerSide = INITIAL_SIDE;
+        secondPlayerSide = INITIAL_SIDE;
+        versionFirstPlayerSide = INITIAL_SIDE;
+        versionSecondPlayerSide = INITIAL_SIDE;
     }
 
     public int[] getPitsFirstPlayer() {
-        return pitsFirstPlayer;
+        return unpackPits(firstPlayerSide);
     }
 
     public void setPitsFirstPlayer(int[] pitsFirstPlayer) {
-        this.pitsFirstPlayer = pitsFirstPlayer;
+        this.firstPlayerSide = packPits(firstPlayerSide, pitsFirstPlayer);
     }
 
     public int[] getPitsSecondPlayer() {
-        return pitsSecondPlayer;
+        return unpackPits(secondPlayerSide);
     }
 
     public void setPitsSecondPlayer(int[] pitsSecondPlayer) {
-        this.pitsSecondPlayer = pitsSecondPlayer;
+        this.secondPlayerSide = packPits(secondPlayerSide, pitsSecondPlayer);
     }
 
     public int getFirstPlayerBigPit() {
-        return firstPlayerBigPit;
+        return stones(firstPlayerSide, BIG_PIT);
     }
 
     public void setFirstPlayerBigPit(int firstPlayerBigPit) {
-        this.firstPlayerBigPit = firstPlayerBigPit;
+        this.firstPlayerSide = withStones(firstPlayerSide, BIG_PIT, firstPlayerBigPit);
     }
 
     public int getSecondPlayerBigPit() {
-        return secondPlayerBigPit;
+        return stones(secondPlayerSide, BIG_PIT);
     }
 
     public void setSecondPlayerBigPit(int secondPlayerBigPit) {
-        this.secondPlayerBigPit = secondPlayerBigPit;
+        this.secondPlayerSide = withStones(secondPlayerSide, BIG_PIT, secondPlayerBigPit);
+    }
+
+    public long getFirstPlayerSide() {
+        return firstPlayerSide;
+    }
+
+    public void setFirstPlayerSide(long firstPlayerSide) {
+        this.firstPlayerSide = firstPlayerSide;
+    }
+
+    public long getSecondPlayerSide() {
+        return secondPlayerSide;
+    }
+
+    public void setSecondPlayerSide(long secondPlayerSide) {
+        this.secondPlayerSide = secondPlayerSide;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The pits changed by the current version, bit i set meaning pit i changed
+     */
+    public int getChangedPits() {
+        return changedPits;
+    }
+
+    /**
+     * Closes a new version of the board with its current state, recording the pits changed since the previous one.
+     *
+     * @return The new version
+     */
+    public int nextVersion() {
+        changedPits = changedPits(versionFirstPlayerSide, firstPlayerSide)
+                | changedPits(versionSecondPlayerSide, secondPlayerSide) << SIDE_PITS;
+        versionFirstPlayerSide = firstPlayerSide;
+        versionSecondPlayerSide = secondPlayerSide;
+
+        return ++version;
+    }
+
+    /**
+     * Puts the board back in a state saved elsewhere, as the given version with no pits changed.
+     *
+     * @param firstPlayerSide The packed side of the first player
+     * @param secondPlayerSide The packed side of the second player
+     * @param version The version of the board
+     */
+    public void restore(long firstPlayerSide, long secondPlayerSide, int version) {
+        this.firstPlayerSide = firstPlayerSide;
+        this.secondPlayerSide = secondPlayerSide;
+        this.versionFirstPlayerSide = firstPlayerSide;
+        this.versionSecondPlayerSide = secondPlayerSide;
+        this.version = version;
+        this.changedPits = 0;
+    }
+
+    /**
+     * Returns the stones in a pit.
+     *
+     * @param index The index of the pit in the whole board, 0 to 13
+     * @return The stones in the pit
+     */
+    public int getStones(int index) {
+        return index < SIDE_PITS ? stones(firstPlayerSide, index) : stones(secondPlayerSide, index - SIDE_PITS);
+    }
+
+    /**
+     * Returns the stones in a pit of a packed side.
+     *
+     * @param side The packed side
+     * @param pit The pit, 0 to 5, or BIG_PIT
+     * @return The stones in the pit
+     */
+    public static int stones(long side, int pit) {
+        return (int) (side >>> (pit * PIT_BITS)) & MAX_STONES;
+    }
+
+    /**
+     * Returns a packed side with the stones of a pit replaced.
+     *
+     * @param side The packed side
+     * @param pit The pit, 0 to 5, or BIG_PIT
+     * @param stones The new amount of stones
+     * @return The updated side
+     */
+    public static long withStones(long side, int pit, int stones) {
+        if (stones < 0 || stones > MAX_STONES) {
+            throw new IllegalArgumentException("Invalid amount of stones: " + stones);
+        }
+        int shift = pit * PIT_BITS;
+        return (side & ~((long) MAX_STONES << shift)) | ((long) stones << shift);
+    }
+
+    /**
+     * Returns the value to add to a packed side to put one stone in a pit.
+     *
+     * @param pit The pit, 0 to 5, or BIG_PIT
+     * @return The increment
+     */
+    public static long oneStone(int pit) {
+        return 1L << (pit * PIT_BITS);
+    }
+
+    /**
+     * @param side The packed side
+     * @return True if there are no stones left in any of the six pits, not counting the big pit
+     */
+    public static boolean isEmpty(long side) {
+        return (side & PITS_MASK) == 0;
+    }
+
+    /**
+     * @param side The packed side
+     * @return The stones in the six pits, not counting the big pit
+     */
+    public static int stonesInPits(long side) {
+        int total = 0;
+
+        for (int pit = 0; pit < PITS; pit++) {
+            total += stones(side, pit);
+        }
+        return total;
+    }
+
+    private static int changedPits(long before, long after) {
+        final long difference = before ^ after;
+        int changed = 0;
+
+        for (int pit = 0; pit < SIDE_PITS; pit++) {
+            if (stones(difference, pit) != 0) {
+                changed |= 1 << pit;
+            }
+        }
+        return changed;
+    }
+
+    private static int[] unpackPits(long side) {
+        int[] pits = new int[PITS];
+
+        for (int pit = 0; pit < PITS; pit++) {
+            pits[pit] = stones(side, pit);
+        }
+        return pits;
+    }
+
+    private static long packPits(long side, int[] pits) {
+        for (int pit = 0; pit < PITS; pit++) {
+            side = withStones(side, pit, pits[pit]);
+        }
+        return side;
+    }
+
+    private static long initialSide() {
+        long side = 0;
+
+        for (int pit = 0; pit < PITS; pit++) {
+            side = withStones(side, pit, INITIAL_STONES);
+        }
+        return side;
     }
-}
\ No newline at end of file
+}
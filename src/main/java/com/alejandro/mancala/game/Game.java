@@ -1,8 +1,10 @@
 package com.alejandro.mancala.game;
 
 import com.alejandro.mancala.player.Player;
+import com.alejandro.mancala.spectator.SpectatorGroup;
+import com.alejandro.mancala.timer.Timeout;
 
-import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Controls the game's state and flows.
@@ -10,29 +12,52 @@ import java.util.Objects;
  * @author afernandez
  */
 public class Game {
-    private Integer id;
-    private State state;
+    private final int id;
+    private final AtomicReference<State> state;
     private Player firstPlayer;
     private Player secondPlayer;
     private Board board;
     private Player winner;
+    private boolean firstPlayerTurn = true;
+    private Timeout deadline;
+    private SpectatorGroup spectators;
+    private final GameMailbox mailbox = new GameMailbox();
+    private final long createdAt = System.nanoTime();
 
-    public Game(Integer id) {
+    public Game(int id) {
         this.id = id;
-        this.state = State.PENDING;
+        this.state = new AtomicReference<>(State.PENDING);
         this.board = new Board();
     }
 
     public State getState() {
-        return state;
+        return state.get();
     }
 
-    public Integer getId() {
+    public int getId() {
         return id;
     }
 
     public void setState(State state) {
-        this.state = state;
+        this.state.set(state);
+    }
+
+    /**
+     * Moves the game from PENDING to STARTED.
+     *
+     * @return True if the game was pending and has been started by this call, false otherwise
+     */
+    public boolean start() {
+        return state.compareAndSet(State.PENDING, State.STARTED);
+    }
+
+    /**
+     * Moves the game from PENDING to ABANDONED so that nobody can join it anymore.
+     *
+     * @return True if the game was pending and has been abandoned by this call, false otherwise
+     */
+    public boolean abandon() {
+        return state.compareAndSet(State.PENDING, State.ABANDONED);
     }
 
     public Player getFirstPlayer() {
@@ -67,9 +92,53 @@ public class Game {
         this.winner = winner;
     }
 
+    /**
+     * @return True if the first player moves next, false if the second one does
+     */
+    public boolean isFirstPlayerTurn() {
+        return firstPlayerTurn;
+    }
+
+    public void setFirstPlayerTurn(boolean firstPlayerTurn) {
+        this.firstPlayerTurn = firstPlayerTurn;
+    }
+
+    /**
+     * @return The timeout of the current stage of the game, waiting for an opponent or for the next move
+     */
+    public Timeout getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(Timeout deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return The spectators watching the game, NULL if nobody ever watched it
+     */
+    public SpectatorGroup getSpectators() {
+        return spectators;
+    }
+
+    public void setSpectators(SpectatorGroup spectators) {
+        this.spectators = spectators;
+    }
+
+    public GameMailbox getMailbox() {
+        return mailbox;
+    }
+
+    /**
+     * @return The System.nanoTime() at which the game was created
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hashCode(this.id);
+        return Integer.hashCode(this.id);
     }
 
     @Override
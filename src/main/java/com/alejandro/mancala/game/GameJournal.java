@@ -0,0 +1,80 @@
+package com.alejandro.mancala.game;
+
+import java.util.Collection;
+
+/**
+ * Write-ahead log of the events that change the state of the games, used to recover the games in progress after
+ * a restart. Every method does nothing by default, which is what DISABLED does.
+ *
+ * @author afernandez
+ */
+public interface GameJournal {
+    GameJournal DISABLED = new GameJournal() {
+    };
+
+    /**
+     * Records that a game has started, both players having joined.
+     *
+     * @param gameId The ID of the game
+     */
+    default void gameStarted(int gameId) {
+    }
+
+    /**
+     * Records the players of a game that has just got both of them, so that they can resume it after a restart.
+     *
+     * @param gameId The ID of the game
+     * @param firstPlayerToken The resume token of the first player
+     * @param secondPlayerToken The resume token of the second player
+     */
+    default void playersJoined(int gameId, String firstPlayerToken, String secondPlayerToken) {
+    }
+
+    /**
+     * Records a move accepted by the game engine.
+     *
+     * @param gameId The ID of the game
+     * @param sequence The version of the board after the move
+     * @param firstPlayer True if the move was made by the first player, false otherwise
+     * @param pit The pit sown
+     */
+    default void moveAccepted(int gameId, int sequence, boolean firstPlayer, int pit) {
+    }
+
+    /**
+     * Records that a game is over, either finished or left by a player.
+     *
+     * @param gameId The ID of the game
+     */
+    default void gameEnded(int gameId) {
+    }
+
+    /**
+     * Rebuilds the games that were in progress when the journal was last written, replaying the journal on top of
+     * the games restored from a snapshot.
+     *
+     * @param snapshot The games restored from the last snapshot, empty if there is none
+     * @return The games recovered, already STARTED, with the players recorded standing in their seats until they
+     * resume the game
+     */
+    default Collection<Game> recover(Collection<Game> snapshot) {
+        return snapshot;
+    }
+
+    /**
+     * Marks the point a snapshot is about to be taken from. Every record written afterwards must be kept.
+     *
+     * @return The checkpoint, to truncate the journal up to once the snapshot is safely stored
+     */
+    default int checkpoint() {
+        return 0;
+    }
+
+    /**
+     * Discards the records written before a checkpoint, already covered by a snapshot.
+     *
+     * @param checkpoint The checkpoint returned before taking the snapshot
+     */
+    default void truncate(int checkpoint) {
+    }
+}
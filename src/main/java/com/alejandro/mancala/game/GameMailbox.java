@@ -0,0 +1,54 @@
+package com.alejandro.mancala.game;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serializes the events of a single game. Tasks are run one at a time and in submission order, while tasks of
+ * different games run in parallel without any global lock.
+ *
+ * There is no dedicated thread: the thread that submits a task to an idle mailbox drains it, and any other thread
+ * submitting in the meantime just enqueues its task and returns.
+ *
+ * @author afernandez
+ */
+public class GameMailbox {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * Submits a task to be run after every task previously submitted to this mailbox.
+     *
+     * @param task The task
+     */
+    public void execute(Runnable task) {
+        tasks.offer(task);
+
+        // A task offered right before the drain flag is cleared is picked up by re-checking the queue
+        while (!tasks.isEmpty() && draining.compareAndSet(false, true)) {
+            try {
+                drain();
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        Runnable task;
+
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                logger.error("Error processing game event", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.alejandro.mancala.game;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Registry of the live games, keyed by their primitive ID.
+ *
+ * The registry is split in shards, each one with its own lock, open addressing table and ID allocator, so operations
+ * on different shards never contend. Lookups are optimistic and don't take the lock unless a write got in the way,
+ * and neither lookups, inserts nor removals allocate, apart from growing a shard's table.
+ *
+ * @author afernandez
+ */
+public class GameRegistry {
+    private static final int DEFAULT_SHARD_CAPACITY = 1024;
+
+    private final Shard[] shards;
+    private final int shardMask;
+
+    public GameRegistry() {
+        this(Runtime.getRuntime().availableProcessors() * 4, DEFAULT_SHARD_CAPACITY);
+    }
+
+    /**
+     * @param concurrency The expected number of threads updating the registry at the same time, rounded up to a
+     *                    power of two to get the number of shards
+     * @param shardCapacity The initial number of games every shard can hold before growing
+     */
+    public GameRegistry(int concurrency, int shardCapacity) {
+        int shardCount = powerOfTwo(concurrency);
+
+        shards = new Shard[shardCount];
+        shardMask = shardCount - 1;
+
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, shardCount, powerOfTwo(shardCapacity * 2));
+        }
+    }
+
+    /**
+     * Allocates a new game ID. Every thread allocates from its own shard, and IDs still in use are never handed
+     * out again even after the shard's counter wraps around.
+     *
+     * @return The new ID, always greater than zero
+     */
+    public int nextId() {
+        return shards[(int) Thread.currentThread().getId() & shardMask].nextId();
+    }
+
+    /**
+     * Retrieves a game.
+     *
+     * @param id The ID of the game
+     * @return The game, NULL if there is no game with that ID
+     */
+    public Game get(int id) {
+        return shardOf(id).get(id);
+    }
+
+    /**
+     * Adds a game, replacing any other game registered with the same ID.
+     *
+     * @param game The game
+     */
+    public void put(Game game) {
+        shardOf(game.getId()).put(game);
+    }
+
+    /**
+     * Removes a game.
+     *
+     * @param id The ID of the game
+     * @return The game removed, NULL if there was no game with that ID
+     */
+    public Game remove(int id) {
+        return shardOf(id).remove(id);
+    }
+
+    /**
+     * Performs an action for every game registered. Each shard is copied under its lock and the action runs on the
+     * copy, so the registry stays available to other threads, and games added or removed in the meantime may or
+     * may not be seen.
+     *
+     * @param action The action
+     */
+    public void forEach(Consumer<Game> action) {
+        for (Shard shard : shards) {
+            for (Game game : shard.values()) {
+                if (game != null) {
+                    action.accept(game);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of games registered
+     */
+    public int size() {
+        int size = 0;
+
+        for (Shard shard : shards) {
+            size += shard.size;
+        }
+        return size;
+    }
+
+    private Shard shardOf(int id) {
+        return shards[(id - 1) & shardMask];
+    }
+
+    private static int powerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Linear probing table. A key of zero marks an empty slot, and removals shift the following entries back
+     * instead of leaving tombstones.
+     */
+    private static final class Shard {
+        private final StampedLock lock = new StampedLock();
+        private final int index;
+        private final int shardCount;
+
+        private int[] keys;
+        private Game[] values;
+        private volatile int size;
+        private int sequence;
+
+        Shard(int index, int shardCount, int capacity) {
+            this.index = index;
+            this.shardCount = shardCount;
+            this.keys = new int[capacity];
+            this.values = new Game[capacity];
+        }
+
+        int nextId() {
+            long stamp = lock.writeLock();
+            try {
+                int id;
+                do {
+                    // IDs of this shard are index + 1, index + 1 + shardCount, ... up to Integer.MAX_VALUE
+                    if (sequence > (Integer.MAX_VALUE - index - 1) / shardCount) {
+                        sequence = 0;
+                    }
+                    id = sequence++ * shardCount + index + 1;
+                } while (find(keys, id) >= 0);
+
+                return id;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        Game get(int id) {
+            long stamp = lock.tryOptimisticRead();
+            Game game = lookup(id);
+
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    game = lookup(id);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return game;
+        }
+
+        void put(Game game) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = find(keys, game.getId());
+
+                if (slot >= 0) {
+                    values[slot] = game;
+                    return;
+                }
+                if ((size + 1) * 2 > keys.length) {
+                    grow();
+                }
+                slot = ~find(keys, game.getId());
+                keys[slot] = game.getId();
+                values[slot] = game;
+                size++;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        Game remove(int id) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = find(keys, id);
+
+                if (slot < 0) {
+                    return null;
+                }
+                Game game = values[slot];
+                shiftBack(slot);
+                size--;
+
+                return game;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        Game[] values() {
+            long stamp = lock.tryOptimisticRead();
+            Game[] copy = values.clone();
+
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    copy = values.clone();
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return copy;
+        }
+
+        private Game lookup(int id) {
+            int[] keys = this.keys;
+            Game[] values = this.values;
+            int mask = keys.length - 1;
+            int slot = hash(id) & mask;
+
+            // Bounded by the table length, as an optimistic read may observe the table in the middle of a write
+            for (int i = 0; i <= mask; i++) {
+                int key = keys[slot];
+
+                if (key == id) {
+                    return slot < values.length ? values[slot] : null;
+                }
+                if (key == 0) {
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            Game[] oldValues = values;
+            int[] newKeys = new int[oldKeys.length * 2];
+            Game[] newValues = new Game[oldKeys.length * 2];
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = ~find(newKeys, oldKeys[i]);
+                    newKeys[slot] = oldKeys[i];
+                    newValues[slot] = oldValues[i];
+                }
+            }
+            values = newValues;
+            keys = newKeys;
+        }
+
+        private void shiftBack(int slot) {
+            int mask = keys.length - 1;
+            int next = (slot + 1) & mask;
+
+            while (keys[next] != 0) {
+                int home = hash(keys[next]) & mask;
+
+                // Moves the entry into the gap unless its home slot lies cyclically between the gap and itself
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    keys[slot] = keys[next];
+                    values[slot] = values[next];
+                    slot = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[slot] = 0;
+            values[slot] = null;
+        }
+
+        /**
+         * @return The slot holding the ID, or the complement of the empty slot where it should be inserted
+         */
+        private static int find(int[] keys, int id) {
+            int mask = keys.length - 1;
+            int slot = hash(id) & mask;
+
+            while (keys[slot] != 0) {
+                if (keys[slot] == id) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return ~slot;
+        }
+
+        private static int hash(int id) {
+            int h = id * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
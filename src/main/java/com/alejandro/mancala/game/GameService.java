@@ -2,12 +2,11 @@ package com.alejandro.mancala.game;
 
 import com.alejandro.mancala.message.InputMessage;
 import com.alejandro.mancala.message.MessageService;
+import com.alejandro.mancala.metrics.GameMetrics;
 import com.alejandro.mancala.player.Player;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 
 /**
  * Game service manages and controls the games registered.
@@ -15,21 +14,88 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @author afernandez
  */
 public class GameService {
-    private AtomicInteger gamesPlayed = new AtomicInteger();
-    private Map<Integer, Game> games = new HashMap<>();
+    private GameRegistry games = new GameRegistry();
+    private WaitingRoom waitingRoom = new WaitingRoom();
+    private GameMetrics metrics;
+    private GameJournal journal;
+
+    public GameService() {
+        this(new GameMetrics());
+    }
+
+    public GameService(GameMetrics metrics) {
+        this(metrics, GameJournal.DISABLED);
+    }
+
+    public GameService(GameMetrics metrics, GameJournal journal) {
+        this.metrics = metrics;
+        this.journal = journal;
+    }
 
     /**
-     * Looks for a game that's already started and waiting for a second player to join or otherwise creates a new one.
+     * Joins a game with a first player waiting for an opponent or otherwise creates a new one. A game joined is
+     * already moved to STARTED, so it won't be handed out again.
      *
      * @return The game found or created
      */
     public Game matchGame() {
-        Integer gameId = games.keySet().stream()
-                .filter(key -> games.get(key).getState() == State.PENDING)
-                .findFirst()
-                .orElse(null);
+        return matchGame(games::nextId);
+    }
+
+    /**
+     * Joins a game with a first player waiting for an opponent or otherwise creates a new one with the given ID,
+     * allocated by the node of the cluster the player is connected to.
+     *
+     * @param newGameId The ID of the game to create if no first player is waiting
+     * @return The game found or created
+     */
+    public Game matchGame(int newGameId) {
+        return matchGame(() -> newGameId);
+    }
+
+    private Game matchGame(IntSupplier newGameId) {
+        Game game = waitingRoom.poll();
+
+        if (game == null) {
+            return new Game(newGameId.getAsInt());
+        }
+        metrics.recordPendingTime(System.nanoTime() - game.getCreatedAt());
+        journal.gameStarted(game.getId());
+
+        return game;
+    }
+
+    /**
+     * Starts a game waiting for an opponent with a bot as the second player, unless a player has just joined it.
+     *
+     * @param game The pending game
+     * @return True if the game was still pending and has been started, false otherwise
+     */
+    public boolean matchBot(Game game) {
+        if (!game.start()) {
+            return false;
+        }
+        // Like an abandoned game, it's discarded when polled from the waiting room
+        waitingRoom.abandoned();
+        metrics.recordPendingTime(System.nanoTime() - game.getCreatedAt());
+        journal.gameStarted(game.getId());
+
+        return true;
+    }
+
+    /**
+     * Records the players of a game that has just got its second player, so that they can resume it after a restart.
+     * A bot has no resume token, so a game against a bot isn't recorded.
+     *
+     * @param game The game
+     */
+    public void playersJoined(Game game) {
+        final String firstPlayerToken = game.getFirstPlayer().getResumeToken();
+        final String secondPlayerToken = game.getSecondPlayer().getResumeToken();
 
-        return gameId == null ? new Game(gamesPlayed.addAndGet(1)) : games.get(gameId);
+        if (firstPlayerToken != null && secondPlayerToken != null) {
+            journal.playersJoined(game.getId(), firstPlayerToken, secondPlayerToken);
+        }
     }
 
     /**
@@ -38,17 +104,40 @@ public class GameService {
      * @param id The ID of a game
      * @return The game retrieved
      */
-    public Game getGame(Integer id) {
+    public Game getGame(int id) {
         return games.get(id);
     }
 
     /**
-     * Adds a game to the game's map.
+     * Adds a game to the registry. Pending games are also put in the waiting room for an opponent to join.
      *
      * @param game The game to add
      */
     public void addGame(Game game) {
-        games.put(game.getId(), game);
+        games.put(game);
+
+        if (game.getState() == State.PENDING) {
+            waitingRoom.offer(game);
+        }
+    }
+
+    /**
+     * Puts back a game recovered after a restart. The game is already STARTED and waits for its players to
+     * reconnect.
+     *
+     * @param game The game recovered
+     */
+    public void restoreGame(Game game) {
+        games.put(game);
+    }
+
+    /**
+     * Performs an action for every game in the registry, without blocking the threads playing them.
+     *
+     * @param action The action
+     */
+    public void forEachGame(Consumer<Game> action) {
+        games.forEach(action);
     }
 
     /**
@@ -87,53 +176,97 @@ public class GameService {
     }
 
     /**
-     * Removes a game from the games's map.
+     * @return The games in the registry, pending, started or finished
+     */
+    public int getLiveGames() {
+        return games.size();
+    }
+
+    /**
+     * @return The games waiting for an opponent
+     */
+    public int getPendingGames() {
+        return waitingRoom.size();
+    }
+
+    /**
+     * Removes a game from the registry. A started game removed before it finishes is recorded as abandoned.
      *
      * @param gameId The ID of the game to remove
      */
-    public void removeGame(Integer gameId) {
+    public void removeGame(int gameId) {
         Game game = games.get(gameId);
 
         if (game != null) {
+            if (game.abandon()) {
+                waitingRoom.abandoned();
+            } else if (game.getState() == State.STARTED) {
+                metrics.gameAbandoned();
+            }
             game.setFirstPlayer(null);
             game.setSecondPlayer(null);
 
             games.remove(game.getId());
+            journal.gameEnded(game.getId());
         }
     }
 
     /**
-     * Performs a game move given the pit selected by the player and the stones that were in the pit.
+     * Removes a game that waited too long for an opponent, unless an opponent has just joined it.
      *
      * @param game The game
-     * @param message The message with the amount of stones and pit selected
-     * @return True if the move was a valid one to gain an additional turn, false otherwise
+     * @return True if the game was still pending and has been removed, false otherwise
      */
-    public boolean moveStones(Game game, InputMessage message) {
-        boolean repeatTurn = false;
-        int stones = message.getStones();
-        int pit = message.getPitSelected();
-        int nextPit = pit + 1;
-
-        int [] pits;
-        if (MessageService.FIRST_PLAYER.equals(message.getPlayer())) {
-            pits = game.getBoard().getPitsFirstPlayer();
-            increaseBigPitFirstPlayer(game, stones, pit);
-        } else {
-            pits = game.getBoard().getPitsSecondPlayer();
-            increaseBigPitSecondPlayer(game, stones, pit);
+    public boolean expirePendingGame(Game game) {
+        if (!game.abandon()) {
+            return false;
         }
+        waitingRoom.abandoned();
+        games.remove(game.getId());
 
-        for (int i = 0; i < stones; i++) {
-            if (nextPit == 6) {
-                if (i == stones - 1) {
-                    repeatTurn = true;
-                }
-                break;
-            }
-            pits[nextPit++] += 1;
+        return true;
+    }
+
+    /**
+     * Performs a game move given the pit selected by the player. The stones sown are the ones the board holds in
+     * that pit, whatever the client claims, and they go around the board skipping the opponent's big pit. If the
+     * last stone lands in an empty pit of the player, it captures the stones of the opposite pit. Every move closes
+     * a new version of the board and is written to the journal, and the turn goes to the opponent unless the player
+     * got an additional one.
+     *
+     * @param game The game
+     * @param message The message with the pit selected
+     * @return True if the last stone landed in the player's big pit, gaining an additional turn, false otherwise
+     */
+    public boolean moveStones(Game game, InputMessage message) {
+        return moveStones(game, MessageService.FIRST_PLAYER.equals(message.getPlayer()), message.getPitSelected());
+    }
+
+    /**
+     * Moves the stones of a pit, as moveStones(Game, InputMessage) does, from a move already parsed.
+     *
+     * @param game The game
+     * @param firstPlayer True if the move is made by the first player, false otherwise
+     * @param pit The pit selected
+     * @return True if the last stone landed in the player's big pit, false otherwise
+     */
+    public boolean moveStones(Game game, boolean firstPlayer, int pit) {
+        final Board board = game.getBoard();
+        final long side = firstPlayer ? board.getFirstPlayerSide() : board.getSecondPlayerSide();
+        final long opponentSide = firstPlayer ? board.getSecondPlayerSide() : board.getFirstPlayerSide();
+
+        if (pit < 0 || pit >= Board.PITS || Board.stones(side, pit) == 0) {
+            throw new IllegalArgumentException("Invalid move from pit " + pit + " in game " + game.getId());
         }
-        pits[pit] = 0;
+        final long[] sides = new long[2];
+        final boolean repeatTurn = SowingTable.sow(side, opponentSide, pit, sides);
+
+        board.setFirstPlayerSide(firstPlayer ? sides[0] : sides[1]);
+        board.setSecondPlayerSide(firstPlayer ? sides[1] : sides[0]);
+
+        final int version = board.nextVersion();
+        journal.moveAccepted(game.getId(), version, firstPlayer, pit);
+        game.setFirstPlayerTurn(repeatTurn == firstPlayer);
 
         return repeatTurn;
     }
@@ -146,16 +279,22 @@ public class GameService {
      * @return True if the games has ended, false otherwise
      */
     public boolean isGameFinished(Game game) {
-        int [] pitsCompleted = new int[] {0, 0, 0, 0, 0, 0};
+        final Board board = game.getBoard();
 
-        if (Arrays.equals(pitsCompleted, game.getBoard().getPitsFirstPlayer())) {
-            return true;
-        }
+        return Board.isEmpty(board.getFirstPlayerSide()) || Board.isEmpty(board.getSecondPlayerSide());
+    }
 
-        if (Arrays.equals(pitsCompleted, game.getBoard().getPitsSecondPlayer())) {
-            return true;
-        }
-        return false;
+    /**
+     * Ends a game in favour of the opponent of a player who ran out of time.
+     *
+     * @param game The game
+     * @param firstPlayer True if the player forfeiting is the first player, false otherwise
+     */
+    public void forfeit(Game game, boolean firstPlayer) {
+        game.setState(firstPlayer ? State.WINNER_SECOND_PLAYER : State.WINNER_FIRST_PLAYER);
+
+        metrics.gameFinished(game.getState());
+        journal.gameEnded(game.getId());
     }
 
     /**
@@ -164,25 +303,16 @@ public class GameService {
      * @param game The game
      */
     public void calculateWinner(Game game) {
-        int totalStonesFirstPlayer = 0;
-        int totalStonesSecondPlayer = 0;
-
-        int [] pitsFirstPlayer = game.getBoard().getPitsFirstPlayer();
-        int [] pitsSecondPlayer = game.getBoard().getPitsSecondPlayer();
-
-        for (int i = 0; i < 6; i++) {
-            totalStonesFirstPlayer += pitsFirstPlayer[i];
-            totalStonesSecondPlayer += pitsSecondPlayer[i];
+        final Board board = game.getBoard();
+        final long firstPlayerSide = board.getFirstPlayerSide();
+        final long secondPlayerSide = board.getSecondPlayerSide();
 
-            pitsFirstPlayer[i] = 0;
-            pitsSecondPlayer[i] = 0;
-        }
-
-        totalStonesFirstPlayer += game.getBoard().getFirstPlayerBigPit();
-        totalStonesSecondPlayer += game.getBoard().getSecondPlayerBigPit();
+        int totalStonesFirstPlayer = Board.stonesInPits(firstPlayerSide) + Board.stones(firstPlayerSide, Board.BIG_PIT);
+        int totalStonesSecondPlayer = Board.stonesInPits(secondPlayerSide) + Board.stones(secondPlayerSide, Board.BIG_PIT);
 
-        game.getBoard().setFirstPlayerBigPit(totalStonesFirstPlayer);
-        game.getBoard().setSecondPlayerBigPit(totalStonesSecondPlayer);
+        board.setFirstPlayerSide(Board.withStones(0, Board.BIG_PIT, totalStonesFirstPlayer));
+        board.setSecondPlayerSide(Board.withStones(0, Board.BIG_PIT, totalStonesSecondPlayer));
+        board.nextVersion();
 
         if (totalStonesFirstPlayer > totalStonesSecondPlayer) {
             game.setState(State.WINNER_FIRST_PLAYER);
@@ -191,19 +321,7 @@ public class GameService {
         } else {
             game.setState(State.GAME_DRAW);
         }
-    }
-
-    private void increaseBigPitFirstPlayer(Game game, int stones, int pit) {
-        if (stones == 6 || stones > 6 - (pit + 1)) {
-            int bigPit = game.getBoard().getFirstPlayerBigPit();
-            game.getBoard().setFirstPlayerBigPit(++bigPit);
-        }
-    }
-
-    private void increaseBigPitSecondPlayer(Game game, int stones, int pit) {
-        if (stones == 6 || stones > 6 - (pit + 1)) {
-            int bigPit = game.getBoard().getSecondPlayerBigPit();
-            game.getBoard().setSecondPlayerBigPit(++bigPit);
-        }
+        metrics.gameFinished(game.getState());
+        journal.gameEnded(game.getId());
     }
 }
\ No newline at end of file
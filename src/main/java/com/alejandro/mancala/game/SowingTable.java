@@ -0,0 +1,99 @@
+package com.alejandro.mancala.game;
+
+/**
+ * Precomputed outcome of sowing the stones of a pit.
+ *
+ * Seen from the player moving, stones are sown over a cycle of 13 positions: the player's six pits (0 to 5), the
+ * player's big pit (6) and the opponent's six pits (7 to 12), skipping the opponent's big pit. For every pit and
+ * amount of stones the table holds what has to be added to each packed side and where the last stone lands, so
+ * a move is resolved with a couple of lookups and additions instead of a loop over the stones.
+ *
+ * @author afernandez
+ */
+public final class SowingTable {
+    static final int CYCLE = 2 * Board.PITS + 1;
+    static final int MAX_STONES = 2 * Board.PITS * Board.INITIAL_STONES;
+
+    private static final long[] OWN_INCREMENTS = new long[Board.PITS * (MAX_STONES + 1)];
+    private static final long[] OPPONENT_INCREMENTS = new long[Board.PITS * (MAX_STONES + 1)];
+    private static final byte[] LAST_POSITIONS = new byte[Board.PITS * (MAX_STONES + 1)];
+
+    static {
+        for (int pit = 0; pit < Board.PITS; pit++) {
+            for (int stones = 1; stones <= MAX_STONES; stones++) {
+                int index = index(pit, stones);
+                int position = pit;
+
+                for (int i = 0; i < stones; i++) {
+                    position = (position + 1) % CYCLE;
+
+                    if (position <= Board.BIG_PIT) {
+                        OWN_INCREMENTS[index] += Board.oneStone(position);
+                    } else {
+                        OPPONENT_INCREMENTS[index] += Board.oneStone(position - Board.BIG_PIT - 1);
+                    }
+                }
+                LAST_POSITIONS[index] = (byte) position;
+            }
+        }
+    }
+
+    private SowingTable() {
+    }
+
+    /**
+     * @return The value to add to the moving player's side, origin pit already emptied, after sowing
+     */
+    public static long ownIncrement(int pit, int stones) {
+        return OWN_INCREMENTS[index(pit, stones)];
+    }
+
+    /**
+     * @return The value to add to the opponent's side after sowing
+     */
+    public static long opponentIncrement(int pit, int stones) {
+        return OPPONENT_INCREMENTS[index(pit, stones)];
+    }
+
+    /**
+     * @return The position in the cycle where the last stone lands
+     */
+    public static int lastPosition(int pit, int stones) {
+        return LAST_POSITIONS[index(pit, stones)];
+    }
+
+    /**
+     * Sows a pit of the player to move, capturing as the game does.
+     *
+     * @param side The packed side of the player to move
+     * @param opponentSide The packed side of the opponent
+     * @param pit The pit, with stones
+     * @param sides Where to leave the side of the player and the side of the opponent after the move
+     * @return True if the player gets an additional turn, false otherwise
+     */
+    public static boolean sow(long side, long opponentSide, int pit, long[] sides) {
+        final int stones = Board.stones(side, pit);
+        final int lastPosition = lastPosition(pit, stones);
+
+        side = Board.withStones(side, pit, 0) + ownIncrement(pit, stones);
+        opponentSide += opponentIncrement(pit, stones);
+
+        if (lastPosition < Board.PITS && Board.stones(side, lastPosition) == 1) {
+            int oppositePit = Board.PITS - 1 - lastPosition;
+            int captured = Board.stones(opponentSide, oppositePit);
+
+            if (captured > 0) {
+                side = Board.withStones(side, lastPosition, 0) + (captured + 1) * Board.oneStone(Board.BIG_PIT);
+                opponentSide = Board.withStones(opponentSide, oppositePit, 0);
+            }
+        }
+        sides[0] = side;
+        sides[1] = opponentSide;
+
+        return lastPosition == Board.BIG_PIT;
+    }
+
+    private static int index(int pit, int stones) {
+        return pit * (MAX_STONES + 1) + stones;
+    }
+}
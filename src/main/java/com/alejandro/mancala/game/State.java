@@ -10,5 +10,6 @@ public enum State {
     STARTED,
     WINNER_FIRST_PLAYER,
     WINNER_SECOND_PLAYER,
-    GAME_DRAW
+    GAME_DRAW,
+    ABANDONED
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.alejandro.mancala.game;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the games that have a first player waiting for an opponent to join.
+ *
+ * @author afernandez
+ */
+public class WaitingRoom {
+    private final Queue<Game> pendingGames = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /**
+     * Puts a game in the waiting room so that the next player looking for an opponent can join it.
+     *
+     * @param game The pending game
+     */
+    public void offer(Game game) {
+        pendingGames.offer(game);
+        waiting.incrementAndGet();
+    }
+
+    /**
+     * Records that a game in the waiting room has been abandoned. The game itself is discarded when polled.
+     */
+    public void abandoned() {
+        waiting.decrementAndGet();
+    }
+
+    /**
+     * @return The games still waiting for an opponent
+     */
+    public int size() {
+        return waiting.get();
+    }
+
+    /**
+     * Takes the oldest game still waiting for an opponent. The game is moved from PENDING to STARTED atomically,
+     * so two players can never join the same game. Games abandoned while waiting are discarded on the way.
+     *
+     * @return The game joined, NULL if no game is waiting
+     */
+    public Game poll() {
+        Game game;
+
+        while ((game = pendingGames.poll()) != null) {
+            if (game.start()) {
+                waiting.decrementAndGet();
+                return game;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,282 @@
+package com.alejandro.mancala.journal;
+
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameJournal;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.game.State;
+import com.alejandro.mancala.player.Player;
+import com.alejandro.mancala.player.PlayerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes periodic snapshots of the games in the registry, so that a restart only replays the journal written since
+ * the last one. Nothing is stopped while a snapshot is taken: every game is copied by a task run through its own
+ * mailbox, between two of its moves, and the registry is only walked shard by shard.
+ *
+ * The snapshot is a compact binary image, replaced atomically on every snapshot:
+ *
+ * header:   magic (4 bytes), format (4 bytes), journal checkpoint (4 bytes), games (4 bytes)
+ * per game: ID (4 bytes), state, player slots, version (4 bytes), first player side (8 bytes), second player
+ *           side (8 bytes), random part of the first player's resume token (12 bytes), random part of the second
+ *           player's resume token (12 bytes)
+ *
+ * Player slots has bit 0 set if the first player's resume token is there, bit 1 if the second one's is and bit 2 if
+ * the first player had the turn.
+ *
+ * @author afernandez
+ */
+public class GameSnapshotter {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    static final int HEADER_LENGTH = 16;
+    static final int RECORD_LENGTH = 50;
+
+    private static final int TOKEN_LENGTH = PlayerService.TOKEN_PARTS * Integer.BYTES;
+
+    private static final int MAGIC        = 0x4D4E534E;
+    private static final int FORMAT       = 1;
+    private static final int COPY_TIMEOUT = 30;
+
+    private static final int FIRST_PLAYER      = 1;
+    private static final int SECOND_PLAYER     = 2;
+    private static final int FIRST_PLAYER_TURN = 4;
+
+    private final Path file;
+    private final GameJournal journal;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param file The snapshot file
+     * @param journal The journal truncated after every snapshot
+     */
+    public GameSnapshotter(Path file, GameJournal journal) {
+        this.file = file;
+        this.journal = journal;
+    }
+
+    /**
+     * Takes a snapshot every interval until closed.
+     *
+     * @param gameService The service holding the games
+     * @param interval The time in milliseconds between snapshots
+     */
+    public synchronized void start(GameService gameService, long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot(gameService);
+            } catch (RuntimeException ex) {
+                logger.error("Error taking a snapshot of the games", ex);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops taking snapshots, called by Spring when the context is closed.
+     */
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Takes a snapshot of every game in the registry and truncates the journal up to the point it was started at.
+     *
+     * @param gameService The service holding the games
+     * @return The number of games written
+     */
+    public int snapshot(GameService gameService) {
+        final long start = System.nanoTime();
+        final int checkpoint = journal.checkpoint();
+        final List<Game> games = new ArrayList<>();
+        gameService.forEachGame(games::add);
+
+        final ByteBuffer image = ByteBuffer.allocateDirect(HEADER_LENGTH + games.size() * RECORD_LENGTH);
+        image.putInt(MAGIC).putInt(FORMAT).putInt(checkpoint).putInt(games.size());
+
+        final CountDownLatch copied = new CountDownLatch(games.size());
+        for (int i = 0; i < games.size(); i++) {
+            final Game game = games.get(i);
+            final int offset = HEADER_LENGTH + i * RECORD_LENGTH;
+
+            game.getMailbox().execute(() -> {
+                try {
+                    copy(game, image, offset);
+                } finally {
+                    copied.countDown();
+                }
+            });
+        }
+        try {
+            if (!copied.await(COPY_TIMEOUT, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out copying the games for a snapshot");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+        image.clear();
+        write(image);
+        journal.truncate(checkpoint);
+
+        logger.info("Snapshot of {} games taken in {} ms", games.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return games.size();
+    }
+
+    /**
+     * Reads the last snapshot taken.
+     *
+     * @return The games in progress when the snapshot was taken, already STARTED, with the players standing in their
+     * seats until they resume the game
+     */
+    public Collection<Game> restore() {
+        if (!Files.exists(file)) {
+            return Collections.emptyList();
+        }
+        final long start = System.nanoTime();
+        final ByteBuffer image;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            image = ByteBuffer.allocateDirect((int) channel.size());
+
+            while (image.hasRemaining() && channel.read(image) >= 0) {
+                // Keeps reading until the whole file is in the buffer
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        image.flip();
+
+        final int format = image.remaining() < HEADER_LENGTH || image.getInt() != MAGIC ? 0 : image.getInt();
+
+        if (format != FORMAT) {
+            throw new IllegalStateException("Not a snapshot of the games: " + file);
+        }
+        final int checkpoint = image.getInt();
+        final int count = image.getInt();
+
+        if (image.remaining() < (long) count * RECORD_LENGTH) {
+            throw new IllegalStateException("Snapshot of the games truncated: " + file);
+        }
+        final State[] states = State.values();
+        final List<Game> games = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            final int id = image.getInt();
+            final State state = states[image.get()];
+            final int slots = image.get();
+            final int version = image.getInt();
+            final long firstPlayerSide = image.getLong();
+            final long secondPlayerSide = image.getLong();
+            final int[] firstPlayerToken = new int[PlayerService.TOKEN_PARTS];
+            final int[] secondPlayerToken = new int[PlayerService.TOKEN_PARTS];
+
+            for (int part = 0; part < 2 * PlayerService.TOKEN_PARTS; part++) {
+                final int[] token = part < PlayerService.TOKEN_PARTS ? firstPlayerToken : secondPlayerToken;
+                token[part % PlayerService.TOKEN_PARTS] = image.getInt();
+            }
+
+            // A pending game lost its only player, and a finished one is of no use anymore
+            if (state == State.STARTED) {
+                Game game = new Game(id);
+                game.start();
+                game.getBoard().restore(firstPlayerSide, secondPlayerSide, version);
+                game.setFirstPlayerTurn((slots & FIRST_PLAYER_TURN) != 0);
+
+                if ((slots & FIRST_PLAYER) != 0 && (slots & SECOND_PLAYER) != 0) {
+                    game.setFirstPlayer(PlayerService.recoveredPlayer(id, true, firstPlayerToken));
+                    game.setSecondPlayer(PlayerService.recoveredPlayer(id, false, secondPlayerToken));
+                }
+                games.add(game);
+            }
+        }
+        logger.info("Snapshot at journal checkpoint {} restored, {} games in {} ms", checkpoint, games.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return games;
+    }
+
+    private void write(ByteBuffer image) {
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (image.hasRemaining()) {
+                channel.write(image);
+            }
+            channel.force(true);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        // The previous snapshot is only replaced once the new one is complete on disk
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void copy(Game game, ByteBuffer image, int offset) {
+        final String firstPlayerToken = resumeToken(game.getFirstPlayer());
+        final String secondPlayerToken = resumeToken(game.getSecondPlayer());
+        final int slots = (firstPlayerToken != null ? FIRST_PLAYER : 0)
+                | (secondPlayerToken != null ? SECOND_PLAYER : 0)
+                | (game.isFirstPlayerTurn() ? FIRST_PLAYER_TURN : 0);
+
+        image.putInt(offset, game.getId());
+        image.put(offset + 4, (byte) game.getState().ordinal());
+        image.put(offset + 5, (byte) slots);
+        image.putInt(offset + 6, game.getBoard().getVersion());
+        image.putLong(offset + 10, game.getBoard().getFirstPlayerSide());
+        image.putLong(offset + 18, game.getBoard().getSecondPlayerSide());
+
+        if (firstPlayerToken != null) {
+            putToken(image, offset + 26, firstPlayerToken);
+        }
+        if (secondPlayerToken != null) {
+            putToken(image, offset + 26 + TOKEN_LENGTH, secondPlayerToken);
+        }
+    }
+
+    private static String resumeToken(Player player) {
+        return player == null ? null : player.getResumeToken();
+    }
+
+    private static void putToken(ByteBuffer image, int offset, String resumeToken) {
+        final int[] parts = PlayerService.tokenParts(resumeToken);
+
+        for (int i = 0; i < parts.length; i++) {
+            image.putInt(offset + i * Integer.BYTES, parts[i]);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.alejandro.mancala.journal;
+
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameJournal;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.message.InputMessage;
+import com.alejandro.mancala.message.MessageService;
+import com.alejandro.mancala.player.PlayerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Game journal appending fixed size records to memory-mapped segment files. Writers reserve their slot with a
+ * single atomic add and copy the record into the mapping, so a move never waits on the disk: a background thread
+ * forces the segments every flush interval, committing every record written in between at once. A segment the
+ * writers have moved on from is forced again on every flush until the last writer still copying a record into it is
+ * done, and the current one is left alone while nothing is written to it.
+ *
+ * Every record takes RECORD_LENGTH bytes:
+ *
+ * game ID (4 bytes), sequence (4 bytes), type, player, pit, unused byte, checksum (4 bytes)
+ *
+ * The resume tokens of the players are recorded once a game has both of them, with a SEAT record per part of the
+ * token: the part in place of the sequence, the player's seat and the index of the part in place of the pit.
+ *
+ * A record is only valid if its checksum matches, which leaves out the empty end of a segment as well as the
+ * records torn by a crash. A checkpoint moves the writers to a new segment, so that the segments before it can be
+ * deleted once a snapshot covers them.
+ *
+ * @author afernandez
+ */
+public class MappedMoveJournal implements GameJournal {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    static final int RECORD_LENGTH = 16;
+
+    static final byte START = 1;
+    static final byte MOVE  = 2;
+    static final byte END   = 3;
+    static final byte SEAT  = 4;
+
+    private static final int MAGIC = 0x4D4E4341;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("journal-(\\d{6})\\.log");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ScheduledExecutorService flusher;
+    private final Queue<Segment> unflushed = new ConcurrentLinkedQueue<>();
+    private final int firstSegment;
+    private volatile Segment current;
+
+    /**
+     * @param directory The directory holding the segments, created if it doesn't exist
+     * @param segmentSize The size in bytes of every segment, a multiple of RECORD_LENGTH
+     * @param flushInterval The time in milliseconds between forces of the segments to disk
+     */
+    public MappedMoveJournal(Path directory, int segmentSize, long flushInterval) {
+        if (segmentSize <= 0 || segmentSize % RECORD_LENGTH != 0) {
+            throw new IllegalArgumentException("Segment size must be a positive multiple of " + RECORD_LENGTH);
+        }
+        if (flushInterval <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        // The segments found are only read by recover, this run appends to new ones
+        final List<Integer> existing = segments();
+        this.firstSegment = existing.isEmpty() ? 0 : existing.get(existing.size() - 1) + 1;
+        this.current = new Segment(firstSegment);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void gameStarted(int gameId) {
+        append(gameId, 0, START, false, 0);
+    }
+
+    @Override
+    public void playersJoined(int gameId, String firstPlayerToken, String secondPlayerToken) {
+        final int[] firstPlayerParts = PlayerService.tokenParts(firstPlayerToken);
+        final int[] secondPlayerParts = PlayerService.tokenParts(secondPlayerToken);
+
+        for (int part = 0; part < PlayerService.TOKEN_PARTS; part++) {
+            append(gameId, firstPlayerParts[part], SEAT, true, part);
+            append(gameId, secondPlayerParts[part], SEAT, false, part);
+        }
+    }
+
+    @Override
+    public void moveAccepted(int gameId, int sequence, boolean firstPlayer, int pit) {
+        append(gameId, sequence, MOVE, firstPlayer, pit);
+    }
+
+    @Override
+    public void gameEnded(int gameId) {
+        append(gameId, 0, END, false, 0);
+    }
+
+    /**
+     * Replays the segments written by previous runs, oldest first. A move is only applied if it is the next version
+     * of its board, so the moves the snapshot already holds, as well as records repeated or out of order, leave the
+     * game as it was. The players recorded take their seats back, held until they resume the game.
+     */
+    @Override
+    public Collection<Game> recover(Collection<Game> snapshot) {
+        final GameService engine = new GameService();
+        final Map<Integer, Game> games = new LinkedHashMap<>();
+        final Map<Integer, int[]> seats = new HashMap<>();
+        final InputMessage move = new InputMessage();
+        int records = 0;
+
+        for (Game game : snapshot) {
+            games.put(game.getId(), game);
+        }
+
+        for (int index : segments()) {
+            if (index >= firstSegment) {
+                break;
+            }
+            final MappedByteBuffer buffer = map(segmentPath(index), FileChannel.MapMode.READ_ONLY);
+
+            for (int offset = 0; offset + RECORD_LENGTH <= buffer.capacity(); offset += RECORD_LENGTH) {
+                final int gameId = buffer.getInt(offset);
+                final int sequence = buffer.getInt(offset + 4);
+                final byte type = buffer.get(offset + 8);
+                final byte player = buffer.get(offset + 9);
+                final byte pit = buffer.get(offset + 10);
+
+                if (buffer.getInt(offset + 12) != checksum(gameId, sequence, type, player, pit)) {
+                    continue;
+                }
+                records++;
+
+                if (type == START) {
+                    Game game = new Game(gameId);
+                    game.start();
+                    games.put(gameId, game);
+                } else if (type == END) {
+                    games.remove(gameId);
+                    seats.remove(gameId);
+                } else if (type == SEAT && pit >= 0 && pit < PlayerService.TOKEN_PARTS) {
+                    // The parts of the first player's token and then the second's, followed by the parts found
+                    final int[] seat = seats.computeIfAbsent(gameId, id -> new int[2 * PlayerService.TOKEN_PARTS + 1]);
+                    final int part = (player == 0 ? 0 : PlayerService.TOKEN_PARTS) + pit;
+
+                    seat[part] = sequence;
+                    seat[seat.length - 1] |= 1 << part;
+                } else if (type == MOVE) {
+                    Game game = games.get(gameId);
+
+                    if (game != null && sequence == game.getBoard().getVersion() + 1) {
+                        move.setPlayer(player == 0 ? MessageService.FIRST_PLAYER : MessageService.SECOND_PLAYER);
+                        move.setPitSelected(pit);
+                        engine.moveStones(game, move);
+                    }
+                }
+            }
+        }
+        // A crash between the last move and the end of the game leaves a game nobody can play anymore
+        games.values().removeIf(engine::isGameFinished);
+
+        for (Game game : games.values()) {
+            final int[] seat = seats.get(game.getId());
+
+            if (seat != null && seat[seat.length - 1] == (1 << 2 * PlayerService.TOKEN_PARTS) - 1) {
+                game.setFirstPlayer(PlayerService.recoveredPlayer(game.getId(), true,
+                        Arrays.copyOfRange(seat, 0, PlayerService.TOKEN_PARTS)));
+                game.setSecondPlayer(PlayerService.recoveredPlayer(game.getId(), false,
+                        Arrays.copyOfRange(seat, PlayerService.TOKEN_PARTS, 2 * PlayerService.TOKEN_PARTS)));
+            }
+        }
+
+        logger.info("Journal replayed {} records, {} games recovered", records, games.size());
+        return games.values();
+    }
+
+    @Override
+    public int checkpoint() {
+        final Segment segment = current;
+        roll(segment);
+
+        return segment.index + 1;
+    }
+
+    /**
+     * Deletes the segments before the checkpoint.
+     */
+    @Override
+    public void truncate(int checkpoint) {
+        for (int index : segments()) {
+            if (index >= checkpoint) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segmentPath(index));
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    /**
+     * Forces the segments written since the last flush, called every flush interval.
+     */
+    public void flush() {
+        synchronized (unflushed) {
+            Segment segment;
+
+            for (int pending = unflushed.size(); pending > 0 && (segment = unflushed.poll()) != null; pending--) {
+                if (segment.force()) {
+                    unflushed.add(segment);
+                }
+            }
+            current.force();
+        }
+    }
+
+    /**
+     * Stops the flushing thread and forces what is left, called by Spring when the context is closed.
+     */
+    public void close() {
+        flusher.shutdownNow();
+        flush();
+    }
+
+    /**
+     * @return The index of the segment being written
+     */
+    public int getCurrentSegment() {
+        return current.index;
+    }
+
+    private void append(int gameId, int sequence, byte type, boolean firstPlayer, int pit) {
+        final byte player = (byte) (firstPlayer ? 0 : 1);
+
+        while (true) {
+            final Segment segment = current;
+            segment.writers.incrementAndGet();
+
+            try {
+                // Once rolled, the flusher may have seen the segment without writers, it only takes new ones before
+                if (segment != current) {
+                    continue;
+                }
+                final int offset = segment.position.getAndAdd(RECORD_LENGTH);
+
+                if (offset + RECORD_LENGTH <= segmentSize) {
+                    final MappedByteBuffer buffer = segment.buffer;
+                    buffer.putInt(offset, gameId);
+                    buffer.putInt(offset + 4, sequence);
+                    buffer.put(offset + 8, type);
+                    buffer.put(offset + 9, player);
+                    buffer.put(offset + 10, (byte) pit);
+                    buffer.putInt(offset + 12, checksum(gameId, sequence, type, player, (byte) pit));
+                    return;
+                }
+            } finally {
+                segment.writers.decrementAndGet();
+            }
+            roll(segment);
+        }
+    }
+
+    // Only the first writer finding the segment full creates the next one
+    private synchronized void roll(Segment full) {
+        if (current == full) {
+            unflushed.add(full);
+            current = new Segment(full.index + 1);
+        }
+    }
+
+    private List<Integer> segments() {
+        final List<Integer> indexes = new ArrayList<>();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    indexes.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        indexes.sort(null);
+
+        return indexes;
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("journal-%06d.log", index));
+    }
+
+    private MappedByteBuffer map(Path file, FileChannel.MapMode mode) {
+        final StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[] {StandardOpenOption.READ}
+                : new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW};
+
+        // The mapping stays valid once the channel is closed
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            return channel.map(mode, 0, mode == FileChannel.MapMode.READ_ONLY ? channel.size() : segmentSize);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    // Mixes MAGIC in so that a slot never written, all zeros, doesn't pass as a record
+    private static int checksum(int gameId, int sequence, byte type, byte player, byte pit) {
+        int hash = MAGIC;
+        hash = (hash ^ gameId) * 0x01000193;
+        hash = (hash ^ sequence) * 0x01000193;
+        hash = (hash ^ (type << 16 | (player & 0xFF) << 8 | (pit & 0xFF))) * 0x01000193;
+
+        return hash ^ hash >>> 15;
+    }
+
+    private final class Segment {
+        private final int index;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger position = new AtomicInteger();
+        private final AtomicInteger writers = new AtomicInteger();
+        private int forcedPosition;
+        private boolean forcedWriting;
+
+        Segment(int index) {
+            this.index = index;
+            this.buffer = map(segmentPath(index), FileChannel.MapMode.READ_WRITE);
+        }
+
+        /**
+         * Forces the segment unless nothing was reserved in it since the last force, which left no writer behind.
+         *
+         * @return True if writers were still copying records in, to be forced again once they are done
+         */
+        boolean force() {
+            // The position is read first, every writer counted in it either shows up below or is already done
+            final int reserved = position.get();
+            final boolean writing = writers.get() > 0;
+
+            if (reserved != forcedPosition || forcedWriting) {
+                buffer.force();
+            }
+            forcedPosition = reserved;
+            forcedWriting = writing;
+
+            return writing;
+        }
+    }
+}
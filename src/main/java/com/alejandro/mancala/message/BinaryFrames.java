@@ -0,0 +1,183 @@
+package com.alejandro.mancala.message;
+
+import com.alejandro.mancala.game.Board;
+import org.springframework.web.socket.BinaryMessage;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary protocol, used by the clients negotiating the PROTOCOL subprotocol instead of JSON. Every frame
+ * starts with its type:
+ *
+ * MOVE (client to server):   type, player, pit selected
+ * RESYNC (client to server): type
+ * TURN (server to client):   type, status, player or NO_PLAYER
+ * BOARD (server to client):  type, status, version (4 bytes), six pits and big pit of each player
+ * DELTA (server to client):  type, status, version (4 bytes), changes, index and stones of every pit changed
+ * TOKEN (server to client):  type, resume token (16 bytes, game ID followed by 12 random bytes)
+ *
+ * Players are encoded as 0 for the first player and 1 for the second one, and statuses as their index in the
+ * status list both sides share, see mancala.js, or NO_STATUS to leave the status unchanged.
+ *
+ * @author afernandez
+ */
+public class BinaryFrames {
+    public static final String PROTOCOL = "mancala.binary.v1";
+
+    static final byte MOVE   = 1;
+    static final byte TURN   = 2;
+    static final byte BOARD  = 3;
+    static final byte DELTA  = 4;
+    static final byte RESYNC = 5;
+    static final byte TOKEN  = 6;
+
+    static final int NO_PLAYER = 0xFF;
+    static final int NO_STATUS = 0xFF;
+
+    private static final int MOVE_LENGTH   = 3;
+    private static final int HEADER_LENGTH = 6;
+    private static final int TOKEN_LENGTH  = 16;
+
+    /**
+     * Longest frame a client sends, a move.
+     */
+    public static final int MAX_INPUT_LENGTH = MOVE_LENGTH;
+
+    private final Map<String, Byte> statusCodes = new HashMap<>();
+
+    /**
+     * @param statuses The statuses sent to the clients, in the order the clients decode them
+     */
+    public BinaryFrames(List<String> statuses) {
+        for (int i = 0; i < statuses.size(); i++) {
+            statusCodes.put(statuses.get(i), (byte) i);
+        }
+    }
+
+    /**
+     * Encodes a turn message.
+     *
+     * @param player The player the message is addressed to, NULL if the message doesn't carry the player
+     * @param turnMessage The status
+     * @return The frame to send
+     */
+    public BinaryMessage turn(String player, String turnMessage) {
+        return new BinaryMessage(new byte[] {TURN, statusCode(turnMessage), (byte) playerCode(player)});
+    }
+
+    /**
+     * Encodes a full snapshot of the board.
+     *
+     * @param board The board
+     * @param turnMessage The status shown to the player receiving the update, NULL to leave the status unchanged
+     * @return The frame to send
+     */
+    public BinaryMessage board(Board board, String turnMessage) {
+        final byte[] frame = header(BOARD, board, turnMessage, Board.ALL_PITS);
+
+        for (int index = 0; index < Board.ALL_PITS; index++) {
+            frame[HEADER_LENGTH + index] = (byte) board.getStones(index);
+        }
+        return new BinaryMessage(frame);
+    }
+
+    /**
+     * Encodes the pits changed by the last version of the board.
+     *
+     * @param board The board
+     * @param turnMessage The status shown to the player receiving the update
+     * @return The frame to send
+     */
+    public BinaryMessage delta(Board board, String turnMessage) {
+        final int changedPits = board.getChangedPits();
+        final byte[] frame = header(DELTA, board, turnMessage, 1 + 2 * Integer.bitCount(changedPits));
+        frame[HEADER_LENGTH] = (byte) Integer.bitCount(changedPits);
+
+        int offset = HEADER_LENGTH + 1;
+        for (int index = 0; index < Board.ALL_PITS; index++) {
+            if ((changedPits & (1 << index)) != 0) {
+                frame[offset++] = (byte) index;
+                frame[offset++] = (byte) board.getStones(index);
+            }
+        }
+        return new BinaryMessage(frame);
+    }
+
+    /**
+     * Encodes the token a player presents to resume the game.
+     *
+     * @param resumeToken The token, as hexadecimal digits
+     * @return The frame to send
+     */
+    public BinaryMessage resumeToken(String resumeToken) {
+        if (resumeToken.length() != 2 * TOKEN_LENGTH) {
+            throw new IllegalArgumentException("Resume token of " + resumeToken.length() + " digits");
+        }
+        final byte[] frame = new byte[1 + TOKEN_LENGTH];
+        frame[0] = TOKEN;
+
+        for (int i = 0; i < TOKEN_LENGTH; i++) {
+            frame[1 + i] = (byte) Integer.parseInt(resumeToken.substring(2 * i, 2 * i + 2), 16);
+        }
+        return new BinaryMessage(frame);
+    }
+
+    /**
+     * Decodes a move, or a resync request, sent by a client, straight from the payload. A payload of any other
+     * length is rejected, since the container lets binary frames as long as the text ones through.
+     *
+     * @param payload The frame received
+     * @return The move, packed as MoveParser packs the JSON ones
+     * @throws IllegalArgumentException If the payload is not a move nor a resync request
+     */
+    public static long decodeMove(ByteBuffer payload) {
+        if (payload.remaining() == 1 && payload.get(payload.position()) == RESYNC) {
+            return MoveParser.resync();
+        }
+        if (payload.remaining() != MOVE_LENGTH || payload.get(payload.position()) != MOVE) {
+            throw new IllegalArgumentException("Malformed binary move of " + payload.remaining() + " bytes");
+        }
+        final int player = payload.get(payload.position() + 1);
+
+        if (player != 0 && player != 1) {
+            throw new IllegalArgumentException("Unknown player in binary move: " + player);
+        }
+        return MoveParser.move(player == 0, payload.get(payload.position() + 2));
+    }
+
+    private byte[] header(byte type, Board board, String turnMessage, int bodyLength) {
+        final byte[] frame = new byte[HEADER_LENGTH + bodyLength];
+        final int version = board.getVersion();
+
+        frame[0] = type;
+        frame[1] = turnMessage == null ? (byte) NO_STATUS : statusCode(turnMessage);
+        frame[2] = (byte) (version >>> 24);
+        frame[3] = (byte) (version >>> 16);
+        frame[4] = (byte) (version >>> 8);
+        frame[5] = (byte) version;
+
+        return frame;
+    }
+
+    private byte statusCode(String turnMessage) {
+        final Byte code = statusCodes.get(turnMessage);
+
+        if (code == null) {
+            throw new IllegalArgumentException("Status without binary code: " + turnMessage);
+        }
+        return code;
+    }
+
+    private static int playerCode(String player) {
+        if (MessageService.FIRST_PLAYER.equals(player)) {
+            return 0;
+        }
+        if (MessageService.SECOND_PLAYER.equals(player)) {
+            return 1;
+        }
+        return NO_PLAYER;
+    }
+}
@@ -0,0 +1,159 @@
+package com.alejandro.mancala.message;
+
+import com.alejandro.mancala.game.Board;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes board updates straight from the packed board with a streaming generator. The JSON written is the same
+ * as serializing an OutputMessage for full snapshots, and for the changes of the last version holds the version and
+ * the pits changed as pairs of pit index and stones. Nothing goes through databinding or builds intermediate
+ * Strings, and every thread reuses its own buffer.
+ *
+ * Both players get the same board with a different status, so the board fields are encoded once per update and
+ * spliced after a cached prefix holding each status.
+ *
+ * @author afernandez
+ */
+public class BoardFrameEncoder {
+    private static final SerializedString PITS_FIRST_PLAYER     = new SerializedString("pitsFirstPlayer");
+    private static final SerializedString PITS_SECOND_PLAYER    = new SerializedString("pitsSecondPlayer");
+    private static final SerializedString FIRST_PLAYER_BIG_PIT  = new SerializedString("firstPlayerBigPit");
+    private static final SerializedString SECOND_PLAYER_BIG_PIT = new SerializedString("secondPlayerBigPit");
+    private static final SerializedString VERSION               = new SerializedString("version");
+    private static final SerializedString CHANGES               = new SerializedString("changes");
+
+    private final JsonFactory factory;
+    private final ThreadLocal<ByteArrayBuilder> buffers = ThreadLocal.withInitial(ByteArrayBuilder::new);
+    private final Map<String, byte[]> prefixes = new ConcurrentHashMap<>();
+    private final byte[] noStatusPrefix;
+
+    public BoardFrameEncoder(JsonFactory factory) {
+        this.factory = factory;
+        this.noStatusPrefix = encodePrefix(null);
+    }
+
+    /**
+     * Encodes a board update.
+     *
+     * @param board The board
+     * @param turnMessage The status shown to the player receiving the update
+     * @return The frame to send
+     */
+    public TextMessage encode(Board board, String turnMessage) {
+        return frame(encodeBoard(board), turnMessage);
+    }
+
+    /**
+     * Encodes the board fields of an update, to be shared by the frames of every player.
+     *
+     * @param board The board
+     * @return The board fields, as a JSON object
+     */
+    public byte[] encodeBoard(Board board) {
+        final ByteArrayBuilder buffer = buffers.get();
+        buffer.reset();
+
+        try (JsonGenerator generator = factory.createGenerator(buffer)) {
+            generator.writeStartObject();
+            writePits(generator, PITS_FIRST_PLAYER, board.getFirstPlayerSide());
+            writePits(generator, PITS_SECOND_PLAYER, board.getSecondPlayerSide());
+            generator.writeFieldName(FIRST_PLAYER_BIG_PIT);
+            generator.writeNumber(Board.stones(board.getFirstPlayerSide(), Board.BIG_PIT));
+            generator.writeFieldName(SECOND_PLAYER_BIG_PIT);
+            generator.writeNumber(Board.stones(board.getSecondPlayerSide(), Board.BIG_PIT));
+            generator.writeFieldName(VERSION);
+            generator.writeNumber(board.getVersion());
+            generator.writeEndObject();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Encodes the pits changed by the last version of the board, to be shared by the frames of every player.
+     *
+     * @param board The board
+     * @return The changes, as a JSON object
+     */
+    public byte[] encodeChanges(Board board) {
+        final ByteArrayBuilder buffer = buffers.get();
+        final int changedPits = board.getChangedPits();
+        buffer.reset();
+
+        try (JsonGenerator generator = factory.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeFieldName(VERSION);
+            generator.writeNumber(board.getVersion());
+            generator.writeFieldName(CHANGES);
+            generator.writeStartArray();
+
+            for (int index = 0; index < Board.ALL_PITS; index++) {
+                if ((changedPits & (1 << index)) != 0) {
+                    generator.writeNumber(index);
+                    generator.writeNumber(board.getStones(index));
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Builds the frame for one player out of the board fields already encoded.
+     *
+     * @param boardFields The board fields returned by encodeBoard or encodeChanges
+     * @param turnMessage The status shown to the player receiving the update, NULL to leave the status unchanged
+     * @return The frame to send
+     */
+    public TextMessage frame(byte[] boardFields, String turnMessage) {
+        final byte[] prefix = turnMessage == null
+                ? noStatusPrefix : prefixes.computeIfAbsent(turnMessage, this::encodePrefix);
+        final byte[] payload = new byte[prefix.length + boardFields.length - 1];
+
+        // The opening brace of the board fields is replaced by the prefix, which ends with a comma
+        System.arraycopy(prefix, 0, payload, 0, prefix.length);
+        System.arraycopy(boardFields, 1, payload, prefix.length, boardFields.length - 1);
+
+        return new TextMessage(payload);
+    }
+
+    private byte[] encodePrefix(String turnMessage) {
+        final ByteArrayBuilder buffer = new ByteArrayBuilder();
+
+        try (JsonGenerator generator = factory.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("turnMessage", turnMessage);
+            generator.writeNullField("player");
+            generator.writeEndObject();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        // The closing brace becomes the separator before the board fields
+        final byte[] prefix = buffer.toByteArray();
+        prefix[prefix.length - 1] = ',';
+
+        return prefix;
+    }
+
+    private void writePits(JsonGenerator generator, SerializedString name, long side) throws IOException {
+        generator.writeFieldName(name);
+        generator.writeStartArray();
+
+        for (int pit = 0; pit < Board.PITS; pit++) {
+            generator.writeNumber(Board.stones(side, pit));
+        }
+        generator.writeEndArray();
+    }
+}
@@ -2,13 +2,16 @@ package com.alejandro.mancala.message;
 
 /**
  * Message received from the client with the pit selected and the stones to sow. It represents
- * a movement in the game.
+ * a movement in the game. The stones are only informative, the server always sows the stones its board holds.
+ *
+ * A client that missed a board update sends a resync message instead, asking for a full snapshot of the board.
  *
  * @author afernandez
  */
 public class InputMessage extends BaseMessage {
     private int pitSelected;
     private int stones;
+    private boolean resync;
 
     public int getPitSelected() {
         return pitSelected;
@@ -25,4 +28,12 @@ public class InputMessage extends BaseMessage {
     public void setStones(int stones) {
         this.stones = stones;
     }
+
+    public boolean isResync() {
+        return resync;
+    }
+
+    public void setResync(boolean resync) {
+        this.resync = resync;
+    }
 }
\ No newline at end of file
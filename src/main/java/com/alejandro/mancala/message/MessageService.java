@@ -1,17 +1,21 @@
 package com.alejandro.mancala.message;
 
+import com.alejandro.mancala.game.Board;
 import com.alejandro.mancala.game.Game;
 import com.alejandro.mancala.game.State;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
- * Service class that provides send methods used in the game.
+ * Service class that provides send methods used in the game. Sessions that negotiated the binary subprotocol get
+ * binary frames, the rest get JSON.
  *
  * @author afernandez
  */
@@ -24,14 +28,25 @@ public class MessageService {
     private static final String YOU_WON       = "You have won the game! Congratulations!";
     private static final String YOU_LOST      = "You have lost the game. Try it next time again!";
     private static final String GAME_DRAW     = "The game ended in draw. Try it again next time!";
+    private static final String OPPONENT_LEFT = "Your opponent left the game. Please refresh the browser to start again!";
 
     public static final String FIRST_PLAYER  = "First Player";
     public static final String SECOND_PLAYER = "Second Player";
 
     private ObjectMapper mapper = new ObjectMapper();
+    private BoardFrameEncoder boardEncoder = new BoardFrameEncoder(mapper.getFactory());
+
+    // Shared with mancala.js, the binary protocol sends the index of the status in this list
+    private BinaryFrames binaryFrames = new BinaryFrames(Arrays.asList(
+            WAIT_TURN, YOUR_TURN, ADD_TURN, YOU_WON, YOU_LOST, GAME_DRAW, OPPONENT_LEFT));
+
+    // Frames that never change are serialized once and shared by every session
+    private final TextMessage firstPlayerStartFrame = encode(new TurnMessage(FIRST_PLAYER, YOUR_TURN));
+    private final TextMessage secondPlayerStartFrame = encode(new TurnMessage(SECOND_PLAYER, WAIT_TURN));
+    private final TextMessage opponentLeftFrame = encode(new TurnMessage(OPPONENT_LEFT));
 
     /**
-     * Sends a message to both players regarding the next turn.
+     * Sends a message to both players regarding the next turn, with the pits changed by the move.
      *
      * @param game The specific game
      * @param repeatTurn True if the current player has an additional turn, false otherwise
@@ -42,12 +57,14 @@ public class MessageService {
 
         logger.info("Next turn. First player: {}, Second player: {}", firstPlayerSession.getId(), secondPlayerSession.getId());
 
+        final BoardUpdate board = new BoardUpdate(game.getBoard(), true);
+
         if (firstPlayerSession.getId().equals(originalSession.getId()) && repeatTurn) {
-            sendFirstPlayerTurnMessage(firstPlayerSession, secondPlayerSession, game, repeatTurn);
+            sendFirstPlayerTurnMessage(firstPlayerSession, secondPlayerSession, board, repeatTurn);
         } else if (secondPlayerSession.getId().equals(originalSession.getId()) && !repeatTurn) {
-            sendFirstPlayerTurnMessage(firstPlayerSession, secondPlayerSession, game, repeatTurn);
+            sendFirstPlayerTurnMessage(firstPlayerSession, secondPlayerSession, board, repeatTurn);
         } else {
-            sendFirstPlayerWaitMessage(firstPlayerSession, secondPlayerSession, game, repeatTurn);
+            sendFirstPlayerWaitMessage(firstPlayerSession, secondPlayerSession, board, repeatTurn);
         }
     }
 
@@ -59,20 +76,21 @@ public class MessageService {
     public void updatePlayersGameFinished(Game game) {
         WebSocketSession sessionFirstPlayer = game.getFirstPlayer().getSession();
         WebSocketSession sessionSecondPlayer = game.getSecondPlayer().getSession();
+        BoardUpdate board = new BoardUpdate(game.getBoard(), false);
 
         if (game.getState() == State.WINNER_FIRST_PLAYER) {
-            sendMessage(sessionFirstPlayer, new OutputMessage(game.getBoard(), YOU_WON));
-            sendMessage(sessionSecondPlayer, new OutputMessage(game.getBoard(), YOU_LOST));
+            sendFrame(sessionFirstPlayer, board.frame(sessionFirstPlayer, YOU_WON));
+            sendFrame(sessionSecondPlayer, board.frame(sessionSecondPlayer, YOU_LOST));
         }
 
         if (game.getState() == State.WINNER_SECOND_PLAYER) {
-            sendMessage(sessionFirstPlayer, new OutputMessage(game.getBoard(), YOU_LOST));
-            sendMessage(sessionSecondPlayer, new OutputMessage(game.getBoard(), YOU_WON));
+            sendFrame(sessionFirstPlayer, board.frame(sessionFirstPlayer, YOU_LOST));
+            sendFrame(sessionSecondPlayer, board.frame(sessionSecondPlayer, YOU_WON));
         }
 
         if (game.getState() == State.GAME_DRAW) {
-            sendMessage(sessionFirstPlayer, new OutputMessage(game.getBoard(), GAME_DRAW));
-            sendMessage(sessionSecondPlayer, new OutputMessage(game.getBoard(), GAME_DRAW));
+            sendFrame(sessionFirstPlayer, board.frame(sessionFirstPlayer, GAME_DRAW));
+            sendFrame(sessionSecondPlayer, board.frame(sessionSecondPlayer, GAME_DRAW));
         }
     }
 
@@ -88,8 +106,51 @@ public class MessageService {
         logger.info("Game has started. First player: {}, Second player: {}", firstPlayerSession.getId(), secondPlayerSession.getId());
 
         game.setState(State.STARTED);
-        sendMessage(firstPlayerSession, new TurnMessage(FIRST_PLAYER, YOUR_TURN));
-        sendMessage(secondPlayerSession, new TurnMessage(SECOND_PLAYER, WAIT_TURN));
+        sendFrame(firstPlayerSession, isBinary(firstPlayerSession)
+                ? binaryFrames.turn(FIRST_PLAYER, YOUR_TURN) : firstPlayerStartFrame);
+        sendFrame(secondPlayerSession, isBinary(secondPlayerSession)
+                ? binaryFrames.turn(SECOND_PLAYER, WAIT_TURN) : secondPlayerStartFrame);
+
+        sendResumeToken(firstPlayerSession, game.getFirstPlayer().getResumeToken());
+        sendResumeToken(secondPlayerSession, game.getSecondPlayer().getResumeToken());
+    }
+
+    /**
+     * Brings a player resuming a game from a new session up to date: the player's side first, and then a full
+     * snapshot of the board along with whose turn it is.
+     *
+     * @param session The new session of the player
+     * @param game The game
+     * @param firstPlayer True if the player resuming is the first player, false otherwise
+     */
+    public void sendGameResumed(WebSocketSession session, Game game, boolean firstPlayer) {
+        final String player = firstPlayer ? FIRST_PLAYER : SECOND_PLAYER;
+        final String turnMessage = game.isFirstPlayerTurn() == firstPlayer ? YOUR_TURN : WAIT_TURN;
+
+        logger.info("Game {} resumed by {} with Session ID: {}", game.getId(), player, session.getId());
+
+        sendFrame(session, isBinary(session)
+                ? binaryFrames.turn(player, turnMessage) : encode(new TurnMessage(player, turnMessage)));
+        sendFrame(session, new BoardUpdate(game.getBoard(), false).frame(session, turnMessage));
+    }
+
+    /**
+     * Sends a full snapshot of the board to a player that missed some update, leaving the player's status as it is.
+     *
+     * @param session The session of the player
+     * @param game The game
+     */
+    public void sendBoard(WebSocketSession session, Game game) {
+        sendFrame(session, new BoardUpdate(game.getBoard(), false).frame(session, null));
+    }
+
+    /**
+     * Lets a player know that the opponent left the game.
+     *
+     * @param session The session of the player still in the game
+     */
+    public void sendOpponentLeft(WebSocketSession session) {
+        sendFrame(session, isBinary(session) ? binaryFrames.turn(null, OPPONENT_LEFT) : opponentLeftFrame);
     }
 
     /**
@@ -99,28 +160,78 @@ public class MessageService {
      * @param message The message
      */
     public void sendMessage(WebSocketSession session, BaseMessage message) {
+        sendFrame(session, encode(message));
+    }
+
+    // A failed send only affects its own player, the rest of the broadcast still goes out
+    private void sendFrame(WebSocketSession session, WebSocketMessage<?> frame) {
+        try {
+            session.sendMessage(frame);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Error sending message to Session ID: {}", session.getId(), ex);
+        }
+    }
+
+    private TextMessage encode(BaseMessage message) {
         try {
-            session.sendMessage(new TextMessage(mapper.writeValueAsString(message)));
+            return new TextMessage(mapper.writeValueAsBytes(message));
         } catch (IOException ex) {
             throw new IllegalStateException(ex);
         }
     }
 
-    private void sendFirstPlayerWaitMessage(WebSocketSession playerOne, WebSocketSession playerTwo, Game game, boolean repeatTurn) {
+    // Players created without a token can't resume their games
+    private void sendResumeToken(WebSocketSession session, String resumeToken) {
+        if (resumeToken != null) {
+            sendFrame(session, isBinary(session)
+                    ? binaryFrames.resumeToken(resumeToken) : encode(new ResumeMessage(resumeToken)));
+        }
+    }
+
+    private void sendFirstPlayerWaitMessage(WebSocketSession playerOne, WebSocketSession playerTwo, BoardUpdate board, boolean repeatTurn) {
         if (repeatTurn) {
-            sendMessage(playerTwo, new OutputMessage(game.getBoard(), ADD_TURN));
+            sendFrame(playerTwo, board.frame(playerTwo, ADD_TURN));
         } else {
-            sendMessage(playerTwo, new OutputMessage(game.getBoard(), YOUR_TURN));
+            sendFrame(playerTwo, board.frame(playerTwo, YOUR_TURN));
         }
-        sendMessage(playerOne, new OutputMessage(game.getBoard(), WAIT_TURN));
+        sendFrame(playerOne, board.frame(playerOne, WAIT_TURN));
     }
 
-    private void sendFirstPlayerTurnMessage(WebSocketSession playerOne, WebSocketSession playerTwo, Game game, boolean repeatTurn) {
+    private void sendFirstPlayerTurnMessage(WebSocketSession playerOne, WebSocketSession playerTwo, BoardUpdate board, boolean repeatTurn) {
         if (repeatTurn) {
-            sendMessage(playerOne, new OutputMessage(game.getBoard(), ADD_TURN));
+            sendFrame(playerOne, board.frame(playerOne, ADD_TURN));
         } else {
-            sendMessage(playerOne, new OutputMessage(game.getBoard(), YOUR_TURN));
+            sendFrame(playerOne, board.frame(playerOne, YOUR_TURN));
+        }
+        sendFrame(playerTwo, board.frame(playerTwo, WAIT_TURN));
+    }
+
+    private static boolean isBinary(WebSocketSession session) {
+        return BinaryFrames.PROTOCOL.equals(session.getAcceptedProtocol());
+    }
+
+    /**
+     * Board update sent to both players, either the changes of the last version of the board or a full snapshot.
+     * The JSON board is encoded once, the first time a JSON frame is needed, and shared by the frames of both players.
+     */
+    private final class BoardUpdate {
+        private final Board board;
+        private final boolean changesOnly;
+        private byte[] jsonBoard;
+
+        BoardUpdate(Board board, boolean changesOnly) {
+            this.board = board;
+            this.changesOnly = changesOnly;
+        }
+
+        WebSocketMessage<?> frame(WebSocketSession session, String turnMessage) {
+            if (isBinary(session)) {
+                return changesOnly ? binaryFrames.delta(board, turnMessage) : binaryFrames.board(board, turnMessage);
+            }
+            if (jsonBoard == null) {
+                jsonBoard = changesOnly ? boardEncoder.encodeChanges(board) : boardEncoder.encodeBoard(board);
+            }
+            return boardEncoder.frame(jsonBoard, turnMessage);
         }
-        sendMessage(playerTwo, new OutputMessage(game.getBoard(), WAIT_TURN));
     }
 }
\ No newline at end of file
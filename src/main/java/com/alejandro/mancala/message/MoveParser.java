@@ -0,0 +1,297 @@
+package com.alejandro.mancala.message;
+
+/**
+ * Parses the JSON moves sent by the clients without databinding nor garbage. A move is scanned in place, straight
+ * from the payload, into a long packing whether it's a resync, whether it comes from the first player and the pit
+ * selected, so it can be handed to the game's mailbox by value.
+ *
+ * The fields of InputMessage are accepted, in any order: pitSelected and stones as integers or integers in quotes,
+ * resync as a boolean, player and turnMessage as strings, and any of them as null. Only player and pitSelected are
+ * kept, the rest are checked and skipped. Payloads longer than MAX_LENGTH are rejected before being scanned, and
+ * the container is configured not to buffer longer frames at all.
+ *
+ * A parser keeps the position of the payload it's scanning, so every session has one of its own and reuses it for
+ * all its moves.
+ *
+ * @author afernandez
+ */
+public class MoveParser {
+    public static final int MAX_LENGTH = 256;
+
+    private static final long RESYNC       = 1L << 33;
+    private static final long FIRST_PLAYER = 1L << 32;
+    private static final int MAX_DIGITS    = 9;
+
+    private static final int PIT_SELECTED = 0;
+    private static final int STONES       = 1;
+    private static final int RESYNC_FIELD = 2;
+    private static final int PLAYER       = 3;
+
+    private static final String[] FIELDS = {"pitSelected", "stones", "resync", "player", "turnMessage"};
+
+    private String payload;
+    private int position;
+
+    /**
+     * Parses a move.
+     *
+     * @param payload The JSON payload
+     * @return The packed move
+     * @throws IllegalArgumentException If the payload is too long or isn't a valid move
+     */
+    public long parse(String payload) {
+        if (payload.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Move of " + payload.length() + " characters is too long");
+        }
+        this.payload = payload;
+        this.position = 0;
+
+        try {
+            return scan();
+        } finally {
+            this.payload = null;
+        }
+    }
+
+    private long scan() {
+        boolean resync = false;
+        boolean firstPlayer = false;
+        int pit = 0;
+
+        expect('{');
+
+        if (!consume('}')) {
+            do {
+                final int field = fieldName();
+                expect(':');
+
+                switch (field) {
+                    case PIT_SELECTED:
+                        pit = integer();
+                        break;
+                    case STONES:
+                        integer();
+                        break;
+                    case RESYNC_FIELD:
+                        resync = bool();
+                        break;
+                    case PLAYER:
+                        firstPlayer = isString(MessageService.FIRST_PLAYER);
+                        break;
+                    default:
+                        isString("");
+                        break;
+                }
+            } while (consume(','));
+
+            expect('}');
+        }
+        end();
+
+        return resync ? resync() : move(firstPlayer, pit);
+    }
+
+    public static long move(boolean firstPlayer, int pit) {
+        return (firstPlayer ? FIRST_PLAYER : 0) | (pit & 0xFFFFFFFFL);
+    }
+
+    public static long resync() {
+        return RESYNC;
+    }
+
+    public static boolean isResync(long move) {
+        return (move & RESYNC) != 0;
+    }
+
+    public static boolean isFirstPlayer(long move) {
+        return (move & FIRST_PLAYER) != 0;
+    }
+
+    public static int pit(long move) {
+        return (int) move;
+    }
+
+    private int fieldName() {
+        expect('"');
+
+        for (int field = 0; field < FIELDS.length; field++) {
+            final String name = FIELDS[field];
+
+            if (payload.startsWith(name, position) && payload.startsWith("\"", position + name.length())) {
+                position += name.length() + 1;
+                return field;
+            }
+        }
+        throw malformed("unknown field");
+    }
+
+    // An integer, an integer in quotes, an empty string or null, the last two read as 0
+    private int integer() {
+        skipWhitespace();
+
+        if (literal("null")) {
+            return 0;
+        }
+        final boolean quoted = peek() == '"';
+
+        if (quoted) {
+            position++;
+
+            if (peek() == '"') {
+                position++;
+                return 0;
+            }
+        }
+        final boolean negative = peek() == '-';
+
+        if (negative) {
+            position++;
+        }
+        final int start = position;
+        int value = 0;
+
+        while (position < payload.length() && isDigit(payload.charAt(position))) {
+            value = value * 10 + payload.charAt(position++) - '0';
+        }
+        if (position == start || position - start > MAX_DIGITS) {
+            throw malformed("invalid integer");
+        }
+        if (quoted && !consume('"')) {
+            throw malformed("invalid integer");
+        }
+        return negative ? -value : value;
+    }
+
+    private boolean bool() {
+        skipWhitespace();
+
+        if (literal("true")) {
+            return true;
+        }
+        if (literal("false") || literal("null")) {
+            return false;
+        }
+        throw malformed("invalid boolean");
+    }
+
+    // Whether the next value is a string equal to the expected one, skipping it; null is a string equal to none
+    private boolean isString(String expected) {
+        skipWhitespace();
+
+        if (literal("null")) {
+            return false;
+        }
+        expect('"');
+        final int start = position;
+        boolean escaped = false;
+
+        while (position < payload.length() && payload.charAt(position) != '"') {
+            final char c = payload.charAt(position++);
+
+            if (c == '\\') {
+                escaped = true;
+                position++;
+            } else if (c < ' ') {
+                throw malformed("control character in string");
+            }
+        }
+        if (position >= payload.length()) {
+            throw malformed("unterminated string");
+        }
+        final int end = position++;
+
+        if (!escaped) {
+            return end - start == expected.length() && payload.startsWith(expected, start);
+        }
+        // Rare enough to be unescaped the slow way
+        return expected.equals(unescape(start, end));
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) {
+            throw malformed("expected '" + c + "'");
+        }
+    }
+
+    private boolean consume(char c) {
+        skipWhitespace();
+
+        if (peek() == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void end() {
+        skipWhitespace();
+
+        if (position != payload.length()) {
+            throw malformed("trailing characters");
+        }
+    }
+
+    private boolean literal(String literal) {
+        if (payload.startsWith(literal, position)) {
+            position += literal.length();
+            return true;
+        }
+        return false;
+    }
+
+    private char peek() {
+        return position < payload.length() ? payload.charAt(position) : 0;
+    }
+
+    private void skipWhitespace() {
+        while (position < payload.length() && isWhitespace(payload.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private String unescape(int start, int end) {
+        final StringBuilder out = new StringBuilder(end - start);
+
+        for (int i = start; i < end; i++) {
+            char c = payload.charAt(i);
+
+            if (c == '\\') {
+                c = payload.charAt(++i);
+
+                if (c == 'u') {
+                    if (i + 4 >= end) {
+                        throw malformed("invalid escape");
+                    }
+                    c = (char) Integer.parseInt(payload.substring(i + 1, i + 5), 16);
+                    i += 4;
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 't') {
+                    c = '\t';
+                } else if (c == 'r') {
+                    c = '\r';
+                } else if (c == 'b') {
+                    c = '\b';
+                } else if (c == 'f') {
+                    c = '\f';
+                } else if (c != '"' && c != '\\' && c != '/') {
+                    throw malformed("invalid escape");
+                }
+            }
+            out.append(c);
+        }
+        return out.toString();
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Malformed move, " + reason + " at " + position);
+    }
+}
@@ -0,0 +1,154 @@
+package com.alejandro.mancala.message;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Session whose frames are queued and sent by the threads of a SendPipeline. Only one pipeline thread flushes a
+ * session at a time, which keeps the frames in order and never sends to the underlying session concurrently.
+ *
+ * @author afernandez
+ */
+final class OutboundSession extends WebSocketSessionDecorator {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final SendPipeline pipeline;
+    private final Queue<WebSocketMessage<?>> frames = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedFrames = new AtomicInteger();
+    private final AtomicInteger queuedBytes = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private volatile long sendStartTime;
+    private volatile boolean closed;
+
+    OutboundSession(WebSocketSession session, SendPipeline pipeline) {
+        super(session);
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Queues a frame, never blocking nor failing the caller.
+     *
+     * @param message The frame
+     */
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        if (closed) {
+            return;
+        }
+
+        if (isSlow(message)) {
+            switch (pipeline.getPolicy()) {
+                case DROP:
+                    logger.debug("Dropping frame for slow session {}", getId());
+                    pipeline.framesDropped(1);
+                    return;
+                case COALESCE:
+                    pipeline.framesCoalesced(discardQueued());
+                    break;
+                case DISCONNECT:
+                    disconnect();
+                    return;
+            }
+        }
+        frames.offer(message);
+        queuedBytes.addAndGet(message.getPayloadLength());
+        pipeline.frameQueued(queuedFrames.incrementAndGet());
+
+        flush();
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        release();
+        super.close(status);
+    }
+
+    void release() {
+        closed = true;
+        discardQueued();
+    }
+
+    private boolean isSlow(WebSocketMessage<?> message) {
+        final long start = sendStartTime;
+
+        if (start != 0 && System.currentTimeMillis() - start > pipeline.getSendTimeLimit()) {
+            return true;
+        }
+        return queuedFrames.get() > 0 && queuedBytes.get() + message.getPayloadLength() > pipeline.getBufferSizeLimit();
+    }
+
+    private void disconnect() {
+        logger.info("Closing slow session {}", getId());
+
+        release();
+        pipeline.sessionDisconnected();
+        pipeline.execute(() -> {
+            try {
+                getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException ex) {
+                logger.debug("Error closing slow session {}", getId(), ex);
+            }
+        });
+    }
+
+    private void flush() {
+        if (!frames.isEmpty() && flushing.compareAndSet(false, true)) {
+            pipeline.execute(() -> {
+                try {
+                    drain();
+                } finally {
+                    flushing.set(false);
+                }
+                // A frame queued right before the flag is cleared is picked up by flushing again
+                flush();
+            });
+        }
+    }
+
+    private void drain() {
+        WebSocketMessage<?> frame;
+
+        while (!closed && (frame = poll()) != null) {
+            sendStartTime = System.currentTimeMillis();
+            try {
+                getDelegate().sendMessage(frame);
+            } catch (IOException | RuntimeException ex) {
+                logger.debug("Error sending frame to session {}, discarding its queue", getId(), ex);
+                release();
+            } finally {
+                sendStartTime = 0;
+            }
+        }
+    }
+
+    private int discardQueued() {
+        int discarded = 0;
+
+        while (poll() != null) {
+            discarded++;
+        }
+        return discarded;
+    }
+
+    private WebSocketMessage<?> poll() {
+        final WebSocketMessage<?> frame = frames.poll();
+
+        if (frame != null) {
+            queuedBytes.addAndGet(-frame.getPayloadLength());
+            queuedFrames.decrementAndGet();
+            pipeline.frameDequeued();
+        }
+        return frame;
+    }
+}
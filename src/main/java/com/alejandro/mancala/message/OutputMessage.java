@@ -3,7 +3,7 @@ package com.alejandro.mancala.message;
 import com.alejandro.mancala.game.Board;
 
 /**
- * Output message to update board in the client.
+ * Output message to update board in the client with a full snapshot of the board.
  *
  * @author afernandez
  */
@@ -12,6 +12,7 @@ public class OutputMessage extends BaseMessage {
     private int[] pitsSecondPlayer;
     private int firstPlayerBigPit;
     private int secondPlayerBigPit;
+    private int version;
 
     public OutputMessage() {
     }
@@ -22,6 +23,7 @@ public class OutputMessage extends BaseMessage {
         this.pitsSecondPlayer = board.getPitsSecondPlayer();
         this.firstPlayerBigPit = board.getFirstPlayerBigPit();
         this.secondPlayerBigPit = board.getSecondPlayerBigPit();
+        this.version = board.getVersion();
     }
 
     public int[] getPitsFirstPlayer() {
@@ -39,4 +41,8 @@ public class OutputMessage extends BaseMessage {
     public int getSecondPlayerBigPit() {
         return secondPlayerBigPit;
     }
+
+    public int getVersion() {
+        return version;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.alejandro.mancala.message;
+
+/**
+ * Message with the token a player presents to resume the game from a new session.
+ *
+ * @author afernandez
+ */
+public class ResumeMessage extends BaseMessage {
+    private String resumeToken;
+
+    public ResumeMessage() {
+    }
+
+    public ResumeMessage(String resumeToken) {
+        this.resumeToken = resumeToken;
+    }
+
+    public String getResumeToken() {
+        return resumeToken;
+    }
+}
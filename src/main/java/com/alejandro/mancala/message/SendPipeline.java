@@ -0,0 +1,135 @@
+package com.alejandro.mancala.message;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends frames to the players asynchronously. Every session gets its own bounded outbound queue, flushed in order
+ * by the pipeline's threads, so the thread processing a move never waits on a player's connection. A player that
+ * falls behind, because its queue is over the buffer size limit or because its current send has taken longer than
+ * the send time limit, is handled according to the slow consumer policy.
+ *
+ * @author afernandez
+ */
+public class SendPipeline {
+    private final ExecutorService executor;
+    private final int bufferSizeLimit;
+    private final int sendTimeLimit;
+    private final SlowConsumerPolicy policy;
+
+    private final LongAdder queuedFrames = new LongAdder();
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder coalescedFrames = new LongAdder();
+    private final LongAdder disconnectedSessions = new LongAdder();
+
+    /**
+     * @param executor The threads sending the frames
+     * @param bufferSizeLimit The maximum bytes queued per session
+     * @param sendTimeLimit The maximum time in milliseconds a single send may take
+     * @param policy What to do with the sessions over any of the limits
+     */
+    public SendPipeline(ExecutorService executor, int bufferSizeLimit, int sendTimeLimit, SlowConsumerPolicy policy) {
+        if (bufferSizeLimit <= 0 || sendTimeLimit <= 0) {
+            throw new IllegalArgumentException("Buffer size and send time limits must be positive");
+        }
+        this.executor = executor;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.sendTimeLimit = sendTimeLimit;
+        this.policy = policy;
+    }
+
+    /**
+     * Wraps a session so that the frames sent to it go through the pipeline.
+     *
+     * @param session The session of a player
+     * @return The session to send frames to
+     */
+    public WebSocketSession open(WebSocketSession session) {
+        return new OutboundSession(session, this);
+    }
+
+    /**
+     * Discards the frames still queued for a session whose connection is closed.
+     *
+     * @param session The session returned by open
+     */
+    public void release(WebSocketSession session) {
+        if (session instanceof OutboundSession) {
+            ((OutboundSession) session).release();
+        }
+    }
+
+    /**
+     * Stops the sending threads, called by Spring when the context is closed.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The frames waiting to be sent, across all sessions
+     */
+    public long getQueuedFrames() {
+        return queuedFrames.sum();
+    }
+
+    /**
+     * @return The deepest outbound queue any single session has had
+     */
+    public int getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.sum();
+    }
+
+    public long getCoalescedFrames() {
+        return coalescedFrames.sum();
+    }
+
+    public long getDisconnectedSessions() {
+        return disconnectedSessions.sum();
+    }
+
+    int getBufferSizeLimit() {
+        return bufferSizeLimit;
+    }
+
+    int getSendTimeLimit() {
+        return sendTimeLimit;
+    }
+
+    SlowConsumerPolicy getPolicy() {
+        return policy;
+    }
+
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    void frameQueued(int queueDepth) {
+        queuedFrames.increment();
+        peakQueueDepth.accumulateAndGet(queueDepth, Math::max);
+    }
+
+    void frameDequeued() {
+        queuedFrames.decrement();
+    }
+
+    void framesDropped(int frames) {
+        droppedFrames.add(frames);
+    }
+
+    void framesCoalesced(int frames) {
+        coalescedFrames.add(frames);
+    }
+
+    void sessionDisconnected() {
+        disconnectedSessions.increment();
+    }
+}
@@ -0,0 +1,25 @@
+package com.alejandro.mancala.message;
+
+/**
+ * What to do with a player whose outbound queue is over its buffer size limit, or whose current send has taken
+ * longer than the send time limit.
+ *
+ * @author afernandez
+ */
+public enum SlowConsumerPolicy {
+    /**
+     * New frames are dropped until the player catches up.
+     */
+    DROP,
+
+    /**
+     * Frames still queued are discarded in favour of the newest one, which carries the latest status. The client
+     * notices the missing board versions and asks for a snapshot.
+     */
+    COALESCE,
+
+    /**
+     * The session is closed.
+     */
+    DISCONNECT
+}
@@ -0,0 +1,74 @@
+package com.alejandro.mancala.metrics;
+
+import com.alejandro.mancala.game.State;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics recorded while games are matched and played.
+ *
+ * @author afernandez
+ */
+public class GameMetrics {
+    private final Histogram pendingTime;
+    private final Histogram parseTime;
+    private final Histogram engineTime;
+    private final Histogram sendTime;
+    private final Map<State, LongAdder> finishedGames = new EnumMap<>(State.class);
+    private final LongAdder abandonedGames;
+
+    public GameMetrics() {
+        this(new MetricsRegistry());
+    }
+
+    public GameMetrics(MetricsRegistry registry) {
+        pendingTime = registry.histogram("mancala_game_pending_seconds",
+                "Time a first player waits for an opponent");
+
+        final String moveHelp = "Time to process a move, by phase";
+        parseTime = registry.histogram("mancala_move_seconds", moveHelp, "phase", "parse");
+        engineTime = registry.histogram("mancala_move_seconds", moveHelp, "phase", "engine");
+        sendTime = registry.histogram("mancala_move_seconds", moveHelp, "phase", "send");
+
+        final String finishedHelp = "Games finished, by outcome";
+        finishedGames.put(State.WINNER_FIRST_PLAYER,
+                registry.counter("mancala_games_finished_total", finishedHelp, "outcome", "first_player"));
+        finishedGames.put(State.WINNER_SECOND_PLAYER,
+                registry.counter("mancala_games_finished_total", finishedHelp, "outcome", "second_player"));
+        finishedGames.put(State.GAME_DRAW,
+                registry.counter("mancala_games_finished_total", finishedHelp, "outcome", "draw"));
+        abandonedGames = registry.counter("mancala_games_finished_total", finishedHelp, "outcome", "abandoned");
+    }
+
+    public void recordPendingTime(long nanos) {
+        pendingTime.record(nanos);
+    }
+
+    public void recordParseTime(long nanos) {
+        parseTime.record(nanos);
+    }
+
+    public void recordEngineTime(long nanos) {
+        engineTime.record(nanos);
+    }
+
+    public void recordSendTime(long nanos) {
+        sendTime.record(nanos);
+    }
+
+    /**
+     * @param outcome The final state of the game
+     */
+    public void gameFinished(State outcome) {
+        finishedGames.get(outcome).increment();
+    }
+
+    /**
+     * Records a started game left by one of its players before the end.
+     */
+    public void gameAbandoned() {
+        abandonedGames.increment();
+    }
+}
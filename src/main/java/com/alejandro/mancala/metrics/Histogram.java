@@ -0,0 +1,112 @@
+package com.alejandro.mancala.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed buckets from one microsecond to ten seconds, three per decade. Recording is
+ * a short scan over the bucket bounds and a couple of LongAdder increments, so it can be used on the hot path.
+ * Percentiles are estimated from the buckets as Prometheus does, so a report read from the histogram agrees with the
+ * dashboards reading it from the server.
+ *
+ * @author afernandez
+ */
+public class Histogram {
+    private static final long[] BOUNDS = bounds();
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sum = new LongAdder();
+
+    public Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos The value to record, in nanoseconds
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+
+        while (bucket < BOUNDS.length && nanos > BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sum.add(nanos);
+    }
+
+    /**
+     * @return The values recorded
+     */
+    public long count() {
+        long count = 0;
+
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Estimates a percentile like histogram_quantile in Prometheus, interpolating linearly within the bucket it falls
+     * in.
+     *
+     * @param percentile The percentile, 0 to 100
+     * @return The value at the percentile in nanoseconds, 0 if nothing was recorded and the last bound if it falls
+     * past it
+     */
+    public long percentile(double percentile) {
+        final long[] counts = new long[buckets.length];
+        long count = 0;
+
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        final double rank = percentile / 100 * count;
+        long seen = 0;
+
+        for (int i = 0; i < BOUNDS.length; i++) {
+            if (counts[i] > 0 && seen + counts[i] >= rank) {
+                final long lower = i == 0 ? 0 : BOUNDS[i - 1];
+
+                return lower + (long) ((BOUNDS[i] - lower) * Math.max(0, rank - seen) / counts[i]);
+            }
+            seen += counts[i];
+        }
+        return count == 0 ? 0 : BOUNDS[BOUNDS.length - 1];
+    }
+
+    /**
+     * Writes the histogram in the Prometheus text format, values in seconds.
+     */
+    void write(StringBuilder out, String name, String labels) {
+        final String separator = labels.isEmpty() ? "{" : labels.substring(0, labels.length() - 1) + ",";
+        long count = 0;
+
+        for (int i = 0; i < buckets.length; i++) {
+            count += buckets[i].sum();
+            out.append(name).append("_bucket").append(separator).append("le=\"")
+                    .append(i < BOUNDS.length ? Double.toString(BOUNDS[i] / 1e9) : "+Inf").append("\"} ")
+                    .append(count).append('\n');
+        }
+        out.append(name).append("_sum").append(labels).append(' ').append(sum.sum() / 1e9).append('\n');
+        out.append(name).append("_count").append(labels).append(' ').append(count).append('\n');
+    }
+
+    private static long[] bounds() {
+        final long[] steps = {1000, 2500, 5000};
+        final long[] bounds = new long[3 * 7 + 1];
+
+        long decade = 1;
+        for (int i = 0; i < bounds.length - 1; i++) {
+            bounds[i] = steps[i % 3] * decade;
+            if (i % 3 == 2) {
+                decade *= 10;
+            }
+        }
+        bounds[bounds.length - 1] = 10_000_000_000L;
+
+        return bounds;
+    }
+}
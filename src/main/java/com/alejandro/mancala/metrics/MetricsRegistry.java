@@ -0,0 +1,130 @@
+package com.alejandro.mancala.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds the metrics of the server and writes them in the Prometheus text format. Metrics are registered once at
+ * startup; recording goes straight to the LongAdder or Histogram returned, without going through the registry.
+ *
+ * Labels are given as name and value pairs.
+ *
+ * @author afernandez
+ */
+public class MetricsRegistry {
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /**
+     * Registers a counter.
+     *
+     * @return The counter to increment
+     */
+    public LongAdder counter(String name, String help, String... labels) {
+        final LongAdder counter = new LongAdder();
+        register(name, help, "counter", labels, counter);
+
+        return counter;
+    }
+
+    /**
+     * Registers a counter kept somewhere else.
+     */
+    public void counter(String name, String help, LongSupplier value) {
+        register(name, help, "counter", new String[0], value);
+    }
+
+    /**
+     * Registers a gauge, read when the metrics are scraped.
+     */
+    public void gauge(String name, String help, LongSupplier value) {
+        register(name, help, "gauge", new String[0], value);
+    }
+
+    /**
+     * Registers a latency histogram.
+     *
+     * @return The histogram to record to
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        final Histogram histogram = new Histogram();
+        register(name, help, "histogram", labels, histogram);
+
+        return histogram;
+    }
+
+    /**
+     * @return Every metric in the Prometheus text format
+     */
+    public synchronized String scrape() {
+        final StringBuilder out = new StringBuilder(4096);
+
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+
+            for (Series series : family.series) {
+                if (series.metric instanceof Histogram) {
+                    ((Histogram) series.metric).write(out, family.name, series.labels);
+                } else {
+                    out.append(family.name).append(series.labels).append(' ').append(value(series.metric)).append('\n');
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private synchronized void register(String name, String help, String type, String[] labels, Object metric) {
+        final Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " already registered as a " + family.type);
+        }
+        family.series.add(new Series(labels(labels), metric));
+    }
+
+    private static long value(Object metric) {
+        return metric instanceof LongAdder ? ((LongAdder) metric).sum() : ((LongSupplier) metric).getAsLong();
+    }
+
+    private static String labels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must come in name and value pairs");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        final StringBuilder out = new StringBuilder("{");
+
+        for (int i = 0; i < labels.length; i += 2) {
+            out.append(i == 0 ? "" : ",").append(labels[i]).append("=\"").append(labels[i + 1]).append('"');
+        }
+        return out.append('}').toString();
+    }
+
+    private static final class Family {
+        final String name;
+        final String help;
+        final String type;
+        final List<Series> series = new ArrayList<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private static final class Series {
+        final String labels;
+        final Object metric;
+
+        Series(String labels, Object metric) {
+            this.labels = labels;
+            this.metric = metric;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.alejandro.mancala.player;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session with no web socket connection of this server behind it, such as the ones of bots, of players recovered or
+ * connected to other nodes and of the connections replayed. It has no handshake, addresses nor size limits, and by
+ * default discards the frames sent to it and ignores being closed, so subclasses only tell whether it is open and
+ * what sending and closing do.
+ *
+ * @author afernandez
+ */
+public abstract class ConnectionlessSession implements WebSocketSession {
+    private final String id;
+    private final URI uri;
+    private final String acceptedProtocol;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    protected ConnectionlessSession(String id) {
+        this(id, null, null);
+    }
+
+    /**
+     * @param id The ID of the session
+     * @param uri The URL the session connected with, NULL if none
+     * @param acceptedProtocol The subprotocol negotiated, NULL if none
+     */
+    protected ConnectionlessSession(String id, URI uri, String acceptedProtocol) {
+        this.id = id;
+        this.uri = uri;
+        this.acceptedProtocol = acceptedProtocol;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public URI getUri() {
+        return uri;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return new HttpHeaders();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return acceptedProtocol;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+    }
+
+    @Override
+    public void close() {
+        close(CloseStatus.NORMAL);
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.alejandro.mancala.player;
+
+/**
+ * Session standing in for a player recovered after a restart, until the player resumes the game from a new
+ * connection. It is already closed, so the frames sent to it are discarded.
+ *
+ * @author afernandez
+ */
+public class DetachedSession extends ConnectionlessSession {
+
+    /**
+     * @param id The ID of the session, unique among the players
+     */
+    public DetachedSession(String id) {
+        super(id);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return false;
+    }
+}
@@ -1,31 +1,78 @@
 package com.alejandro.mancala.player;
 
+import com.alejandro.mancala.message.MoveParser;
+import com.alejandro.mancala.timer.Timeout;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.util.Objects;
 
 /**
- * Represents a game's player.
+ * Represents a game's player. The resume token lets the player take the same place in the game back from a new
+ * session if the connection drops, see PlayerService for what it is made of.
  *
  * @author afernandez
  */
 public class Player {
     private WebSocketSession session;
-    private Integer gameId;
+    private volatile int gameId;
+    private String resumeToken;
+    private volatile boolean awaitingPong;
+    private volatile Timeout nextPing;
 
-    public Player(WebSocketSession session, Integer gameId) {
+    private final MoveParser moveParser = new MoveParser();
+
+    public Player(WebSocketSession session, int gameId) {
+        this(session, gameId, null);
+    }
+
+    public Player(WebSocketSession session, int gameId, String resumeToken) {
         this.session = session;
         this.gameId = gameId;
+        this.resumeToken = resumeToken;
     }
 
     public WebSocketSession getSession() {
         return session;
     }
 
-    public Integer getGameId() {
+    public int getGameId() {
         return gameId;
     }
 
+    public void setGameId(int gameId) {
+        this.gameId = gameId;
+    }
+
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    /**
+     * @return True if the last ping sent to the player hasn't been answered yet, false otherwise
+     */
+    public boolean isAwaitingPong() {
+        return awaitingPong;
+    }
+
+    public void setAwaitingPong(boolean awaitingPong) {
+        this.awaitingPong = awaitingPong;
+    }
+
+    public Timeout getNextPing() {
+        return nextPing;
+    }
+
+    public void setNextPing(Timeout nextPing) {
+        this.nextPing = nextPing;
+    }
+
+    /**
+     * @return The parser of the moves of the player's session, only used by the thread handling its messages
+     */
+    public MoveParser getMoveParser() {
+        return moveParser;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(this.session.getId(), this.gameId);
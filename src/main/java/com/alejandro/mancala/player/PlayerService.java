@@ -1,17 +1,58 @@
 package com.alejandro.mancala.player;
 
+import com.alejandro.mancala.message.SendPipeline;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.security.SecureRandom;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Player service manages and controls player's functionality.
+ * Player service manages and controls player's functionality. The sessions of the players send their frames through
+ * the send pipeline.
+ *
+ * A player whose connection drops in the middle of a game is held for the grace period, during which a new session
+ * presenting the player's resume token takes the player's place. A resume token is the ID of its game in plain text,
+ * 8 hexadecimal digits any node of the cluster can route on, followed by TOKEN_BYTES random bytes: only its last 96
+ * bits are secret.
  *
  * @author afernandez
  */
 public class PlayerService {
+    private static final int TOKEN_BYTES = 12;
+
+    /**
+     * Numbers the random part of a resume token is split into to be stored.
+     */
+    public static final int TOKEN_PARTS = TOKEN_BYTES / Integer.BYTES;
+
     private Map<String, Player> players = new ConcurrentHashMap<>();
+    private Map<String, Player> heldPlayers = new ConcurrentHashMap<>();
+    private SendPipeline sendPipeline;
+    private ScheduledExecutorService timer;
+    private long gracePeriod;
+    private SecureRandom random = new SecureRandom();
+
+    public PlayerService(SendPipeline sendPipeline) {
+        this(sendPipeline, Executors.newSingleThreadScheduledExecutor(), 0);
+    }
+
+    /**
+     * @param sendPipeline The pipeline the frames of the players go through
+     * @param timer The timer expiring the players held
+     * @param gracePeriod The time in milliseconds a disconnected player is held, zero to never hold players
+     */
+    public PlayerService(SendPipeline sendPipeline, ScheduledExecutorService timer, long gracePeriod) {
+        if (gracePeriod < 0) {
+            throw new IllegalArgumentException("Grace period can't be negative");
+        }
+        this.sendPipeline = sendPipeline;
+        this.timer = timer;
+        this.gracePeriod = gracePeriod;
+    }
 
     /**
      * Creates a new player and stores it in the player's list.
@@ -20,8 +61,49 @@ public class PlayerService {
      * @param gameId The ID of the game the player is currently playing
      * @return The player just created
      */
-    public Player createPlayer(WebSocketSession session, Integer gameId) {
-        Player player = new Player(session, gameId);
+    public Player createPlayer(WebSocketSession session, int gameId) {
+        Player player = new Player(sendPipeline.open(session), gameId, newResumeToken(gameId));
+        players.put(session.getId(), player);
+
+        return player;
+    }
+
+    /**
+     * Holds a player whose connection was closed, waiting for the player to resume the game.
+     *
+     * @param player The player
+     * @param expired The action to perform if the player doesn't come back within the grace period
+     * @return True if the player is held, false if players aren't held and the player is gone for good
+     */
+    public boolean holdPlayer(Player player, Runnable expired) {
+        if (gracePeriod == 0 || player.getResumeToken() == null) {
+            return false;
+        }
+        heldPlayers.put(player.getResumeToken(), player);
+
+        timer.schedule(() -> {
+            if (heldPlayers.remove(player.getResumeToken(), player)) {
+                expired.run();
+            }
+        }, gracePeriod, TimeUnit.MILLISECONDS);
+
+        return true;
+    }
+
+    /**
+     * Creates the player taking the place of a held player, from the new session presenting its resume token.
+     *
+     * @param session The new web socket session
+     * @param resumeToken The resume token presented
+     * @return The player, with the game and resume token of the held one, NULL if no player is held with that token
+     */
+    public Player resumePlayer(WebSocketSession session, String resumeToken) {
+        Player held = heldPlayers.remove(resumeToken);
+
+        if (held == null) {
+            return null;
+        }
+        Player player = new Player(sendPipeline.open(session), held.getGameId(), resumeToken);
         players.put(session.getId(), player);
 
         return player;
@@ -37,6 +119,20 @@ public class PlayerService {
         return players.get(sessionId);
     }
 
+    /**
+     * @return The players currently connected
+     */
+    public int getConnectedPlayers() {
+        return players.size();
+    }
+
+    /**
+     * @return The players disconnected and waiting to resume their games
+     */
+    public int getHeldPlayers() {
+        return heldPlayers.size();
+    }
+
     /**
      * Remove a player from the list, meaning her associated connection was closed somehow.
      *
@@ -44,6 +140,75 @@ public class PlayerService {
      * @return The player removed
      */
     public Player removePlayer(String sessionId) {
-        return players.remove(sessionId);
+        Player player = players.remove(sessionId);
+
+        if (player != null) {
+            sendPipeline.release(player.getSession());
+        }
+        return player;
+    }
+
+    /**
+     * Stops the timer expiring the players held, called by Spring when the context is closed.
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Returns the game a resume token was issued for, so that a node of the cluster can route the resume to the node
+     * owning the game without knowing the player.
+     *
+     * @param resumeToken The resume token, 32 hexadecimal digits, the first 8 of them the game ID
+     * @return The ID of the game
+     */
+    public static int gameIdOf(String resumeToken) {
+        return Integer.parseUnsignedInt(resumeToken.substring(0, 8), 16);
+    }
+
+    /**
+     * Splits the random part of a resume token into the numbers it is made of, to be stored along with its game.
+     *
+     * @param resumeToken The resume token
+     * @return The TOKEN_PARTS numbers following the game ID
+     */
+    public static int[] tokenParts(String resumeToken) {
+        final int[] parts = new int[TOKEN_PARTS];
+
+        for (int i = 0; i < TOKEN_PARTS; i++) {
+            parts[i] = Integer.parseUnsignedInt(resumeToken.substring(8 * (i + 1), 8 * (i + 2)), 16);
+        }
+        return parts;
+    }
+
+    /**
+     * Creates a player recovered after a restart, holding a seat in the game until the player resumes it with the
+     * same token from a new connection.
+     *
+     * @param gameId The ID of the game
+     * @param firstPlayer True if the player is the first player, false otherwise
+     * @param tokenParts The random part of the player's resume token, as split by tokenParts
+     * @return The player, with a session already closed
+     */
+    public static Player recoveredPlayer(int gameId, boolean firstPlayer, int[] tokenParts) {
+        final StringBuilder token = new StringBuilder(String.format("%08x", gameId));
+        for (int part : tokenParts) {
+            token.append(String.format("%08x", part));
+        }
+        final String sessionId = "recovered-" + gameId + (firstPlayer ? "-first" : "-second");
+
+        return new Player(new DetachedSession(sessionId), gameId, token.toString());
+    }
+
+    // The game ID in the first 8 digits, not random at all, followed by 24 random ones
+    private String newResumeToken(int gameId) {
+        final byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+
+        final StringBuilder token = new StringBuilder(String.format("%08x", gameId));
+        for (byte value : bytes) {
+            token.append(Character.forDigit((value >> 4) & 0xF, 16)).append(Character.forDigit(value & 0xF, 16));
+        }
+        return token.toString();
     }
-}
\ No newline at end of file
+}
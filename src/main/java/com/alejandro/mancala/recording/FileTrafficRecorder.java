@@ -0,0 +1,274 @@
+package com.alejandro.mancala.recording;
+
+import com.alejandro.mancala.GameHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Traffic recorder writing the events to a file in the layout of TrafficFormat. The threads handling the frames
+ * only timestamp the event and offer it to a bounded queue, and a background thread writes the queue out, so
+ * recording never makes a frame wait on the disk. When the queue is full, or the file has reached its maximum size,
+ * events are dropped and counted instead. The events of a session whose connection was dropped are left out too,
+ * since they couldn't be replayed.
+ *
+ * The settings of the server are written in the header, and every connection with the query it connected with and
+ * the game the cluster handed it over for, so that the replay pairs and resumes the same players. The resume token
+ * issued to every player is written too, for the replay to present its own token in place of it.
+ *
+ * @author afernandez
+ */
+public class FileTrafficRecorder implements TrafficRecorder {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final Event END = new Event((byte) 0, null, null, 0, null);
+
+    private final Path file;
+    private final int maxSize;
+    private final BlockingQueue<Event> events;
+    private final DataOutputStream out;
+    private final Thread writer;
+    private final LongAdder droppedEvents = new LongAdder();
+    private final long start = System.nanoTime();
+    private volatile boolean closed;
+    private volatile boolean stopped;
+
+    // Only touched by the writer thread
+    private final Map<String, Integer> sessions = new HashMap<>();
+    private int nextSession;
+    private long lastMicros;
+
+    public FileTrafficRecorder(Path file, int queueSize, int maxSize) {
+        this(file, queueSize, maxSize, Collections.emptyMap());
+    }
+
+    /**
+     * @param file The file to write, which must not exist yet. Its directory is created if it doesn't exist
+     * @param queueSize The events that can be waiting to be written
+     * @param maxSize The size in bytes the file can grow to, the events past it are dropped
+     * @param settings The settings of the server the replay needs, by property name
+     */
+    public FileTrafficRecorder(Path file, int queueSize, int maxSize, Map<String, String> settings) {
+        if (queueSize <= 0 || maxSize <= 0) {
+            throw new IllegalArgumentException("Invalid recording queue or file size: " + queueSize + ", " + maxSize);
+        }
+        this.file = file;
+        this.maxSize = maxSize;
+        this.events = new ArrayBlockingQueue<>(queueSize);
+
+        try {
+            if (file.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            }
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)));
+            out.writeInt(TrafficFormat.MAGIC);
+            out.writeByte(TrafficFormat.VERSION);
+            out.writeLong(System.currentTimeMillis());
+            TrafficFormat.writeNumber(out, settings.size());
+
+            for (Map.Entry<String, String> setting : settings.entrySet()) {
+                out.writeUTF(setting.getKey());
+                out.writeUTF(setting.getValue());
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        this.writer = new Thread(this::write, "traffic-recorder");
+        writer.setDaemon(true);
+        writer.start();
+
+        logger.info("Recording traffic to {}", file);
+    }
+
+    @Override
+    public void connectionOpened(WebSocketSession session) {
+        final URI uri = session.getUri();
+        final Integer gameId = (Integer) session.getAttributes().get(GameHandler.GAME_ID_ATTRIBUTE);
+
+        record(new Event(session.getId(), session.getAcceptedProtocol(), uri == null ? null : uri.getRawQuery(),
+                gameId));
+    }
+
+    @Override
+    public void textReceived(WebSocketSession session, TextMessage message) {
+        final byte[] payload = message.getPayload().getBytes(StandardCharsets.UTF_8);
+
+        record(new Event(TrafficFormat.TEXT, session.getId(), null, 0, payload));
+    }
+
+    @Override
+    public void binaryReceived(WebSocketSession session, BinaryMessage message) {
+        // The handler reads the payload afterwards, so its position is left alone
+        final ByteBuffer payload = message.getPayload().duplicate();
+        final byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+
+        record(new Event(TrafficFormat.BINARY, session.getId(), null, 0, bytes));
+    }
+
+    @Override
+    public void tokenIssued(WebSocketSession session, String resumeToken) {
+        record(new Event(TrafficFormat.TOKEN, session.getId(), null, 0,
+                resumeToken.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Override
+    public void connectionClosed(WebSocketSession session, CloseStatus status) {
+        record(new Event(TrafficFormat.CLOSE, session.getId(), null, status.getCode(), null));
+    }
+
+    @Override
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Writes the events left and closes the file, called by Spring when the context is closed.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            while (writer.isAlive() && !events.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                // The writer is still draining the queue
+            }
+            writer.join();
+            out.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            logger.error("Unable to close traffic recording {}", file, ex);
+        }
+        logger.info("Traffic recording {} closed, {} events dropped", file, getDroppedEvents());
+    }
+
+    private void record(Event event) {
+        if (closed || stopped || !events.offer(event)) {
+            droppedEvents.increment();
+        }
+    }
+
+    private void write() {
+        try {
+            while (true) {
+                Event event = events.poll();
+
+                if (event == null) {
+                    out.flush();
+                    event = events.take();
+                }
+                if (event == END) {
+                    break;
+                }
+                if (!stopped && out.size() >= maxSize) {
+                    logger.warn("Traffic recording {} is full, dropping the events from now on", file);
+                    stopped = true;
+                }
+                if (stopped) {
+                    droppedEvents.increment();
+                } else {
+                    write(event);
+                }
+            }
+            out.flush();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            logger.error("Traffic recording {} stopped", file, ex);
+            stopped = true;
+        }
+    }
+
+    private void write(Event event) throws IOException {
+        final int session;
+
+        if (event.type == TrafficFormat.OPEN) {
+            session = nextSession++;
+            sessions.put(event.sessionId, session);
+        } else {
+            final Integer known = event.type == TrafficFormat.CLOSE
+                    ? sessions.remove(event.sessionId) : sessions.get(event.sessionId);
+
+            if (known == null) {
+                droppedEvents.increment();
+                return;
+            }
+            session = known;
+        }
+        // Events are timestamped by many threads, so one may come before another slightly older
+        final long micros = Math.max(lastMicros, TimeUnit.NANOSECONDS.toMicros(event.nanos - start));
+
+        out.writeByte(event.type);
+        TrafficFormat.writeNumber(out, micros - lastMicros);
+        TrafficFormat.writeNumber(out, session);
+        lastMicros = micros;
+
+        if (event.type == TrafficFormat.OPEN) {
+            out.writeUTF(event.sessionId);
+            out.writeUTF(event.protocol == null ? "" : event.protocol);
+            out.writeUTF(event.query == null ? "" : event.query);
+            TrafficFormat.writeNumber(out, event.gameId == null ? 0 : (event.gameId & 0xFFFFFFFFL) + 1);
+        } else if (event.type == TrafficFormat.CLOSE) {
+            TrafficFormat.writeNumber(out, event.code);
+        } else {
+            TrafficFormat.writeNumber(out, event.payload.length);
+            out.write(event.payload);
+        }
+    }
+
+    private static final class Event {
+        private final byte type;
+        private final String sessionId;
+        private final String protocol;
+        private final String query;
+        private final Integer gameId;
+        private final int code;
+        private final byte[] payload;
+        private final long nanos = System.nanoTime();
+
+        Event(byte type, String sessionId, String protocol, int code, byte[] payload) {
+            this.type = type;
+            this.sessionId = sessionId;
+            this.protocol = protocol;
+            this.query = null;
+            this.gameId = null;
+            this.code = code;
+            this.payload = payload;
+        }
+
+        // A connection opened
+        Event(String sessionId, String protocol, String query, Integer gameId) {
+            this.type = TrafficFormat.OPEN;
+            this.sessionId = sessionId;
+            this.protocol = protocol;
+            this.query = query;
+            this.gameId = gameId;
+            this.code = 0;
+            this.payload = null;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.alejandro.mancala.recording;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome of replaying a traffic recording: the events replayed, how long the handler took with each of them, how
+ * far behind the recorded schedule the replay fell and the frames the server sent back, to be compared between
+ * builds replaying the same recording.
+ *
+ * The events the handler threw an exception for are told apart: malformed frames, which the server rejected when
+ * recorded as well, are only counted as rejected, well-formed frames turned down are divergences, the replay having
+ * gone another way than the recording, and connections failing to open or close are errors.
+ *
+ * @author afernandez
+ */
+public class ReplayReport {
+    private final LongAdder framesSent = new LongAdder();
+
+    private long[] latencies = new long[1024];
+    private int events;
+    private long connections;
+    private long frames;
+    private long rejected;
+    private long divergences;
+    private long errors;
+    private long maxLag;
+    private long elapsed;
+    private boolean sorted;
+
+    void eventHandled(byte type, long latency) {
+        if (events == latencies.length) {
+            latencies = Arrays.copyOf(latencies, 2 * events);
+        }
+        latencies[events++] = latency;
+        sorted = false;
+
+        if (type == TrafficFormat.OPEN) {
+            connections++;
+        } else if (type == TrafficFormat.TEXT || type == TrafficFormat.BINARY) {
+            frames++;
+        }
+    }
+
+    void frameRejected() {
+        rejected++;
+    }
+
+    void eventDiverged() {
+        divergences++;
+    }
+
+    void eventFailed() {
+        errors++;
+    }
+
+    void behindSchedule(long lag) {
+        maxLag = Math.max(maxLag, lag);
+    }
+
+    void setElapsed(long elapsed) {
+        this.elapsed = elapsed;
+    }
+
+    LongAdder framesSentCounter() {
+        return framesSent;
+    }
+
+    public int getEvents() {
+        return events;
+    }
+
+    public long getConnections() {
+        return connections;
+    }
+
+    /**
+     * @return The frames received by the server
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return The malformed frames, rejected when recorded as well
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return The well-formed frames the handler turned down, the replay having gone another way than the recording
+     */
+    public long getDivergences() {
+        return divergences;
+    }
+
+    /**
+     * @return The connections the handler failed to open or close
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getFramesSent() {
+        return framesSent.sum();
+    }
+
+    /**
+     * @return The furthest the replay fell behind the recorded schedule in nanoseconds, 0 if replayed at full speed
+     */
+    public long getMaxLag() {
+        return maxLag;
+    }
+
+    /**
+     * @return The elapsed time in nanoseconds
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    public double getEventsPerSecond() {
+        return elapsed == 0 ? 0 : events * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * @param percentile The percentile, 0 to 100
+     * @return The time the handler took with an event at the percentile in nanoseconds, 0 if nothing was replayed
+     */
+    public long getLatency(double percentile) {
+        if (events == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(latencies, 0, events);
+            sorted = true;
+        }
+        final int rank = (int) Math.ceil(percentile / 100 * events);
+
+        return latencies[Math.max(0, rank - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d events in %d ms, %.0f events/s: %d connections, %d frames received, %d sent, "
+                        + "%d rejected, %d divergences, %d errors. Handler latency p50 %d us, p99 %d us, "
+                        + "p99.9 %d us, max %d us. Up to %d ms behind schedule",
+                events, TimeUnit.NANOSECONDS.toMillis(elapsed), getEventsPerSecond(), connections, frames,
+                getFramesSent(), rejected, divergences, errors, micros(getLatency(50)), micros(getLatency(99)),
+                micros(getLatency(99.9)), micros(getLatency(100)), TimeUnit.NANOSECONDS.toMillis(maxLag));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,67 @@
+package com.alejandro.mancala.recording;
+
+import com.alejandro.mancala.player.ConnectionlessSession;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.net.URI;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Session of a connection replayed from a traffic recording. The frames sent to it are only counted, as the frames
+ * it sends are the ones recorded.
+ *
+ * @author afernandez
+ */
+class ReplaySession extends ConnectionlessSession {
+    private final LongAdder framesSent;
+
+    private volatile String issuedToken;
+    private volatile boolean open = true;
+
+    /**
+     * @param id The ID of the session
+     * @param acceptedProtocol The subprotocol of the connection recorded, NULL if none
+     * @param framesSent The count of the frames sent to all the sessions replayed
+     */
+    ReplaySession(String id, String acceptedProtocol, LongAdder framesSent) {
+        this(id, null, acceptedProtocol, framesSent);
+    }
+
+    /**
+     * @param id The ID of the session
+     * @param uri The URI the connection recorded was opened with, NULL if unknown
+     * @param acceptedProtocol The subprotocol of the connection recorded, NULL if none
+     * @param framesSent The count of the frames sent to all the sessions replayed
+     */
+    ReplaySession(String id, URI uri, String acceptedProtocol, LongAdder framesSent) {
+        super(id, uri, acceptedProtocol);
+        this.framesSent = framesSent;
+    }
+
+    /**
+     * @return The resume token the server replaying issued to the player of this session, NULL if none
+     */
+    String getIssuedToken() {
+        return issuedToken;
+    }
+
+    void setIssuedToken(String issuedToken) {
+        this.issuedToken = issuedToken;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        framesSent.increment();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        open = false;
+    }
+}
@@ -0,0 +1,61 @@
+package com.alejandro.mancala.recording;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Layout of the traffic recordings. A recording starts with a header:
+ *
+ * magic (4 bytes), version, start time in epoch milliseconds (8 bytes), settings, and the name and value of every
+ * setting as modified UTF-8
+ *
+ * followed by one record per event, numbers being unsigned variable length integers of 7 bits per byte:
+ *
+ * type, microseconds since the previous record, session number, and then
+ * OPEN: session ID, accepted protocol and query of the URI connected to, empty if none, as modified UTF-8, and the
+ *       game ID attribute plus one, 0 if none
+ * TEXT, BINARY: payload length and the payload, UTF-8 for a text frame
+ * TOKEN: length and hexadecimal digits of the resume token issued to the player of the session
+ * CLOSE: close status code
+ *
+ * Sessions are numbered as they connect, so the ID is only written once. The settings are the ones of the server
+ * recorded that change its answers, named as its properties, to replay the traffic with the same ones.
+ *
+ * @author afernandez
+ */
+final class TrafficFormat {
+    static final int MAGIC    = 0x4D4E5452;
+    static final byte VERSION = 1;
+
+    static final byte OPEN   = 1;
+    static final byte TEXT   = 2;
+    static final byte BINARY = 3;
+    static final byte CLOSE  = 4;
+    static final byte TOKEN  = 5;
+
+    private TrafficFormat() {
+    }
+
+    static void writeNumber(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readNumber(DataInput in) throws IOException {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number in traffic recording");
+    }
+}
@@ -0,0 +1,68 @@
+package com.alejandro.mancala.recording;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Captures the traffic received by the game handler, connections and frames as they arrive, to be replayed later
+ * by TrafficReplayer. Every method does nothing by default, which is what DISABLED does.
+ *
+ * @author afernandez
+ */
+public interface TrafficRecorder {
+    TrafficRecorder DISABLED = new TrafficRecorder() {
+    };
+
+    /**
+     * Records a new connection.
+     *
+     * @param session The session connected
+     */
+    default void connectionOpened(WebSocketSession session) {
+    }
+
+    /**
+     * Records a text frame received, before it is handled.
+     *
+     * @param session The session sending the frame
+     * @param message The frame
+     */
+    default void textReceived(WebSocketSession session, TextMessage message) {
+    }
+
+    /**
+     * Records a binary frame received, before it is handled.
+     *
+     * @param session The session sending the frame
+     * @param message The frame
+     */
+    default void binaryReceived(WebSocketSession session, BinaryMessage message) {
+    }
+
+    /**
+     * Records the resume token issued to the player of a new connection, to tell which player a resume is for.
+     *
+     * @param session The session of the player
+     * @param resumeToken The token issued
+     */
+    default void tokenIssued(WebSocketSession session, String resumeToken) {
+    }
+
+    /**
+     * Records a connection closed.
+     *
+     * @param session The session closed
+     * @param status The close status
+     */
+    default void connectionClosed(WebSocketSession session, CloseStatus status) {
+    }
+
+    /**
+     * @return The events left out of the recording because the recorder couldn't keep up
+     */
+    default long getDroppedEvents() {
+        return 0;
+    }
+}
@@ -0,0 +1,323 @@
+package com.alejandro.mancala.recording;
+
+import com.alejandro.mancala.GameHandler;
+import com.alejandro.mancala.bot.BotService;
+import com.alejandro.mancala.bot.MoveSearch;
+import com.alejandro.mancala.bot.TranspositionTable;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.message.BinaryFrames;
+import com.alejandro.mancala.message.MessageService;
+import com.alejandro.mancala.message.MoveParser;
+import com.alejandro.mancala.message.SendPipeline;
+import com.alejandro.mancala.message.SlowConsumerPolicy;
+import com.alejandro.mancala.metrics.GameMetrics;
+import com.alejandro.mancala.player.PlayerService;
+import com.alejandro.mancala.spectator.SpectatorService;
+import com.alejandro.mancala.timer.GameTimeouts;
+import com.alejandro.mancala.timer.HashedWheelTimer;
+import com.alejandro.mancala.timer.TurnTimeoutAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a traffic recording against a web socket handler, usually the game handler of a fresh server built for
+ * the replay. Events are handed to the handler one at a time, in the order recorded, so the same recording always
+ * pairs the same players in the same games and plays the same moves. They are replayed on the schedule recorded,
+ * scaled by the speed, or as fast as the handler takes them with a speed of 0. Every connection is replayed with the
+ * query and game ID attribute it was recorded with, so resumes and cluster handovers are replayed as well. The
+ * handler issues resume tokens of its own, so a resume presents the token issued to the player replayed in place of
+ * the one recorded, which takes a handler built with the ISSUED_TOKENS recorder.
+ *
+ * @author afernandez
+ */
+public class TrafficReplayer {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Recorder of the handler replaying, keeping the resume token issued to every session replayed.
+     */
+    public static final TrafficRecorder ISSUED_TOKENS = new TrafficRecorder() {
+        @Override
+        public void tokenIssued(WebSocketSession session, String resumeToken) {
+            if (session instanceof ReplaySession) {
+                ((ReplaySession) session).setIssuedToken(resumeToken);
+            }
+        }
+    };
+
+    private final WebSocketHandler handler;
+    private final double speed;
+    private final MoveParser moveParser = new MoveParser();
+
+    /**
+     * @param handler The handler replaying the traffic
+     * @param speed How many times faster than recorded to replay, 0 for as fast as possible
+     */
+    public TrafficReplayer(WebSocketHandler handler, double speed) {
+        if (!(speed >= 0) || Double.isInfinite(speed)) {
+            throw new IllegalArgumentException("Invalid replay speed: " + speed);
+        }
+        this.handler = handler;
+        this.speed = speed;
+    }
+
+    /**
+     * Replays a recording, waiting for it to end. The connections still open at the end of the recording are left
+     * open.
+     *
+     * @param file The recording
+     * @return The report of the replay
+     * @throws IOException If the recording can't be read
+     */
+    public ReplayReport replay(Path file) throws IOException {
+        final ReplayReport report = new ReplayReport();
+        final Map<Long, ReplaySession> sessions = new HashMap<>();
+        final Map<String, String> tokens = new HashMap<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            readHeader(in, file, new HashMap<>());
+            final long start = System.nanoTime();
+            long micros = 0;
+            int type;
+
+            while ((type = in.read()) != -1) {
+                if (type < TrafficFormat.OPEN || type > TrafficFormat.TOKEN) {
+                    throw new IOException("Unknown event type " + type + " in " + file);
+                }
+                final long number;
+                final String id;
+                final String protocol;
+                final String query;
+                final Integer gameId;
+                final byte[] payload;
+                final int code;
+
+                // A recording cut short by a crash ends with a torn record
+                try {
+                    micros += TrafficFormat.readNumber(in);
+                    number = TrafficFormat.readNumber(in);
+                    id = type == TrafficFormat.OPEN ? in.readUTF() : null;
+                    protocol = type == TrafficFormat.OPEN ? in.readUTF() : null;
+                    query = type == TrafficFormat.OPEN ? in.readUTF() : null;
+                    gameId = type == TrafficFormat.OPEN ? gameId(TrafficFormat.readNumber(in)) : null;
+                    payload = type == TrafficFormat.TEXT || type == TrafficFormat.BINARY || type == TrafficFormat.TOKEN
+                            ? payload(in) : null;
+                    code = type == TrafficFormat.CLOSE ? (int) TrafficFormat.readNumber(in) : 0;
+                } catch (EOFException ex) {
+                    logger.warn("Traffic recording {} ends with an incomplete event", file);
+                    break;
+                }
+                final ReplaySession session = type == TrafficFormat.OPEN
+                        ? new ReplaySession(id, uri(query, tokens), protocol.isEmpty() ? null : protocol,
+                        report.framesSentCounter())
+                        : type == TrafficFormat.CLOSE ? sessions.remove(number) : sessions.get(number);
+
+                if (session == null) {
+                    throw new IOException("Event of unknown session " + number + " in " + file);
+                }
+                if (type == TrafficFormat.TOKEN) {
+                    // Not an event for the handler, only which token to present for the one recorded
+                    if (session.getIssuedToken() != null) {
+                        tokens.put(new String(payload, StandardCharsets.US_ASCII), session.getIssuedToken());
+                    }
+                    continue;
+                }
+                if (speed > 0) {
+                    report.behindSchedule(waitUntil(start + (long) (1000 * micros / speed)));
+                }
+                final long handled = System.nanoTime();
+
+                try {
+                    if (type == TrafficFormat.OPEN) {
+                        sessions.put(number, session);
+
+                        if (gameId != null) {
+                            session.getAttributes().put(GameHandler.GAME_ID_ATTRIBUTE, gameId);
+                        }
+                        handler.afterConnectionEstablished(session);
+                    } else if (type == TrafficFormat.TEXT) {
+                        handler.handleMessage(session, new TextMessage(new String(payload, StandardCharsets.UTF_8)));
+                    } else if (type == TrafficFormat.BINARY) {
+                        handler.handleMessage(session, new BinaryMessage(payload));
+                    } else {
+                        session.close();
+                        handler.afterConnectionClosed(session, new CloseStatus(code));
+                    }
+                } catch (Exception ex) {
+                    logger.debug("Replayed event failed: {}", ex.getMessage());
+
+                    if (type == TrafficFormat.OPEN || type == TrafficFormat.CLOSE) {
+                        report.eventFailed();
+                    } else if (isMalformed(type, payload)) {
+                        // A server throws the same for the frames it rejected when recorded
+                        report.frameRejected();
+                    } else {
+                        report.eventDiverged();
+                    }
+                }
+                report.eventHandled((byte) type, System.nanoTime() - handled);
+            }
+            report.setElapsed(System.nanoTime() - start);
+        }
+        return report;
+    }
+
+    /**
+     * Reads the settings of the server a recording was made with, to replay it with the same ones.
+     *
+     * @param file The recording
+     * @return The settings by property name
+     * @throws IOException If the recording can't be read
+     */
+    public static Map<String, String> settings(Path file) throws IOException {
+        final Map<String, String> settings = new LinkedHashMap<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            readHeader(in, file, settings);
+        }
+        return settings;
+    }
+
+    // Reads the header of the recording, filling in its settings
+    private static void readHeader(DataInputStream in, Path file, Map<String, String> settings) throws IOException {
+        if (in.readInt() != TrafficFormat.MAGIC || in.readByte() != TrafficFormat.VERSION) {
+            throw new IOException("Not a traffic recording: " + file);
+        }
+        // The time the recording started, only informative
+        in.readLong();
+
+        for (long setting = TrafficFormat.readNumber(in); setting > 0; setting--) {
+            settings.put(in.readUTF(), in.readUTF());
+        }
+    }
+
+    private boolean isMalformed(int type, byte[] payload) {
+        try {
+            if (type == TrafficFormat.TEXT) {
+                moveParser.parse(new String(payload, StandardCharsets.UTF_8));
+            } else {
+                BinaryFrames.decodeMove(ByteBuffer.wrap(payload));
+            }
+            return false;
+        } catch (IllegalArgumentException ex) {
+            return true;
+        }
+    }
+
+    // A resume presents the token issued by the handler replaying, if it issued one for the token recorded
+    private static URI uri(String query, Map<String, String> tokens) {
+        if (query.isEmpty()) {
+            return null;
+        }
+        final String recorded = GameHandler.resumeToken(URI.create("ws://replay/mancala?" + query));
+        final String issued = recorded == null ? null : tokens.get(recorded);
+
+        return URI.create("ws://replay/mancala?" + (issued == null ? query : query.replace(recorded, issued)));
+    }
+
+    private static Integer gameId(long recorded) {
+        return recorded == 0 ? null : (int) (recorded - 1);
+    }
+
+    private static byte[] payload(DataInputStream in) throws IOException {
+        final byte[] payload = new byte[(int) TrafficFormat.readNumber(in)];
+        in.readFully(payload);
+
+        return payload;
+    }
+
+    // Returns how late the deadline was already
+    private static long waitUntil(long deadline) {
+        long now;
+
+        while ((now = System.nanoTime()) - deadline < 0) {
+            LockSupport.parkNanos(deadline - now);
+        }
+        return now - deadline;
+    }
+
+    /**
+     * Replays a recording against a fresh game handler with the settings it was recorded with, printing the report.
+     * A recording without settings is replayed with timeouts, bots and resumes disabled. Pings are never sent, since
+     * the pongs answering them aren't recorded.
+     *
+     * @param args The recording and the speed, 1 by default and 0 for as fast as possible
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: TrafficReplayer recording [speed]");
+            System.exit(1);
+        }
+        final Path file = Paths.get(args[0]);
+        final double speed = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        final Map<String, String> settings = settings(file);
+
+        final ExecutorService senders = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        final SendPipeline sendPipeline = new SendPipeline(senders,
+                intSetting(settings, "mancala.outbound.buffer-size-limit", 65536),
+                intSetting(settings, "mancala.outbound.send-time-limit", 5000),
+                SlowConsumerPolicy.valueOf(settings.getOrDefault("mancala.outbound.slow-consumer-policy", "COALESCE")));
+        final PlayerService playerService = new PlayerService(sendPipeline,
+                Executors.newSingleThreadScheduledExecutor(), longSetting(settings, "mancala.resume.grace-period", 0));
+
+        final long botWait = longSetting(settings, "mancala.bot.wait", 0);
+        final HashedWheelTimer timer = new HashedWheelTimer(longSetting(settings, "mancala.timer.tick-duration", 100),
+                intSetting(settings, "mancala.timer.ticks-per-wheel", 4096));
+        final GameTimeouts timeouts = new GameTimeouts(timer, Executors.newSingleThreadExecutor(),
+                longSetting(settings, "mancala.timeout.turn", 0),
+                TurnTimeoutAction.valueOf(settings.getOrDefault("mancala.timeout.turn-action", "FORFEIT")),
+                longSetting(settings, "mancala.timeout.pending", 0), 0, botWait);
+        final BotService botService = botWait == 0 ? BotService.DISABLED : new BotService(
+                new MoveSearch(new ForkJoinPool(intSetting(settings, "mancala.bot.threads", 2)),
+                        new TranspositionTable(intSetting(settings, "mancala.bot.table-size", 1 << 20))),
+                longSetting(settings, "mancala.bot.move-time", 500),
+                intSetting(settings, "mancala.bot.max-games", 100));
+
+        final SpectatorService spectatorService = new SpectatorService();
+        final GameHandler handler = new GameHandler(playerService, new GameService(), new MessageService(),
+                new GameMetrics(), timeouts, spectatorService, botService, ISSUED_TOKENS);
+        final ReplayReport report = new TrafficReplayer(handler, speed).replay(file);
+
+        // The frames still being sent are counted before printing the report
+        senders.shutdown();
+        senders.awaitTermination(1, TimeUnit.MINUTES);
+        playerService.shutdown();
+        spectatorService.shutdown();
+        botService.shutdown();
+        timeouts.shutdown();
+        timer.shutdown();
+        System.out.println(report);
+    }
+
+    private static int intSetting(Map<String, String> settings, String name, int defaultValue) {
+        return settings.containsKey(name) ? Integer.parseInt(settings.get(name)) : defaultValue;
+    }
+
+    private static long longSetting(Map<String, String> settings, String name, long defaultValue) {
+        return settings.containsKey(name) ? Long.parseLong(settings.get(name)) : defaultValue;
+    }
+}
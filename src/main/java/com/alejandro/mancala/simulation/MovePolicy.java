@@ -0,0 +1,115 @@
+package com.alejandro.mancala.simulation;
+
+import com.alejandro.mancala.game.Board;
+import com.alejandro.mancala.game.SowingTable;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Chooses the moves of a player in simulated games. Policies are shared by all the games running at the same time,
+ * so any state of a game comes in the arguments: the move number and the game's own random generator.
+ *
+ * @author afernandez
+ */
+@FunctionalInterface
+public interface MovePolicy {
+
+    /**
+     * Chooses the pit to sow.
+     *
+     * @param side The packed side of the player to move, with stones in some pit
+     * @param opponentSide The packed side of the opponent
+     * @param move The number of moves the player has made so far in the game
+     * @param random The random generator of the game
+     * @return The pit, with stones
+     */
+    int choosePit(long side, long opponentSide, int move, SplittableRandom random);
+
+    /**
+     * @return A policy sowing any pit with stones, at random
+     */
+    static MovePolicy random() {
+        return (side, opponentSide, move, random) -> {
+            int pit = random.nextInt(Board.PITS);
+
+            while (Board.stones(side, pit) == 0) {
+                pit = (pit + 1) % Board.PITS;
+            }
+            return pit;
+        };
+    }
+
+    /**
+     * @return A policy taking an additional turn when it can, otherwise the pit leaving the most stones in the big
+     * pit, captures included, ties broken at random
+     */
+    static MovePolicy greedy() {
+        return (side, opponentSide, move, random) -> {
+            final long[] sides = new long[2];
+            final int offset = random.nextInt(Board.PITS);
+            int bestPit = -1;
+            int bestGain = -1;
+
+            for (int i = 0; i < Board.PITS; i++) {
+                final int pit = (offset + i) % Board.PITS;
+
+                if (Board.stones(side, pit) == 0) {
+                    continue;
+                }
+                final boolean repeatTurn = SowingTable.sow(side, opponentSide, pit, sides);
+                final int gain = repeatTurn ? Integer.MAX_VALUE : Board.stones(sides[0], Board.BIG_PIT);
+
+                if (gain > bestGain) {
+                    bestPit = pit;
+                    bestGain = gain;
+                }
+            }
+            return bestPit;
+        };
+    }
+
+    /**
+     * Returns a policy replaying a fixed sequence of pits. Once the sequence is over, or if the pit of the sequence
+     * is empty, it sows the first pit with stones.
+     *
+     * @param pits The pits to sow, one per move of the player
+     * @return The policy
+     */
+    static MovePolicy scripted(int... pits) {
+        final int[] script = pits.clone();
+
+        return (side, opponentSide, move, random) -> {
+            if (move < script.length && script[move] >= 0 && script[move] < Board.PITS
+                    && Board.stones(side, script[move]) > 0) {
+                return script[move];
+            }
+            int pit = 0;
+
+            while (Board.stones(side, pit) == 0) {
+                pit++;
+            }
+            return pit;
+        };
+    }
+
+    /**
+     * Returns a policy by name: random, greedy, or scripted followed by the pits, as in scripted:0,5,2.
+     *
+     * @param name The name of the policy
+     * @return The policy
+     */
+    static MovePolicy parse(String name) {
+        if ("random".equals(name)) {
+            return random();
+        }
+        if ("greedy".equals(name)) {
+            return greedy();
+        }
+        if (name.startsWith("scripted:")) {
+            return scripted(Arrays.stream(name.substring("scripted:".length()).split(","))
+                    .mapToInt(Integer::parseInt).toArray());
+        }
+        throw new IllegalArgumentException("Unknown move policy: " + name);
+    }
+}
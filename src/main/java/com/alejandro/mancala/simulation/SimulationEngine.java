@@ -0,0 +1,167 @@
+package com.alejandro.mancala.simulation;
+
+import com.alejandro.mancala.game.Board;
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameJournal;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.message.InputMessage;
+import com.alejandro.mancala.message.MessageService;
+import com.alejandro.mancala.metrics.GameMetrics;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays games with no players connected, straight through the move logic of the game service, to tune the bots,
+ * check changes of the rules and generate corpora of games.
+ *
+ * The games of a batch are split in tasks of a fork-join pool, so they run on every core. Every game gets a random
+ * generator of its own seeded from the seed of the batch and the game's number, so a batch played with the same seed
+ * and policies gives the same statistics however it's split. After every move the engine checks no stone was lost or
+ * created, and that no game goes on for longer than any game can.
+ *
+ * Can be run on its own: SimulationEngine games [first player policy] [second player policy] [seed]
+ *
+ * @author afernandez
+ */
+public class SimulationEngine {
+    private static final int GAMES_PER_TASK = 256;
+    private static final int TOTAL_STONES = 2 * Board.PITS * Board.INITIAL_STONES;
+    private static final int MAX_MOVES = 10000;
+
+    private final ForkJoinPool pool;
+    private final GameService gameService;
+
+    /**
+     * @param pool The pool playing the games
+     */
+    public SimulationEngine(ForkJoinPool pool) {
+        this(pool, new GameService(new GameMetrics(), GameJournal.DISABLED));
+    }
+
+    /**
+     * @param pool The pool playing the games
+     * @param gameService The game service whose move logic plays the games
+     */
+    public SimulationEngine(ForkJoinPool pool, GameService gameService) {
+        this.pool = pool;
+        this.gameService = gameService;
+    }
+
+    /**
+     * Plays a batch of games, waiting for all of them to finish.
+     *
+     * @param games The games to play
+     * @param firstPlayer The policy of the first player
+     * @param secondPlayer The policy of the second player
+     * @param seed The seed of the batch
+     * @return The statistics of the games
+     */
+    public SimulationReport run(int games, MovePolicy firstPlayer, MovePolicy secondPlayer, long seed) {
+        if (games < 0) {
+            throw new IllegalArgumentException("Invalid amount of games: " + games);
+        }
+        final long start = System.nanoTime();
+        final SimulationReport report = pool.invoke(new Batch(0, games, firstPlayer, secondPlayer, seed));
+        report.setElapsed(System.nanoTime() - start);
+
+        return report;
+    }
+
+    private void play(int number, MovePolicy firstPlayer, MovePolicy secondPlayer, long seed,
+                      InputMessage move, SimulationReport report) {
+        final Game game = new Game(number + 1);
+        final Board board = game.getBoard();
+        final SplittableRandom random = new SplittableRandom(seed + number * 0x9E3779B97F4A7C15L);
+        int firstPlayerMoves = 0;
+        int secondPlayerMoves = 0;
+        int repeatTurns = 0;
+
+        game.start();
+
+        while (!gameService.isGameFinished(game)) {
+            final boolean first = game.isFirstPlayerTurn();
+            final long side = first ? board.getFirstPlayerSide() : board.getSecondPlayerSide();
+            final long opponentSide = first ? board.getSecondPlayerSide() : board.getFirstPlayerSide();
+            final int pit = first
+                    ? firstPlayer.choosePit(side, opponentSide, firstPlayerMoves++, random)
+                    : secondPlayer.choosePit(side, opponentSide, secondPlayerMoves++, random);
+
+            move.setPlayer(first ? MessageService.FIRST_PLAYER : MessageService.SECOND_PLAYER);
+            move.setPitSelected(pit);
+
+            if (gameService.moveStones(game, move)) {
+                repeatTurns++;
+            }
+            checkRules(game, number, firstPlayerMoves + secondPlayerMoves);
+        }
+        gameService.calculateWinner(game);
+
+        report.gameFinished(game.getState(), firstPlayerMoves + secondPlayerMoves, repeatTurns,
+                board.getFirstPlayerBigPit() - board.getSecondPlayerBigPit());
+    }
+
+    private static void checkRules(Game game, int number, int moves) {
+        final Board board = game.getBoard();
+        final int stones = Board.stonesInPits(board.getFirstPlayerSide())
+                + Board.stones(board.getFirstPlayerSide(), Board.BIG_PIT)
+                + Board.stonesInPits(board.getSecondPlayerSide())
+                + Board.stones(board.getSecondPlayerSide(), Board.BIG_PIT);
+
+        if (stones != TOTAL_STONES) {
+            throw new IllegalStateException("Game " + number + " has " + stones + " stones after move " + moves);
+        }
+        if (moves > MAX_MOVES) {
+            throw new IllegalStateException("Game " + number + " still going after " + moves + " moves");
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: SimulationEngine games [first player policy] [second player policy] [seed]");
+            System.exit(1);
+        }
+        final int games = Integer.parseInt(args[0]);
+        final MovePolicy firstPlayer = MovePolicy.parse(args.length > 1 ? args[1] : "random");
+        final MovePolicy secondPlayer = MovePolicy.parse(args.length > 2 ? args[2] : "random");
+        final long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+        System.out.println(new SimulationEngine(ForkJoinPool.commonPool()).run(games, firstPlayer, secondPlayer, seed));
+    }
+
+    private class Batch extends RecursiveTask<SimulationReport> {
+        private final int from;
+        private final int to;
+        private final MovePolicy firstPlayer;
+        private final MovePolicy secondPlayer;
+        private final long seed;
+
+        Batch(int from, int to, MovePolicy firstPlayer, MovePolicy secondPlayer, long seed) {
+            this.from = from;
+            this.to = to;
+            this.firstPlayer = firstPlayer;
+            this.secondPlayer = secondPlayer;
+            this.seed = seed;
+        }
+
+        @Override
+        protected SimulationReport compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                final SimulationReport report = new SimulationReport();
+                final InputMessage move = new InputMessage();
+
+                for (int number = from; number < to; number++) {
+                    play(number, firstPlayer, secondPlayer, seed, move, report);
+                }
+                return report;
+            }
+            final int middle = (from + to) >>> 1;
+            final Batch left = new Batch(from, middle, firstPlayer, secondPlayer, seed);
+            left.fork();
+
+            final SimulationReport right = new Batch(middle, to, firstPlayer, secondPlayer, seed).compute();
+            return left.join().merge(right);
+        }
+    }
+}
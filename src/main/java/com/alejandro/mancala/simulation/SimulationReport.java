@@ -0,0 +1,128 @@
+package com.alejandro.mancala.simulation;
+
+import com.alejandro.mancala.game.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome statistics of a batch of simulated games. Every batch task fills a report of its own and the reports are
+ * merged as the tasks complete.
+ *
+ * @author afernandez
+ */
+public class SimulationReport {
+    private long games;
+    private long firstPlayerWins;
+    private long secondPlayerWins;
+    private long draws;
+    private long moves;
+    private long repeatTurns;
+    private int shortestGame = Integer.MAX_VALUE;
+    private int longestGame;
+    private long stonesMargin;
+    private long elapsed;
+
+    void gameFinished(State outcome, int gameMoves, int gameRepeatTurns, int margin) {
+        games++;
+        moves += gameMoves;
+        repeatTurns += gameRepeatTurns;
+        shortestGame = Math.min(shortestGame, gameMoves);
+        longestGame = Math.max(longestGame, gameMoves);
+        stonesMargin += margin;
+
+        if (outcome == State.WINNER_FIRST_PLAYER) {
+            firstPlayerWins++;
+        } else if (outcome == State.WINNER_SECOND_PLAYER) {
+            secondPlayerWins++;
+        } else {
+            draws++;
+        }
+    }
+
+    SimulationReport merge(SimulationReport other) {
+        games += other.games;
+        firstPlayerWins += other.firstPlayerWins;
+        secondPlayerWins += other.secondPlayerWins;
+        draws += other.draws;
+        moves += other.moves;
+        repeatTurns += other.repeatTurns;
+        shortestGame = Math.min(shortestGame, other.shortestGame);
+        longestGame = Math.max(longestGame, other.longestGame);
+        stonesMargin += other.stonesMargin;
+
+        return this;
+    }
+
+    void setElapsed(long elapsed) {
+        this.elapsed = elapsed;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getFirstPlayerWins() {
+        return firstPlayerWins;
+    }
+
+    public long getSecondPlayerWins() {
+        return secondPlayerWins;
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return The moves ending in the big pit of the player, who got an additional turn
+     */
+    public long getRepeatTurns() {
+        return repeatTurns;
+    }
+
+    /**
+     * @return The moves of the shortest game, 0 if no game was played
+     */
+    public int getShortestGame() {
+        return games == 0 ? 0 : shortestGame;
+    }
+
+    public int getLongestGame() {
+        return longestGame;
+    }
+
+    /**
+     * @return The average stones the first player finished ahead of the second, negative if behind
+     */
+    public double getAverageMargin() {
+        return games == 0 ? 0 : (double) stonesMargin / games;
+    }
+
+    public double getAverageMoves() {
+        return games == 0 ? 0 : (double) moves / games;
+    }
+
+    /**
+     * @return The elapsed time in nanoseconds
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    public double getGamesPerSecond() {
+        return elapsed == 0 ? 0 : games * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games in %d ms, %.0f games/s: first player won %d, second player won %d, %d draws. "
+                        + "%.1f moves per game (%d to %d), %.1f%% additional turns, first player margin %.2f stones",
+                games, TimeUnit.NANOSECONDS.toMillis(elapsed), getGamesPerSecond(), firstPlayerWins, secondPlayerWins,
+                draws, getAverageMoves(), getShortestGame(), longestGame,
+                moves == 0 ? 0 : 100.0 * repeatTurns / moves, getAverageMargin());
+    }
+}
@@ -0,0 +1,101 @@
+package com.alejandro.mancala.spectator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Session of a spectator, holding only the latest frame not handed to the send pipeline yet. A spectator the fan-out
+ * gets ahead of skips the updates replaced in the meantime instead of queuing them. The session sends through the
+ * send pipeline, so handing a frame over never blocks the spectator service's threads, and a spectator falling behind
+ * is handled and closed by the pipeline's threads like a slow player.
+ *
+ * @author afernandez
+ */
+final class Spectator {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final WebSocketSession session;
+    private final SpectatorService service;
+    private final AtomicReference<SpectatorGroup.Frame> slot = new AtomicReference<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private volatile long sentSequence = -1;
+    private volatile boolean closed;
+
+    /**
+     * @param session The session of the spectator, opened by the send pipeline
+     * @param service The service streaming to the spectator
+     */
+    Spectator(WebSocketSession session, SpectatorService service) {
+        this.session = session;
+        this.service = service;
+    }
+
+    /**
+     * Puts a frame in the slot, replacing the one not sent yet, unless the spectator already got a later one. Never
+     * blocks the caller.
+     *
+     * @param frame The frame
+     */
+    void offer(SpectatorGroup.Frame frame) {
+        if (closed || frame.sequence <= sentSequence) {
+            return;
+        }
+        SpectatorGroup.Frame previous;
+        do {
+            previous = slot.get();
+
+            if (previous != null && previous.sequence >= frame.sequence) {
+                return;
+            }
+        } while (!slot.compareAndSet(previous, frame));
+
+        if (previous != null) {
+            service.frameSkipped();
+        }
+        flush();
+    }
+
+    void close() {
+        closed = true;
+        slot.set(null);
+        service.release(session);
+    }
+
+    private void flush() {
+        if (slot.get() != null && flushing.compareAndSet(false, true)) {
+            service.execute(() -> {
+                try {
+                    drain();
+                } finally {
+                    flushing.set(false);
+                }
+                // A frame offered right before the flag is cleared is picked up by flushing again
+                flush();
+            });
+        }
+    }
+
+    private void drain() {
+        SpectatorGroup.Frame frame;
+
+        while (!closed && (frame = slot.getAndSet(null)) != null) {
+            // The first frame of a spectator may come after the ones fanned out since it joined
+            if (frame.sequence <= sentSequence) {
+                continue;
+            }
+            sentSequence = frame.sequence;
+            try {
+                session.sendMessage(frame.message);
+            } catch (IOException | RuntimeException ex) {
+                logger.debug("Error sending frame to spectator {}", session.getId(), ex);
+                service.unwatch(session.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.alejandro.mancala.spectator;
+
+import com.alejandro.mancala.game.Board;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Spectators watching a game. Updates are published from the game's mailbox, which only copies the board and hands it
+ * over, and fanned out by the spectator service's threads: one fan-out at a time per game, encoding every update once
+ * and offering the same frame to every spectator. An update published while the previous one is still waiting to be
+ * fanned out replaces it.
+ *
+ * @author afernandez
+ */
+public final class SpectatorGroup {
+    private final SpectatorService service;
+    private final Map<String, Spectator> spectators = new ConcurrentHashMap<>();
+    private final AtomicReference<Update> pending = new AtomicReference<>();
+    private final AtomicBoolean fanningOut = new AtomicBoolean();
+
+    // Updates published so far, only touched from the game's mailbox
+    private long sequence;
+    private volatile Frame latest;
+
+    SpectatorGroup(SpectatorService service) {
+        this.service = service;
+    }
+
+    /**
+     * @return The spectators watching the game
+     */
+    public int size() {
+        return spectators.size();
+    }
+
+    // Called from the game's mailbox, the spectator gets the board as it is right now before any later update
+    void add(String sessionId, Spectator spectator, Board board, String status) {
+        spectators.put(sessionId, spectator);
+
+        final Frame frame = latest;
+        if (frame != null && frame.sequence == sequence) {
+            spectator.offer(frame);
+        } else {
+            final Update update = new Update(board, status, sequence);
+            service.execute(() -> spectator.offer(encode(update)));
+        }
+    }
+
+    void remove(String sessionId) {
+        spectators.remove(sessionId);
+    }
+
+    // Called from the game's mailbox, the board is only copied if somebody is watching
+    void publish(Board board, String status) {
+        sequence++;
+
+        if (spectators.isEmpty()) {
+            return;
+        }
+        pending.set(new Update(board, status, sequence));
+
+        if (fanningOut.compareAndSet(false, true)) {
+            service.execute(this::fanOut);
+        }
+    }
+
+    private void fanOut() {
+        try {
+            Update update;
+            while ((update = pending.getAndSet(null)) != null) {
+                final Frame frame = encode(update);
+                latest = frame;
+
+                for (Spectator spectator : spectators.values()) {
+                    spectator.offer(frame);
+                }
+            }
+        } finally {
+            fanningOut.set(false);
+        }
+        // An update published right before the flag is cleared is picked up by fanning out again
+        if (pending.get() != null && fanningOut.compareAndSet(false, true)) {
+            service.execute(this::fanOut);
+        }
+    }
+
+    private Frame encode(Update update) {
+        return new Frame(service.encode(update.board, update.status), update.sequence);
+    }
+
+    /**
+     * Frame of an update, numbered so that a spectator never goes back to an older update.
+     */
+    static final class Frame {
+        final TextMessage message;
+        final long sequence;
+
+        Frame(TextMessage message, long sequence) {
+            this.message = message;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Copy of the board taken in the game's mailbox, along with the status shown to the spectators.
+     */
+    private static final class Update {
+        final Board board = new Board();
+        final String status;
+        final long sequence;
+
+        Update(Board board, String status, long sequence) {
+            this.board.restore(board.getFirstPlayerSide(), board.getSecondPlayerSide(), board.getVersion());
+            this.status = status;
+            this.sequence = sequence;
+        }
+    }
+}
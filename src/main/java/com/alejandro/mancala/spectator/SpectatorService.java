@@ -0,0 +1,203 @@
+package com.alejandro.mancala.spectator;
+
+import com.alejandro.mancala.game.Board;
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.message.BoardFrameEncoder;
+import com.alejandro.mancala.message.SendPipeline;
+import com.alejandro.mancala.message.SlowConsumerPolicy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spectator service streams the games to the sessions watching them. Spectators get a full snapshot of the board
+ * with every update, along with a status telling whose turn it is or how the game ended, so that skipping updates
+ * never leaves them with a wrong board. Spectators are sent JSON text frames only.
+ *
+ * Watching a game and publishing its updates is done from the game's mailbox, and costs nothing for games nobody is
+ * watching. Encoding the frames happens in the service's threads, so the number of spectators doesn't add to the
+ * time a move takes, and sending them in the threads of the send pipeline, which applies its limits to the spectators
+ * as it does to the players.
+ *
+ * @author afernandez
+ */
+public class SpectatorService {
+    private static final int DEFAULT_BUFFER_SIZE_LIMIT = 65536;
+    private static final int DEFAULT_SEND_TIME_LIMIT  = 5000;
+
+    private static final String WAITING            = "Waiting for an opponent";
+    private static final String FIRST_PLAYER_TURN  = "First Player's turn";
+    private static final String SECOND_PLAYER_TURN = "Second Player's turn";
+    private static final String FIRST_PLAYER_WON   = "First Player won the game";
+    private static final String SECOND_PLAYER_WON  = "Second Player won the game";
+    private static final String GAME_DRAW          = "The game ended in draw";
+    private static final String GAME_ABANDONED     = "A player left the game";
+
+    private final Map<String, Watch> spectators = new ConcurrentHashMap<>();
+    private final BoardFrameEncoder boardEncoder = new BoardFrameEncoder(new ObjectMapper().getFactory());
+    private final ExecutorService executor;
+    private final SendPipeline sendPipeline;
+
+    private final LongAdder skippedFrames = new LongAdder();
+
+    public SpectatorService() {
+        this(Executors.newSingleThreadExecutor());
+    }
+
+    // Encodes and sends on the same thread, so shutting the service down stops both
+    private SpectatorService(ExecutorService executor) {
+        this(executor, new SendPipeline(executor, DEFAULT_BUFFER_SIZE_LIMIT, DEFAULT_SEND_TIME_LIMIT,
+                SlowConsumerPolicy.COALESCE));
+    }
+
+    /**
+     * @param executor The threads encoding the frames and handing them to the send pipeline
+     * @param sendPipeline The pipeline the frames of the spectators go through
+     */
+    public SpectatorService(ExecutorService executor, SendPipeline sendPipeline) {
+        this.executor = executor;
+        this.sendPipeline = sendPipeline;
+    }
+
+    /**
+     * Starts streaming a game to a spectator, beginning with the board as it is now. Must be called from the game's
+     * mailbox.
+     *
+     * @param game The game
+     * @param session The session of the spectator
+     */
+    public void watch(Game game, WebSocketSession session) {
+        // The spectator may have left before its turn in the mailbox came
+        if (!session.isOpen()) {
+            return;
+        }
+        SpectatorGroup group = game.getSpectators();
+
+        if (group == null) {
+            group = new SpectatorGroup(this);
+            game.setSpectators(group);
+        }
+        final Spectator spectator = new Spectator(sendPipeline.open(session), this);
+        spectators.put(session.getId(), new Watch(group, spectator));
+
+        // Closed in the meantime, unwatch may have run before the spectator was there to be removed
+        if (!session.isOpen()) {
+            unwatch(session.getId());
+            return;
+        }
+        group.add(session.getId(), spectator, game.getBoard(), status(game));
+    }
+
+    /**
+     * Stops streaming to a spectator whose connection was closed.
+     *
+     * @param sessionId The ID of the session of the spectator
+     */
+    public void unwatch(String sessionId) {
+        final Watch watch = spectators.remove(sessionId);
+
+        if (watch != null) {
+            watch.spectator.close();
+            watch.group.remove(sessionId);
+        }
+    }
+
+    /**
+     * Streams the current board and status of a game to its spectators. Must be called from the game's mailbox.
+     *
+     * @param game The game
+     */
+    public void gameUpdated(Game game) {
+        publish(game, status(game));
+    }
+
+    /**
+     * Lets the spectators of a game know that a player left it. Must be called from the game's mailbox.
+     *
+     * @param game The game
+     */
+    public void gameAbandoned(Game game) {
+        publish(game, GAME_ABANDONED);
+    }
+
+    /**
+     * @return The spectators watching any game
+     */
+    public int getSpectators() {
+        return spectators.size();
+    }
+
+    /**
+     * @return The updates spectators skipped because they were still sending a previous one
+     */
+    public long getSkippedFrames() {
+        return skippedFrames.sum();
+    }
+
+    /**
+     * Stops the threads sending to the spectators, called by Spring when the context is closed.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    TextMessage encode(Board board, String status) {
+        return boardEncoder.encode(board, status);
+    }
+
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    void frameSkipped() {
+        skippedFrames.increment();
+    }
+
+    void release(WebSocketSession session) {
+        sendPipeline.release(session);
+    }
+
+    private void publish(Game game, String status) {
+        final SpectatorGroup group = game.getSpectators();
+
+        if (group != null) {
+            group.publish(game.getBoard(), status);
+        }
+    }
+
+    private static String status(Game game) {
+        switch (game.getState()) {
+            case PENDING:
+                return WAITING;
+            case STARTED:
+                return game.isFirstPlayerTurn() ? FIRST_PLAYER_TURN : SECOND_PLAYER_TURN;
+            case WINNER_FIRST_PLAYER:
+                return FIRST_PLAYER_WON;
+            case WINNER_SECOND_PLAYER:
+                return SECOND_PLAYER_WON;
+            case GAME_DRAW:
+                return GAME_DRAW;
+            default:
+                return GAME_ABANDONED;
+        }
+    }
+
+    /**
+     * A spectator along with the group of the game it watches.
+     */
+    private static final class Watch {
+        final SpectatorGroup group;
+        final Spectator spectator;
+
+        Watch(SpectatorGroup group, Spectator spectator) {
+            this.group = group;
+            this.spectator = spectator;
+        }
+    }
+}
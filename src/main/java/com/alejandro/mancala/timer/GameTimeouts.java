@@ -0,0 +1,129 @@
+package com.alejandro.mancala.timer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timeouts of the games and their players, all scheduled in a single HashedWheelTimer. A timeout of zero is never
+ * scheduled.
+ *
+ * The deadlines of the games are handed to the expiry executor when they expire, so the timer thread never plays a
+ * game and a slow one doesn't hold up the timeouts behind it. Pings only queue a frame, so they run on the timer.
+ *
+ * @author afernandez
+ */
+public class GameTimeouts {
+    public static final GameTimeouts DISABLED = new GameTimeouts(null, Runnable::run, 0, TurnTimeoutAction.FORFEIT, 0,
+            0, 0);
+
+    private final HashedWheelTimer timer;
+    private final Executor expiries;
+    private final long turnTimeout;
+    private final TurnTimeoutAction turnTimeoutAction;
+    private final long pendingTimeout;
+    private final long pingInterval;
+    private final long botWait;
+
+    /**
+     * @param timer The timer
+     * @param expiries The executor running the deadlines expired
+     * @param turnTimeout The time in milliseconds a player has for every move
+     * @param turnTimeoutAction What to do when a player runs out of time
+     * @param pendingTimeout The time in milliseconds a game waits for an opponent
+     * @param pingInterval The time in milliseconds between pings to every session, a session that doesn't answer
+     *                     a ping before the next one is dead
+     * @param botWait The time in milliseconds a game waits for an opponent before a bot takes the place
+     */
+    public GameTimeouts(HashedWheelTimer timer, Executor expiries, long turnTimeout,
+                        TurnTimeoutAction turnTimeoutAction, long pendingTimeout, long pingInterval, long botWait) {
+        if (turnTimeout < 0 || pendingTimeout < 0 || pingInterval < 0 || botWait < 0) {
+            throw new IllegalArgumentException("Timeouts can't be negative");
+        }
+        this.timer = timer;
+        this.expiries = expiries;
+        this.turnTimeout = turnTimeout;
+        this.turnTimeoutAction = turnTimeoutAction;
+        this.pendingTimeout = pendingTimeout;
+        this.pingInterval = pingInterval;
+        this.botWait = botWait;
+    }
+
+    /**
+     * Schedules the end of the time for the next move.
+     *
+     * @param task The task to run when the time is up
+     * @return The timeout, NULL if turns aren't timed
+     */
+    public Timeout turnDeadline(Runnable task) {
+        return schedule(() -> expiries.execute(task), turnTimeout);
+    }
+
+    /**
+     * Schedules the end of the wait for an opponent.
+     *
+     * @param task The task to run when the wait is over
+     * @return The timeout, NULL if games wait forever
+     */
+    public Timeout pendingDeadline(Runnable task) {
+        return schedule(() -> expiries.execute(task), pendingTimeout);
+    }
+
+    /**
+     * Schedules the end of the wait for an opponent before a bot is called in.
+     *
+     * @param task The task to run when the wait is over
+     * @return The timeout, NULL if bots never play
+     */
+    public Timeout botDeadline(Runnable task) {
+        return schedule(() -> expiries.execute(task), botWait);
+    }
+
+    /**
+     * Schedules the next ping of a session.
+     *
+     * @param task The task checking the previous ping was answered and sending the next one
+     * @return The timeout, NULL if sessions aren't pinged
+     */
+    public Timeout nextPing(Runnable task) {
+        return schedule(task, pingInterval);
+    }
+
+    /**
+     * Runs a timeout expired somewhere else, like the grace period of a player, on the expiry executor.
+     *
+     * @param task The task to run
+     */
+    public void expire(Runnable task) {
+        expiries.execute(task);
+    }
+
+    public TurnTimeoutAction getTurnTimeoutAction() {
+        return turnTimeoutAction;
+    }
+
+    /**
+     * Cancels a timeout.
+     *
+     * @param timeout The timeout, may be NULL
+     */
+    public static void cancel(Timeout timeout) {
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * Stops the expiry executor, if it is an executor service, called by Spring when the context is closed. The
+     * timer is stopped on its own.
+     */
+    public void shutdown() {
+        if (expiries instanceof ExecutorService) {
+            ((ExecutorService) expiries).shutdownNow();
+        }
+    }
+
+    private Timeout schedule(Runnable task, long delay) {
+        return delay == 0 ? null : timer.newTimeout(task, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,229 @@
+package com.alejandro.mancala.timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timer for large numbers of coarse timeouts, such as the turn clocks of every game, run by a single thread.
+ *
+ * Timeouts are hashed into a wheel of buckets by their deadline, each bucket holding a doubly linked list. The wheel
+ * advances one bucket every tick and expires the timeouts of the current bucket whose round has come. Scheduling
+ * and cancelling only enqueue the timeout for the worker thread, so both are O(1) and never contend on the wheel,
+ * and the deadlines are as precise as the tick duration.
+ *
+ * Tasks run on the worker thread and must be short, handing any real work over to some other thread.
+ *
+ * @author afernandez
+ */
+public class HashedWheelTimer {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    private final long tickDuration;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final LongAdder pendingTimeouts = new LongAdder();
+    private final long startTime;
+    private final Thread worker;
+
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * @param tickDuration The time in milliseconds the wheel takes to advance one bucket
+     * @param ticksPerWheel The number of buckets, rounded up to a power of two
+     */
+    public HashedWheelTimer(long tickDuration, int ticksPerWheel) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("Tick duration and ticks per wheel must be positive");
+        }
+        final int buckets = ticksPerWheel <= 1 ? 1 : Integer.highestOneBit(ticksPerWheel - 1) << 1;
+
+        this.tickDuration = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+        this.wheel = new Bucket[buckets];
+        this.mask = buckets - 1;
+
+        for (int i = 0; i < buckets; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, "game-timer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     *
+     * @param task The task
+     * @param delay The delay
+     * @param unit The unit of the delay
+     * @return The timeout, to cancel the task
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timer already stopped");
+        }
+        final Timeout timeout = new Timeout(this, task, System.nanoTime() - startTime + unit.toNanos(delay));
+
+        pendingTimeouts.increment();
+        scheduled.add(timeout);
+
+        return timeout;
+    }
+
+    /**
+     * @return The timeouts neither expired nor cancelled yet
+     */
+    public long getPendingTimeouts() {
+        return pendingTimeouts.sum();
+    }
+
+    /**
+     * Stops the worker thread, dropping the timeouts pending, called by Spring when the context is closed.
+     */
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+    }
+
+    void cancelled(Timeout timeout) {
+        pendingTimeouts.decrement();
+        cancelled.add(timeout);
+    }
+
+    private void run() {
+        while (running) {
+            final long deadline = waitForNextTick();
+
+            if (deadline < 0) {
+                continue;
+            }
+            removeCancelled();
+            transferScheduled();
+            expire(wheel[(int) (tick & mask)], deadline);
+            tick++;
+        }
+    }
+
+    /**
+     * @return The time elapsed since the timer was started, or -1 if the thread was interrupted
+     */
+    private long waitForNextTick() {
+        final long deadline = tickDuration * (tick + 1);
+
+        while (true) {
+            final long elapsed = System.nanoTime() - startTime;
+            final long sleep = deadline - elapsed;
+
+            if (sleep <= 0) {
+                return elapsed;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            } catch (InterruptedException ex) {
+                return -1;
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferScheduled() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            final Timeout timeout = scheduled.poll();
+
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            final long expiryTick = timeout.deadline / tickDuration;
+            timeout.remainingRounds = (expiryTick - tick) / wheel.length;
+
+            // A deadline already gone by expires in the current tick
+            wheel[(int) (Math.max(expiryTick, tick) & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Bucket bucket, long deadline) {
+        Timeout timeout = bucket.head;
+
+        while (timeout != null) {
+            final Timeout next = timeout.next;
+
+            if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                bucket.remove(timeout);
+
+                if (timeout.expire()) {
+                    pendingTimeouts.decrement();
+                    run(timeout);
+                }
+            } else if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    private void run(Timeout timeout) {
+        try {
+            timeout.task.run();
+        } catch (RuntimeException ex) {
+            logger.error("Error running timeout task", ex);
+        }
+    }
+
+    /**
+     * Timeouts of a bucket, only touched by the worker thread.
+     */
+    static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
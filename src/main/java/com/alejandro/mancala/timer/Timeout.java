@@ -0,0 +1,61 @@
+package com.alejandro.mancala.timer;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Task scheduled in a HashedWheelTimer, either still pending, expired or cancelled.
+ *
+ * @author afernandez
+ */
+public final class Timeout {
+    private static final int PENDING   = 0;
+    private static final int EXPIRED   = 1;
+    private static final int CANCELLED = 2;
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private final HashedWheelTimer timer;
+    final Runnable task;
+    final long deadline;
+
+    private volatile int state = PENDING;
+
+    // Owned by the worker thread of the timer
+    long remainingRounds;
+    HashedWheelTimer.Bucket bucket;
+    Timeout prev;
+    Timeout next;
+
+    Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+        this.timer = timer;
+        this.task = task;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Cancels the task unless it has already run.
+     *
+     * @return True if the task has been cancelled by this call, false otherwise
+     */
+    public boolean cancel() {
+        if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+            return false;
+        }
+        timer.cancelled(this);
+
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    public boolean isExpired() {
+        return state == EXPIRED;
+    }
+
+    boolean expire() {
+        return STATE.compareAndSet(this, PENDING, EXPIRED);
+    }
+}
@@ -0,0 +1,17 @@
+package com.alejandro.mancala.timer;
+
+/**
+ * What to do when a player runs out of time for a move.
+ *
+ * @author afernandez
+ */
+public enum TurnTimeoutAction {
+    /**
+     * Moves the first pit of the player holding stones.
+     */
+    AUTO_MOVE,
+    /**
+     * Ends the game, the opponent winning it.
+     */
+    FORFEIT
+}
@@ -1,42 +1,76 @@
 app.factory('gameService', function($rootScope) {
-    var FIRST_PLAYER = 'First Player';
-    var service      = {};
+    var FIRST_PLAYER   = 'First Player';
+    var SIDE_PITS      = 7;
+    var BIG_PIT        = 6;
+    var INITIAL_STONES = [6, 6, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0];
+    var service        = {};
 
+    // Stones of every pit as the server indexes them: first player's pits and big pit, then the second player's
+    var stones  = INITIAL_STONES.slice();
+    var version = 0;
+
+    service.resetBoard = resetBoard;
     service.updateBoard = updateBoard;
 
     return service;
 
-    function updateBoard(msg) {
-        var pitsOne = document.getElementsByClassName("row player-one")[0].children;
-        var firstPlayerBigPit = document.getElementsByClassName("player-one store")[0];
+    function resetBoard() {
+        stones = INITIAL_STONES.slice();
+        version = 0;
+        render(allPits());
+    }
 
-        var pitsTwo = document.getElementsByClassName("row player-two")[0].children;
-        var secondPlayerBigPit = document.getElementsByClassName("player-two store")[0];
+    /**
+     * Applies a board update, either a full snapshot or the changes of the next version. Returns false if some
+     * version was missed, in which case the board needs a snapshot to be in sync again.
+     */
+    function updateBoard(msg) {
+        if (msg.changes) {
+            if (msg.version !== version + 1) {
+                return false;
+            }
+            var changed = [];
 
-        if ($rootScope.player == FIRST_PLAYER) {
-            updateBoardFirstPlayer(pitsOne, pitsTwo, firstPlayerBigPit, secondPlayerBigPit, msg);
+            for (var i = 0; i < msg.changes.length; i += 2) {
+                stones[msg.changes[i]] = msg.changes[i + 1];
+                changed.push(msg.changes[i]);
+            }
+            version = msg.version;
+            render(changed);
         } else {
-            updateBoardSecondPlayer(pitsOne, pitsTwo, firstPlayerBigPit, secondPlayerBigPit, msg);
+            stones = msg.pitsFirstPlayer.concat([msg.firstPlayerBigPit], msg.pitsSecondPlayer, [msg.secondPlayerBigPit]);
+            version = msg.version;
+            render(allPits());
         }
+        return true;
     }
 
-    function updateBoardFirstPlayer(pitsOne, pitsTwo, firstPlayerBigPit, secondPlayerBigPit, msg) {
-        firstPlayerBigPit.textContent = msg.firstPlayerBigPit;
-        secondPlayerBigPit.textContent = msg.secondPlayerBigPit;
+    function render(pits) {
+        for (var i = 0; i < pits.length; i++) {
+            element(pits[i]).textContent = stones[pits[i]];
+        }
+    }
 
-        for (var i = 0; i < 6; i++) {
-            pitsOne[i].textContent = msg.pitsFirstPlayer[i];
-            pitsTwo[i].textContent = msg.pitsSecondPlayer[5-i];
+    // Each player sees its own side in the bottom row, the opponent's pits are shown in reverse order on top
+    function element(index) {
+        var ownSide = ($rootScope.player == FIRST_PLAYER) === (index < SIDE_PITS);
+        var pit = index % SIDE_PITS;
+
+        if (pit === BIG_PIT) {
+            return document.getElementsByClassName(ownSide ? "player-one store" : "player-two store")[0];
+        }
+        if (ownSide) {
+            return document.getElementsByClassName("row player-one")[0].children[pit];
         }
+        return document.getElementsByClassName("row player-two")[0].children[5 - pit];
     }
 
-    function updateBoardSecondPlayer(pitsOne, pitsTwo, firstPlayerBigPit, secondPlayerBigPit, msg) {
-        secondPlayerBigPit.textContent = msg.firstPlayerBigPit;
-        firstPlayerBigPit.textContent = msg.secondPlayerBigPit;
+    function allPits() {
+        var pits = [];
 
-        for (var i = 0; i < 6; i++) {
-            pitsTwo[i].textContent = msg.pitsFirstPlayer[5-i];
-            pitsOne[i].textContent = msg.pitsSecondPlayer[i];
+        for (var i = 0; i < 2 * SIDE_PITS; i++) {
+            pits.push(i);
         }
+        return pits;
     }
-});
\ No newline at end of file
+});
@@ -3,8 +3,12 @@ var app = angular
     .run(run);
 
 function run($rootScope, gameService) {
-    var DOMAIN         = 'localhost:9000';
-    var WEBSOCKET_PATH = 'ws://' + DOMAIN + '/mancala';
+    var DOMAIN          = 'localhost:9000';
+    var WEBSOCKET_PATH  = 'ws://' + DOMAIN + '/mancala';
+    var BINARY_PROTOCOL = 'mancala.binary.v1';
+    var RESUME_KEY      = 'mancala.resumeToken';
+    var RECONNECT_DELAY = 1000;
+    var RECONNECT_TRIES = 10;
 
     // Game states
     var YOUR_TURN     = 'Your turn!';
@@ -12,26 +16,117 @@ function run($rootScope, gameService) {
     var OPPONENT_LEFT = 'Your opponent left the game.';
     var WAITING       = 'Looking for an opponent...';
 
-    // Connect with server
-    var socket = new WebSocket(WEBSOCKET_PATH);
+    // Binary protocol, statuses are sent as their index in this list (same order as in MessageService)
+    var STATUSES = [
+        'Wait for your turn!',
+        'Your turn!',
+        'You have got an additional turn!',
+        'You have won the game! Congratulations!',
+        'You have lost the game. Try it next time again!',
+        'The game ended in draw. Try it again next time!',
+        'Your opponent left the game. Please refresh the browser to start again!'
+    ];
+    var PLAYERS      = ['First Player', 'Second Player'];
+    var FINAL_STATUSES = STATUSES.slice(3);
+    var NO_STATUS    = 0xFF;
+    var FRAME_MOVE   = 1;
+    var FRAME_TURN   = 2;
+    var FRAME_BOARD  = 3;
+    var FRAME_DELTA  = 4;
+    var FRAME_RESYNC = 5;
+    var FRAME_TOKEN  = 6;
+    var HEADER       = 6;
 
     // Scope variables
     $rootScope.sowStones = sowStones;
     $rootScope.playerStatus = WAITING;
 
-    socket.onmessage = function(event) {
-        event instanceof MessageEvent;
-        var msg = JSON.parse(event.data);
+    // Connect with server, falling back to JSON if the binary protocol can't be negotiated. Moves are always sent
+    // on the latest connection
+    var socket;
+    connect(true, 0);
+
+    // A game in progress is resumed with its token if the connection drops, or if the page is reloaded
+    function connect(useBinary, tries) {
+        var token = sessionStorage.getItem(RESUME_KEY);
+        var path = token ? WEBSOCKET_PATH + '?resume=' + token : WEBSOCKET_PATH;
+        var ws = useBinary ? new WebSocket(path, [BINARY_PROTOCOL]) : new WebSocket(path);
+        var opened = false;
+
+        ws.binaryType = 'arraybuffer';
+        ws.onopen = function() {
+            opened = true;
+        };
+        ws.onclose = function() {
+            if (useBinary && !opened && tries === 0) {
+                connect(false, 0);
+            } else if (sessionStorage.getItem(RESUME_KEY) && tries < RECONNECT_TRIES) {
+                setTimeout(function() {
+                    connect(useBinary, opened ? 1 : tries + 1);
+                }, RECONNECT_DELAY);
+            }
+        };
+        ws.onmessage = onMessage;
+
+        socket = ws;
+    }
+
+    function onMessage(event) {
+        var msg = event.data instanceof ArrayBuffer ? decodeFrame(event.data) : JSON.parse(event.data);
+
+        if (msg.resumeToken) {
+            sessionStorage.setItem(RESUME_KEY, msg.resumeToken);
+            return;
+        }
+        if (FINAL_STATUSES.indexOf(msg.turnMessage) >= 0) {
+            sessionStorage.removeItem(RESUME_KEY);
+        }
 
         if (msg.player !== null) {
             $rootScope.player = msg.player;
-        } else if (!msg.turnMessage.includes(OPPONENT_LEFT)) {
-            gameService.updateBoard(msg);
+            gameService.resetBoard();
+        } else if (msg.turnMessage === null || !msg.turnMessage.includes(OPPONENT_LEFT)) {
+            // A missed update leaves the board out of sync, so ask for a snapshot
+            if (!gameService.updateBoard(msg)) {
+                sendResync(socket);
+            }
         }
 
-        $rootScope.playerStatus = msg.turnMessage;
+        if (msg.turnMessage !== null) {
+            $rootScope.playerStatus = msg.turnMessage;
+        }
         $rootScope.$apply();
-    };
+    }
+
+    function decodeFrame(buffer) {
+        var bytes = new Uint8Array(buffer);
+        var view = new DataView(buffer);
+
+        if (bytes[0] === FRAME_TOKEN) {
+            return {resumeToken : Array.prototype.map.call(bytes.subarray(1), function(value) {
+                return (value < 16 ? '0' : '') + value.toString(16);
+            }).join('')};
+        }
+        var msg = {turnMessage : bytes[1] === NO_STATUS ? null : STATUSES[bytes[1]], player : null};
+
+        if (bytes[0] === FRAME_TURN && bytes[2] < PLAYERS.length) {
+            msg.player = PLAYERS[bytes[2]];
+        } else if (bytes[0] === FRAME_BOARD) {
+            msg.version = view.getInt32(2);
+            msg.pitsFirstPlayer = Array.prototype.slice.call(bytes, HEADER, HEADER + 6);
+            msg.firstPlayerBigPit = bytes[HEADER + 6];
+            msg.pitsSecondPlayer = Array.prototype.slice.call(bytes, HEADER + 7, HEADER + 13);
+            msg.secondPlayerBigPit = bytes[HEADER + 13];
+        } else if (bytes[0] === FRAME_DELTA) {
+            msg.version = view.getInt32(2);
+            msg.changes = Array.prototype.slice.call(bytes, HEADER + 1, HEADER + 1 + 2 * bytes[HEADER]);
+        }
+        return msg;
+    }
+
+    function encodeMove(data) {
+        return new Uint8Array([FRAME_MOVE, PLAYERS.indexOf(data.player), data.pitSelected]).buffer;
+    }
 
     function sowStones(pitSelected) {
         var pitsOne = document.getElementsByClassName("row player-one")[0].children;
@@ -44,11 +139,18 @@ function run($rootScope, gameService) {
         }
     }
 
+    function sendResync(socket) {
+        if (socket.readyState === WebSocket.OPEN) {
+            socket.send(socket.protocol === BINARY_PROTOCOL
+                ? new Uint8Array([FRAME_RESYNC]).buffer : JSON.stringify({resync : true}));
+        }
+    }
+
     function sendMessage(socket, data) {
         if (socket.readyState === WebSocket.OPEN) {
-            socket.send(JSON.stringify(data));
+            socket.send(socket.protocol === BINARY_PROTOCOL ? encodeMove(data) : JSON.stringify(data));
             return true;
         }
         return false;
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,8 @@ package com.alejandro.mancala;
 import com.alejandro.mancala.game.GameService;
 import com.alejandro.mancala.message.InputMessage;
 import com.alejandro.mancala.message.MessageService;
+import com.alejandro.mancala.message.SendPipeline;
+import com.alejandro.mancala.message.SlowConsumerPolicy;
 import com.alejandro.mancala.player.PlayerService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
@@ -16,6 +18,7 @@ import javax.websocket.*;
 import java.io.IOException;
 import java.net.URI;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Mockito.timeout;
@@ -46,7 +49,8 @@ public class GameHandlerIT {
 
     @Before
     public void setUp() throws Exception {
-        new GameHandler(new PlayerService(), new GameService(), new MessageService());
+        new GameHandler(new PlayerService(new SendPipeline(Executors.newSingleThreadExecutor(), 65536, 5000,
+                SlowConsumerPolicy.COALESCE)), new GameService(), new MessageService());
 
         container = ContainerProvider.getWebSocketContainer();
         clientOne = new TestWebSocketClient();
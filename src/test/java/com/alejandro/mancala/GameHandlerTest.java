@@ -1,24 +1,41 @@
 package com.alejandro.mancala;
 
+import com.alejandro.mancala.bot.BotService;
+import com.alejandro.mancala.bot.BotSession;
 import com.alejandro.mancala.game.Game;
 import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.game.State;
 import com.alejandro.mancala.message.InputMessage;
 import com.alejandro.mancala.message.MessageService;
-import com.alejandro.mancala.message.TurnMessage;
+import com.alejandro.mancala.metrics.GameMetrics;
 import com.alejandro.mancala.player.Player;
 import com.alejandro.mancala.player.PlayerService;
+import com.alejandro.mancala.recording.TrafficRecorder;
+import com.alejandro.mancala.spectator.SpectatorService;
+import com.alejandro.mancala.timer.GameTimeouts;
+import com.alejandro.mancala.timer.Timeout;
+import com.alejandro.mancala.timer.TurnTimeoutAction;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.net.URI;
+import java.util.Collections;
+import java.util.function.IntConsumer;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 
@@ -30,6 +47,8 @@ import static org.mockito.Mockito.*;
 @RunWith(MockitoJUnitRunner.class)
 public class GameHandlerTest {
 
+    private static final String TOKEN = "000102030405060708090a0b0c0d0e0f";
+
     private ObjectMapper objectMapper = new ObjectMapper();
 
     @Mock
@@ -40,6 +59,16 @@ public class GameHandlerTest {
     private GameService gameService;
     @Mock
     private MessageService messageService;
+    @Mock
+    private GameMetrics metrics;
+    @Mock
+    private GameTimeouts timeouts;
+    @Mock
+    private SpectatorService spectatorService;
+    @Mock
+    private BotService botService;
+    @Mock
+    private TrafficRecorder recorder;
 
     @InjectMocks
     private GameHandler gameHandler;
@@ -78,11 +107,51 @@ public class GameHandlerTest {
         gameHandler.afterConnectionEstablished(session);
 
         verify(messageService).updatePlayersGameStarted(game);
+        verify(spectatorService).gameUpdated(game);
         verify(gameService).addGame(game);
 
         assertEquals(player, game.getSecondPlayer());
     }
 
+    @Test
+    public void testAfterConnectionEstablishedWithGameIdFromCluster() throws Exception {
+        Game game = new Game(42);
+        Player player = new Player(session, game.getId());
+
+        when(session.getAttributes()).thenReturn(Collections.singletonMap(GameHandler.GAME_ID_ATTRIBUTE, 42));
+        when(gameService.matchGame(42)).thenReturn(game);
+        when(playerService.createPlayer(session, game.getId())).thenReturn(player);
+
+        gameHandler.afterConnectionEstablished(session);
+
+        verify(gameService, never()).matchGame();
+        verify(gameService).addGame(game);
+
+        assertEquals(player, game.getFirstPlayer());
+    }
+
+    @Test
+    public void testAfterConnectionEstablishedFirstPlayerAlreadyLeft() throws Exception {
+        Game game = new Game(1);
+        Game next = new Game(2);
+        Player player = new Player(session, game.getId());
+
+        // Matched, and then abandoned by its first player before the opponent joined
+        game.start();
+
+        when(gameService.matchGame()).thenReturn(game, next);
+        when(playerService.createPlayer(session, game.getId())).thenReturn(player);
+
+        gameHandler.afterConnectionEstablished(session);
+
+        verify(gameService, never()).addGame(game);
+        verify(gameService).addGame(next);
+
+        assertNull(game.getFirstPlayer());
+        assertEquals(player, next.getFirstPlayer());
+        assertEquals(next.getId(), player.getGameId());
+    }
+
     @Test
     public void testAfterConnectionClosed() throws Exception {
         Player player = new Player(session, 1);
@@ -90,11 +159,13 @@ public class GameHandlerTest {
 
         when(session.getId()).thenReturn("1");
         when(playerService.getPlayer("1")).thenReturn(player);
+        when(gameService.getGame(player.getGameId())).thenReturn(new Game(1));
         when(gameService.getOpponent(player)).thenReturn(opponent);
 
         gameHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
 
-        verify(messageService).sendMessage(eq(opponent.getSession()), any(TurnMessage.class));
+        verify(messageService).sendOpponentLeft(opponent.getSession());
+        verify(spectatorService).gameAbandoned(any(Game.class));
         verify(gameService).removeGame(player.getGameId());
         verify(playerService).removePlayer("1");
     }
@@ -105,20 +176,276 @@ public class GameHandlerTest {
 
         when(session.getId()).thenReturn("1");
         when(playerService.getPlayer("1")).thenReturn(player);
+        when(gameService.getGame(player.getGameId())).thenReturn(new Game(1));
         when(gameService.getOpponent(player)).thenReturn(null);
 
         gameHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
 
-        verify(messageService, never()).sendMessage(any(WebSocketSession.class), any(TurnMessage.class));
+        verify(messageService, never()).sendOpponentLeft(any(WebSocketSession.class));
         verify(gameService).removeGame(player.getGameId());
         verify(playerService).removePlayer("1");
     }
 
+    @Test
+    public void testAfterConnectionClosedGameRemoved() throws Exception {
+        Player player = new Player(session, 1);
+
+        when(session.getId()).thenReturn("1");
+        when(playerService.getPlayer("1")).thenReturn(player);
+        when(gameService.getGame(player.getGameId())).thenReturn(null);
+
+        gameHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        verify(messageService, never()).sendOpponentLeft(any(WebSocketSession.class));
+        verify(gameService, never()).removeGame(player.getGameId());
+        verify(playerService).removePlayer("1");
+    }
+
+    @Test
+    public void testAfterConnectionClosedPlayerHeld() throws Exception {
+        Game game = new Game(1);
+        game.start();
+        Player player = new Player(session, 1, TOKEN);
+
+        when(session.getId()).thenReturn("1");
+        when(playerService.getPlayer("1")).thenReturn(player);
+        when(gameService.getGame(player.getGameId())).thenReturn(game);
+        when(playerService.holdPlayer(eq(player), any(Runnable.class))).thenReturn(true);
+
+        gameHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        verify(messageService, never()).sendOpponentLeft(any(WebSocketSession.class));
+        verify(gameService, never()).removeGame(player.getGameId());
+        verify(playerService).removePlayer("1");
+    }
+
+    @Test
+    public void testRestoredGamePlayersHeld() throws Exception {
+        Game game = new Game(1);
+        game.start();
+        Player firstPlayer = PlayerService.recoveredPlayer(1, true, PlayerService.tokenParts(TOKEN));
+        Player secondPlayer = PlayerService.recoveredPlayer(1, false, PlayerService.tokenParts(TOKEN));
+        game.setFirstPlayer(firstPlayer);
+        game.setSecondPlayer(secondPlayer);
+
+        when(playerService.holdPlayer(any(Player.class), any(Runnable.class))).thenReturn(true);
+
+        gameHandler.restoreGame(game);
+
+        verify(gameService).restoreGame(game);
+        verify(playerService).holdPlayer(eq(firstPlayer), any(Runnable.class));
+        verify(playerService).holdPlayer(eq(secondPlayer), any(Runnable.class));
+        verify(gameService, never()).removeGame(1);
+    }
+
+    @Test
+    public void testRestoredGameWithoutPlayersDiscarded() throws Exception {
+        Game game = new Game(1);
+        game.start();
+
+        gameHandler.restoreGame(game);
+
+        verify(gameService, never()).restoreGame(game);
+        verify(playerService, never()).holdPlayer(any(Player.class), any(Runnable.class));
+    }
+
+    @Test
+    public void testAfterConnectionEstablishedGameResumed() throws Exception {
+        Game game = new Game(1);
+        game.start();
+        game.setFirstPlayer(new Player(mock(WebSocketSession.class), 1));
+        game.setSecondPlayer(new Player(mock(WebSocketSession.class), 1, TOKEN));
+        Player player = new Player(session, 1, TOKEN);
+
+        when(session.getUri()).thenReturn(new URI("ws://localhost:9000/mancala?resume=" + TOKEN));
+        when(playerService.resumePlayer(session, TOKEN)).thenReturn(player);
+        when(gameService.getGame(1)).thenReturn(game);
+
+        gameHandler.afterConnectionEstablished(session);
+
+        assertEquals(player, game.getSecondPlayer());
+        verify(messageService).sendGameResumed(session, game, false);
+        verify(gameService, never()).matchGame();
+    }
+
+    @Test
+    public void testAfterConnectionEstablishedResumeExpired() throws Exception {
+        Game game = new Game(1);
+
+        when(session.getUri()).thenReturn(new URI("ws://localhost:9000/mancala?resume=" + TOKEN));
+        when(playerService.resumePlayer(session, TOKEN)).thenReturn(null);
+        when(gameService.matchGame()).thenReturn(game);
+        when(playerService.createPlayer(session, game.getId())).thenReturn(new Player(session, game.getId()));
+
+        gameHandler.afterConnectionEstablished(session);
+
+        verify(gameService).addGame(game);
+    }
+
+    @Test
+    public void testPendingGameExpires() throws Exception {
+        Game game = new Game(1);
+        ArgumentCaptor<Runnable> expiry = ArgumentCaptor.forClass(Runnable.class);
+
+        when(gameService.matchGame()).thenReturn(game);
+        when(playerService.createPlayer(session, game.getId())).thenReturn(new Player(session, game.getId()));
+        when(gameService.expirePendingGame(game)).thenReturn(true);
+
+        gameHandler.afterConnectionEstablished(session);
+        verify(timeouts).pendingDeadline(expiry.capture());
+        expiry.getValue().run();
+
+        verify(session).close(any(CloseStatus.class));
+    }
+
+    @Test
+    public void testBotJoinsPendingGame() throws Exception {
+        Game game = new Game(1);
+        Player bot = new Player(new BotSession(game.getId()), game.getId());
+        ArgumentCaptor<Runnable> botDeadline = ArgumentCaptor.forClass(Runnable.class);
+
+        when(gameService.matchGame()).thenReturn(game);
+        when(playerService.createPlayer(session, game.getId())).thenReturn(new Player(session, game.getId()));
+        when(timeouts.botDeadline(any(Runnable.class))).thenReturn(mock(Timeout.class));
+        when(botService.createBot(game.getId())).thenReturn(bot);
+        when(gameService.matchBot(game)).thenReturn(true);
+
+        gameHandler.afterConnectionEstablished(session);
+        verify(timeouts).botDeadline(botDeadline.capture());
+        verify(timeouts, never()).pendingDeadline(any(Runnable.class));
+        botDeadline.getValue().run();
+
+        assertEquals(bot, game.getSecondPlayer());
+        verify(messageService).updatePlayersGameStarted(game);
+        verify(spectatorService).gameUpdated(game);
+        verify(timeouts).turnDeadline(any(Runnable.class));
+    }
+
+    @Test
+    public void testNoBotAvailableKeepsWaiting() throws Exception {
+        Game game = new Game(1);
+        ArgumentCaptor<Runnable> botDeadline = ArgumentCaptor.forClass(Runnable.class);
+
+        when(gameService.matchGame()).thenReturn(game);
+        when(playerService.createPlayer(session, game.getId())).thenReturn(new Player(session, game.getId()));
+        when(timeouts.botDeadline(any(Runnable.class))).thenReturn(mock(Timeout.class));
+
+        gameHandler.afterConnectionEstablished(session);
+        verify(timeouts).botDeadline(botDeadline.capture());
+        botDeadline.getValue().run();
+
+        verify(gameService, never()).matchBot(game);
+        verify(timeouts).pendingDeadline(any(Runnable.class));
+        assertNull(game.getSecondPlayer());
+    }
+
+    @Test
+    public void testBotMovePlayed() throws Exception {
+        Game game = new Game(1);
+        Player bot = new Player(new BotSession(game.getId()), game.getId());
+        ArgumentCaptor<IntConsumer> botMove = ArgumentCaptor.forClass(IntConsumer.class);
+
+        game.setFirstPlayer(bot);
+        game.start();
+
+        when(gameService.matchGame()).thenReturn(game);
+        when(gameService.isFirstPlayerWaiting(game)).thenReturn(true);
+        when(playerService.createPlayer(session, game.getId())).thenReturn(new Player(session, game.getId()));
+        when(botService.isBot(bot)).thenReturn(true);
+
+        gameHandler.afterConnectionEstablished(session);
+        verify(botService).requestMove(eq(game), botMove.capture());
+        botMove.getValue().accept(3);
+
+        verify(gameService).moveStones(game, true, 3);
+        verify(messageService).updatePlayersNextTurn(game, bot.getSession(), false);
+    }
+
+    @Test
+    public void testTurnTimeoutMovesForPlayer() throws Exception {
+        Game game = createStartedGame();
+        ArgumentCaptor<Runnable> deadline = ArgumentCaptor.forClass(Runnable.class);
+
+        when(timeouts.getTurnTimeoutAction()).thenReturn(TurnTimeoutAction.AUTO_MOVE);
+
+        gameHandler.afterConnectionEstablished(session);
+        verify(timeouts).turnDeadline(deadline.capture());
+        deadline.getValue().run();
+
+        verify(gameService).moveStones(game, true, 0);
+    }
+
+    @Test
+    public void testTurnTimeoutForfeits() throws Exception {
+        Game game = createStartedGame();
+        ArgumentCaptor<Runnable> deadline = ArgumentCaptor.forClass(Runnable.class);
+
+        when(timeouts.getTurnTimeoutAction()).thenReturn(TurnTimeoutAction.FORFEIT);
+
+        gameHandler.afterConnectionEstablished(session);
+        verify(timeouts).turnDeadline(deadline.capture());
+        deadline.getValue().run();
+
+        verify(gameService).forfeit(game, true);
+        verify(messageService).updatePlayersGameFinished(game);
+        verify(spectatorService, times(2)).gameUpdated(game);
+    }
+
+    @Test
+    public void testNoMoveAfterForfeit() throws Exception {
+        Game game = createStartedGame();
+        Player forfeiter = game.getFirstPlayer();
+        ArgumentCaptor<Runnable> deadline = ArgumentCaptor.forClass(Runnable.class);
+
+        when(timeouts.getTurnTimeoutAction()).thenReturn(TurnTimeoutAction.FORFEIT);
+        doAnswer(invocation -> {
+            game.setState(State.WINNER_SECOND_PLAYER);
+            return null;
+        }).when(gameService).forfeit(game, true);
+        when(forfeiter.getSession().getId()).thenReturn("2");
+        when(playerService.getPlayer("2")).thenReturn(forfeiter);
+        when(gameService.getGame(game.getId())).thenReturn(game);
+
+        gameHandler.afterConnectionEstablished(session);
+        verify(timeouts).turnDeadline(deadline.capture());
+        deadline.getValue().run();
+
+        gameHandler.handleBinaryMessage(forfeiter.getSession(), new BinaryMessage(new byte[] {1, 0, 2}));
+
+        verify(gameService, never()).moveStones(eq(game), anyBoolean(), anyInt());
+        verify(messageService, never()).updatePlayersNextTurn(eq(game), any(WebSocketSession.class), anyBoolean());
+    }
+
+    @Test
+    public void testUnansweredPingClosesSession() throws Exception {
+        Game game = new Game(1);
+        ArgumentCaptor<Runnable> ping = ArgumentCaptor.forClass(Runnable.class);
+
+        when(gameService.matchGame()).thenReturn(game);
+        when(playerService.createPlayer(session, game.getId())).thenReturn(new Player(session, game.getId()));
+        when(session.isOpen()).thenReturn(true);
+
+        gameHandler.afterConnectionEstablished(session);
+        verify(timeouts).nextPing(ping.capture());
+        ping.getValue().run();
+
+        verify(session).sendMessage(any(PingMessage.class));
+        verify(session, never()).close(any(CloseStatus.class));
+
+        verify(timeouts, times(2)).nextPing(ping.capture());
+        ping.getValue().run();
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
     @Test
     public void testHandleTextMessageGameFinished() throws Exception {
         Game game = new Game(1);
         Player player = new Player(session, game.getId());
 
+        game.setFirstPlayer(player);
+        game.start();
+
         InputMessage inputMessage = new InputMessage();
         inputMessage.setPlayer("First Player");
 
@@ -134,6 +461,7 @@ public class GameHandlerTest {
         verify(gameService).calculateWinner(game);
         verify(messageService).updatePlayersGameFinished(game);
         verify(messageService, never()).updatePlayersNextTurn(game, session, false);
+        verify(spectatorService).gameUpdated(game);
     }
 
     @Test
@@ -141,6 +469,9 @@ public class GameHandlerTest {
         Game game = new Game(1);
         Player player = new Player(session, game.getId());
 
+        game.setFirstPlayer(player);
+        game.start();
+
         InputMessage inputMessage = new InputMessage();
         inputMessage.setPlayer("First Player");
 
@@ -153,8 +484,134 @@ public class GameHandlerTest {
 
         gameHandler.handleTextMessage(session, textMessage);
 
+        verify(gameService).moveStones(game, true, 0);
         verify(gameService, never()).calculateWinner(game);
         verify(messageService, never()).updatePlayersGameFinished(game);
         verify(messageService).updatePlayersNextTurn(game, session, false);
+        verify(spectatorService).gameUpdated(game);
+    }
+
+    @Test
+    public void testHandleBinaryMessageNextTurn() throws Exception {
+        Game game = new Game(1);
+        Player player = new Player(session, game.getId());
+
+        game.setFirstPlayer(player);
+        game.start();
+
+        BinaryMessage binaryMessage = new BinaryMessage(new byte[] {1, 0, 2});
+
+        when(session.getId()).thenReturn("1");
+        when(playerService.getPlayer("1")).thenReturn(player);
+        when(gameService.getGame(player.getGameId())).thenReturn(game);
+        when(gameService.isGameFinished(game)).thenReturn(false);
+
+        gameHandler.handleBinaryMessage(session, binaryMessage);
+
+        verify(gameService).moveStones(game, true, 2);
+        verify(messageService).updatePlayersNextTurn(game, session, false);
+    }
+
+    @Test
+    public void testMoveMadeForPlayerSeat() throws Exception {
+        Game game = new Game(1);
+        Player player = new Player(session, game.getId());
+
+        game.setFirstPlayer(player);
+        game.start();
+
+        when(session.getId()).thenReturn("1");
+        when(playerService.getPlayer("1")).thenReturn(player);
+        when(gameService.getGame(player.getGameId())).thenReturn(game);
+
+        gameHandler.handleTextMessage(session, new TextMessage("{\"pitSelected\":2,\"player\":\"Second Player\"}"));
+
+        verify(gameService).moveStones(game, true, 2);
+        verify(gameService, never()).moveStones(game, false, 2);
+    }
+
+    @Test
+    public void testMoveOutOfTurnRejected() throws Exception {
+        Game game = new Game(1);
+        Player player = new Player(session, game.getId());
+
+        game.setFirstPlayer(new Player(mock(WebSocketSession.class), game.getId()));
+        game.setSecondPlayer(player);
+        game.start();
+
+        when(session.getId()).thenReturn("1");
+        when(playerService.getPlayer("1")).thenReturn(player);
+        when(gameService.getGame(player.getGameId())).thenReturn(game);
+
+        gameHandler.handleTextMessage(session, new TextMessage("{\"pitSelected\":2,\"player\":\"First Player\"}"));
+
+        verify(gameService, never()).moveStones(eq(game), anyBoolean(), anyInt());
+        verify(messageService, never()).updatePlayersNextTurn(eq(game), any(WebSocketSession.class), anyBoolean());
+    }
+
+    @Test
+    public void testMoveInPendingGameRejected() throws Exception {
+        Game game = new Game(1);
+        Player player = new Player(session, game.getId());
+
+        game.setFirstPlayer(player);
+
+        when(session.getId()).thenReturn("1");
+        when(playerService.getPlayer("1")).thenReturn(player);
+        when(gameService.getGame(player.getGameId())).thenReturn(game);
+
+        gameHandler.handleBinaryMessage(session, new BinaryMessage(new byte[] {1, 0, 2}));
+
+        verify(gameService, never()).moveStones(eq(game), anyBoolean(), anyInt());
+        verify(messageService, never()).updatePlayersNextTurn(eq(game), any(WebSocketSession.class), anyBoolean());
+    }
+
+    @Test
+    public void testHandleResyncSendsBoard() throws Exception {
+        Game game = new Game(1);
+        Player player = new Player(session, game.getId());
+
+        when(session.getId()).thenReturn("1");
+        when(playerService.getPlayer("1")).thenReturn(player);
+        when(gameService.getGame(player.getGameId())).thenReturn(game);
+
+        gameHandler.handleBinaryMessage(session, new BinaryMessage(new byte[] {5}));
+
+        verify(messageService).sendBoard(session, game);
+        verify(gameService, never()).moveStones(eq(game), anyBoolean(), anyInt());
+    }
+
+    @Test
+    public void testTrafficRecorded() throws Exception {
+        Game game = new Game(1);
+        Player player = new Player(session, game.getId());
+        TextMessage textMessage = new TextMessage("{\"resync\":true}");
+        BinaryMessage binaryMessage = new BinaryMessage(new byte[] {5});
+
+        when(session.getId()).thenReturn("1");
+        when(playerService.getPlayer("1")).thenReturn(player);
+        when(gameService.getGame(player.getGameId())).thenReturn(game);
+
+        gameHandler.handleTextMessage(session, textMessage);
+        gameHandler.handleBinaryMessage(session, binaryMessage);
+        gameHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        InOrder inOrder = inOrder(recorder);
+        inOrder.verify(recorder).textReceived(session, textMessage);
+        inOrder.verify(recorder).binaryReceived(session, binaryMessage);
+        inOrder.verify(recorder).connectionClosed(session, CloseStatus.NORMAL);
+    }
+
+    // The second player joins a game whose first player is waiting, the first player having the turn
+    private Game createStartedGame() {
+        Game game = new Game(1);
+        game.setFirstPlayer(new Player(mock(WebSocketSession.class), game.getId()));
+        game.start();
+
+        when(gameService.matchGame()).thenReturn(game);
+        when(gameService.isFirstPlayerWaiting(game)).thenReturn(true);
+        when(playerService.createPlayer(session, game.getId())).thenReturn(new Player(session, game.getId()));
+
+        return game;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+package com.alejandro.mancala;
+
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.spectator.SpectatorService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for SpectatorHandler.
+ *
+ * @author afernandez
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SpectatorHandlerTest {
+    private static final URI URL = URI.create("ws://localhost:9000/mancala/watch");
+
+    @Mock
+    private WebSocketSession session;
+    @Mock
+    private GameService gameService;
+    @Mock
+    private SpectatorService spectatorService;
+
+    @InjectMocks
+    private SpectatorHandler spectatorHandler;
+
+    @Test
+    public void testWatchGame() throws Exception {
+        Game game = new Game(42);
+
+        when(session.getUri()).thenReturn(URI.create(URL + "?" + SpectatorHandler.GAME_PARAMETER + "=42"));
+        when(gameService.getGame(42)).thenReturn(game);
+
+        spectatorHandler.afterConnectionEstablished(session);
+
+        verify(spectatorService).watch(game, session);
+        verify(session, never()).close(any(CloseStatus.class));
+    }
+
+    @Test
+    public void testWatchUnknownGame() throws Exception {
+        when(session.getUri()).thenReturn(URI.create(URL + "?" + SpectatorHandler.GAME_PARAMETER + "=42"));
+
+        spectatorHandler.afterConnectionEstablished(session);
+
+        verify(session).close(CloseStatus.NOT_ACCEPTABLE.withReason("Game not found"));
+        verify(spectatorService, never()).watch(any(Game.class), any(WebSocketSession.class));
+    }
+
+    @Test
+    public void testWatchWithoutGame() throws Exception {
+        when(session.getUri()).thenReturn(URL);
+
+        spectatorHandler.afterConnectionEstablished(session);
+
+        verify(gameService, never()).getGame(anyInt());
+        verify(session).close(CloseStatus.NOT_ACCEPTABLE.withReason("Game not found"));
+    }
+
+    @Test
+    public void testConnectionClosed() throws Exception {
+        when(session.getId()).thenReturn("1");
+
+        spectatorHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        verify(spectatorService).unwatch("1");
+    }
+}
@@ -0,0 +1,69 @@
+package com.alejandro.mancala.analysis;
+
+import com.alejandro.mancala.bot.Evaluation;
+import com.alejandro.mancala.bot.MoveSearch;
+import com.alejandro.mancala.bot.TranspositionTable;
+import com.alejandro.mancala.game.Board;
+import com.alejandro.mancala.metrics.MetricsRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for AnalysisService.
+ *
+ * @author afernandez
+ */
+public class AnalysisServiceTest {
+
+    private MetricsRegistry registry = new MetricsRegistry();
+    private AnalysisService analysisService = new AnalysisService(
+            new MoveSearch(new ForkJoinPool(1), new TranspositionTable(1 << 16)), 50, 1 << 20, registry);
+
+    @After
+    public void tearDown() throws Exception {
+        analysisService.shutdown();
+    }
+
+    @Test
+    public void testRepeatedPositionCached() throws Exception {
+        Board board = new Board();
+
+        Evaluation evaluation = analysisService.analyze(board.getFirstPlayerSide(), board.getSecondPlayerSide());
+
+        assertTrue(evaluation.getPit() >= 0 && evaluation.getPit() < Board.PITS);
+        assertTrue(evaluation.getDepth() > 0);
+        assertEquals(evaluation.getPit(), evaluation.getLine()[0]);
+        assertSame(evaluation, analysisService.analyze(board.getFirstPlayerSide(), board.getSecondPlayerSide()));
+        assertEquals(1, analysisService.getCachedEvaluations());
+
+        String metrics = registry.scrape();
+        assertTrue(metrics.contains("mancala_analysis_total{cache=\"hit\"} 1"));
+        assertTrue(metrics.contains("mancala_analysis_total{cache=\"miss\"} 1"));
+    }
+
+    @Test
+    public void testPositionSeenFromThePlayerToMove() throws Exception {
+        long side = Board.withStones(Board.withStones(0, 0, 1), 5, 3);
+        long opponentSide = Board.withStones(Board.withStones(0, 4, 10), 0, 1);
+
+        Evaluation evaluation = analysisService.analyze(side, opponentSide);
+
+        assertEquals(0, evaluation.getPit());
+        assertTrue(evaluation.getStones() > 0);
+        assertEquals(1, analysisService.getCachedEvaluations());
+
+        analysisService.analyze(opponentSide, side);
+        assertEquals(2, analysisService.getCachedEvaluations());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGameOver() throws Exception {
+        analysisService.analyze(Board.withStones(0, Board.BIG_PIT, 40), Board.withStones(0, 0, 32));
+    }
+}
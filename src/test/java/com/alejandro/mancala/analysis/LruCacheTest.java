@@ -0,0 +1,60 @@
+package com.alejandro.mancala.analysis;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for LruCache.
+ *
+ * @author afernandez
+ */
+public class LruCacheTest {
+
+    private LruCache<String, String> cache = new LruCache<>(10, String::length);
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws Exception {
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.get("a");
+        cache.put("c", "cccc");
+
+        assertEquals("aaaa", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("cccc", cache.get("c"));
+        assertEquals(8, cache.getBytes());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testBigEntryEvictsSeveral() throws Exception {
+        cache.put("a", "aaa");
+        cache.put("b", "bbb");
+        cache.put("c", "cccccccc");
+
+        assertEquals(1, cache.size());
+        assertEquals(8, cache.getBytes());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    public void testReplacedEntryReweighed() throws Exception {
+        cache.put("a", "aaaaaaaa");
+        cache.put("a", "aa");
+        cache.put("b", "bbbbbbbb");
+
+        assertEquals("aa", cache.get("a"));
+        assertEquals(10, cache.getBytes());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void testEntryBiggerThanCacheNotCached() throws Exception {
+        cache.put("a", "aaaaaaaaaaaa");
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getBytes());
+    }
+}
@@ -0,0 +1,77 @@
+package com.alejandro.mancala.bot;
+
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.player.Player;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.function.IntConsumer;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for BotService.
+ *
+ * @author afernandez
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class BotServiceTest {
+
+    @Mock
+    private MoveSearch search;
+    @Mock
+    private WebSocketSession session;
+
+    @Test
+    public void testCreateBot() throws Exception {
+        BotService botService = new BotService(search, 500, 2);
+        Player bot = botService.createBot(7);
+
+        assertEquals(7, bot.getGameId());
+        assertTrue(botService.isBot(bot));
+        assertTrue(bot.getSession().isOpen());
+        assertFalse(botService.isBot(new Player(session, 7)));
+        assertFalse(botService.isBot(null));
+        assertEquals(1, botService.getBotGames());
+    }
+
+    @Test
+    public void testBotsPlayLimitedGames() throws Exception {
+        BotService botService = new BotService(search, 500, 2);
+
+        assertNotNull(botService.createBot(1));
+        assertNotNull(botService.createBot(2));
+        assertNull(botService.createBot(3));
+
+        botService.gameEnded(1);
+        botService.gameEnded(1);
+        botService.gameEnded(4);
+
+        assertEquals(1, botService.getBotGames());
+        assertNotNull(botService.createBot(3));
+        assertNull(botService.createBot(5));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        assertNull(BotService.DISABLED.createBot(1));
+    }
+
+    @Test
+    public void testRequestMoveSearchesSideToMove() throws Exception {
+        BotService botService = new BotService(search, 500, 1);
+        Game game = new Game(1);
+        game.setFirstPlayerTurn(false);
+
+        botService.requestMove(game, pit -> { });
+
+        verify(search).bestMove(eq(game.getBoard().getSecondPlayerSide()), eq(game.getBoard().getFirstPlayerSide()),
+                eq(500L), any(IntConsumer.class));
+    }
+}
@@ -0,0 +1,76 @@
+package com.alejandro.mancala.bot;
+
+import com.alejandro.mancala.game.Board;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for MoveSearch.
+ *
+ * @author afernandez
+ */
+public class MoveSearchTest {
+
+    private MoveSearch search = new MoveSearch(new ForkJoinPool(2), new TranspositionTable(1 << 16));
+
+    @After
+    public void tearDown() throws Exception {
+        search.shutdown();
+    }
+
+    @Test
+    public void testOnlyMove() throws Exception {
+        long side = Board.withStones(0, 2, 4);
+        long opponentSide = Board.withStones(0, 0, 6);
+
+        assertEquals(2, search.bestMove(side, opponentSide, 100));
+    }
+
+    @Test
+    public void testCapturesStones() throws Exception {
+        // Pit 0 sows into the empty pit 1, capturing the 10 stones of the opponent's pit 4
+        long side = Board.withStones(Board.withStones(0, 0, 1), 5, 3);
+        long opponentSide = Board.withStones(Board.withStones(0, 4, 10), 0, 1);
+
+        assertEquals(0, search.bestMove(side, opponentSide, 100));
+    }
+
+    @Test
+    public void testSearchEndsWithinTimeBudget() throws Exception {
+        Board board = new Board();
+        long start = System.nanoTime();
+
+        int pit = search.bestMove(board.getFirstPlayerSide(), board.getSecondPlayerSide(), 100);
+
+        assertTrue(pit >= 0 && pit < Board.PITS);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1000));
+    }
+
+    @Test
+    public void testManySearchesShareThePool() throws Exception {
+        Board board = new Board();
+        int searches = 50;
+        CountDownLatch done = new CountDownLatch(searches);
+        AtomicInteger legal = new AtomicInteger();
+
+        for (int i = 0; i < searches; i++) {
+            search.bestMove(board.getFirstPlayerSide(), board.getSecondPlayerSide(), 50, pit -> {
+                if (pit >= 0 && pit < Board.PITS) {
+                    legal.incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+        // Searches queued past their deadline still complete the first iteration
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(searches, legal.get());
+    }
+}
@@ -0,0 +1,48 @@
+package com.alejandro.mancala.bot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Unit tests for TranspositionTable.
+ *
+ * @author afernandez
+ */
+public class TranspositionTableTest {
+
+    private TranspositionTable table = new TranspositionTable(1024);
+
+    @Test
+    public void testStoredEntryIsFound() throws Exception {
+        long hash = TranspositionTable.hash(12345L, 67890L);
+        table.put(hash, 7, -42, TranspositionTable.LOWER_BOUND, 5);
+
+        long entry = table.get(hash);
+
+        assertEquals(-42, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+        assertEquals(5, TranspositionTable.pit(entry));
+    }
+
+    @Test
+    public void testOtherPositionInTheSameSlotMisses() throws Exception {
+        long hash = TranspositionTable.hash(12345L, 67890L);
+        table.put(hash, 3, 10, TranspositionTable.EXACT, 0);
+
+        assertEquals(TranspositionTable.MISS, table.get(hash + 1024));
+        assertEquals(TranspositionTable.MISS, table.get(TranspositionTable.hash(67890L, 12345L)));
+    }
+
+    @Test
+    public void testSidesSwappedHashDifferently() throws Exception {
+        assertNotEquals(TranspositionTable.hash(1L, 2L), TranspositionTable.hash(2L, 1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeNotPowerOfTwo() throws Exception {
+        new TranspositionTable(1000);
+    }
+}
@@ -0,0 +1,204 @@
+package com.alejandro.mancala.cluster;
+
+import com.alejandro.mancala.GameHandler;
+import com.alejandro.mancala.message.SendPipeline;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ClusterHandler. This node is node-2, and the first IDs it hands out, 2, 4 and 6, are owned by
+ * node-1, while 8 is owned by node-2.
+ *
+ * @author afernandez
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ClusterHandlerTest {
+    private static final URI URL = URI.create("ws://localhost:9000/mancala");
+
+    @Mock
+    private GameHandler gameHandler;
+    @Mock
+    private ClusterTransport transport;
+    @Mock
+    private SendPipeline sendPipeline;
+    @Mock
+    private WebSocketSession session;
+    @Mock
+    private WebSocketSession relayedSession;
+
+    private Map<String, Object> attributes = new HashMap<>();
+    private ClusterHandler clusterHandler;
+
+    @Before
+    public void setUp() throws Exception {
+        when(transport.getLocalNode()).thenReturn("node-2");
+        when(session.getId()).thenReturn("1");
+        when(session.getUri()).thenReturn(URL);
+        when(session.getAttributes()).thenReturn(attributes);
+        when(sendPipeline.open(session)).thenReturn(relayedSession);
+
+        clusterHandler = new ClusterHandler(gameHandler, transport,
+                new ConsistentHashRing(Arrays.asList("node-1", "node-2"), 160), sendPipeline);
+    }
+
+    @Test
+    public void testGameOwnedHerePlayedHere() throws Exception {
+        clusterHandler = new ClusterHandler(gameHandler, transport,
+                new ConsistentHashRing(Collections.singletonList("node-2"), 160), sendPipeline);
+
+        clusterHandler.afterConnectionEstablished(session);
+        TextMessage move = new TextMessage("{\"player\":\"First Player\",\"pitSelected\":0}");
+        clusterHandler.handleMessage(session, move);
+        clusterHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        verify(gameHandler).afterConnectionEstablished(session);
+        verify(gameHandler).handleMessage(session, move);
+        verify(gameHandler).afterConnectionClosed(session, CloseStatus.NORMAL);
+        verify(transport, never()).send(any(String.class), any(ClusterMessage.class));
+
+        assertEquals(1, attributes.get(GameHandler.GAME_ID_ATTRIBUTE));
+    }
+
+    @Test
+    public void testRecoveredGameIdSkipped() throws Exception {
+        clusterHandler = new ClusterHandler(gameHandler, transport,
+                new ConsistentHashRing(Collections.singletonList("node-2"), 160), sendPipeline);
+        when(gameHandler.hasGame(1)).thenReturn(true);
+
+        clusterHandler.afterConnectionEstablished(session);
+
+        assertEquals(2, attributes.get(GameHandler.GAME_ID_ATTRIBUTE));
+    }
+
+    @Test
+    public void testSessionRelayedToOwner() throws Exception {
+        ArgumentCaptor<ClusterMessage> sent = ArgumentCaptor.forClass(ClusterMessage.class);
+
+        clusterHandler.afterConnectionEstablished(session);
+        TextMessage move = new TextMessage("{\"player\":\"First Player\",\"pitSelected\":0}");
+        clusterHandler.handleMessage(session, move);
+
+        assertEquals(1, clusterHandler.getRelayedSessions());
+
+        clusterHandler.afterConnectionClosed(session, CloseStatus.GOING_AWAY);
+
+        verify(transport, times(3)).send(eq("node-1"), sent.capture());
+        verify(gameHandler, never()).afterConnectionEstablished(session);
+        verify(sendPipeline).release(relayedSession);
+
+        ClusterMessage connected = sent.getAllValues().get(0);
+        assertEquals(ClusterMessage.Type.CONNECTED, connected.getType());
+        assertEquals("node-2", connected.getNode());
+        assertEquals("1", connected.getSessionId());
+        assertEquals(2, connected.getGameId());
+        assertEquals(URL, connected.getUri());
+
+        assertEquals(ClusterMessage.Type.RECEIVED, sent.getAllValues().get(1).getType());
+        assertEquals(move, sent.getAllValues().get(1).getFrame());
+        assertEquals(ClusterMessage.Type.CLOSED, sent.getAllValues().get(2).getType());
+        assertEquals(CloseStatus.GOING_AWAY, sent.getAllValues().get(2).getStatus());
+        assertEquals(0, clusterHandler.getRelayedSessions());
+    }
+
+    @Test
+    public void testFramesFromOwnerSentToRelayedSession() throws Exception {
+        TextMessage frame = new TextMessage("{\"turnMessage\":\"Your turn!\"}");
+        CloseStatus status = CloseStatus.NORMAL.withReason("No opponent found");
+
+        clusterHandler.afterConnectionEstablished(session);
+        clusterHandler.receive(ClusterMessage.send("node-1", "1", frame));
+        clusterHandler.receive(ClusterMessage.close("node-1", "1", status));
+
+        verify(relayedSession).sendMessage(frame);
+        verify(relayedSession).close(status);
+    }
+
+    @Test
+    public void testResumeRoutedToGameOwner() throws Exception {
+        URI resumeUrl = URI.create(URL + "?" + GameHandler.RESUME_PARAMETER + "=00000007ab12cd34ef56ab12cd34ef56");
+        when(session.getUri()).thenReturn(resumeUrl);
+
+        // Game 7 is owned by node-2, here, so the game ID handed out along is the first one owned by node-2
+        clusterHandler.afterConnectionEstablished(session);
+
+        verify(gameHandler).afterConnectionEstablished(session);
+        verify(transport, never()).send(any(String.class), any(ClusterMessage.class));
+
+        assertEquals(8, attributes.get(GameHandler.GAME_ID_ATTRIBUTE));
+    }
+
+    @Test
+    public void testRemoteSessionPlayedHere() throws Exception {
+        ArgumentCaptor<WebSocketSession> remote = ArgumentCaptor.forClass(WebSocketSession.class);
+        ArgumentCaptor<ClusterMessage> sent = ArgumentCaptor.forClass(ClusterMessage.class);
+        TextMessage move = new TextMessage("{\"player\":\"First Player\",\"pitSelected\":0}");
+        TextMessage frame = new TextMessage("{\"turnMessage\":\"Your turn!\"}");
+
+        clusterHandler.receive(ClusterMessage.connected("node-1", "7", 8, URL, null));
+
+        verify(gameHandler).afterConnectionEstablished(remote.capture());
+        WebSocketSession session = remote.getValue();
+
+        assertEquals("node-1/7", session.getId());
+        assertEquals(8, session.getAttributes().get(GameHandler.GAME_ID_ATTRIBUTE));
+        assertEquals(1, clusterHandler.getRemoteSessions());
+
+        session.sendMessage(frame);
+        verify(transport).send(eq("node-1"), sent.capture());
+        assertEquals(ClusterMessage.Type.SEND, sent.getValue().getType());
+        assertEquals("7", sent.getValue().getSessionId());
+        assertEquals(frame, sent.getValue().getFrame());
+
+        clusterHandler.receive(ClusterMessage.received("node-1", "7", move));
+        clusterHandler.receive(ClusterMessage.closed("node-1", "7", CloseStatus.GOING_AWAY));
+
+        verify(gameHandler).handleMessage(session, move);
+        verify(gameHandler).afterConnectionClosed(session, CloseStatus.GOING_AWAY);
+
+        assertFalse(session.isOpen());
+        assertEquals(0, clusterHandler.getRemoteSessions());
+    }
+
+    @Test
+    public void testRemoteSessionOfRecoveredGameIdGetsAnotherOne() throws Exception {
+        ArgumentCaptor<WebSocketSession> remote = ArgumentCaptor.forClass(WebSocketSession.class);
+        when(gameHandler.hasGame(8)).thenReturn(true);
+
+        clusterHandler.receive(ClusterMessage.connected("node-1", "7", 8, URL, null));
+
+        verify(gameHandler).afterConnectionEstablished(remote.capture());
+        int gameId = (Integer) remote.getValue().getAttributes().get(GameHandler.GAME_ID_ATTRIBUTE);
+
+        assertNotEquals(8, gameId);
+        assertEquals("node-2", new ConsistentHashRing(Arrays.asList("node-1", "node-2"), 160).ownerOf(gameId));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLocalNodeNotInRing() throws Exception {
+        new ClusterHandler(gameHandler, transport, new ConsistentHashRing(Collections.singletonList("node-1"), 160),
+                sendPipeline);
+    }
+}
@@ -0,0 +1,75 @@
+package com.alejandro.mancala.cluster;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for ConsistentHashRing.
+ *
+ * @author afernandez
+ */
+public class ConsistentHashRingTest {
+    private static final int GAMES = 100000;
+
+    @Test
+    public void testSingleNodeOwnsEveryGame() throws Exception {
+        ConsistentHashRing ring = new ConsistentHashRing(Collections.singletonList("node-1"), 16);
+
+        for (int id = 1; id <= 1000; id++) {
+            assertEquals("node-1", ring.ownerOf(id));
+        }
+    }
+
+    @Test
+    public void testOwnersDoNotDependOnTheOrderOfTheNodes() throws Exception {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("node-1", "node-2", "node-3"), 160);
+        ConsistentHashRing reversed = new ConsistentHashRing(Arrays.asList("node-3", "node-2", "node-1"), 160);
+
+        for (int id = 1; id <= GAMES; id++) {
+            assertEquals(ring.ownerOf(id), reversed.ownerOf(id));
+        }
+    }
+
+    @Test
+    public void testGamesSpreadEvenly() throws Exception {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("node-1", "node-2", "node-3", "node-4"), 160);
+        Map<String, Integer> games = new HashMap<>();
+
+        for (int id = 1; id <= GAMES; id++) {
+            games.merge(ring.ownerOf(id), 1, Integer::sum);
+        }
+
+        assertEquals(4, games.size());
+        for (int owned : games.values()) {
+            assertTrue("Node owning " + owned + " games", Math.abs(owned - GAMES / 4) < GAMES / 4 / 5);
+        }
+    }
+
+    @Test
+    public void testAddingNodeOnlyMovesGamesToIt() throws Exception {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("node-1", "node-2", "node-3"), 160);
+        ConsistentHashRing grown = new ConsistentHashRing(Arrays.asList("node-1", "node-2", "node-3", "node-4"), 160);
+        int moved = 0;
+
+        for (int id = 1; id <= GAMES; id++) {
+            if (!ring.ownerOf(id).equals(grown.ownerOf(id))) {
+                assertEquals("node-4", grown.ownerOf(id));
+                moved++;
+            }
+        }
+
+        assertTrue("Games moved " + moved, moved > GAMES / 5 && moved < GAMES / 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRingWithoutNodes() throws Exception {
+        new ConsistentHashRing(Collections.emptyList(), 160);
+    }
+}
@@ -0,0 +1,59 @@
+package com.alejandro.mancala.game;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Board.
+ *
+ * @author afernandez
+ */
+public class BoardTest {
+
+    @Test
+    public void testInitialBoard() throws Exception {
+        Board board = new Board();
+
+        int [] initialPit = new int[] {6, 6, 6, 6, 6, 6};
+
+        assertTrue(Arrays.equals(initialPit, board.getPitsFirstPlayer()));
+        assertTrue(Arrays.equals(initialPit, board.getPitsSecondPlayer()));
+        assertEquals(0, board.getFirstPlayerBigPit());
+        assertEquals(0, board.getSecondPlayerBigPit());
+    }
+
+    @Test
+    public void testPitsAreViewOverPackedSides() throws Exception {
+        Board board = new Board();
+
+        board.setPitsFirstPlayer(new int[] {0, 1, 2, 3, 4, 72});
+        board.setFirstPlayerBigPit(72);
+
+        long side = board.getFirstPlayerSide();
+
+        assertEquals(72, Board.stones(side, 5));
+        assertEquals(72, Board.stones(side, Board.BIG_PIT));
+        assertEquals(82, Board.stonesInPits(side));
+        assertTrue(Arrays.equals(new int[] {0, 1, 2, 3, 4, 72}, board.getPitsFirstPlayer()));
+
+        // Arrays returned are copies, the board only changes through the setters
+        board.getPitsSecondPlayer()[0] = 0;
+        assertEquals(6, board.getPitsSecondPlayer()[0]);
+    }
+
+    @Test
+    public void testIsEmptyIgnoresBigPit() throws Exception {
+        long side = Board.withStones(0, Board.BIG_PIT, 36);
+
+        assertTrue(Board.isEmpty(side));
+        assertFalse(Board.isEmpty(side + Board.oneStone(0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyStones() throws Exception {
+        new Board().setSecondPlayerBigPit(128);
+    }
+}
@@ -0,0 +1,96 @@
+package com.alejandro.mancala.game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GameMailbox.
+ *
+ * @author afernandez
+ */
+public class GameMailboxTest {
+
+    private GameMailbox mailbox;
+
+    @Before
+    public void setUp() {
+        mailbox = new GameMailbox();
+    }
+
+    @Test
+    public void testTasksRunInSubmissionOrder() throws Exception {
+        List<Integer> processed = new ArrayList<>();
+
+        mailbox.execute(() -> {
+            processed.add(1);
+            mailbox.execute(() -> processed.add(3));
+            processed.add(2);
+        });
+        mailbox.execute(() -> processed.add(4));
+
+        assertEquals(4, processed.size());
+        for (int i = 0; i < processed.size(); i++) {
+            assertEquals(Integer.valueOf(i + 1), processed.get(i));
+        }
+    }
+
+    @Test
+    public void testFailingTaskDoesNotStopMailbox() throws Exception {
+        AtomicInteger processed = new AtomicInteger();
+
+        mailbox.execute(() -> {
+            throw new IllegalStateException("Failing task");
+        });
+        mailbox.execute(processed::incrementAndGet);
+
+        assertEquals(1, processed.get());
+    }
+
+    @Test
+    public void testTasksNeverRunConcurrently() throws Exception {
+        int threads = 8;
+        int tasksPerThread = 10000;
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger processed = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int j = 0; j < tasksPerThread; j++) {
+                    mailbox.execute(() -> {
+                        if (running.incrementAndGet() > 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        processed.incrementAndGet();
+                        running.decrementAndGet();
+                    });
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(threads * tasksPerThread, processed.get());
+        assertEquals(0, overlaps.get());
+    }
+}
@@ -0,0 +1,100 @@
+package com.alejandro.mancala.game;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GameRegistry.
+ *
+ * @author afernandez
+ */
+public class GameRegistryTest {
+
+    private GameRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new GameRegistry(4, 4);
+    }
+
+    @Test
+    public void testPutGetRemove() throws Exception {
+        Game game = new Game(registry.nextId());
+
+        assertNull(registry.get(game.getId()));
+
+        registry.put(game);
+
+        assertSame(game, registry.get(game.getId()));
+        assertEquals(1, registry.size());
+
+        assertSame(game, registry.remove(game.getId()));
+        assertNull(registry.get(game.getId()));
+        assertNull(registry.remove(game.getId()));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testGrowAndRemoveManyGames() throws Exception {
+        int [] ids = new int[100000];
+
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = registry.nextId();
+            registry.put(new Game(ids[i]));
+        }
+        assertEquals(ids.length, registry.size());
+
+        // Removes every other game so that entries get shifted back across probe sequences
+        for (int i = 0; i < ids.length; i += 2) {
+            assertNotNull(registry.remove(ids[i]));
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (i % 2 == 0) {
+                assertNull(registry.get(ids[i]));
+            } else {
+                assertEquals(ids[i], registry.get(ids[i]).getId());
+            }
+        }
+        assertEquals(ids.length / 2, registry.size());
+    }
+
+    @Test
+    public void testNextIdSkipsGamesInUse() throws Exception {
+        GameRegistry singleShard = new GameRegistry(1, 4);
+        singleShard.put(new Game(1));
+
+        assertEquals(2, singleShard.nextId());
+    }
+
+    @Test
+    public void testNextIdUniqueAcrossThreads() throws Exception {
+        int threads = 8;
+        int idsPerThread = 10000;
+
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < idsPerThread; j++) {
+                    Game game = new Game(registry.nextId());
+                    registry.put(game);
+                    ids.add(game.getId());
+                }
+            });
+        }
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(threads * idsPerThread, ids.size());
+        assertEquals(threads * idsPerThread, registry.size());
+    }
+}
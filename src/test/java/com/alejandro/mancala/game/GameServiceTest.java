@@ -1,6 +1,7 @@
 package com.alejandro.mancala.game;
 
 import com.alejandro.mancala.message.InputMessage;
+import com.alejandro.mancala.metrics.GameMetrics;
 import com.alejandro.mancala.player.Player;
 import org.junit.Before;
 import org.junit.Test;
@@ -12,7 +13,10 @@ import org.springframework.web.socket.WebSocketSession;
 import java.util.Arrays;
 
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -27,10 +31,12 @@ public class GameServiceTest {
 
     @Mock
     private WebSocketSession webSocketSession;
+    @Mock
+    private GameMetrics metrics;
 
     @Before
     public void setUp() {
-        gameService = new GameService();
+        gameService = new GameService(metrics);
     }
 
     @Test
@@ -39,7 +45,7 @@ public class GameServiceTest {
 
         int [] initialPit = new int[] {6, 6, 6, 6, 6, 6};
 
-        assertEquals(Integer.valueOf(1), game.getId());
+        assertTrue(game.getId() > 0);
         assertEquals(State.PENDING, game.getState());
         assertEquals(0, game.getBoard().getFirstPlayerBigPit());
         assertEquals(0, game.getBoard().getSecondPlayerBigPit());
@@ -48,15 +54,27 @@ public class GameServiceTest {
         assertTrue(Arrays.equals(initialPit, game.getBoard().getPitsSecondPlayer()));
     }
 
+    @Test
+    public void testMatchNewGameWithGivenId() throws Exception {
+        Game game = gameService.matchGame(42);
+        gameService.addGame(game);
+
+        assertEquals(42, game.getId());
+        assertEquals(State.PENDING, game.getState());
+        assertSame(game, gameService.matchGame(43));
+        assertEquals(State.STARTED, game.getState());
+    }
+
     @Test
     public void testAddNewAndMatchExistingGame() throws Exception {
-        gameService.addGame(gameService.matchGame());
+        Game pendingGame = gameService.matchGame();
+        gameService.addGame(pendingGame);
         Game game = gameService.matchGame();
 
         int [] initialPit = new int[] {6, 6, 6, 6, 6, 6};
 
-        assertEquals(Integer.valueOf(1), game.getId());
-        assertEquals(State.PENDING, game.getState());
+        assertEquals(pendingGame.getId(), game.getId());
+        assertEquals(State.STARTED, game.getState());
         assertEquals(0, game.getBoard().getFirstPlayerBigPit());
         assertEquals(0, game.getBoard().getSecondPlayerBigPit());
 
@@ -64,6 +82,126 @@ public class GameServiceTest {
         assertTrue(Arrays.equals(initialPit, game.getBoard().getPitsSecondPlayer()));
     }
 
+    @Test
+    public void testMatchGameOnlyOnce() throws Exception {
+        Game pendingGame = gameService.matchGame();
+        gameService.addGame(pendingGame);
+
+        Game first = gameService.matchGame();
+        Game second = gameService.matchGame();
+
+        assertEquals(pendingGame.getId(), first.getId());
+        assertNotEquals(pendingGame.getId(), second.getId());
+        assertEquals(State.PENDING, second.getState());
+    }
+
+    @Test
+    public void testRemovedPendingGameIsNotMatched() throws Exception {
+        Game abandonedGame = createNewGame();
+        gameService.addGame(abandonedGame);
+        gameService.removeGame(1);
+
+        Game game = gameService.matchGame();
+
+        assertNotSame(abandonedGame, game);
+        assertEquals(State.ABANDONED, abandonedGame.getState());
+        assertEquals(State.PENDING, game.getState());
+    }
+
+    @Test
+    public void testPendingGames() throws Exception {
+        Game firstGame = gameService.matchGame();
+        Game abandonedGame = gameService.matchGame();
+        gameService.addGame(firstGame);
+        gameService.addGame(abandonedGame);
+
+        assertEquals(2, gameService.getPendingGames());
+        assertEquals(2, gameService.getLiveGames());
+
+        gameService.removeGame(abandonedGame.getId());
+
+        assertEquals(1, gameService.getPendingGames());
+        assertEquals(1, gameService.getLiveGames());
+        verify(metrics, never()).gameAbandoned();
+
+        assertSame(firstGame, gameService.matchGame());
+        assertEquals(0, gameService.getPendingGames());
+    }
+
+    @Test
+    public void testMatchBot() throws Exception {
+        Game game = gameService.matchGame();
+        gameService.addGame(game);
+
+        assertTrue(gameService.matchBot(game));
+        assertEquals(State.STARTED, game.getState());
+        assertEquals(0, gameService.getPendingGames());
+        assertNotSame(game, gameService.matchGame());
+        verify(metrics).recordPendingTime(anyLong());
+    }
+
+    @Test
+    public void testMatchBotGameAlreadyJoined() throws Exception {
+        Game game = gameService.matchGame();
+        gameService.addGame(game);
+        gameService.matchGame();
+
+        assertFalse(gameService.matchBot(game));
+        assertEquals(0, gameService.getPendingGames());
+    }
+
+    @Test
+    public void testMatchGameRecordsPendingTime() throws Exception {
+        gameService.addGame(gameService.matchGame());
+        gameService.matchGame();
+
+        verify(metrics).recordPendingTime(anyLong());
+    }
+
+    @Test
+    public void testRemoveStartedGameRecordsAbandoned() throws Exception {
+        Game game = createNewGame();
+        game.start();
+        gameService.addGame(game);
+
+        gameService.removeGame(game.getId());
+
+        verify(metrics).gameAbandoned();
+    }
+
+    @Test
+    public void testExpirePendingGame() throws Exception {
+        Game game = gameService.matchGame();
+        gameService.addGame(game);
+
+        assertTrue(gameService.expirePendingGame(game));
+        assertEquals(State.ABANDONED, game.getState());
+        assertEquals(0, gameService.getPendingGames());
+        assertEquals(0, gameService.getLiveGames());
+    }
+
+    @Test
+    public void testExpirePendingGameJustStarted() throws Exception {
+        Game game = gameService.matchGame();
+        gameService.addGame(game);
+        gameService.matchGame();
+
+        assertFalse(gameService.expirePendingGame(game));
+        assertEquals(State.STARTED, game.getState());
+        assertSame(game, gameService.getGame(game.getId()));
+    }
+
+    @Test
+    public void testForfeit() throws Exception {
+        Game game = createNewGame();
+        game.start();
+
+        gameService.forfeit(game, true);
+
+        assertEquals(State.WINNER_SECOND_PLAYER, game.getState());
+        verify(metrics).gameFinished(State.WINNER_SECOND_PLAYER);
+    }
+
     @Test
     public void testFirstPlayerWaiting() throws Exception {
         Game game = gameService.matchGame();
@@ -114,7 +252,7 @@ public class GameServiceTest {
         boolean extraTurn = gameService.moveStones(game, inputMessage);
 
         int [] result = new int[] {6, 6, 0, 7, 7, 7};
-        int [] resultSecondPlayer = new int[] {6, 6, 6, 6, 6, 6};
+        int [] resultSecondPlayer = new int[] {7, 7, 6, 6, 6, 6};
 
         assertBoardPits(game, result, resultSecondPlayer, 1, 0);
         assertFalse(extraTurn);
@@ -131,7 +269,7 @@ public class GameServiceTest {
 
         boolean extraTurn = gameService.moveStones(game, inputMessage);
 
-        int [] result = new int[] {6, 6, 6, 6, 6, 6};
+        int [] result = new int[] {7, 7, 7, 7, 7, 6};
         int [] resultSecondPlayer = new int[] {6, 6, 6, 6, 6, 0};
 
         assertBoardPits(game, result, resultSecondPlayer, 0, 1);
@@ -156,6 +294,74 @@ public class GameServiceTest {
         assertTrue(extraTurn);
     }
 
+    @Test
+    public void testMoveStonesIgnoresClientStones() throws Exception {
+        Game game = new Game(1);
+
+        InputMessage inputMessage = new InputMessage();
+        inputMessage.setPlayer("First Player");
+        inputMessage.setPitSelected(0);
+        inputMessage.setStones(1);
+
+        boolean extraTurn = gameService.moveStones(game, inputMessage);
+
+        int [] result = new int[] {0, 7, 7, 7, 7, 7};
+        int [] resultSecondPlayer = new int[] {6, 6, 6, 6, 6, 6};
+
+        assertBoardPits(game, result, resultSecondPlayer, 1, 0);
+        assertTrue(extraTurn);
+    }
+
+    @Test
+    public void testMoveStonesCapture() throws Exception {
+        Game game = new Game(1);
+        game.getBoard().setPitsFirstPlayer(new int[] {1, 0, 6, 6, 6, 6});
+
+        InputMessage inputMessage = new InputMessage();
+        inputMessage.setPlayer("First Player");
+        inputMessage.setPitSelected(0);
+
+        boolean extraTurn = gameService.moveStones(game, inputMessage);
+
+        int [] result = new int[] {0, 0, 6, 6, 6, 6};
+        int [] resultSecondPlayer = new int[] {6, 6, 6, 6, 0, 6};
+
+        assertBoardPits(game, result, resultSecondPlayer, 7, 0);
+        assertFalse(extraTurn);
+    }
+
+    @Test
+    public void testMoveStonesWrapAroundSkipsOpponentBigPit() throws Exception {
+        Game game = new Game(1);
+        game.getBoard().setPitsSecondPlayer(new int[] {0, 0, 0, 0, 0, 13});
+        game.getBoard().setFirstPlayerBigPit(5);
+
+        InputMessage inputMessage = new InputMessage();
+        inputMessage.setPlayer("Second Player");
+        inputMessage.setPitSelected(5);
+
+        boolean extraTurn = gameService.moveStones(game, inputMessage);
+
+        // The 13th stone lands back in the emptied pit and captures the opposite pit
+        int [] result = new int[] {0, 7, 7, 7, 7, 7};
+        int [] resultSecondPlayer = new int[] {1, 1, 1, 1, 1, 0};
+
+        assertBoardPits(game, result, resultSecondPlayer, 5, 9);
+        assertFalse(extraTurn);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMoveStonesEmptyPit() throws Exception {
+        Game game = new Game(1);
+        game.getBoard().setPitsFirstPlayer(new int[] {0, 6, 6, 6, 6, 6});
+
+        InputMessage inputMessage = new InputMessage();
+        inputMessage.setPlayer("First Player");
+        inputMessage.setPitSelected(0);
+
+        gameService.moveStones(game, inputMessage);
+    }
+
     @Test
     public void testIsGameFinished() throws Exception {
         Game game = new Game(1);
@@ -189,6 +395,7 @@ public class GameServiceTest {
         assertEquals(15, game.getBoard().getSecondPlayerBigPit());
 
         assertEquals(State.WINNER_FIRST_PLAYER, game.getState());
+        verify(metrics).gameFinished(State.WINNER_FIRST_PLAYER);
     }
 
     @Test
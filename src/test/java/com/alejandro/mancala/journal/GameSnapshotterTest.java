@@ -0,0 +1,143 @@
+package com.alejandro.mancala.journal;
+
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.game.State;
+import com.alejandro.mancala.message.InputMessage;
+import com.alejandro.mancala.message.MessageService;
+import com.alejandro.mancala.metrics.GameMetrics;
+import com.alejandro.mancala.player.Player;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for GameSnapshotter.
+ *
+ * @author afernandez
+ */
+public class GameSnapshotterTest {
+    private static final String FIRST_TOKEN  = "000102030405060708090a0b";
+    private static final String SECOND_TOKEN = "f0e0d0c0b0a0908070605040";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.getRoot().toPath();
+        file = directory.resolve("games.snapshot");
+    }
+
+    @Test
+    public void testRestoreStartedGames() throws Exception {
+        GameService gameService = new GameService();
+        Game started = startGame(gameService);
+        move(gameService, started, MessageService.FIRST_PLAYER, 2);
+
+        Game pending = gameService.matchGame();
+        gameService.addGame(pending);
+
+        GameSnapshotter snapshotter = new GameSnapshotter(file, new MappedMoveJournal(directory, 1024, 10));
+
+        assertEquals(2, snapshotter.snapshot(gameService));
+
+        List<Game> restored = new ArrayList<>(snapshotter.restore());
+
+        assertEquals(1, restored.size());
+        assertEquals(started.getId(), restored.get(0).getId());
+        assertEquals(State.STARTED, restored.get(0).getState());
+        assertEquals(1, restored.get(0).getBoard().getVersion());
+        assertArrayEquals(started.getBoard().getPitsFirstPlayer(), restored.get(0).getBoard().getPitsFirstPlayer());
+        assertArrayEquals(started.getBoard().getPitsSecondPlayer(), restored.get(0).getBoard().getPitsSecondPlayer());
+    }
+
+    @Test
+    public void testRestorePlayers() throws Exception {
+        GameService gameService = new GameService();
+        Game game = startGame(gameService);
+        Game againstBot = startGame(gameService);
+
+        game.setFirstPlayer(new Player(null, game.getId(), String.format("%08x", game.getId()) + FIRST_TOKEN));
+        game.setSecondPlayer(new Player(null, game.getId(), String.format("%08x", game.getId()) + SECOND_TOKEN));
+        againstBot.setFirstPlayer(
+                new Player(null, againstBot.getId(), String.format("%08x", againstBot.getId()) + FIRST_TOKEN));
+        againstBot.setSecondPlayer(new Player(null, againstBot.getId()));
+
+        GameSnapshotter snapshotter = new GameSnapshotter(file, new MappedMoveJournal(directory, 1024, 10));
+        snapshotter.snapshot(gameService);
+
+        Map<Integer, Game> restored = new HashMap<>();
+        snapshotter.restore().forEach(restoredGame -> restored.put(restoredGame.getId(), restoredGame));
+
+        assertEquals(2, restored.size());
+        assertEquals(game.getFirstPlayer().getResumeToken(),
+                restored.get(game.getId()).getFirstPlayer().getResumeToken());
+        assertEquals(game.getSecondPlayer().getResumeToken(),
+                restored.get(game.getId()).getSecondPlayer().getResumeToken());
+        assertNull(restored.get(againstBot.getId()).getFirstPlayer());
+        assertNull(restored.get(againstBot.getId()).getSecondPlayer());
+    }
+
+    @Test
+    public void testRestoreWithoutSnapshot() throws Exception {
+        assertTrue(new GameSnapshotter(file, new MappedMoveJournal(directory, 1024, 10)).restore().isEmpty());
+    }
+
+    @Test
+    public void testJournalReplayedOnTopOfSnapshot() throws Exception {
+        MappedMoveJournal journal = new MappedMoveJournal(directory, 1024, 10);
+        GameService gameService = new GameService(new GameMetrics(), journal);
+        GameSnapshotter snapshotter = new GameSnapshotter(file, journal);
+
+        Game game = startGame(gameService);
+        move(gameService, game, MessageService.FIRST_PLAYER, 2);
+        snapshotter.snapshot(gameService);
+        move(gameService, game, MessageService.SECOND_PLAYER, 3);
+        journal.close();
+
+        // The segment written before the snapshot is no longer needed
+        assertFalse(Files.exists(directory.resolve("journal-000000.log")));
+
+        List<Game> recovered = new ArrayList<>(
+                new MappedMoveJournal(directory, 1024, 10).recover(snapshotter.restore()));
+
+        assertEquals(1, recovered.size());
+        assertEquals(2, recovered.get(0).getBoard().getVersion());
+        assertArrayEquals(game.getBoard().getPitsFirstPlayer(), recovered.get(0).getBoard().getPitsFirstPlayer());
+        assertArrayEquals(game.getBoard().getPitsSecondPlayer(), recovered.get(0).getBoard().getPitsSecondPlayer());
+    }
+
+    private Game startGame(GameService gameService) {
+        Game game = gameService.matchGame();
+        gameService.addGame(game);
+        gameService.matchGame();
+
+        return game;
+    }
+
+    private void move(GameService gameService, Game game, String player, int pit) {
+        InputMessage message = new InputMessage();
+        message.setPlayer(player);
+        message.setPitSelected(pit);
+
+        gameService.moveStones(game, message);
+    }
+}
@@ -0,0 +1,152 @@
+package com.alejandro.mancala.journal;
+
+import com.alejandro.mancala.game.Board;
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.game.State;
+import com.alejandro.mancala.message.InputMessage;
+import com.alejandro.mancala.message.MessageService;
+import com.alejandro.mancala.metrics.GameMetrics;
+import com.alejandro.mancala.player.Player;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for MappedMoveJournal.
+ *
+ * @author afernandez
+ */
+public class MappedMoveJournalTest {
+    private static final String FIRST_TOKEN  = "000102030405060708090a0b";
+    private static final String SECOND_TOKEN = "f0e0d0c0b0a0908070605040";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.getRoot().toPath();
+    }
+
+    @Test
+    public void testRecoverGamesInProgress() throws Exception {
+        MappedMoveJournal journal = new MappedMoveJournal(directory, 1024, 10);
+        GameService gameService = new GameService(new GameMetrics(), journal);
+
+        Game game = startGame(gameService);
+        Game finished = startGame(gameService);
+        move(gameService, game, MessageService.FIRST_PLAYER, 0);
+        move(gameService, game, MessageService.FIRST_PLAYER, 1);
+        move(gameService, finished, MessageService.FIRST_PLAYER, 2);
+        gameService.removeGame(finished.getId());
+        journal.close();
+
+        List<Game> recovered = recoverGames();
+
+        assertEquals(1, recovered.size());
+        assertEquals(game.getId(), recovered.get(0).getId());
+        assertEquals(State.STARTED, recovered.get(0).getState());
+        assertBoardEquals(game.getBoard(), recovered.get(0).getBoard());
+    }
+
+    @Test
+    public void testRecoverAcrossSegments() throws Exception {
+        // Room for three records per segment
+        MappedMoveJournal journal = new MappedMoveJournal(directory, 3 * MappedMoveJournal.RECORD_LENGTH, 10);
+        GameService gameService = new GameService(new GameMetrics(), journal);
+
+        Game game = startGame(gameService);
+        move(gameService, game, MessageService.FIRST_PLAYER, 2);
+        move(gameService, game, MessageService.SECOND_PLAYER, 3);
+        move(gameService, game, MessageService.FIRST_PLAYER, 4);
+        move(gameService, game, MessageService.SECOND_PLAYER, 0);
+        journal.close();
+
+        assertTrue(journal.getCurrentSegment() > 0);
+
+        List<Game> recovered = recoverGames();
+
+        assertEquals(1, recovered.size());
+        assertEquals(4, recovered.get(0).getBoard().getVersion());
+        assertBoardEquals(game.getBoard(), recovered.get(0).getBoard());
+    }
+
+    @Test
+    public void testRecoverPlayers() throws Exception {
+        MappedMoveJournal journal = new MappedMoveJournal(directory, 1024, 10);
+        GameService gameService = new GameService(new GameMetrics(), journal);
+
+        Game game = startGame(gameService);
+        Game withoutPlayers = startGame(gameService);
+        game.setFirstPlayer(new Player(null, game.getId(), String.format("%08x", game.getId()) + FIRST_TOKEN));
+        game.setSecondPlayer(new Player(null, game.getId(), String.format("%08x", game.getId()) + SECOND_TOKEN));
+        gameService.playersJoined(game);
+        move(gameService, game, MessageService.FIRST_PLAYER, 1);
+        journal.close();
+
+        List<Game> recovered = recoverGames();
+
+        assertEquals(2, recovered.size());
+        assertEquals(game.getFirstPlayer().getResumeToken(), recovered.get(0).getFirstPlayer().getResumeToken());
+        assertEquals(game.getSecondPlayer().getResumeToken(), recovered.get(0).getSecondPlayer().getResumeToken());
+        assertFalse(recovered.get(0).getFirstPlayer().getSession().isOpen());
+        assertEquals(withoutPlayers.getId(), recovered.get(1).getId());
+        assertNull(recovered.get(1).getFirstPlayer());
+    }
+
+    @Test
+    public void testRecoverOnlyPreviousRuns() throws Exception {
+        MappedMoveJournal journal = new MappedMoveJournal(directory, 1024, 10);
+        startGame(new GameService(new GameMetrics(), journal));
+
+        assertTrue(journal.recover(Collections.emptyList()).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSegmentSizeNotMultipleOfRecord() throws Exception {
+        new MappedMoveJournal(directory, 1000, 10);
+    }
+
+    private List<Game> recoverGames() {
+        return new ArrayList<>(new MappedMoveJournal(directory, 1024, 10).recover(Collections.emptyList()));
+    }
+
+    private Game startGame(GameService gameService) {
+        Game game = gameService.matchGame();
+        gameService.addGame(game);
+        gameService.matchGame();
+
+        return game;
+    }
+
+    private void move(GameService gameService, Game game, String player, int pit) {
+        InputMessage message = new InputMessage();
+        message.setPlayer(player);
+        message.setPitSelected(pit);
+
+        gameService.moveStones(game, message);
+    }
+
+    private void assertBoardEquals(Board expected, Board actual) {
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertArrayEquals(expected.getPitsFirstPlayer(), actual.getPitsFirstPlayer());
+        assertArrayEquals(expected.getPitsSecondPlayer(), actual.getPitsSecondPlayer());
+        assertEquals(expected.getFirstPlayerBigPit(), actual.getFirstPlayerBigPit());
+        assertEquals(expected.getSecondPlayerBigPit(), actual.getSecondPlayerBigPit());
+    }
+}
@@ -0,0 +1,104 @@
+package com.alejandro.mancala.message;
+
+import com.alejandro.mancala.game.Board;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.socket.BinaryMessage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for BinaryFrames.
+ *
+ * @author afernandez
+ */
+public class BinaryFramesTest {
+    private static final String WAIT_TURN = "Wait for your turn!";
+    private static final String YOUR_TURN = "Your turn!";
+
+    private BinaryFrames binaryFrames;
+
+    @Before
+    public void setUp() throws Exception {
+        binaryFrames = new BinaryFrames(Arrays.asList(WAIT_TURN, YOUR_TURN));
+    }
+
+    @Test
+    public void testTurn() throws Exception {
+        assertEquals(new BinaryMessage(new byte[] {2, 1, 0}), binaryFrames.turn("First Player", YOUR_TURN));
+        assertEquals(new BinaryMessage(new byte[] {2, 0, 1}), binaryFrames.turn("Second Player", WAIT_TURN));
+        assertEquals(new BinaryMessage(new byte[] {2, 0, (byte) 0xFF}), binaryFrames.turn(null, WAIT_TURN));
+    }
+
+    @Test
+    public void testBoard() throws Exception {
+        Board board = new Board();
+        board.setPitsFirstPlayer(new int[] {0, 7, 7, 7, 7, 7});
+        board.setFirstPlayerBigPit(1);
+        board.setSecondPlayerBigPit(72);
+
+        byte[] expected = new byte[] {3, 1, 0, 0, 0, 0, 0, 7, 7, 7, 7, 7, 1, 6, 6, 6, 6, 6, 6, 72};
+
+        assertEquals(new BinaryMessage(expected), binaryFrames.board(board, YOUR_TURN));
+    }
+
+    @Test
+    public void testBoardWithoutStatus() throws Exception {
+        byte[] frame = binaryFrames.board(new Board(), null).getPayload().array();
+
+        assertEquals((byte) 0xFF, frame[1]);
+    }
+
+    @Test
+    public void testDelta() throws Exception {
+        Board board = new Board();
+        board.setPitsSecondPlayer(new int[] {6, 6, 0, 6, 6, 6});
+        board.setSecondPlayerBigPit(6);
+        board.nextVersion();
+        board.setFirstPlayerBigPit(1);
+        board.nextVersion();
+
+        assertEquals(new BinaryMessage(new byte[] {4, 0, 0, 0, 0, 2, 1, 6, 1}), binaryFrames.delta(board, WAIT_TURN));
+    }
+
+    @Test
+    public void testResumeToken() throws Exception {
+        byte[] expected = new byte[] {6, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, (byte) 0xFF};
+
+        assertEquals(new BinaryMessage(expected), binaryFrames.resumeToken("000102030405060708090a0b0c0d0eff"));
+    }
+
+    @Test
+    public void testDecodeResync() throws Exception {
+        assertTrue(MoveParser.isResync(BinaryFrames.decodeMove(ByteBuffer.wrap(new byte[] {5}))));
+    }
+
+    @Test
+    public void testDecodeMove() throws Exception {
+        long move = BinaryFrames.decodeMove(ByteBuffer.wrap(new byte[] {1, 1, 4}));
+
+        assertFalse(MoveParser.isResync(move));
+        assertFalse(MoveParser.isFirstPlayer(move));
+        assertEquals(4, MoveParser.pit(move));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeMoveMalformed() throws Exception {
+        BinaryFrames.decodeMove(ByteBuffer.wrap(new byte[] {3, 1, 4}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeMoveTooLong() throws Exception {
+        BinaryFrames.decodeMove(ByteBuffer.wrap(new byte[] {1, 1, 4, 0}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeMoveUnknownPlayer() throws Exception {
+        BinaryFrames.decodeMove(ByteBuffer.wrap(new byte[] {1, 2, 4}));
+    }
+}
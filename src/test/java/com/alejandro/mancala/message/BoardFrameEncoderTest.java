@@ -0,0 +1,46 @@
+package com.alejandro.mancala.message;
+
+import com.alejandro.mancala.game.Board;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for BoardFrameEncoder.
+ *
+ * @author afernandez
+ */
+public class BoardFrameEncoderTest {
+
+    private ObjectMapper objectMapper = new ObjectMapper();
+    private BoardFrameEncoder encoder;
+
+    @Before
+    public void setUp() throws Exception {
+        encoder = new BoardFrameEncoder(objectMapper.getFactory());
+    }
+
+    @Test
+    public void testEncodeMatchesOutputMessage() throws Exception {
+        Board board = new Board();
+        board.setPitsFirstPlayer(new int[] {0, 1, 12, 3, 72, 5});
+        board.setSecondPlayerBigPit(17);
+
+        String expected = objectMapper.writeValueAsString(new OutputMessage(board, "Say \"hello\"!"));
+
+        assertEquals(expected, encoder.encode(board, "Say \"hello\"!").getPayload());
+    }
+
+    @Test
+    public void testFramesShareBoardFields() throws Exception {
+        Board board = new Board();
+        byte[] boardFields = encoder.encodeBoard(board);
+
+        assertEquals(objectMapper.writeValueAsString(new OutputMessage(board, "First")),
+                encoder.frame(boardFields, "First").getPayload());
+        assertEquals(objectMapper.writeValueAsString(new OutputMessage(board, "Second")),
+                encoder.frame(boardFields, "Second").getPayload());
+    }
+}
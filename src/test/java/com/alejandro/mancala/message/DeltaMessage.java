@@ -0,0 +1,39 @@
+package com.alejandro.mancala.message;
+
+import com.alejandro.mancala.game.Board;
+
+/**
+ * Delta update of the board the tests expect to be sent, with just the pits changed by the last version of the
+ * board. Changes are sent as pairs of pit index and stones.
+ *
+ * @author afernandez
+ */
+public class DeltaMessage extends BaseMessage {
+    private int version;
+    private int[] changes;
+
+    public DeltaMessage() {
+    }
+
+    public DeltaMessage(Board board, String turnMessage) {
+        super(turnMessage);
+        this.version = board.getVersion();
+        this.changes = new int[2 * Integer.bitCount(board.getChangedPits())];
+
+        int change = 0;
+        for (int index = 0; index < Board.ALL_PITS; index++) {
+            if ((board.getChangedPits() & (1 << index)) != 0) {
+                changes[change++] = index;
+                changes[change++] = board.getStones(index);
+            }
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int[] getChanges() {
+        return changes;
+    }
+}
@@ -1,17 +1,24 @@
 package com.alejandro.mancala.message;
 
 import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameService;
 import com.alejandro.mancala.game.State;
 import com.alejandro.mancala.player.Player;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,6 +35,8 @@ public class MessageServiceTest {
     private static final String YOU_WON       = "You have won the game! Congratulations!";
     private static final String YOU_LOST      = "You have lost the game. Try it next time again!";
     private static final String GAME_DRAW     = "The game ended in draw. Try it again next time!";
+    private static final String OPPONENT_LEFT = "Your opponent left the game. Please refresh the browser to start again!";
+    private static final String TOKEN         = "000102030405060708090a0b0c0d0e0f";
 
     private MessageService messageService;
     private ObjectMapper objectMapper = new ObjectMapper();
@@ -48,8 +57,8 @@ public class MessageServiceTest {
 
         messageService.updatePlayersNextTurn(game, session, false);
 
-        verify(sessionTwo).sendMessage(new TextMessage(objectMapper.writeValueAsString(new OutputMessage(game.getBoard(), YOUR_TURN))));
-        verify(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(new OutputMessage(game.getBoard(), WAIT_TURN))));
+        verify(sessionTwo).sendMessage(new TextMessage(objectMapper.writeValueAsString(new DeltaMessage(game.getBoard(), YOUR_TURN))));
+        verify(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(new DeltaMessage(game.getBoard(), WAIT_TURN))));
     }
 
     @Test
@@ -58,8 +67,8 @@ public class MessageServiceTest {
 
         messageService.updatePlayersNextTurn(game, sessionTwo, false);
 
-        verify(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(new OutputMessage(game.getBoard(), YOUR_TURN))));
-        verify(sessionTwo).sendMessage(new TextMessage(objectMapper.writeValueAsString(new OutputMessage(game.getBoard(), WAIT_TURN))));
+        verify(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(new DeltaMessage(game.getBoard(), YOUR_TURN))));
+        verify(sessionTwo).sendMessage(new TextMessage(objectMapper.writeValueAsString(new DeltaMessage(game.getBoard(), WAIT_TURN))));
     }
 
     @Test
@@ -68,8 +77,8 @@ public class MessageServiceTest {
 
         messageService.updatePlayersNextTurn(game, sessionTwo, true);
 
-        verify(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(new OutputMessage(game.getBoard(), WAIT_TURN))));
-        verify(sessionTwo).sendMessage(new TextMessage(objectMapper.writeValueAsString(new OutputMessage(game.getBoard(), ADD_TURN))));
+        verify(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(new DeltaMessage(game.getBoard(), WAIT_TURN))));
+        verify(sessionTwo).sendMessage(new TextMessage(objectMapper.writeValueAsString(new DeltaMessage(game.getBoard(), ADD_TURN))));
     }
 
     @Test
@@ -115,6 +124,96 @@ public class MessageServiceTest {
         verify(sessionTwo).sendMessage(new TextMessage(objectMapper.writeValueAsString(new TurnMessage("Second Player", WAIT_TURN))));
     }
 
+    @Test
+    public void updatePlayersGameStartedReusesFrames() throws Exception {
+        Game game = createMockGameWithPlayers();
+        ArgumentCaptor<TextMessage> firstGame = ArgumentCaptor.forClass(TextMessage.class);
+        ArgumentCaptor<TextMessage> secondGame = ArgumentCaptor.forClass(TextMessage.class);
+
+        messageService.updatePlayersGameStarted(game);
+        verify(session).sendMessage(firstGame.capture());
+
+        messageService.updatePlayersGameStarted(game);
+        verify(session, times(2)).sendMessage(secondGame.capture());
+
+        assertSame(firstGame.getValue(), secondGame.getValue());
+    }
+
+    @Test
+    public void updatePlayersNextTurnBinaryProtocol() throws Exception {
+        Game game = createMockGameWithPlayers();
+        when(sessionTwo.getAcceptedProtocol()).thenReturn(BinaryFrames.PROTOCOL);
+
+        messageService.updatePlayersNextTurn(game, session, false);
+
+        verify(sessionTwo).sendMessage(new BinaryMessage(new byte[] {4, 1, 0, 0, 0, 0, 0}));
+        verify(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(new DeltaMessage(game.getBoard(), WAIT_TURN))));
+    }
+
+    @Test
+    public void updatePlayersNextTurnSendsChangedPits() throws Exception {
+        Game game = createMockGameWithPlayers();
+        InputMessage move = new InputMessage();
+        move.setPlayer("First Player");
+        move.setPitSelected(0);
+        new GameService().moveStones(game, move);
+
+        messageService.updatePlayersNextTurn(game, session, true);
+
+        verify(session).sendMessage(new TextMessage("{\"turnMessage\":\"" + ADD_TURN + "\",\"player\":null,"
+                + "\"version\":1,\"changes\":[0,0,1,7,2,7,3,7,4,7,5,7,6,1]}"));
+        verify(sessionTwo).sendMessage(new TextMessage(objectMapper.writeValueAsString(new DeltaMessage(game.getBoard(), WAIT_TURN))));
+    }
+
+    @Test
+    public void updatePlayersGameFinishedSendsSnapshot() throws Exception {
+        Game game = createMockGameWithPlayers();
+        game.setState(State.GAME_DRAW);
+        when(sessionTwo.getAcceptedProtocol()).thenReturn(BinaryFrames.PROTOCOL);
+
+        messageService.updatePlayersGameFinished(game);
+
+        verify(sessionTwo).sendMessage(new BinaryMessage(new byte[] {3, 5, 0, 0, 0, 0, 6, 6, 6, 6, 6, 6, 0, 6, 6, 6, 6, 6, 6, 0}));
+    }
+
+    @Test
+    public void sendBoard() throws Exception {
+        Game game = createMockGameWithPlayers();
+
+        messageService.sendBoard(session, game);
+
+        verify(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(new OutputMessage(game.getBoard(), null))));
+    }
+
+    @Test
+    public void updatePlayersGameStartedSendsResumeTokens() throws Exception {
+        Game game = createMockGameWithPlayers();
+        game.setFirstPlayer(new Player(session, 1, TOKEN));
+
+        messageService.updatePlayersGameStarted(game);
+
+        verify(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(new ResumeMessage(TOKEN))));
+    }
+
+    @Test
+    public void sendGameResumed() throws Exception {
+        Game game = createMockGameWithPlayers();
+        game.setFirstPlayerTurn(false);
+
+        messageService.sendGameResumed(sessionTwo, game, false);
+
+        InOrder inOrder = inOrder(sessionTwo);
+        inOrder.verify(sessionTwo).sendMessage(new TextMessage(objectMapper.writeValueAsString(new TurnMessage("Second Player", YOUR_TURN))));
+        inOrder.verify(sessionTwo).sendMessage(new TextMessage(objectMapper.writeValueAsString(new OutputMessage(game.getBoard(), YOUR_TURN))));
+    }
+
+    @Test
+    public void sendOpponentLeft() throws Exception {
+        messageService.sendOpponentLeft(session);
+
+        verify(session).sendMessage(new TextMessage(objectMapper.writeValueAsString(new TurnMessage(OPPONENT_LEFT))));
+    }
+
     @Test
     public void sendMessage() throws Exception {
         InputMessage inputMessage = new InputMessage();
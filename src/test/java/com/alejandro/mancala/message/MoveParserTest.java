@@ -0,0 +1,119 @@
+package com.alejandro.mancala.message;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for MoveParser.
+ *
+ * @author afernandez
+ */
+public class MoveParserTest {
+    private MoveParser parser;
+
+    @Before
+    public void setUp() throws Exception {
+        parser = new MoveParser();
+    }
+
+    @Test
+    public void testParseMove() throws Exception {
+        long move = parser.parse("{\"pitSelected\":3,\"stones\":6,\"player\":\"First Player\",\"turnMessage\":null}");
+
+        assertFalse(MoveParser.isResync(move));
+        assertTrue(MoveParser.isFirstPlayer(move));
+        assertEquals(3, MoveParser.pit(move));
+    }
+
+    @Test
+    public void testParseMoveFromBrowser() throws Exception {
+        long move = parser.parse(" { \"player\" : \"Second Player\", \"stones\" : \"6\", \"pitSelected\" : 5 } ");
+
+        assertFalse(MoveParser.isResync(move));
+        assertFalse(MoveParser.isFirstPlayer(move));
+        assertEquals(5, MoveParser.pit(move));
+    }
+
+    @Test
+    public void testParseResync() throws Exception {
+        assertTrue(MoveParser.isResync(parser.parse("{\"resync\":true}")));
+        assertFalse(MoveParser.isResync(parser.parse("{\"resync\":false,\"player\":\"First Player\"}")));
+    }
+
+    @Test
+    public void testParseNullsAndDefaults() throws Exception {
+        long move = parser.parse("{\"pitSelected\":null,\"stones\":\"\",\"player\":null,\"resync\":null}");
+
+        assertFalse(MoveParser.isResync(move));
+        assertFalse(MoveParser.isFirstPlayer(move));
+        assertEquals(0, MoveParser.pit(move));
+        assertEquals(MoveParser.move(false, 0), parser.parse("{}"));
+    }
+
+    @Test
+    public void testParseEscapedPlayer() throws Exception {
+        assertTrue(MoveParser.isFirstPlayer(parser.parse("{\"player\":\"First\\u0020Player\"}")));
+        assertFalse(MoveParser.isFirstPlayer(parser.parse("{\"player\":\"First\\tPlayer\"}")));
+    }
+
+    @Test
+    public void testNegativePitKept() throws Exception {
+        assertEquals(-1, MoveParser.pit(parser.parse("{\"pitSelected\":-1,\"player\":\"First Player\"}")));
+    }
+
+    @Test
+    public void testParserReused() throws Exception {
+        assertEquals(MoveParser.move(true, 1), parser.parse("{\"pitSelected\":1,\"player\":\"First Player\"}"));
+
+        try {
+            parser.parse("{\"pitSelected\":");
+        } catch (IllegalArgumentException ex) {
+            // The next move doesn't depend on the malformed one
+        }
+        assertEquals(MoveParser.move(false, 4), parser.parse("{\"pitSelected\":4,\"player\":\"Second Player\"}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownField() throws Exception {
+        parser.parse("{\"pitSelected\":1,\"pit\":2}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLong() throws Exception {
+        StringBuilder payload = new StringBuilder("{\"player\":\"");
+
+        while (payload.length() <= MoveParser.MAX_LENGTH) {
+            payload.append(' ');
+        }
+        parser.parse(payload.append("\"}").toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyDigits() throws Exception {
+        parser.parse("{\"pitSelected\":12345678901}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNestedValue() throws Exception {
+        parser.parse("{\"stones\":[1,2]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnterminatedString() throws Exception {
+        parser.parse("{\"player\":\"First Player}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTrailingCharacters() throws Exception {
+        parser.parse("{\"pitSelected\":1}{}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotAnObject() throws Exception {
+        parser.parse("3");
+    }
+}
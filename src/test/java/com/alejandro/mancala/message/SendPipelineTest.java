@@ -0,0 +1,167 @@
+package com.alejandro.mancala.message;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for SendPipeline.
+ *
+ * @author afernandez
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SendPipelineTest {
+    // Two of these frames go over the buffer size limit used in the tests
+    private static final TextMessage FIRST  = new TextMessage("frame-01");
+    private static final TextMessage SECOND = new TextMessage("frame-02");
+    private static final TextMessage THIRD  = new TextMessage("frame-03");
+    private static final int BUFFER_SIZE_LIMIT = 10;
+
+    private ManualExecutor executor = new ManualExecutor();
+
+    @Mock
+    private WebSocketSession session;
+
+    @Test
+    public void testFramesAreSentAsynchronously() throws Exception {
+        SendPipeline pipeline = createPipeline(SlowConsumerPolicy.DROP, 100);
+        WebSocketSession outbound = pipeline.open(session);
+
+        outbound.sendMessage(FIRST);
+        outbound.sendMessage(SECOND);
+
+        verify(session, never()).sendMessage(any(WebSocketMessage.class));
+        assertEquals(2, pipeline.getQueuedFrames());
+        assertEquals(2, pipeline.getPeakQueueDepth());
+
+        executor.runAll();
+
+        verify(session).sendMessage(FIRST);
+        verify(session).sendMessage(SECOND);
+        assertEquals(0, pipeline.getQueuedFrames());
+    }
+
+    @Test
+    public void testDropPolicy() throws Exception {
+        SendPipeline pipeline = createPipeline(SlowConsumerPolicy.DROP, BUFFER_SIZE_LIMIT);
+        WebSocketSession outbound = pipeline.open(session);
+
+        outbound.sendMessage(FIRST);
+        outbound.sendMessage(SECOND);
+        executor.runAll();
+
+        verify(session).sendMessage(FIRST);
+        verify(session, never()).sendMessage(SECOND);
+        assertEquals(1, pipeline.getDroppedFrames());
+    }
+
+    @Test
+    public void testCoalescePolicy() throws Exception {
+        SendPipeline pipeline = createPipeline(SlowConsumerPolicy.COALESCE, BUFFER_SIZE_LIMIT);
+        WebSocketSession outbound = pipeline.open(session);
+
+        outbound.sendMessage(FIRST);
+        outbound.sendMessage(SECOND);
+        outbound.sendMessage(THIRD);
+        executor.runAll();
+
+        verify(session, never()).sendMessage(FIRST);
+        verify(session, never()).sendMessage(SECOND);
+        verify(session).sendMessage(THIRD);
+        assertEquals(2, pipeline.getCoalescedFrames());
+    }
+
+    @Test
+    public void testDisconnectPolicy() throws Exception {
+        SendPipeline pipeline = createPipeline(SlowConsumerPolicy.DISCONNECT, BUFFER_SIZE_LIMIT);
+        WebSocketSession outbound = pipeline.open(session);
+
+        outbound.sendMessage(FIRST);
+        outbound.sendMessage(SECOND);
+        executor.runAll();
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(session, never()).sendMessage(any(WebSocketMessage.class));
+        assertEquals(1, pipeline.getDisconnectedSessions());
+        assertEquals(0, pipeline.getQueuedFrames());
+    }
+
+    @Test
+    public void testReleaseDiscardsQueuedFrames() throws Exception {
+        SendPipeline pipeline = createPipeline(SlowConsumerPolicy.DROP, 100);
+        WebSocketSession outbound = pipeline.open(session);
+
+        outbound.sendMessage(FIRST);
+        pipeline.release(outbound);
+        outbound.sendMessage(SECOND);
+        executor.runAll();
+
+        verify(session, never()).sendMessage(any(WebSocketMessage.class));
+        assertEquals(0, pipeline.getQueuedFrames());
+    }
+
+    private SendPipeline createPipeline(SlowConsumerPolicy policy, int bufferSizeLimit) {
+        return new SendPipeline(executor, bufferSizeLimit, 1000, policy);
+    }
+
+    /**
+     * Executor running its tasks only when asked to, so that the tests control when frames are flushed.
+     */
+    private static class ManualExecutor extends AbstractExecutorService {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        void runAll() {
+            Runnable task;
+
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.offer(task);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
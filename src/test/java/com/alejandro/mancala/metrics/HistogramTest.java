@@ -0,0 +1,57 @@
+package com.alejandro.mancala.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for Histogram.
+ *
+ * @author afernandez
+ */
+public class HistogramTest {
+
+    @Test
+    public void testPercentileInterpolatedWithinBucket() throws Exception {
+        Histogram histogram = new Histogram();
+
+        // All of them in the bucket from 1 to 2.5 ms
+        for (int i = 0; i < 100; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(1500));
+        }
+
+        assertEquals(100, histogram.count());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1750), histogram.percentile(50));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(2500), histogram.percentile(100));
+    }
+
+    @Test
+    public void testPercentileAcrossBuckets() throws Exception {
+        Histogram histogram = new Histogram();
+
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(2));
+        }
+        histogram.record(TimeUnit.SECONDS.toNanos(3));
+
+        assertEquals(2500, histogram.percentile(99));
+        // Halfway into the bucket from 2.5 to 5 s
+        assertEquals(3.75e9, histogram.percentile(99.5), 1);
+    }
+
+    @Test
+    public void testPercentileOfEmptyHistogram() throws Exception {
+        assertEquals(0, new Histogram().percentile(99));
+    }
+
+    @Test
+    public void testPercentilePastLastBound() throws Exception {
+        Histogram histogram = new Histogram();
+
+        histogram.record(TimeUnit.SECONDS.toNanos(30));
+
+        assertEquals(TimeUnit.SECONDS.toNanos(10), histogram.percentile(50));
+    }
+}
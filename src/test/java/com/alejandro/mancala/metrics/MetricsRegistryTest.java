@@ -0,0 +1,61 @@
+package com.alejandro.mancala.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for MetricsRegistry.
+ *
+ * @author afernandez
+ */
+public class MetricsRegistryTest {
+
+    private MetricsRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    public void testCountersAndGauges() throws Exception {
+        LongAdder won = registry.counter("games_total", "Games", "outcome", "won");
+        registry.counter("games_total", "Games", "outcome", "lost");
+        registry.gauge("players", "Players", () -> 7);
+
+        won.add(3);
+        String scrape = registry.scrape();
+
+        assertTrue(scrape.contains("# HELP games_total Games\n# TYPE games_total counter\n"));
+        assertTrue(scrape.contains("games_total{outcome=\"won\"} 3\n"));
+        assertTrue(scrape.contains("games_total{outcome=\"lost\"} 0\n"));
+        assertTrue(scrape.contains("# TYPE players gauge\nplayers 7\n"));
+    }
+
+    @Test
+    public void testHistogramBucketsAreCumulative() throws Exception {
+        Histogram histogram = registry.histogram("move_seconds", "Moves", "phase", "engine");
+
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(2));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        String scrape = registry.scrape();
+
+        assertTrue(scrape.contains("# TYPE move_seconds histogram\n"));
+        assertTrue(scrape.contains("move_seconds_bucket{phase=\"engine\",le=\"1.0E-6\"} 0\n"));
+        assertTrue(scrape.contains("move_seconds_bucket{phase=\"engine\",le=\"2.5E-6\"} 1\n"));
+        assertTrue(scrape.contains("move_seconds_bucket{phase=\"engine\",le=\"0.005\"} 2\n"));
+        assertTrue(scrape.contains("move_seconds_bucket{phase=\"engine\",le=\"+Inf\"} 2\n"));
+        assertTrue(scrape.contains("move_seconds_count{phase=\"engine\"} 2\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSameNameDifferentType() throws Exception {
+        registry.counter("games", "Games");
+        registry.gauge("games", "Games", () -> 1);
+    }
+}
@@ -0,0 +1,134 @@
+package com.alejandro.mancala.player;
+
+import com.alejandro.mancala.message.SendPipeline;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for PlayerService.
+ *
+ * @author afernandez
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PlayerServiceTest {
+    private static final long GRACE_PERIOD = 30000;
+
+    @Mock
+    private SendPipeline sendPipeline;
+    @Mock
+    private ScheduledExecutorService timer;
+    @Mock
+    private WebSocketSession session;
+    @Mock
+    private WebSocketSession newSession;
+
+    private PlayerService playerService;
+
+    @Before
+    public void setUp() throws Exception {
+        playerService = new PlayerService(sendPipeline, timer, GRACE_PERIOD);
+
+        when(session.getId()).thenReturn("1");
+        when(newSession.getId()).thenReturn("2");
+        when(sendPipeline.open(session)).thenReturn(session);
+        when(sendPipeline.open(newSession)).thenReturn(newSession);
+    }
+
+    @Test
+    public void testCreatePlayerIssuesResumeToken() throws Exception {
+        Player player = playerService.createPlayer(session, 1);
+
+        assertTrue(player.getResumeToken().matches("[0-9a-f]{32}"));
+        assertFalse(player.getResumeToken().equals(playerService.createPlayer(newSession, 1).getResumeToken()));
+    }
+
+    @Test
+    public void testResumeTokenCarriesGameId() throws Exception {
+        assertEquals(7, PlayerService.gameIdOf(playerService.createPlayer(session, 7).getResumeToken()));
+        assertEquals(Integer.MAX_VALUE,
+                PlayerService.gameIdOf(playerService.createPlayer(newSession, Integer.MAX_VALUE).getResumeToken()));
+    }
+
+    @Test
+    public void testRecoveredPlayerKeepsResumeToken() throws Exception {
+        String resumeToken = playerService.createPlayer(session, 7).getResumeToken();
+
+        Player recovered = PlayerService.recoveredPlayer(7, false, PlayerService.tokenParts(resumeToken));
+
+        assertEquals(resumeToken, recovered.getResumeToken());
+        assertEquals(7, recovered.getGameId());
+        assertFalse(recovered.getSession().isOpen());
+    }
+
+    @Test
+    public void testResumeHeldPlayer() throws Exception {
+        Player player = playerService.createPlayer(session, 7);
+        playerService.removePlayer("1");
+
+        assertTrue(playerService.holdPlayer(player, mock(Runnable.class)));
+        verify(timer).schedule(any(Runnable.class), eq(GRACE_PERIOD), eq(TimeUnit.MILLISECONDS));
+
+        Player resumed = playerService.resumePlayer(newSession, player.getResumeToken());
+
+        assertEquals(7, resumed.getGameId());
+        assertEquals(newSession, resumed.getSession());
+        assertEquals(resumed, playerService.getPlayer("2"));
+        assertNull(playerService.resumePlayer(newSession, player.getResumeToken()));
+    }
+
+    @Test
+    public void testHeldPlayerExpires() throws Exception {
+        Player player = playerService.createPlayer(session, 7);
+        Runnable expired = mock(Runnable.class);
+        ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+
+        playerService.holdPlayer(player, expired);
+        verify(timer).schedule(timeout.capture(), anyLong(), any(TimeUnit.class));
+        timeout.getValue().run();
+
+        verify(expired).run();
+        assertNull(playerService.resumePlayer(newSession, player.getResumeToken()));
+    }
+
+    @Test
+    public void testResumedPlayerDoesNotExpire() throws Exception {
+        Player player = playerService.createPlayer(session, 7);
+        Runnable expired = mock(Runnable.class);
+        ArgumentCaptor<Runnable> timeout = ArgumentCaptor.forClass(Runnable.class);
+
+        playerService.holdPlayer(player, expired);
+        verify(timer).schedule(timeout.capture(), anyLong(), any(TimeUnit.class));
+        playerService.resumePlayer(newSession, player.getResumeToken());
+        timeout.getValue().run();
+
+        verify(expired, never()).run();
+    }
+
+    @Test
+    public void testPlayersNotHeldWithoutGracePeriod() throws Exception {
+        PlayerService withoutResume = new PlayerService(sendPipeline, timer, 0);
+
+        assertFalse(withoutResume.holdPlayer(withoutResume.createPlayer(session, 7), mock(Runnable.class)));
+        verify(timer, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    }
+}
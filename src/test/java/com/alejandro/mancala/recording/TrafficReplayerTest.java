@@ -0,0 +1,322 @@
+package com.alejandro.mancala.recording;
+
+import com.alejandro.mancala.GameHandler;
+import com.alejandro.mancala.bot.BotService;
+import com.alejandro.mancala.game.Board;
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.GameService;
+import com.alejandro.mancala.game.State;
+import com.alejandro.mancala.message.BinaryFrames;
+import com.alejandro.mancala.message.MessageService;
+import com.alejandro.mancala.message.SendPipeline;
+import com.alejandro.mancala.message.SlowConsumerPolicy;
+import com.alejandro.mancala.metrics.GameMetrics;
+import com.alejandro.mancala.player.PlayerService;
+import com.alejandro.mancala.spectator.SpectatorService;
+import com.alejandro.mancala.timer.GameTimeouts;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for FileTrafficRecorder and TrafficReplayer.
+ *
+ * @author afernandez
+ */
+public class TrafficReplayerTest {
+    private static final String TOKEN = "000000070102030405060708090a0b0c";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = folder.getRoot().toPath().resolve("traffic.rec");
+    }
+
+    @Test
+    public void testReplayRecordedGame() throws Exception {
+        FileTrafficRecorder recorder = new FileTrafficRecorder(file, 1024, 1 << 20);
+        GameService gameService = new GameService();
+        PlayerService playerService = playerService();
+        GameHandler gameHandler = new GameHandler(playerService, gameService, new MessageService(),
+                new GameMetrics(), GameTimeouts.DISABLED, new SpectatorService(), BotService.DISABLED, recorder);
+        LongAdder framesSent = new LongAdder();
+
+        ReplaySession first = new ReplaySession("a", null, framesSent);
+        ReplaySession second = new ReplaySession("b", null, framesSent);
+        gameHandler.afterConnectionEstablished(first);
+        gameHandler.afterConnectionEstablished(second);
+
+        Game game = gameService.getGame(playerService.getPlayer("a").getGameId());
+        int moves = 0;
+
+        while (game.getState() == State.STARTED) {
+            boolean firstPlayer = game.isFirstPlayerTurn();
+            long side = firstPlayer ? game.getBoard().getFirstPlayerSide() : game.getBoard().getSecondPlayerSide();
+            int pit = 0;
+
+            while (Board.stones(side, pit) == 0) {
+                pit++;
+            }
+            gameHandler.handleMessage(firstPlayer ? first : second, new TextMessage("{\"pitSelected\":" + pit
+                    + ",\"player\":\"" + (firstPlayer ? MessageService.FIRST_PLAYER : MessageService.SECOND_PLAYER)
+                    + "\"}"));
+            moves++;
+        }
+        gameHandler.afterConnectionClosed(first, CloseStatus.NORMAL);
+        gameHandler.afterConnectionClosed(second, CloseStatus.GOING_AWAY);
+        recorder.close();
+
+        GameHandler replayHandler = new GameHandler(playerService(), new GameService(), new MessageService());
+        ReplayReport report = new TrafficReplayer(replayHandler, 0).replay(file);
+
+        assertEquals(0, recorder.getDroppedEvents());
+        assertEquals(4 + moves, report.getEvents());
+        assertEquals(2, report.getConnections());
+        assertEquals(moves, report.getFrames());
+        assertEquals(0, report.getErrors());
+        assertEquals(framesSent.sum(), report.getFramesSent());
+    }
+
+    @Test
+    public void testReplayResume() throws Exception {
+        FileTrafficRecorder recorder = new FileTrafficRecorder(file, 1024, 1 << 20);
+        PlayerService playerService = playerService(60000);
+        GameHandler gameHandler = new GameHandler(playerService, new GameService(), new MessageService(),
+                new GameMetrics(), GameTimeouts.DISABLED, new SpectatorService(), BotService.DISABLED, recorder);
+
+        ReplaySession first = new ReplaySession("a", null, new LongAdder());
+        gameHandler.afterConnectionEstablished(first);
+        gameHandler.afterConnectionEstablished(new ReplaySession("b", null, new LongAdder()));
+        String token = playerService.getPlayer("a").getResumeToken();
+        gameHandler.afterConnectionClosed(first, CloseStatus.GOING_AWAY);
+
+        ReplaySession resumed = new ReplaySession("c", new URI("ws://localhost:9000/mancala?resume=" + token), null,
+                new LongAdder());
+        gameHandler.afterConnectionEstablished(resumed);
+        gameHandler.handleMessage(resumed, new TextMessage("{\"pitSelected\":0,\"player\":\""
+                + MessageService.FIRST_PLAYER + "\"}"));
+        recorder.close();
+        playerService.shutdown();
+
+        PlayerService replayPlayers = playerService(60000);
+        GameService replayGames = new GameService();
+        GameHandler replayHandler = new GameHandler(replayPlayers, replayGames, new MessageService(),
+                new GameMetrics(), GameTimeouts.DISABLED, new SpectatorService(), BotService.DISABLED,
+                TrafficReplayer.ISSUED_TOKENS);
+        ReplayReport report = new TrafficReplayer(replayHandler, 0).replay(file);
+        Game game = replayGames.getGame(replayPlayers.getPlayer("b").getGameId());
+        replayPlayers.shutdown();
+
+        assertEquals(0, report.getDivergences());
+        assertEquals(0, report.getErrors());
+        assertEquals("c", game.getFirstPlayer().getSession().getId());
+        assertEquals(game.getId(), replayPlayers.getPlayer("c").getGameId());
+    }
+
+    @Test
+    public void testReplaySpeed() throws Exception {
+        FileTrafficRecorder recorder = new FileTrafficRecorder(file, 1024, 1 << 20);
+        ReplaySession session = new ReplaySession("a", null, new LongAdder());
+
+        recorder.connectionOpened(session);
+        Thread.sleep(200);
+        recorder.connectionClosed(session, CloseStatus.NORMAL);
+        recorder.close();
+
+        ReplayReport report = new TrafficReplayer(new RecordingHandler(), 2).replay(file);
+
+        assertEquals(2, report.getEvents());
+        assertTrue(report.getElapsed() >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(new TrafficReplayer(new RecordingHandler(), 0).replay(file).getElapsed()
+                < TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testEventsOfUnknownSessionDropped() throws Exception {
+        FileTrafficRecorder recorder = new FileTrafficRecorder(file, 1024, 1 << 20);
+        ReplaySession session = new ReplaySession("a", null, new LongAdder());
+
+        recorder.textReceived(session, new TextMessage("{}"));
+        recorder.close();
+
+        assertEquals(1, recorder.getDroppedEvents());
+        assertEquals(0, new TrafficReplayer(new RecordingHandler(), 0).replay(file).getEvents());
+    }
+
+    @Test
+    public void testIncompleteEventIgnored() throws Exception {
+        FileTrafficRecorder recorder = new FileTrafficRecorder(file, 1024, 1 << 20);
+        ReplaySession session = new ReplaySession("a", BinaryFrames.PROTOCOL, new LongAdder());
+
+        recorder.connectionOpened(session);
+        recorder.textReceived(session, new TextMessage("{\"resync\":true}"));
+        recorder.close();
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        RecordingHandler handler = new RecordingHandler();
+        ReplayReport report = new TrafficReplayer(handler, 0).replay(file);
+
+        assertEquals(1, report.getEvents());
+        assertEquals(BinaryFrames.PROTOCOL, handler.getSessions().get(0).getAcceptedProtocol());
+    }
+
+    @Test
+    public void testReplayConnectionAsRecorded() throws Exception {
+        FileTrafficRecorder recorder = new FileTrafficRecorder(file, 1024, 1 << 20);
+        ReplaySession session = new ReplaySession("a", new URI("ws://localhost:9000/mancala?resume=" + TOKEN), null,
+                new LongAdder());
+        session.getAttributes().put(GameHandler.GAME_ID_ATTRIBUTE, 7);
+
+        recorder.connectionOpened(session);
+        recorder.close();
+
+        RecordingHandler handler = new RecordingHandler();
+        new TrafficReplayer(handler, 0).replay(file);
+
+        WebSocketSession replayed = handler.getSessions().get(0);
+        assertEquals(TOKEN, GameHandler.resumeToken(replayed.getUri()));
+        assertEquals(7, replayed.getAttributes().get(GameHandler.GAME_ID_ATTRIBUTE));
+    }
+
+    @Test
+    public void testSettingsRecorded() throws Exception {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("mancala.timeout.turn", "60000");
+        settings.put("mancala.bot.wait", "30000");
+
+        new FileTrafficRecorder(file, 1024, 1 << 20, settings).close();
+
+        assertEquals(settings, TrafficReplayer.settings(file));
+        assertEquals(0, new TrafficReplayer(new RecordingHandler(), 0).replay(file).getEvents());
+    }
+
+    @Test
+    public void testDivergencesReportedApartFromErrors() throws Exception {
+        FileTrafficRecorder recorder = new FileTrafficRecorder(file, 1024, 1 << 20);
+        ReplaySession session = new ReplaySession("a", null, new LongAdder());
+
+        recorder.connectionOpened(session);
+        recorder.textReceived(session, new TextMessage("{\"pitSelected\":"));
+        recorder.textReceived(session, new TextMessage("{\"pitSelected\":1,\"player\":\"First Player\"}"));
+        recorder.close();
+
+        ReplayReport report = new TrafficReplayer(new RejectingHandler(), 0).replay(file);
+
+        assertEquals(1, report.getRejected());
+        assertEquals(1, report.getDivergences());
+        assertEquals(0, report.getErrors());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotARecording() throws Exception {
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13});
+
+        new TrafficReplayer(new RecordingHandler(), 0).replay(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSpeed() throws Exception {
+        new TrafficReplayer(new RecordingHandler(), -1);
+    }
+
+    // Frames are sent on the calling thread, so they are all counted once the handler returns
+    private static PlayerService playerService() {
+        return playerService(0);
+    }
+
+    private static PlayerService playerService(long gracePeriod) {
+        return new PlayerService(new SendPipeline(new CallerRunsExecutor(), 1 << 16, 5000, SlowConsumerPolicy.DROP),
+                Executors.newSingleThreadScheduledExecutor(), gracePeriod);
+    }
+
+    /**
+     * Keeps the sessions connected, doing nothing else.
+     */
+    private static class RecordingHandler extends AbstractWebSocketHandler {
+        private final List<WebSocketSession> sessions = new ArrayList<>();
+
+        @Override
+        public void afterConnectionEstablished(WebSocketSession session) {
+            sessions.add(session);
+        }
+
+        List<WebSocketSession> getSessions() {
+            return sessions;
+        }
+    }
+
+    /**
+     * Turns down every frame, as a server whose games went another way than the ones recorded.
+     */
+    private static class RejectingHandler extends AbstractWebSocketHandler {
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+            throw new IllegalArgumentException("Not your turn");
+        }
+    }
+
+    /**
+     * Runs every task right away on the calling thread.
+     */
+    private static class CallerRunsExecutor extends AbstractExecutorService {
+
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.alejandro.mancala.simulation;
+
+import com.alejandro.mancala.game.Board;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for MovePolicy.
+ *
+ * @author afernandez
+ */
+public class MovePolicyTest {
+
+    private SplittableRandom random = new SplittableRandom(1);
+
+    @Test
+    public void testRandomSowsPitsWithStones() throws Exception {
+        long side = Board.withStones(Board.withStones(0, 1, 3), 4, 1);
+
+        for (int i = 0; i < 100; i++) {
+            int pit = MovePolicy.random().choosePit(side, 0, i, random);
+            assertTrue(pit == 1 || pit == 4);
+        }
+    }
+
+    @Test
+    public void testGreedyTakesAdditionalTurn() throws Exception {
+        Board board = new Board();
+
+        // Only pit 0, with 6 stones, ends in the big pit
+        assertEquals(0, MovePolicy.greedy().choosePit(board.getFirstPlayerSide(), board.getSecondPlayerSide(), 0,
+                random));
+    }
+
+    @Test
+    public void testGreedyCaptures() throws Exception {
+        long side = Board.withStones(Board.withStones(0, 0, 1), 5, 3);
+        long opponentSide = Board.withStones(0, 4, 10);
+
+        assertEquals(0, MovePolicy.greedy().choosePit(side, opponentSide, 0, random));
+    }
+
+    @Test
+    public void testScriptedFallsBackToFirstPitWithStones() throws Exception {
+        long side = Board.withStones(Board.withStones(0, 2, 3), 4, 1);
+        MovePolicy policy = MovePolicy.scripted(4, 1);
+
+        assertEquals(4, policy.choosePit(side, 0, 0, random));
+        assertEquals(2, policy.choosePit(side, 0, 1, random));
+        assertEquals(2, policy.choosePit(side, 0, 2, random));
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        long side = Board.withStones(Board.withStones(0, 2, 3), 4, 1);
+
+        assertEquals(4, MovePolicy.parse("scripted:4").choosePit(side, 0, 0, random));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseUnknown() throws Exception {
+        MovePolicy.parse("clever");
+    }
+}
@@ -0,0 +1,66 @@
+package com.alejandro.mancala.simulation;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for SimulationEngine.
+ *
+ * @author afernandez
+ */
+public class SimulationEngineTest {
+
+    private SimulationEngine engine = new SimulationEngine(new ForkJoinPool(4));
+
+    @Test
+    public void testEveryGameFinishes() throws Exception {
+        SimulationReport report = engine.run(2000, MovePolicy.random(), MovePolicy.random(), 42);
+
+        assertEquals(2000, report.getGames());
+        assertEquals(2000, report.getFirstPlayerWins() + report.getSecondPlayerWins() + report.getDraws());
+        assertTrue(report.getShortestGame() > 0);
+        assertTrue(report.getLongestGame() >= report.getShortestGame());
+        assertTrue(report.getGamesPerSecond() > 0);
+    }
+
+    @Test
+    public void testSameSeedSameStatistics() throws Exception {
+        SimulationReport report = engine.run(1000, MovePolicy.random(), MovePolicy.greedy(), 7);
+        SimulationReport sequential = new SimulationEngine(new ForkJoinPool(1))
+                .run(1000, MovePolicy.random(), MovePolicy.greedy(), 7);
+
+        assertEquals(report.getFirstPlayerWins(), sequential.getFirstPlayerWins());
+        assertEquals(report.getMoves(), sequential.getMoves());
+        assertEquals(report.getAverageMargin(), sequential.getAverageMargin(), 0);
+    }
+
+    @Test
+    public void testGreedyBeatsRandom() throws Exception {
+        SimulationReport report = engine.run(1000, MovePolicy.greedy(), MovePolicy.random(), 1);
+
+        assertTrue(report.getFirstPlayerWins() > report.getSecondPlayerWins());
+        assertTrue(report.getAverageMargin() > 0);
+    }
+
+    @Test
+    public void testScriptedGamesAreAllTheSame() throws Exception {
+        SimulationReport report = engine.run(100, MovePolicy.scripted(0, 5), MovePolicy.scripted(), 3);
+
+        assertEquals(report.getShortestGame(), report.getLongestGame());
+        assertEquals(100, report.getFirstPlayerWins() + report.getSecondPlayerWins() + report.getDraws());
+        assertTrue(report.getFirstPlayerWins() == 100 || report.getSecondPlayerWins() == 100
+                || report.getDraws() == 100);
+    }
+
+    @Test
+    public void testNoGames() throws Exception {
+        SimulationReport report = engine.run(0, MovePolicy.random(), MovePolicy.random(), 0);
+
+        assertEquals(0, report.getGames());
+        assertEquals(0, report.getShortestGame());
+    }
+}
@@ -0,0 +1,221 @@
+package com.alejandro.mancala.spectator;
+
+import com.alejandro.mancala.game.Game;
+import com.alejandro.mancala.game.State;
+import com.alejandro.mancala.message.SendPipeline;
+import com.alejandro.mancala.message.SlowConsumerPolicy;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for SpectatorService.
+ *
+ * @author afernandez
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SpectatorServiceTest {
+
+    private ManualExecutor executor = new ManualExecutor();
+    private SpectatorService spectatorService = new SpectatorService(executor,
+            new SendPipeline(executor, 1024, 1000, SlowConsumerPolicy.DISCONNECT));
+    private Game game = new Game(1);
+
+    @Mock
+    private WebSocketSession session;
+    @Mock
+    private WebSocketSession otherSession;
+
+    @Before
+    public void setUp() throws Exception {
+        when(session.getId()).thenReturn("1");
+        when(session.isOpen()).thenReturn(true);
+        when(otherSession.getId()).thenReturn("2");
+        when(otherSession.isOpen()).thenReturn(true);
+
+        game.start();
+    }
+
+    @Test
+    public void testSpectatorGetsCurrentBoard() throws Exception {
+        spectatorService.watch(game, session);
+
+        verify(session, never()).sendMessage(any(WebSocketMessage.class));
+        executor.runAll();
+
+        String payload = sentPayloads(session, 1).get(0);
+        assertTrue(payload.contains("\"turnMessage\":\"First Player's turn\""));
+        assertTrue(payload.contains("\"version\":0"));
+        assertEquals(1, spectatorService.getSpectators());
+        assertEquals(1, game.getSpectators().size());
+    }
+
+    @Test
+    public void testUpdateEncodedOnceForEverySpectator() throws Exception {
+        ArgumentCaptor<TextMessage> first = ArgumentCaptor.forClass(TextMessage.class);
+        ArgumentCaptor<TextMessage> second = ArgumentCaptor.forClass(TextMessage.class);
+
+        spectatorService.watch(game, session);
+        spectatorService.watch(game, otherSession);
+        executor.runAll();
+
+        game.getBoard().nextVersion();
+        spectatorService.gameUpdated(game);
+        executor.runAll();
+
+        verify(session, times(2)).sendMessage(first.capture());
+        verify(otherSession, times(2)).sendMessage(second.capture());
+
+        assertSame(first.getValue(), second.getValue());
+        assertTrue(first.getValue().getPayload().contains("\"version\":1"));
+    }
+
+    @Test
+    public void testLaggingSpectatorSkipsIntermediateUpdates() throws Exception {
+        spectatorService.watch(game, session);
+        executor.runAll();
+
+        game.getBoard().nextVersion();
+        spectatorService.gameUpdated(game);
+        // The update is fanned out but not sent yet when the next one comes
+        executor.runLast();
+
+        game.getBoard().nextVersion();
+        spectatorService.gameUpdated(game);
+        executor.runLast();
+        executor.runAll();
+
+        List<String> payloads = sentPayloads(session, 2);
+        assertTrue(payloads.get(0).contains("\"version\":0"));
+        assertTrue(payloads.get(1).contains("\"version\":2"));
+        assertEquals(1, spectatorService.getSkippedFrames());
+    }
+
+    @Test
+    public void testFinishedGameStatus() throws Exception {
+        spectatorService.watch(game, session);
+        executor.runAll();
+
+        game.setState(State.GAME_DRAW);
+        spectatorService.gameUpdated(game);
+        executor.runAll();
+
+        assertTrue(sentPayloads(session, 2).get(1).contains("\"turnMessage\":\"The game ended in draw\""));
+    }
+
+    @Test
+    public void testUnwatchStopsUpdates() throws Exception {
+        spectatorService.watch(game, session);
+        executor.runAll();
+        spectatorService.unwatch("1");
+
+        spectatorService.gameUpdated(game);
+        executor.runAll();
+
+        verify(session, times(1)).sendMessage(any(WebSocketMessage.class));
+        assertEquals(0, spectatorService.getSpectators());
+        assertEquals(0, game.getSpectators().size());
+    }
+
+    @Test
+    public void testClosedSessionIsNotWatching() throws Exception {
+        when(session.isOpen()).thenReturn(false);
+
+        spectatorService.watch(game, session);
+        executor.runAll();
+
+        verify(session, never()).sendMessage(any(WebSocketMessage.class));
+        assertEquals(0, spectatorService.getSpectators());
+    }
+
+    @Test
+    public void testSessionClosedWhileJoiningIsNotWatching() throws Exception {
+        // Open when the mailbox gets to it, closed right after the spectator is registered
+        when(session.isOpen()).thenReturn(true, false);
+
+        spectatorService.watch(game, session);
+        executor.runAll();
+
+        verify(session, never()).sendMessage(any(WebSocketMessage.class));
+        assertEquals(0, spectatorService.getSpectators());
+        assertEquals(0, game.getSpectators().size());
+    }
+
+    private static List<String> sentPayloads(WebSocketSession session, int frames) throws Exception {
+        ArgumentCaptor<TextMessage> sent = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, times(frames)).sendMessage(sent.capture());
+
+        return sent.getAllValues().stream().map(TextMessage::getPayload).collect(Collectors.toList());
+    }
+
+    /**
+     * Executor running its tasks only when asked to, so that the tests control when frames are fanned out and sent.
+     */
+    private static class ManualExecutor extends AbstractExecutorService {
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+        void runAll() {
+            Runnable task;
+
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+        void runLast() {
+            tasks.pollLast().run();
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.offer(task);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.alejandro.mancala.timer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for GameTimeouts.
+ *
+ * @author afernandez
+ */
+public class GameTimeoutsTest {
+
+    private HashedWheelTimer timer;
+    private GameTimeouts timeouts;
+
+    @Before
+    public void setUp() throws Exception {
+        timer = new HashedWheelTimer(10, 8);
+        timeouts = new GameTimeouts(timer, Executors.newSingleThreadExecutor(r -> new Thread(r, "expiry")), 50,
+                TurnTimeoutAction.FORFEIT, 50, 50, 0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        timeouts.shutdown();
+        timer.shutdown();
+    }
+
+    @Test
+    public void testDeadlineRunsOnExpiryExecutor() throws Exception {
+        CountDownLatch expired = new CountDownLatch(1);
+        AtomicReference<String> thread = new AtomicReference<>();
+
+        timeouts.turnDeadline(() -> {
+            thread.set(Thread.currentThread().getName());
+            expired.countDown();
+        });
+
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertEquals("expiry", thread.get());
+    }
+
+    @Test
+    public void testPingRunsOnTimer() throws Exception {
+        CountDownLatch expired = new CountDownLatch(1);
+        AtomicReference<String> thread = new AtomicReference<>();
+
+        timeouts.nextPing(() -> {
+            thread.set(Thread.currentThread().getName());
+            expired.countDown();
+        });
+
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertNotEquals("expiry", thread.get());
+    }
+
+    @Test
+    public void testZeroTimeoutNotScheduled() throws Exception {
+        assertNull(timeouts.botDeadline(() -> {
+        }));
+    }
+}
@@ -0,0 +1,90 @@
+package com.alejandro.mancala.timer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for HashedWheelTimer.
+ *
+ * @author afernandez
+ */
+public class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    @Before
+    public void setUp() throws Exception {
+        timer = new HashedWheelTimer(10, 8);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        timer.shutdown();
+    }
+
+    @Test
+    public void testTimeoutExpires() throws Exception {
+        CountDownLatch expired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        Timeout timeout = timer.newTimeout(expired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void testTimeoutBeyondOneRoundOfTheWheel() throws Exception {
+        CountDownLatch expired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // The wheel goes round every 80 ms
+        timer.newTimeout(expired::countDown, 250, TimeUnit.MILLISECONDS);
+
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    public void testCancelledTimeoutNeverRuns() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+
+        Timeout timeout = timer.newTimeout(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+        timer.newTimeout(later::countDown, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, timer.getPendingTimeouts());
+    }
+
+    @Test
+    public void testManyTimeouts() throws Exception {
+        int timeouts = 200000;
+        CountDownLatch expired = new CountDownLatch(timeouts / 2);
+
+        for (int i = 0; i < timeouts; i++) {
+            Timeout timeout = timer.newTimeout(expired::countDown, 20 + i % 200, TimeUnit.MILLISECONDS);
+
+            if (i % 2 == 1) {
+                timeout.cancel();
+            }
+        }
+
+        assertTrue(expired.await(10, TimeUnit.SECONDS));
+        assertEquals(0, timer.getPendingTimeouts());
+    }
+}